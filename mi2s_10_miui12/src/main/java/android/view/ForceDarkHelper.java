@@ -20,19 +20,31 @@ import android.os.RemoteException;
 import android.os.ServiceManager;
 import android.os.SystemClock;
 import android.os.SystemProperties;
+import android.os.Trace;
 import android.util.Log;
 import android.widget.TextView;
 import com.android.internal.R.styleable;
 import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicLongArray;
 import miui.security.ISecurityManager;
 import miui.security.ISecurityManager.Stub;
 
 public class ForceDarkHelper
 {
+  private static final long COLOR_CACHE_CHANGED = 16777216L;
+  private static final int COLOR_CACHE_SHIFT = 23;
+  private static final int COLOR_CACHE_SIZE = 512;
+  private static final long COLOR_CACHE_VALID = Long.MIN_VALUE;
+  private static final int[] COMMON_THEME_COLORS = { -1, -16777216, -328966, -460552, -657931, -723724, -855310, -1118482, -1381654, -1644826, -2039584, -3355444, -5592406, -6710887, -7829368, -10066330, -12303292, -13421773, -14540254, -15066598, -15592942, -16738826, -16743537, -16728876, -16537100, -43230, -769226, -1499549, -689152, -26624, -11751600, -14575885 };
   private static final boolean DEBUG = false;
+  private static final String FRAME_COUNTER_NAME = "ForceDarkPaints";
+  private static final AtomicLongArray sDarkColorCache = new AtomicLongArray(512);
+  private static final AtomicLongArray sLightColorCache = new AtomicLongArray(512);
   private static String TAG = "ForceDarkHelper";
   private static volatile ForceDarkHelper sInstance;
   private boolean mAppDarkModeObserverRegisted;
+  private boolean mColorCacheWarmed;
+  private ViewRootImpl mDrawingRoot;
   private Method mBaiduWebViewGetSettingsExt;
   private Method mBaiduWebViewSetNightModeEnabledExt;
   private Context mContext;
@@ -249,39 +261,129 @@ public class ForceDarkHelper
   }
   
   public boolean makeDark(Paint paramPaint)
+  {
+    return transformPaint(paramPaint, true);
+  }
+  
+  public boolean makeLight(Paint paramPaint)
+  {
+    return transformPaint(paramPaint, false);
+  }
+  
+  private boolean transformPaint(Paint paramPaint, boolean paramBoolean)
   {
     if (paramPaint == null) {
       return false;
     }
     long l = paramPaint.getColorLong();
-    float[] arrayOfFloat = this.mRgbToLab.transform(Color.red(l), Color.green(l), Color.blue(l));
+    if (!Color.isSrgb(l)) {
+      return transformColorLong(paramPaint, l, paramBoolean);
+    }
+    int i = Color.toArgb(l);
+    long l2 = lookupColor(i & 0xFFFFFF, paramBoolean);
+    if ((l2 & COLOR_CACHE_CHANGED) == 0L) {
+      return false;
+    }
+    paramPaint.setColor(i & 0xFF000000 | (int)l2 & 0xFFFFFF);
+    countTransformedPaint();
+    return true;
+  }
+  
+  private boolean transformColorLong(Paint paramPaint, long paramLong, boolean paramBoolean)
+  {
+    float[] arrayOfFloat = this.mRgbToLab.transform(Color.red(paramLong), Color.green(paramLong), Color.blue(paramLong));
     float f = Math.min(110.0F - arrayOfFloat[0], 100.0F);
-    if (f < arrayOfFloat[0])
+    if (paramBoolean ? f < arrayOfFloat[0] : f > arrayOfFloat[0])
     {
       arrayOfFloat[0] = f;
       arrayOfFloat = this.mLabToRgb.transform(arrayOfFloat);
-      paramPaint.setColor(Color.pack(arrayOfFloat[0], arrayOfFloat[1], arrayOfFloat[2], Color.alpha(l)));
+      paramPaint.setColor(Color.pack(arrayOfFloat[0], arrayOfFloat[1], arrayOfFloat[2], Color.alpha(paramLong)));
+      countTransformedPaint();
       return true;
     }
     return false;
   }
   
-  public boolean makeLight(Paint paramPaint)
+  /**
+   * Returns the cache entry for the RGB bits of an sRGB color: the transformed RGB in the low 24 bits and
+   * COLOR_CACHE_CHANGED when the lightness actually moved. The table is direct-mapped and shared
+   * by the process, so a hit costs one array read and a collision just recomputes.
+   */
+  private long lookupColor(int paramInt, boolean paramBoolean)
   {
-    if (paramPaint == null) {
-      return false;
+    AtomicLongArray localAtomicLongArray = paramBoolean ? sDarkColorCache : sLightColorCache;
+    int i = paramInt * -1640531535 >>> COLOR_CACHE_SHIFT;
+    long l = localAtomicLongArray.get(i);
+    if ((l & COLOR_CACHE_VALID) != 0L && (int)(l >>> 32 & 0xFFFFFF) == paramInt) {
+      return l;
     }
-    long l = paramPaint.getColorLong();
-    float[] arrayOfFloat = this.mRgbToLab.transform(Color.red(l), Color.green(l), Color.blue(l));
+    float[] arrayOfFloat = this.mRgbToLab.transform((paramInt >> 16 & 0xFF) / 255.0F, (paramInt >> 8 & 0xFF) / 255.0F, (paramInt & 0xFF) / 255.0F);
     float f = Math.min(110.0F - arrayOfFloat[0], 100.0F);
-    if (f > arrayOfFloat[0])
+    l = COLOR_CACHE_VALID | (paramInt & 0xFFFFFFFFL) << 32;
+    if (paramBoolean ? f < arrayOfFloat[0] : f > arrayOfFloat[0])
     {
       arrayOfFloat[0] = f;
       arrayOfFloat = this.mLabToRgb.transform(arrayOfFloat);
-      paramPaint.setColor(Color.pack(arrayOfFloat[0], arrayOfFloat[1], arrayOfFloat[2], Color.alpha(l)));
-      return true;
+      l |= COLOR_CACHE_CHANGED | Color.toArgb(Color.pack(arrayOfFloat[0], arrayOfFloat[1], arrayOfFloat[2], 1.0F)) & 0xFFFFFF;
+    }
+    localAtomicLongArray.lazySet(i, l);
+    return l;
+  }
+  
+  private void warmColorCache()
+  {
+    if (this.mColorCacheWarmed) {
+      return;
+    }
+    this.mColorCacheWarmed = true;
+    for (int k : COMMON_THEME_COLORS)
+    {
+      lookupColor(k & 0xFFFFFF, true);
+      lookupColor(k & 0xFFFFFF, false);
+    }
+  }
+  
+  /**
+   * Counts a transformed paint for the window drawing on this thread. Windows of one process can
+   * draw on different threads, so a paint is only counted on the thread of the window in draw().
+   */
+  private void countTransformedPaint()
+  {
+    ViewRootImpl localViewRootImpl = this.mDrawingRoot;
+    if ((localViewRootImpl != null) && (localViewRootImpl.mThread == Thread.currentThread())) {
+      localViewRootImpl.mForceDarkFramePaints += 1;
+    }
+  }
+  
+  /**
+   * Starts a frame of paramViewRootImpl: its count of the frame before is published under the
+   * window's own trace counter, and only its counter is reset.
+   */
+  void onFrameDraw(ViewRootImpl paramViewRootImpl)
+  {
+    this.mDrawingRoot = paramViewRootImpl;
+    int i = paramViewRootImpl.mForceDarkFramePaints;
+    if ((i != 0) || (paramViewRootImpl.mForceDarkLastFramePaints != 0))
+    {
+      paramViewRootImpl.mForceDarkLastFramePaints = i;
+      paramViewRootImpl.mForceDarkFramePaints = 0;
+      if (paramViewRootImpl.mForceDarkCounterName == null) {
+        paramViewRootImpl.mForceDarkCounterName = FRAME_COUNTER_NAME + " " + paramViewRootImpl.getTitle();
+      }
+      Trace.traceCounter(8L, paramViewRootImpl.mForceDarkCounterName, i);
     }
-    return false;
+  }
+  
+  void onFrameDrawn(ViewRootImpl paramViewRootImpl)
+  {
+    if (this.mDrawingRoot == paramViewRootImpl) {
+      this.mDrawingRoot = null;
+    }
+  }
+  
+  public int getLastFrameTransformedPaintCount(ViewRootImpl paramViewRootImpl)
+  {
+    return paramViewRootImpl.mForceDarkLastFramePaints;
   }
   
   public void onConfigurationChanged(Configuration paramConfiguration)
@@ -412,6 +514,9 @@ public class ForceDarkHelper
       bool1 = false;
     }
     this.mIsForceDarkEnabled = bool1;
+    if (this.mIsForceDarkEnabled) {
+      warmColorCache();
+    }
     if (paramViewRootImpl.mAttachInfo.mThreadedRenderer != null) {
       paramViewRootImpl.mAttachInfo.mThreadedRenderer.setForceDark(this.mIsForceDarkEnabled);
     }
@@ -208,6 +208,9 @@ public final class ViewRootImpl
   boolean mFirst;
   InputStage mFirstInputStage;
   InputStage mFirstPostImeInputStage;
+  String mForceDarkCounterName;
+  int mForceDarkFramePaints;
+  int mForceDarkLastFramePaints;
   private boolean mForceDecorViewVisibility;
   private boolean mForceNextConfigUpdate;
   boolean mForceNextWindowRelayout;
@@ -1153,6 +1156,7 @@ public final class ViewRootImpl
     if (!localSurface1.isValid()) {
       return false;
     }
+    ForceDarkHelper.getInstance().onFrameDraw(this);
     int i;
     if (!sFirstDrawComplete) {
       synchronized (sFirstDrawHandlers)
@@ -2751,6 +2755,7 @@ public final class ViewRootImpl
     try
     {
       bool = draw(bool);
+      ForceDarkHelper.getInstance().onFrameDrawn(this);
       j = k;
       if (k != 0)
       {
@@ -0,0 +1,146 @@
+package com.android.server;
+
+import android.graphics.Rect;
+
+/**
+ * An immutable grid over the outside clickable rects of MiuiInputFilter. The bounds of all rects
+ * are cut into square cells, and every cell lists the rects that overlap it in the order they were
+ * added, so a lookup only tests the rects of one cell and still returns the first rect that
+ * contains the point, like a scan of the whole list. Points outside the bounds, which is almost
+ * every touch, are rejected by four comparisons.
+ *
+ * The rect coordinates are copied when the index is built; the filter builds a new index whenever
+ * a rect is added, removed or updated and publishes it to the input thread, which reads it without
+ * taking a lock.
+ */
+final class ClickableRectIndex {
+    static final ClickableRectIndex EMPTY = new ClickableRectIndex(new Rect[0], new Object[0]);
+    private static final int MAX_CELLS = 256;
+    private static final int MIN_CELL_SHIFT = 6;
+    private final int mBottom;
+    private final int[] mCellRects;
+    private final int mCellShift;
+    private final int[] mCellStarts;
+    private final int mColumns;
+    private final int mLeft;
+    private final int[] mRects;
+    private final int mRight;
+    private final Object[] mTargets;
+    private final int mTop;
+
+    ClickableRectIndex(Rect[] rects, Object[] targets) {
+        int count = 0;
+        int left = Integer.MAX_VALUE;
+        int top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE;
+        int bottom = Integer.MIN_VALUE;
+        int[] bounds = new int[rects.length * 4];
+        Object[] kept = new Object[rects.length];
+        for (int i = 0; i < rects.length; i++) {
+            Rect rect = rects[i];
+            // Rect.contains() never matches an empty rect.
+            if (rect.left < rect.right && rect.top < rect.bottom) {
+                bounds[count * 4] = rect.left;
+                bounds[(count * 4) + 1] = rect.top;
+                bounds[(count * 4) + 2] = rect.right;
+                bounds[(count * 4) + 3] = rect.bottom;
+                kept[count] = targets[i];
+                count++;
+                left = Math.min(left, rect.left);
+                top = Math.min(top, rect.top);
+                right = Math.max(right, rect.right);
+                bottom = Math.max(bottom, rect.bottom);
+            }
+        }
+        if (count == 0) {
+            left = 0;
+            top = 0;
+            right = 0;
+            bottom = 0;
+        }
+        this.mLeft = left;
+        this.mTop = top;
+        this.mRight = right;
+        this.mBottom = bottom;
+        int[] compact = new int[count * 4];
+        System.arraycopy(bounds, 0, compact, 0, compact.length);
+        Object[] compactTargets = new Object[count];
+        System.arraycopy(kept, 0, compactTargets, 0, count);
+        this.mRects = compact;
+        this.mTargets = compactTargets;
+        int shift = MIN_CELL_SHIFT;
+        while (cells(right - left, shift) * cells(bottom - top, shift) > MAX_CELLS) {
+            shift++;
+        }
+        this.mCellShift = shift;
+        int columns = cells(right - left, shift);
+        int cellCount = columns * cells(bottom - top, shift);
+        this.mColumns = columns;
+        int[] starts = new int[cellCount + 1];
+        for (int i = 0; i < count; i++) {
+            for (int row = firstRow(bounds, i); row <= lastRow(bounds, i); row++) {
+                for (int column = firstColumn(bounds, i); column <= lastColumn(bounds, i); column++) {
+                    int cell = (row * columns) + column;
+                    starts[cell + 1] = starts[cell + 1] + 1;
+                }
+            }
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            starts[cell + 1] = starts[cell + 1] + starts[cell];
+        }
+        int[] cellRects = new int[starts[cellCount]];
+        int[] next = (int[]) starts.clone();
+        for (int i2 = 0; i2 < count; i2++) {
+            for (int row2 = firstRow(bounds, i2); row2 <= lastRow(bounds, i2); row2++) {
+                for (int column2 = firstColumn(bounds, i2); column2 <= lastColumn(bounds, i2); column2++) {
+                    int cell2 = (row2 * columns) + column2;
+                    cellRects[next[cell2]] = i2;
+                    next[cell2] = next[cell2] + 1;
+                }
+            }
+        }
+        this.mCellRects = cellRects;
+        this.mCellStarts = starts;
+    }
+
+    private static int cells(int length, int shift) {
+        return ((length + (1 << shift)) - 1) >> shift;
+    }
+
+    private int firstColumn(int[] bounds, int i) {
+        return (bounds[i * 4] - this.mLeft) >> this.mCellShift;
+    }
+
+    private int firstRow(int[] bounds, int i) {
+        return (bounds[(i * 4) + 1] - this.mTop) >> this.mCellShift;
+    }
+
+    private int lastColumn(int[] bounds, int i) {
+        return ((bounds[(i * 4) + 2] - 1) - this.mLeft) >> this.mCellShift;
+    }
+
+    private int lastRow(int[] bounds, int i) {
+        return ((bounds[(i * 4) + 3] - 1) - this.mTop) >> this.mCellShift;
+    }
+
+    /** Returns the target of the first rect that contains the point, or null if none does. */
+    Object find(int x, int y) {
+        if (x < this.mLeft || x >= this.mRight || y < this.mTop || y >= this.mBottom) {
+            return null;
+        }
+        int[] rects = this.mRects;
+        int cell = (((y - this.mTop) >> this.mCellShift) * this.mColumns) + ((x - this.mLeft) >> this.mCellShift);
+        int end = this.mCellStarts[cell + 1];
+        for (int j = this.mCellStarts[cell]; j < end; j++) {
+            int i = this.mCellRects[j] * 4;
+            if (x >= rects[i] && y >= rects[i + 1] && x < rects[i + 2] && y < rects[i + 3]) {
+                return this.mTargets[this.mCellRects[j]];
+            }
+        }
+        return null;
+    }
+
+    int size() {
+        return this.mTargets.length;
+    }
+}
@@ -0,0 +1,55 @@
+package com.android.server;
+
+/**
+ * The handy mode combination keys of MiuiInputFilter as keycode bitsets: one set of the keys that
+ * can start a combination, and for each of those the set of keys that can follow it. A key event
+ * that cannot start a combination is recognized with one array read, which lets the filter pass it
+ * on without taking its lock. Tables are built once from the {@code int[][]} key sequences and
+ * never change.
+ */
+final class CombinationKeyTable {
+    private final long[] mFirstKeys;
+    private final long[][] mSecondKeys;
+
+    CombinationKeyTable(int[][] sequences) {
+        int maxKeyCode = 0;
+        for (int[] sequence : sequences) {
+            maxKeyCode = Math.max(maxKeyCode, Math.max(sequence[0], sequence[1]));
+        }
+        this.mFirstKeys = new long[(maxKeyCode >> 6) + 1];
+        this.mSecondKeys = new long[(maxKeyCode + 1)][];
+        for (int[] sequence2 : sequences) {
+            int first = sequence2[0];
+            long[] seconds = this.mSecondKeys[first];
+            if (seconds == null) {
+                seconds = new long[(maxKeyCode >> 6) + 1];
+                this.mSecondKeys[first] = seconds;
+            }
+            set(this.mFirstKeys, first);
+            set(seconds, sequence2[1]);
+        }
+    }
+
+    private static void set(long[] bits, int keyCode) {
+        int i = keyCode >> 6;
+        bits[i] = bits[i] | (1L << keyCode);
+    }
+
+    private static boolean get(long[] bits, int keyCode) {
+        return keyCode >= 0 && (keyCode >> 6) < bits.length && (bits[keyCode >> 6] & (1L << keyCode)) != 0;
+    }
+
+    /** Returns whether a combination starts with {@code keyCode}. */
+    boolean isFirstKey(int keyCode) {
+        return get(this.mFirstKeys, keyCode);
+    }
+
+    /** Returns whether {@code secondKeyCode} after {@code firstKeyCode} makes a combination. */
+    boolean isSequence(int firstKeyCode, int secondKeyCode) {
+        if (firstKeyCode < 0 || firstKeyCode >= this.mSecondKeys.length) {
+            return false;
+        }
+        long[] seconds = this.mSecondKeys[firstKeyCode];
+        return seconds != null && get(seconds, secondKeyCode);
+    }
+}
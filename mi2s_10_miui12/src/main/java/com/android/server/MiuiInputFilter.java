@@ -7,6 +7,8 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
 import android.os.SystemClock;
+import android.os.SystemProperties;
+import android.provider.Settings;
 import android.view.InputEvent;
 import android.view.InputFilter;
 import android.view.KeyEvent;
@@ -19,8 +21,10 @@ import miui.util.FeatureParser;
 import miui.util.HandyModeUtils;
 
 public class MiuiInputFilter extends InputFilter {
+    static CombinationKeyTable ENTERED_COMBINATION_KEY_TABLE = null;
     static int[][] ENTERED_LISTEN_COMBINATION_KEYS = null;
     private static int MIDDLE_KEYCODE = (isDpadDevice ? 23 : 3);
+    static CombinationKeyTable NOT_ENTERED_COMBINATION_KEY_TABLE = null;
     static int[][] NOT_ENTERED_LISTEN_COMBINATION_KEYS = null;
     private static final String PERSIST_SYS_BACKTOUCH_PROPERTY = "persist.sys.backtouch";
     private static final String PERSIST_SYS_HANDSWAP_PROPERTY = "persist.sys.handswap";
@@ -28,11 +32,13 @@ public class MiuiInputFilter extends InputFilter {
     private static float sEdgeDistance;
     private final double MAX_COS = Math.cos(0.3490658503988659d);
     private boolean mCitTestEnabled;
+    private volatile ClickableRectIndex mClickableRectIndex = ClickableRectIndex.EMPTY;
     private ClickableRect mClickingRect;
     private Context mContext;
     private H mHandler;
     private boolean mInstalled;
     private List<ClickableRect> mOutsideClickableRects = new ArrayList();
+    private volatile int mPendingKeyCount;
     private List<KeyData> mPendingKeys = new ArrayList();
     private ArrayList<PointF> mPoints = new ArrayList<>();
     private int mSampleDura;
@@ -44,6 +50,8 @@ public class MiuiInputFilter extends InputFilter {
         int i = MIDDLE_KEYCODE;
         NOT_ENTERED_LISTEN_COMBINATION_KEYS = new int[][]{new int[]{i, 4}, new int[]{i, 82}};
         ENTERED_LISTEN_COMBINATION_KEYS = new int[][]{new int[]{i, 4}, new int[]{i, 82}, new int[]{4, i}, new int[]{82, i}};
+        NOT_ENTERED_COMBINATION_KEY_TABLE = new CombinationKeyTable(NOT_ENTERED_LISTEN_COMBINATION_KEYS);
+        ENTERED_COMBINATION_KEY_TABLE = new CombinationKeyTable(ENTERED_LISTEN_COMBINATION_KEYS);
     }
 
     public boolean isInstalled() {
@@ -92,28 +100,53 @@ public class MiuiInputFilter extends InputFilter {
     }
 
     public void addOutsideClickableRect(Rect rect, Runnable listener) {
-        this.mOutsideClickableRects.add(new ClickableRect(rect, listener));
+        synchronized (this.mOutsideClickableRects) {
+            this.mOutsideClickableRects.add(new ClickableRect(new Rect(rect), listener));
+            updateClickableRectIndexLocked();
+        }
     }
 
     public void removeOutsideClickableRect(Runnable listener) {
-        for (int i = this.mOutsideClickableRects.size() - 1; i >= 0; i--) {
-            if (this.mOutsideClickableRects.get(i).mClickListener == listener) {
-                this.mOutsideClickableRects.remove(i);
+        synchronized (this.mOutsideClickableRects) {
+            for (int i = this.mOutsideClickableRects.size() - 1; i >= 0; i--) {
+                if (this.mOutsideClickableRects.get(i).mClickListener == listener) {
+                    this.mOutsideClickableRects.remove(i);
+                }
             }
+            updateClickableRectIndexLocked();
         }
     }
 
     public void updateOutsideClickableRect(Rect rect, Runnable listener) {
-        boolean containListener = false;
-        for (int i = this.mOutsideClickableRects.size() - 1; i >= 0; i--) {
-            if (this.mOutsideClickableRects.get(i).mClickListener == listener) {
-                this.mOutsideClickableRects.remove(i);
-                containListener = true;
+        synchronized (this.mOutsideClickableRects) {
+            boolean containListener = false;
+            for (int i = this.mOutsideClickableRects.size() - 1; i >= 0; i--) {
+                if (this.mOutsideClickableRects.get(i).mClickListener == listener) {
+                    this.mOutsideClickableRects.remove(i);
+                    containListener = true;
+                }
+            }
+            if (containListener) {
+                this.mOutsideClickableRects.add(new ClickableRect(new Rect(rect), listener));
+                updateClickableRectIndexLocked();
             }
         }
-        if (containListener) {
-            this.mOutsideClickableRects.add(new ClickableRect(rect, listener));
+    }
+
+    /**
+     * Publishes a new index of the outside clickable rects. The input thread reads the index
+     * without locking, so the list is only ever read here, and the rects are copies the callers
+     * cannot change afterwards.
+     */
+    private void updateClickableRectIndexLocked() {
+        int size = this.mOutsideClickableRects.size();
+        Rect[] rects = new Rect[size];
+        ClickableRect[] targets = new ClickableRect[size];
+        for (int i = 0; i < size; i++) {
+            targets[i] = this.mOutsideClickableRects.get(i);
+            rects[i] = targets[i].mRect;
         }
+        this.mClickableRectIndex = new ClickableRectIndex(rects, targets);
     }
 
     public void setCitTestEnabled(boolean enabled) {
@@ -249,12 +282,7 @@ public class MiuiInputFilter extends InputFilter {
     }
 
     private ClickableRect findClickableRect(float x, float y) {
-        for (ClickableRect c : this.mOutsideClickableRects) {
-            if (c.mRect.contains((int) x, (int) y)) {
-                return c;
-            }
-        }
-        return null;
+        return (ClickableRect) this.mClickableRectIndex.find((int) x, (int) y);
     }
 
     private boolean isTouchInside(float x, float y) {
@@ -308,205 +336,74 @@ public class MiuiInputFilter extends InputFilter {
         return !needShowDialog() || isSecondKey;
     }
 
-    /* JADX WARNING: Code restructure failed: missing block: B:30:0x0080, code lost:
-        if (r7 == false) goto L_0x0082;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:54:0x00e6, code lost:
-        if (r3 != false) goto L_0x00e8;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:75:0x0135, code lost:
-        return;
-     */
-    /* Code decompiled incorrectly, please refer to instructions dump. */
-    private synchronized void onKeyEvent(android.view.KeyEvent r14, int r15) {
-        /*
-            r13 = this;
-            monitor-enter(r13)
-            boolean r0 = com.android.server.HandyMode.sEnable     // Catch:{ all -> 0x013b }
-            if (r0 == 0) goto L_0x0136
-            int r0 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            if (r0 != 0) goto L_0x000d
-            goto L_0x0136
-        L_0x000d:
-            r0 = 0
-            r1 = 0
-            r2 = 0
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r3 = r13.mPendingKeys     // Catch:{ all -> 0x013b }
-            int r3 = r3.size()     // Catch:{ all -> 0x013b }
-            r4 = 0
-            r5 = 1
-            if (r3 == 0) goto L_0x0102
-            if (r3 == r5) goto L_0x00bd
-            r6 = 2
-            if (r3 == r6) goto L_0x0057
-            r7 = 3
-            if (r3 == r7) goto L_0x0024
-            goto L_0x0127
-        L_0x0024:
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r3 = r13.mPendingKeys     // Catch:{ all -> 0x013b }
-            java.lang.Object r3 = r3.get(r6)     // Catch:{ all -> 0x013b }
-            com.android.server.MiuiInputFilter$KeyData r3 = (com.android.server.MiuiInputFilter.KeyData) r3     // Catch:{ all -> 0x013b }
-            android.view.KeyEvent r3 = r3.keyEvent     // Catch:{ all -> 0x013b }
-            int r6 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r6 != r5) goto L_0x0052
-            int r6 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            int r7 = r3.getKeyCode()     // Catch:{ all -> 0x013b }
-            if (r6 != r7) goto L_0x0052
-            r1 = 1
-            r0 = 1
-            android.view.KeyEvent r7 = r14.copy()     // Catch:{ all -> 0x013b }
-            r9 = -1
-            r10 = 1
-            if (r0 != 0) goto L_0x004a
-            r11 = r5
-            goto L_0x004b
-        L_0x004a:
-            r11 = r4
-        L_0x004b:
-            r6 = r13
-            r8 = r15
-            r6.addPendingData(r7, r8, r9, r10, r11)     // Catch:{ all -> 0x013b }
-            goto L_0x0127
-        L_0x0052:
-            r13.flushPending()     // Catch:{ all -> 0x013b }
-            goto L_0x0127
-        L_0x0057:
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r3 = r13.mPendingKeys     // Catch:{ all -> 0x013b }
-            java.lang.Object r3 = r3.get(r4)     // Catch:{ all -> 0x013b }
-            com.android.server.MiuiInputFilter$KeyData r3 = (com.android.server.MiuiInputFilter.KeyData) r3     // Catch:{ all -> 0x013b }
-            android.view.KeyEvent r3 = r3.keyEvent     // Catch:{ all -> 0x013b }
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r6 = r13.mPendingKeys     // Catch:{ all -> 0x013b }
-            java.lang.Object r6 = r6.get(r5)     // Catch:{ all -> 0x013b }
-            com.android.server.MiuiInputFilter$KeyData r6 = (com.android.server.MiuiInputFilter.KeyData) r6     // Catch:{ all -> 0x013b }
-            android.view.KeyEvent r6 = r6.keyEvent     // Catch:{ all -> 0x013b }
-            int r7 = r6.getAction()     // Catch:{ all -> 0x013b }
-            if (r7 != r5) goto L_0x0082
-            int r7 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r7 != 0) goto L_0x0082
-            int r7 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            boolean r7 = r13.checkSecondKey(r7)     // Catch:{ all -> 0x013b }
-            r2 = r7
-            if (r7 != 0) goto L_0x0098
-        L_0x0082:
-            int r7 = r6.getAction()     // Catch:{ all -> 0x013b }
-            if (r7 != 0) goto L_0x00b8
-            int r7 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r7 != r5) goto L_0x00b8
-            int r7 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            int r8 = r3.getKeyCode()     // Catch:{ all -> 0x013b }
-            if (r7 != r8) goto L_0x00b8
-        L_0x0098:
-            boolean r7 = r13.needDelayKey(r2)     // Catch:{ all -> 0x013b }
-            r0 = r7
-            android.view.KeyEvent r8 = r14.copy()     // Catch:{ all -> 0x013b }
-            int r7 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r7 != 0) goto L_0x00aa
-            r7 = -1
-            r10 = r7
-            goto L_0x00ab
-        L_0x00aa:
-            r10 = r5
-        L_0x00ab:
-            r11 = 1
-            if (r0 != 0) goto L_0x00b0
-            r12 = r5
-            goto L_0x00b1
-        L_0x00b0:
-            r12 = r4
-        L_0x00b1:
-            r7 = r13
-            r9 = r15
-            r7.addPendingData(r8, r9, r10, r11, r12)     // Catch:{ all -> 0x013b }
-            goto L_0x0127
-        L_0x00b8:
-            r13.flushPending()     // Catch:{ all -> 0x013b }
-            goto L_0x0127
-        L_0x00bd:
-            int r3 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r3 != r5) goto L_0x00d7
-            int r3 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r6 = r13.mPendingKeys     // Catch:{ all -> 0x013b }
-            java.lang.Object r6 = r6.get(r4)     // Catch:{ all -> 0x013b }
-            com.android.server.MiuiInputFilter$KeyData r6 = (com.android.server.MiuiInputFilter.KeyData) r6     // Catch:{ all -> 0x013b }
-            android.view.KeyEvent r6 = r6.keyEvent     // Catch:{ all -> 0x013b }
-            int r6 = r6.getKeyCode()     // Catch:{ all -> 0x013b }
-            if (r3 == r6) goto L_0x00e8
-        L_0x00d7:
-            int r3 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r3 != 0) goto L_0x00fe
-            int r3 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            boolean r3 = r13.checkSecondKey(r3)     // Catch:{ all -> 0x013b }
-            r2 = r3
-            if (r3 == 0) goto L_0x00fe
-        L_0x00e8:
-            boolean r3 = r13.needDelayKey(r2)     // Catch:{ all -> 0x013b }
-            r0 = r3
-            android.view.KeyEvent r7 = r14.copy()     // Catch:{ all -> 0x013b }
-            r9 = -1
-            r10 = 0
-            if (r0 != 0) goto L_0x00f7
-            r11 = r5
-            goto L_0x00f8
-        L_0x00f7:
-            r11 = r4
-        L_0x00f8:
-            r6 = r13
-            r8 = r15
-            r6.addPendingData(r7, r8, r9, r10, r11)     // Catch:{ all -> 0x013b }
-            goto L_0x0127
-        L_0x00fe:
-            r13.flushPending()     // Catch:{ all -> 0x013b }
-            goto L_0x0127
-        L_0x0102:
-            int r3 = r14.getAction()     // Catch:{ all -> 0x013b }
-            if (r3 != 0) goto L_0x0127
-            int r3 = r14.getKeyCode()     // Catch:{ all -> 0x013b }
-            boolean r3 = r13.checkKeyNeedListen(r3)     // Catch:{ all -> 0x013b }
-            if (r3 == 0) goto L_0x0127
-            boolean r3 = r13.needDelayKey(r4)     // Catch:{ all -> 0x013b }
-            r0 = r3
-            android.view.KeyEvent r7 = r14.copy()     // Catch:{ all -> 0x013b }
-            r9 = -1
-            r10 = 1
-            if (r0 != 0) goto L_0x0121
-            r11 = r5
-            goto L_0x0122
-        L_0x0121:
-            r11 = r4
-        L_0x0122:
-            r6 = r13
-            r8 = r15
-            r6.addPendingData(r7, r8, r9, r10, r11)     // Catch:{ all -> 0x013b }
-        L_0x0127:
-            if (r0 != 0) goto L_0x012c
-            com.android.server.MiuiInputFilter.super.onInputEvent(r14, r15)     // Catch:{ all -> 0x013b }
-        L_0x012c:
-            if (r1 == 0) goto L_0x0134
-            r13.triggerCombinationClick()     // Catch:{ all -> 0x013b }
-            r13.clearPendingList()     // Catch:{ all -> 0x013b }
-        L_0x0134:
-            monitor-exit(r13)
-            return
-        L_0x0136:
-            com.android.server.MiuiInputFilter.super.onInputEvent(r14, r15)     // Catch:{ all -> 0x013b }
-            monitor-exit(r13)
-            return
-        L_0x013b:
-            r14 = move-exception
-            monitor-exit(r13)
-            throw r14
-        */
-        throw new UnsupportedOperationException("Method not decompiled: com.android.server.MiuiInputFilter.onKeyEvent(android.view.KeyEvent, int):void");
+    private void onKeyEvent(KeyEvent event, int policyFlags) {
+        int keyCode = event.getKeyCode();
+        // Only the input thread adds pending keys, so once it sees none, a key that cannot start a
+        // combination passes through without the lock the handler takes to flush them.
+        if (!HandyMode.sEnable || keyCode == 0 || (this.mPendingKeyCount == 0 && !getCombinationKeyTable().isFirstKey(keyCode))) {
+            MiuiInputFilter.super.onInputEvent(event, policyFlags);
+            return;
+        }
+        int combinationKeyCode = 0;
+        synchronized (this) {
+            boolean consumed = false;
+            boolean isSecondKey = false;
+            int size = this.mPendingKeys.size();
+            if (size != 0) {
+                if (size == 1) {
+                    if ((event.getAction() == 1 && keyCode == this.mPendingKeys.get(0).keyEvent.getKeyCode()) || (event.getAction() == 0 && (isSecondKey = checkSecondKey(keyCode)))) {
+                        consumed = needDelayKey(isSecondKey);
+                        addPendingData(event.copy(), policyFlags, -1, false, !consumed);
+                    } else {
+                        flushPending();
+                    }
+                } else if (size == 2) {
+                    KeyEvent firstKey = this.mPendingKeys.get(0).keyEvent;
+                    KeyEvent secondKey = this.mPendingKeys.get(1).keyEvent;
+                    if (secondKey.getAction() == 1 && event.getAction() == 0) {
+                        isSecondKey = checkSecondKey(keyCode);
+                    }
+                    if (isSecondKey || (secondKey.getAction() == 0 && event.getAction() == 1 && keyCode == firstKey.getKeyCode())) {
+                        consumed = needDelayKey(isSecondKey);
+                        addPendingData(event.copy(), policyFlags, event.getAction() == 0 ? -1 : 1, true, !consumed);
+                    } else {
+                        flushPending();
+                    }
+                } else if (size == 3) {
+                    if (event.getAction() != 1 || keyCode != this.mPendingKeys.get(2).keyEvent.getKeyCode()) {
+                        flushPending();
+                    } else {
+                        consumed = true;
+                        combinationKeyCode = keyCode;
+                    }
+                }
+            } else if (event.getAction() == 0 && checkKeyNeedListen(keyCode)) {
+                consumed = needDelayKey(false);
+                addPendingData(event.copy(), policyFlags, -1, true, !consumed);
+            }
+            if (!consumed) {
+                MiuiInputFilter.super.onInputEvent(event, policyFlags);
+            }
+            if (combinationKeyCode != 0) {
+                clearPendingList();
+            }
+        }
+        if (combinationKeyCode != 0) {
+            triggerCombinationClick(combinationKeyCode);
+        }
     }
 
     /* access modifiers changed from: package-private */
     public boolean checkKeyNeedListen(int keyCode) {
-        for (int[] iArr : getListenCombinationKeys()) {
-            if (iArr[0] == keyCode) {
-                return true;
-            }
+        return getCombinationKeyTable().isFirstKey(keyCode);
+    }
+
+    /* access modifiers changed from: package-private */
+    public CombinationKeyTable getCombinationKeyTable() {
+        if (HandyMode.getMode() == 0) {
+            return NOT_ENTERED_COMBINATION_KEY_TABLE;
         }
-        return false;
+        return ENTERED_COMBINATION_KEY_TABLE;
     }
 
     /* access modifiers changed from: package-private */
@@ -519,84 +416,30 @@ public class MiuiInputFilter extends InputFilter {
 
     /* access modifiers changed from: package-private */
     public boolean checkSecondKey(int secondKeyCode) {
-        int[][] listenCombinationKeys = getListenCombinationKeys();
-        int firstKeyCode = this.mPendingKeys.get(0).keyEvent.getKeyCode();
-        for (int[] keySequence : listenCombinationKeys) {
-            if (keySequence[0] == firstKeyCode && keySequence[1] == secondKeyCode) {
-                return true;
-            }
-        }
-        return false;
+        return getCombinationKeyTable().isSequence(this.mPendingKeys.get(0).keyEvent.getKeyCode(), secondKeyCode);
     }
 
-    /* access modifiers changed from: package-private */
-    /* JADX WARNING: Code restructure failed: missing block: B:24:0x0060, code lost:
-        return;
+    /**
+     * Enters handy mode for a completed combination whose second key was {@code keyCode}. Called
+     * after the pending keys are cleared and without holding the filter lock, so the settings and
+     * property reads and the mode change do not hold up the handler flushing pending keys.
      */
-    /* Code decompiled incorrectly, please refer to instructions dump. */
-    public synchronized void triggerCombinationClick() {
-        /*
-            r7 = this;
-            monitor-enter(r7)
-            android.content.Context r0 = com.android.server.HandyMode.sContext     // Catch:{ all -> 0x0061 }
-            android.content.ContentResolver r0 = r0.getContentResolver()     // Catch:{ all -> 0x0061 }
-            java.lang.String r1 = "screen_buttons_state"
-            r2 = 0
-            int r0 = android.provider.Settings.Secure.getInt(r0, r1, r2)     // Catch:{ all -> 0x0061 }
-            if (r0 == 0) goto L_0x0013
-            monitor-exit(r7)
-            return
-        L_0x0013:
-            java.lang.String r0 = "persist.sys.handswap"
-            java.lang.String r1 = "0"
-            java.lang.String r0 = android.os.SystemProperties.get(r0, r1)     // Catch:{ all -> 0x0061 }
-            java.lang.String r1 = "1"
-            boolean r1 = r1.equals(r0)     // Catch:{ all -> 0x0061 }
-            r2 = 0
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r3 = r7.mPendingKeys     // Catch:{ all -> 0x0061 }
-            r4 = 2
-            java.lang.Object r3 = r3.get(r4)     // Catch:{ all -> 0x0061 }
-            com.android.server.MiuiInputFilter$KeyData r3 = (com.android.server.MiuiInputFilter.KeyData) r3     // Catch:{ all -> 0x0061 }
-            android.view.KeyEvent r3 = r3.keyEvent     // Catch:{ all -> 0x0061 }
-            int r3 = r3.getKeyCode()     // Catch:{ all -> 0x0061 }
-            r5 = 4
-            r6 = 1
-            if (r3 != r5) goto L_0x003b
-            if (r1 == 0) goto L_0x0039
-            r4 = r6
-        L_0x0039:
-            r2 = r4
-            goto L_0x0052
-        L_0x003b:
-            java.util.List<com.android.server.MiuiInputFilter$KeyData> r3 = r7.mPendingKeys     // Catch:{ all -> 0x0061 }
-            java.lang.Object r3 = r3.get(r4)     // Catch:{ all -> 0x0061 }
-            com.android.server.MiuiInputFilter$KeyData r3 = (com.android.server.MiuiInputFilter.KeyData) r3     // Catch:{ all -> 0x0061 }
-            android.view.KeyEvent r3 = r3.keyEvent     // Catch:{ all -> 0x0061 }
-            int r3 = r3.getKeyCode()     // Catch:{ all -> 0x0061 }
-            r5 = 82
-            if (r3 != r5) goto L_0x0052
-            if (r1 == 0) goto L_0x0050
-            goto L_0x0051
-        L_0x0050:
-            r4 = r6
-        L_0x0051:
-            r2 = r4
-        L_0x0052:
-            boolean r3 = r7.needShowDialog()     // Catch:{ all -> 0x0061 }
-            if (r3 == 0) goto L_0x005c
-            com.android.server.HandyMode.alertToEnter(r2)     // Catch:{ all -> 0x0061 }
-            goto L_0x005f
-        L_0x005c:
-            com.android.server.HandyMode.changeMode(r2)     // Catch:{ all -> 0x0061 }
-        L_0x005f:
-            monitor-exit(r7)
-            return
-        L_0x0061:
-            r0 = move-exception
-            monitor-exit(r7)
-            throw r0
-        */
-        throw new UnsupportedOperationException("Method not decompiled: com.android.server.MiuiInputFilter.triggerCombinationClick():void");
+    /* access modifiers changed from: package-private */
+    public void triggerCombinationClick(int keyCode) {
+        if (Settings.Secure.getInt(HandyMode.sContext.getContentResolver(), "screen_buttons_state", 0) == 0) {
+            boolean handSwap = "1".equals(SystemProperties.get(PERSIST_SYS_HANDSWAP_PROPERTY, "0"));
+            int mode = 0;
+            if (keyCode == 4) {
+                mode = handSwap ? 1 : 2;
+            } else if (keyCode == 82) {
+                mode = handSwap ? 2 : 1;
+            }
+            if (needShowDialog()) {
+                HandyMode.alertToEnter(mode);
+            } else {
+                HandyMode.changeMode(mode);
+            }
+        }
     }
 
     /* access modifiers changed from: package-private */
@@ -622,6 +465,7 @@ public class MiuiInputFilter extends InputFilter {
         } else {
             this.mPendingKeys.add(index, keyData);
         }
+        this.mPendingKeyCount = this.mPendingKeys.size();
         this.mHandler.sendEmptyMessageDelayed(1, (long) (HandyMode.COMBINATION_CLICK_TIMEOUT * (delayEnhance ? 2 : 1)));
     }
 
@@ -629,5 +473,6 @@ public class MiuiInputFilter extends InputFilter {
     public synchronized void clearPendingList() {
         this.mHandler.removeMessages(1);
         this.mPendingKeys.clear();
+        this.mPendingKeyCount = 0;
     }
 }
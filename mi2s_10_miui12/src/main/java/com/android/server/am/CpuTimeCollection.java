@@ -9,180 +9,271 @@ import android.util.SparseArray;
 import com.android.internal.os.BatteryStatsImpl;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class CpuTimeCollection {
     private static boolean DEBUG = Build.IS_DEBUGGABLE;
     private static final String FORMATE_RULE = "yyyy-MM-dd-HH-mm-ss";
+    private static final int MAX_DUMP_UIDS = 20;
     private static final String TAG = "CpuTimeCollection";
     private static final int WHICH = 0;
     private static final LocalLog mCpuCollectionLog = new LocalLog(DEBUG ? 500 : 200);
-    private static ConcurrentHashMap<Integer, ModuleCpuTime> mCpuTimeModules = new ConcurrentHashMap<>();
+    private static volatile UidCpuTimeTable mCpuTimeTable = new UidCpuTimeTable(64);
     private static long mRecordTime;
 
     public static void updateUidCpuTime(BatteryStatsImpl batteryStatsImpl, boolean screenOn, boolean firstRecord) {
         SparseArray<? extends BatteryStats.Uid> uidStatsArray;
         SparseArray<? extends BatteryStats.Uid> uidStats;
-        boolean z;
-        boolean firstRecord2;
-        SparseArray<? extends BatteryStats.Uid> uidStatsArray2;
-        boolean firstRecord3;
-        SparseArray<? extends BatteryStats.Uid> uidStats2;
         if (batteryStatsImpl != null && (uidStatsArray = batteryStatsImpl.getUidStats()) != null && (uidStats = uidStatsArray.clone()) != null) {
             if (DEBUG) {
-                StringBuilder sb = new StringBuilder();
-                sb.append("firstRecord == ");
-                z = firstRecord;
-                sb.append(z);
-                Log.d(TAG, sb.toString());
-            } else {
-                z = firstRecord;
+                Log.d(TAG, "firstRecord == " + firstRecord);
             }
             if (mRecordTime <= batteryStatsImpl.getStartClockTime()) {
                 resetCpuTimeModule();
-                firstRecord2 = true;
-            } else {
-                firstRecord2 = z;
+                firstRecord = true;
             }
-            ConcurrentHashMap<Integer, ModuleCpuTime> subCpuTimeModules = new ConcurrentHashMap<>();
+            UidCpuTimeTable table = mCpuTimeTable;
             int NU = uidStats.size();
-            int iu = 0;
-            while (iu < NU) {
-                int uid = uidStats.keyAt(iu);
+            if (table.mUids.length - table.mSize < NU) {
+                table = table.grow(table.mSize + NU);
+                mCpuTimeTable = table;
+            }
+            table.beginRecord();
+            for (int iu = 0; iu < NU; iu++) {
                 BatteryStats.Uid uidStat = (BatteryStats.Uid) uidStats.valueAt(iu);
-                if (uidStat == null) {
-                    uidStatsArray2 = uidStatsArray;
-                    uidStats2 = uidStats;
-                    firstRecord3 = firstRecord2;
-                } else {
-                    long userCpuTimeUs = uidStat.getUserCpuTimeUs(0);
-                    long systemCpuTimeUs = uidStat.getSystemCpuTimeUs(0);
-                    ModuleCpuTime currentItem = mCpuTimeModules.get(Integer.valueOf(uid));
-                    if (currentItem != null) {
-                        uidStatsArray2 = uidStatsArray;
-                        ModuleCpuTime currentItem2 = currentItem;
-                        long j = userCpuTimeUs - currentItem.userCpuTimeUs;
-                        uidStats2 = uidStats;
-                        firstRecord3 = firstRecord2;
-                        subCpuTimeModules.put(Integer.valueOf(uid), new ModuleCpuTime(uid, j, systemCpuTimeUs - currentItem.systemCpuTimeUs));
-                        currentItem2.userCpuTimeUs = userCpuTimeUs;
-                        currentItem2.systemCpuTimeUs = systemCpuTimeUs;
-                    } else {
-                        uidStatsArray2 = uidStatsArray;
-                        uidStats2 = uidStats;
-                        firstRecord3 = firstRecord2;
-                        ModuleCpuTime moduleCpuTime = currentItem;
-                        long j2 = systemCpuTimeUs;
-                        ModuleCpuTime newCpuTime = new ModuleCpuTime(uid, userCpuTimeUs, systemCpuTimeUs);
-                        subCpuTimeModules.put(Integer.valueOf(uid), newCpuTime);
-                        mCpuTimeModules.put(Integer.valueOf(uid), newCpuTime);
-                    }
+                if (uidStat != null) {
+                    table.record(uidStats.keyAt(iu), uidStat.getUserCpuTimeUs(0), uidStat.getSystemCpuTimeUs(0), screenOn, firstRecord);
                 }
-                iu++;
-                uidStats = uidStats2;
-                firstRecord2 = firstRecord3;
-                uidStatsArray = uidStatsArray2;
             }
-            recordUidCpuTime(screenOn, firstRecord2, subCpuTimeModules);
+            recordUidCpuTime(screenOn, firstRecord, table);
         }
     }
 
     public static void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
         StringBuilder sb = new StringBuilder(2048);
         mCpuCollectionLog.dump(fd, writer, args);
-        if (mCpuTimeModules.size() != 0) {
+        UidCpuTimeTable table = mCpuTimeTable;
+        int size = table.mSize;
+        if (size != 0) {
             sb.append("\nDump Uid Cpu Time:\n");
-            writeString(sb, mapValueCompareSort(mCpuTimeModules));
+            long[] user = new long[size];
+            long[] system = new long[size];
+            for (int i = 0; i < size; i++) {
+                user[i] = table.mTotals.get((i * 2) + 0);
+                system[i] = table.mTotals.get((i * 2) + 1);
+            }
+            writeString(sb, table.mUids, user, system, size, "Total cpu time");
+            UidCpuTimeSnapshot snapshot = getUidCpuTimeSnapshot();
+            sb.append("\nDump Uid Cpu Time Screen On:\n");
+            writeString(sb, snapshot.uids, snapshot.screenOnUserCpuTimeUs, snapshot.screenOnSystemCpuTimeUs, snapshot.uids.length, "Screen on cpu time");
+            sb.append("\nDump Uid Cpu Time Screen Off:\n");
+            writeString(sb, snapshot.uids, snapshot.screenOffUserCpuTimeUs, snapshot.screenOffSystemCpuTimeUs, snapshot.uids.length, "Screen off cpu time");
             writer.println(sb.toString());
         }
     }
 
+    /**
+     * Returns the CPU time each uid has used since the last reset, split by the screen state it
+     * was used in. Reads the published counters only, so it takes no lock and never waits for an
+     * update in progress; uids first seen by that update may be missing.
+     */
+    public static UidCpuTimeSnapshot getUidCpuTimeSnapshot() {
+        UidCpuTimeTable table = mCpuTimeTable;
+        int size = table.mSize;
+        UidCpuTimeSnapshot snapshot = new UidCpuTimeSnapshot(size);
+        for (int i = 0; i < size; i++) {
+            snapshot.uids[i] = table.mUids[i];
+            snapshot.screenOnUserCpuTimeUs[i] = table.mSplit.get((i * 4) + 0);
+            snapshot.screenOnSystemCpuTimeUs[i] = table.mSplit.get((i * 4) + 1);
+            snapshot.screenOffUserCpuTimeUs[i] = table.mSplit.get((i * 4) + 2);
+            snapshot.screenOffSystemCpuTimeUs[i] = table.mSplit.get((i * 4) + 3);
+        }
+        return snapshot;
+    }
+
     private CpuTimeCollection() {
     }
 
-    private static void writeString(StringBuilder stringBuilder, List<Map.Entry<Integer, ModuleCpuTime>> CpuTimeModules) {
-        if (CpuTimeModules != null && CpuTimeModules.size() != 0) {
-            for (Map.Entry<Integer, ModuleCpuTime> entry : CpuTimeModules.size() >= 20 ? CpuTimeModules.subList(0, 20) : CpuTimeModules) {
-                ModuleCpuTime moduleStats = entry.getValue();
-                if (moduleStats != null && (moduleStats.userCpuTimeUs > 0 || moduleStats.systemCpuTimeUs > 0)) {
-                    stringBuilder.append(moduleStats.toString());
-                    stringBuilder.append("\n");
+    /** Appends the MAX_DUMP_UIDS uids with the most CPU time, highest first. */
+    private static void writeString(StringBuilder stringBuilder, int[] uids, long[] user, long[] system, int size, String label) {
+        int[] top = new int[Math.min(size, MAX_DUMP_UIDS)];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long total = user[i] + system[i];
+            if (total > 0) {
+                int pos = count < top.length ? count : top.length - 1;
+                if (count < top.length || total > user[top[pos]] + system[top[pos]]) {
+                    while (pos > 0 && total > user[top[pos - 1]] + system[top[pos - 1]]) {
+                        top[pos] = top[pos - 1];
+                        pos--;
+                    }
+                    top[pos] = i;
+                    if (count < top.length) {
+                        count++;
+                    }
                 }
             }
         }
+        for (int i2 = 0; i2 < count; i2++) {
+            int index = top[i2];
+            stringBuilder.append(uids[index]);
+            stringBuilder.append(":  ");
+            stringBuilder.append(label);
+            stringBuilder.append(": u=");
+            BatteryStats.formatTimeMs(stringBuilder, user[index] / 1000);
+            stringBuilder.append("s=");
+            BatteryStats.formatTimeMs(stringBuilder, system[index] / 1000);
+            stringBuilder.append("\n");
+        }
     }
 
-    private static List<Map.Entry<Integer, ModuleCpuTime>> mapValueCompareSort(ConcurrentHashMap<Integer, ModuleCpuTime> hashMap) {
-        List<Map.Entry<Integer, ModuleCpuTime>> CpuTimeModules = new ArrayList<>(hashMap.entrySet());
-        Collections.sort(CpuTimeModules, new Comparator<Map.Entry<Integer, ModuleCpuTime>>() {
-            public int compare(Map.Entry<Integer, ModuleCpuTime> cpuTimeEntry, Map.Entry<Integer, ModuleCpuTime> cpuTimeEntryNext) {
-                return -Long.valueOf(cpuTimeEntry.getValue().userCpuTimeUs + cpuTimeEntry.getValue().systemCpuTimeUs).compareTo(Long.valueOf(cpuTimeEntryNext.getValue().userCpuTimeUs + cpuTimeEntryNext.getValue().systemCpuTimeUs));
-            }
-        });
-        return CpuTimeModules;
-    }
-
-    private static void recordUidCpuTime(boolean screenOn, boolean firstRecord, ConcurrentHashMap<Integer, ModuleCpuTime> subCpuTimeModules) {
-        if (subCpuTimeModules != null) {
-            StringBuilder strb = new StringBuilder(2048);
-            long curTime = System.currentTimeMillis();
-            if (DEBUG) {
-                Log.d(TAG, "Screen state " + screenOn + ", firstRecord = " + firstRecord);
-            }
-            int status = getStatus(screenOn, firstRecord);
-            if (status == 0) {
-                strb.append("[screen_on (" + DateFormat.format(FORMATE_RULE, mRecordTime).toString() + "--" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
-            } else if (status == 1) {
-                strb.append("[first record screen off (" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
-            } else if (status == 2) {
-                strb.append("[screen_off (" + DateFormat.format(FORMATE_RULE, mRecordTime).toString() + "--" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
-            } else if (status == 3) {
-                strb.append("[first record screen on (" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
-            }
-            mRecordTime = curTime;
-            strb.append("\ndump subtract cpu time:\n");
-            if (subCpuTimeModules.size() != 0) {
-                writeString(strb, mapValueCompareSort(subCpuTimeModules));
-            }
-            mCpuCollectionLog.log(strb.toString());
+    private static void recordUidCpuTime(boolean screenOn, boolean firstRecord, UidCpuTimeTable table) {
+        StringBuilder strb = new StringBuilder(2048);
+        long curTime = System.currentTimeMillis();
+        if (DEBUG) {
+            Log.d(TAG, "Screen state " + screenOn + ", firstRecord = " + firstRecord);
+        }
+        int status = getStatus(screenOn, firstRecord);
+        if (status == 0) {
+            strb.append("[screen_on (" + DateFormat.format(FORMATE_RULE, mRecordTime).toString() + "--" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
+        } else if (status == 1) {
+            strb.append("[first record screen off (" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
+        } else if (status == 2) {
+            strb.append("[screen_off (" + DateFormat.format(FORMATE_RULE, mRecordTime).toString() + "--" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
+        } else if (status == 3) {
+            strb.append("[first record screen on (" + DateFormat.format(FORMATE_RULE, curTime).toString() + ")]");
         }
+        mRecordTime = curTime;
+        strb.append("\ndump subtract cpu time:\n");
+        if (table.mSize != 0) {
+            writeString(strb, table.mUids, table.mDeltaUser, table.mDeltaSystem, table.mSize, "Total cpu time");
+        }
+        mCpuCollectionLog.log(strb.toString());
     }
 
     private static int getStatus(boolean screenOn, boolean firstRecord) {
         return (screenOn ? (char) 2 : 0) | firstRecord ? 1 : 0;
     }
 
-    private static class ModuleCpuTime {
-        int moduleUid;
-        long systemCpuTimeUs;
-        long userCpuTimeUs;
+    /** CPU time per uid since the last reset, split by screen state. */
+    public static final class UidCpuTimeSnapshot {
+        public final long[] screenOffSystemCpuTimeUs;
+        public final long[] screenOffUserCpuTimeUs;
+        public final long[] screenOnSystemCpuTimeUs;
+        public final long[] screenOnUserCpuTimeUs;
+        public final int[] uids;
+
+        UidCpuTimeSnapshot(int size) {
+            this.uids = new int[size];
+            this.screenOnUserCpuTimeUs = new long[size];
+            this.screenOnSystemCpuTimeUs = new long[size];
+            this.screenOffUserCpuTimeUs = new long[size];
+            this.screenOffSystemCpuTimeUs = new long[size];
+        }
+    }
+
+    /**
+     * Uid-keyed CPU time table. Rows are appended in first-seen order and located through an
+     * open-addressed int index, so an update neither boxes uids nor allocates per uid. Only the
+     * BatteryStats update thread writes; the per-row counters live in atomic arrays and the row
+     * count is published last, so dump and snapshot readers walk it without a lock.
+     */
+    private static final class UidCpuTimeTable {
+        final long[] mDeltaSystem;
+        final long[] mDeltaUser;
+        private final int[] mIndex;
+        final long[] mLastSystem;
+        final long[] mLastUser;
+        volatile int mSize;
+        final AtomicLongArray mSplit;
+        final AtomicLongArray mTotals;
+        final int[] mUids;
 
-        public ModuleCpuTime(int uid, long userCpuTimeUs2, long systemCpuTimeUs2) {
-            this.moduleUid = uid;
-            long j = 0;
-            this.userCpuTimeUs = userCpuTimeUs2 > 0 ? userCpuTimeUs2 : 0;
-            this.systemCpuTimeUs = systemCpuTimeUs2 > 0 ? systemCpuTimeUs2 : j;
+        UidCpuTimeTable(int capacity) {
+            this.mUids = new int[capacity];
+            this.mLastUser = new long[capacity];
+            this.mLastSystem = new long[capacity];
+            this.mDeltaUser = new long[capacity];
+            this.mDeltaSystem = new long[capacity];
+            this.mTotals = new AtomicLongArray(capacity * 2);
+            this.mSplit = new AtomicLongArray(capacity * 4);
+            this.mIndex = new int[Integer.highestOneBit(capacity) * 4];
         }
 
-        public String toString() {
-            StringBuilder sb = new StringBuilder(128);
-            if (this.userCpuTimeUs > 0 || this.systemCpuTimeUs > 0) {
-                sb.append(this.moduleUid);
-                sb.append(":  Total cpu time: u=");
-                BatteryStats.formatTimeMs(sb, this.userCpuTimeUs / 1000);
-                sb.append("s=");
-                BatteryStats.formatTimeMs(sb, this.systemCpuTimeUs / 1000);
+        UidCpuTimeTable grow(int minCapacity) {
+            UidCpuTimeTable table = new UidCpuTimeTable(Math.max(minCapacity, this.mUids.length * 2));
+            int size = this.mSize;
+            for (int i = 0; i < size; i++) {
+                table.mUids[i] = this.mUids[i];
+                table.mLastUser[i] = this.mLastUser[i];
+                table.mLastSystem[i] = this.mLastSystem[i];
+                table.mTotals.set((i * 2) + 0, this.mTotals.get((i * 2) + 0));
+                table.mTotals.set((i * 2) + 1, this.mTotals.get((i * 2) + 1));
+                for (int j = 0; j < 4; j++) {
+                    table.mSplit.set((i * 4) + j, this.mSplit.get((i * 4) + j));
+                }
+                table.mIndex[table.slotOf(this.mUids[i])] = i + 1;
+            }
+            table.mSize = size;
+            return table;
+        }
+
+        private int slotOf(int uid) {
+            int mask = this.mIndex.length - 1;
+            int slot = (-1640531535 * uid) >>> 16;
+            while (true) {
+                int slot2 = slot & mask;
+                int row = this.mIndex[slot2];
+                if (row == 0 || this.mUids[row - 1] == uid) {
+                    return slot2;
+                }
+                slot = slot2 + 1;
+            }
+        }
+
+        void beginRecord() {
+            int size = this.mSize;
+            for (int i = 0; i < size; i++) {
+                this.mDeltaUser[i] = 0;
+                this.mDeltaSystem[i] = 0;
+            }
+        }
+
+        /**
+         * Folds in the cumulative times BatteryStats reports for {@code uid}. The time since the
+         * previous record was spent in the screen state before this change, i.e. {@code !screenOn}.
+         */
+        void record(int uid, long userCpuTimeUs, long systemCpuTimeUs, boolean screenOn, boolean firstRecord) {
+            int slot = slotOf(uid);
+            int row = this.mIndex[slot] - 1;
+            long user = Math.max(userCpuTimeUs, 0);
+            long system = Math.max(systemCpuTimeUs, 0);
+            if (row < 0) {
+                row = this.mSize;
+                this.mUids[row] = uid;
+                this.mIndex[slot] = row + 1;
+                this.mDeltaUser[row] = user;
+                this.mDeltaSystem[row] = system;
+            } else {
+                this.mDeltaUser[row] = Math.max(user - this.mLastUser[row], 0);
+                this.mDeltaSystem[row] = Math.max(system - this.mLastSystem[row], 0);
+                if (!firstRecord) {
+                    int split = (row * 4) + (screenOn ? 2 : 0);
+                    this.mSplit.addAndGet(split + 0, this.mDeltaUser[row]);
+                    this.mSplit.addAndGet(split + 1, this.mDeltaSystem[row]);
+                }
+            }
+            this.mLastUser[row] = user;
+            this.mLastSystem[row] = system;
+            this.mTotals.set((row * 2) + 0, user);
+            this.mTotals.set((row * 2) + 1, system);
+            if (row == this.mSize) {
+                this.mSize = row + 1;
             }
-            return sb.toString();
         }
     }
 
     public static void resetCpuTimeModule() {
-        mCpuTimeModules.clear();
+        mCpuTimeTable = new UidCpuTimeTable(64);
     }
 }
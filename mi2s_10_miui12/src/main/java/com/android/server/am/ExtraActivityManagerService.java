@@ -32,6 +32,7 @@ import android.text.TextUtils;
 import android.util.Log;
 import android.util.Slog;
 import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 import android.widget.Toast;
 import com.android.internal.app.IPerfShielder;
 import com.android.internal.app.MiuiServicePriority;
@@ -586,9 +587,38 @@ public class ExtraActivityManagerService {
         }
     }
 
+    /** Receives one row per running process from {@link #collectRunningProcesses}. */
+    public interface RunningProcessVisitor {
+        void onProcess(int pid, int uid, int adj, int procState, long lastPss, long lastPssTime, String processName, String packageName);
+    }
+
     public static List<Bundle> getRunningProcessInfos() {
-        List<Bundle> result = new ArrayList<>();
-        List<Integer> pids = new ArrayList<>();
+        final List<Bundle> result = new ArrayList<>();
+        collectRunningProcesses(new RunningProcessVisitor() {
+            public void onProcess(int pid, int uid, int adj, int procState, long lastPss, long lastPssTime, String processName, String packageName) {
+                Bundle bundle = new Bundle();
+                bundle.putInt("pid", pid);
+                bundle.putInt("adj", adj);
+                bundle.putLong("lastPss", lastPss);
+                bundle.putLong("lastPssTime", lastPssTime);
+                bundle.putString("processName", processName);
+                if (packageName != null) {
+                    bundle.putInt("packageUid", uid);
+                    bundle.putString("packageName", packageName);
+                }
+                result.add(bundle);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Reports the app processes below perceptible-low adj, most recently used first, followed by
+     * the native processes ProcessCpuTracker knows about that are not app processes. Native rows
+     * have no package name and an adj of -1000. The visitor runs with the AMS or tracker lock held.
+     */
+    public static void collectRunningProcesses(RunningProcessVisitor visitor) {
+        SparseBooleanArray pids = new SparseBooleanArray();
         ActivityManagerService service = getActivityManagerService();
         synchronized (service) {
             try {
@@ -597,17 +627,9 @@ public class ExtraActivityManagerService {
                     ProcessRecord proc = service.mProcessList.mLruProcesses.get(i);
                     int curAdj = proc.getSetAdjWithServices();
                     if (proc.thread != null && curAdj < 500) {
-                        Bundle bundle = new Bundle();
-                        bundle.putInt("pid", proc.pid);
-                        bundle.putInt("adj", curAdj);
-                        bundle.putLong("lastPss", proc.lastPss);
-                        bundle.putLong("lastPssTime", proc.lastPssTime);
-                        bundle.putString("processName", proc.processName);
-                        bundle.putInt("packageUid", proc.info.uid);
-                        bundle.putString("packageName", proc.info.packageName);
-                        result.add(bundle);
+                        visitor.onProcess(proc.pid, proc.info.uid, curAdj, proc.getCurProcState(), proc.lastPss, proc.lastPssTime, proc.processName, proc.info.packageName);
                     }
-                    pids.add(Integer.valueOf(proc.pid));
+                    pids.put(proc.pid, true);
                 }
             } catch (Throwable th) {
                 while (true) {
@@ -621,18 +643,11 @@ public class ExtraActivityManagerService {
             int N = service.mProcessCpuTracker.countStats();
             for (int i2 = 0; i2 < N; i2++) {
                 ProcessCpuTracker.Stats st = service.mProcessCpuTracker.getStats(i2);
-                if (st.vsize > 0 && !pids.contains(Integer.valueOf(st.pid))) {
-                    Bundle bundle2 = new Bundle();
-                    bundle2.putInt("pid", st.pid);
-                    bundle2.putInt("adj", JobSchedulerShellCommand.CMD_ERR_NO_PACKAGE);
-                    bundle2.putLong("lastPss", -1);
-                    bundle2.putLong("lastPssTime", 0);
-                    bundle2.putString("processName", st.name);
-                    result.add(bundle2);
+                if (st.vsize > 0 && !pids.get(st.pid)) {
+                    visitor.onProcess(st.pid, st.uid, JobSchedulerShellCommand.CMD_ERR_NO_PACKAGE, -1, -1, 0, st.name, (String) null);
                 }
             }
         }
-        return result;
     }
 
     public static void setServicePriority(List<MiuiServicePriority> servicePrioritys) {
@@ -2,8 +2,15 @@ package com.android.server.am;
 
 import android.os.RemoteException;
 import com.android.server.pm.PackageManagerService;
+import java.util.function.Predicate;
 
 public class ProcessKiller {
+    /** Processes a kill or trim can still act on; walk the LRU list with this instead of copying it. */
+    static final Predicate<ProcessRecord> KILLABLE = new Predicate<ProcessRecord>() {
+        public boolean test(ProcessRecord app) {
+            return app.thread != null && !app.killed;
+        }
+    };
     private static final String TAG = "ProcessManager";
     private ActivityManagerService mActivityManagerService;
 
@@ -156,7 +156,7 @@ public final class ProcessList {
     final SparseArray<ProcessRecord> mIsolatedProcesses = new SparseArray<>();
     int mLruProcessActivityStart = 0;
     int mLruProcessServiceStart = 0;
-    final ArrayList<ProcessRecord> mLruProcesses = new ArrayList<>();
+    final ProcessLruList mLruProcesses = new ProcessLruList();
     int mLruSeq = 0;
     private final int[] mOomAdj = {0, 100, 200, 250, CACHED_APP_MIN_ADJ, CACHED_APP_LMK_FIRST_ADJ};
     private final int[] mOomMinFree = new int[this.mOomAdj.length];
@@ -0,0 +1,227 @@
+package com.android.server.am;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * The process LRU list. It is still an ArrayList, since the activity/service segment boundaries
+ * in ProcessList and the OomAdjuster passes address it by index, but every ProcessRecord on it
+ * carries its own position in {@link ProcessRecord#lruIndex}. Looking a process up is therefore a
+ * field read instead of a scan of the whole list, and a move only renumbers the records after the
+ * position it touched, which the element shift already visits.
+ *
+ * Callers that only need to walk a subset of the list can use {@link #filtered} instead of copying
+ * it. Must be accessed with the ActivityManagerService lock held, like the ArrayList it replaces.
+ */
+final class ProcessLruList extends ArrayList<ProcessRecord> {
+
+    ProcessLruList() {
+    }
+
+    public boolean add(ProcessRecord app) {
+        super.add(app);
+        app.lruIndex = size() - 1;
+        return true;
+    }
+
+    public void add(int index, ProcessRecord app) {
+        super.add(index, app);
+        renumber(index);
+    }
+
+    /**
+     * Collections.swap, and with it reverse and shuffle, briefly holds a record at two positions,
+     * so the replaced record keeps a position as long as it is still on the list elsewhere.
+     */
+    public ProcessRecord set(int index, ProcessRecord app) {
+        ProcessRecord old = (ProcessRecord) super.set(index, app);
+        if (old != app && old.lruIndex == index) {
+            old.lruIndex = super.indexOf(old);
+        }
+        app.lruIndex = index;
+        return old;
+    }
+
+    public ProcessRecord remove(int index) {
+        ProcessRecord old = (ProcessRecord) super.remove(index);
+        old.lruIndex = -1;
+        renumber(index);
+        return old;
+    }
+
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    public void clear() {
+        for (int i = size() - 1; i >= 0; i--) {
+            get(i).lruIndex = -1;
+        }
+        super.clear();
+    }
+
+    public boolean addAll(Collection<? extends ProcessRecord> c) {
+        int start = size();
+        boolean changed = super.addAll(c);
+        renumber(start);
+        return changed;
+    }
+
+    public boolean addAll(int index, Collection<? extends ProcessRecord> c) {
+        boolean changed = super.addAll(index, c);
+        renumber(index);
+        return changed;
+    }
+
+    public boolean removeAll(Collection<?> c) {
+        return removeIf(new Predicate<ProcessRecord>() {
+            public boolean test(ProcessRecord app) {
+                return c.contains(app);
+            }
+        });
+    }
+
+    public boolean retainAll(Collection<?> c) {
+        return removeIf(new Predicate<ProcessRecord>() {
+            public boolean test(ProcessRecord app) {
+                return !c.contains(app);
+            }
+        });
+    }
+
+    public boolean removeIf(Predicate<? super ProcessRecord> filter) {
+        for (int i = size() - 1; i >= 0; i--) {
+            get(i).lruIndex = -1;
+        }
+        boolean changed = super.removeIf(filter);
+        renumber(0);
+        return changed;
+    }
+
+    /* access modifiers changed from: protected */
+    public void removeRange(int fromIndex, int toIndex) {
+        for (int i = fromIndex; i < toIndex; i++) {
+            get(i).lruIndex = -1;
+        }
+        super.removeRange(fromIndex, toIndex);
+        renumber(fromIndex);
+    }
+
+    public void replaceAll(UnaryOperator<ProcessRecord> operator) {
+        for (int i = size() - 1; i >= 0; i--) {
+            get(i).lruIndex = -1;
+        }
+        super.replaceAll(operator);
+        renumber(0);
+    }
+
+    public void sort(Comparator<? super ProcessRecord> c) {
+        super.sort(c);
+        renumber(0);
+    }
+
+    /** Sub lists write straight into the backing array, so they are handed out read-only. */
+    public List<ProcessRecord> subList(int fromIndex, int toIndex) {
+        return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+    }
+
+    /** Copies are plain lists: they must not rewrite the positions of the records they share. */
+    public Object clone() {
+        return new ArrayList(this);
+    }
+
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    public int indexOf(Object o) {
+        if (!(o instanceof ProcessRecord)) {
+            return -1;
+        }
+        int index = ((ProcessRecord) o).lruIndex;
+        if (index < 0 || index >= size() || get(index) != o) {
+            return -1;
+        }
+        return index;
+    }
+
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    private void renumber(int from) {
+        int N = size();
+        for (int i = from; i < N; i++) {
+            get(i).lruIndex = i;
+        }
+    }
+
+    /**
+     * Returns a view of the records accepted by {@code filter}, walked from the most recently used
+     * end when {@code newestFirst} is set and from the least recently used end otherwise. Nothing
+     * is copied; the list must not be modified while the view is being iterated.
+     */
+    Iterable<ProcessRecord> filtered(final boolean newestFirst, final Predicate<ProcessRecord> filter) {
+        return new Iterable<ProcessRecord>() {
+            public Iterator<ProcessRecord> iterator() {
+                return new FilteredIterator(newestFirst, filter);
+            }
+        };
+    }
+
+    private final class FilteredIterator implements Iterator<ProcessRecord> {
+        private final Predicate<ProcessRecord> mFilter;
+        private final int mExpectedModCount;
+        private int mNext;
+        private final boolean mNewestFirst;
+
+        FilteredIterator(boolean newestFirst, Predicate<ProcessRecord> filter) {
+            this.mNewestFirst = newestFirst;
+            this.mFilter = filter;
+            this.mExpectedModCount = ProcessLruList.this.modCount;
+            this.mNext = newestFirst ? ProcessLruList.this.size() - 1 : 0;
+            advance();
+        }
+
+        private void advance() {
+            int N = ProcessLruList.this.size();
+            while (this.mNext >= 0 && this.mNext < N) {
+                if (this.mFilter == null || this.mFilter.test(ProcessLruList.this.get(this.mNext))) {
+                    return;
+                }
+                this.mNext += this.mNewestFirst ? -1 : 1;
+            }
+            this.mNext = -1;
+        }
+
+        public boolean hasNext() {
+            return this.mNext >= 0;
+        }
+
+        public ProcessRecord next() {
+            if (ProcessLruList.this.modCount != this.mExpectedModCount) {
+                throw new ConcurrentModificationException();
+            } else if (this.mNext >= 0) {
+                ProcessRecord app = ProcessLruList.this.get(this.mNext);
+                this.mNext += this.mNewestFirst ? -1 : 1;
+                advance();
+                return app;
+            } else {
+                throw new NoSuchElementException();
+            }
+        }
+    }
+}
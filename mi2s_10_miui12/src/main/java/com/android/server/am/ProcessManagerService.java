@@ -109,7 +109,7 @@ public class ProcessManagerService extends ProcessManagerNative {
     /* access modifiers changed from: private */
     public Map<String, Integer> mKilledProcessRecordMap = new ConcurrentHashMap();
     private LowMemoryKillerObserver mLowMemoryKillerObserver;
-    private ArrayList<ProcessRecord> mLruProcesses;
+    private ProcessLruList mLruProcesses;
     /* access modifiers changed from: private */
     public MiuiApplicationThreadManager mMiuiApplicationThreadManager;
     private INotificationManager mNotificationManager;
@@ -634,7 +634,10 @@ public class ProcessManagerService extends ProcessManagerNative {
             synchronized (this.mActivityManagerService) {
                 try {
                     ActivityManagerService.boostPriorityForLockedSection();
-                    processList = (ArrayList) this.mLruProcesses.clone();
+                    processList = new ArrayList<>();
+                    for (ProcessRecord app : this.mLruProcesses.filtered(false, ProcessKiller.KILLABLE)) {
+                        processList.add(app);
+                    }
                 } catch (Throwable th) {
                     while (true) {
                         ActivityManagerService.resetPriorityAfterLockedSection();
@@ -814,15 +817,7 @@ public class ProcessManagerService extends ProcessManagerNative {
     }
 
     private boolean isPackageInList(String packageName, int flags) {
-        if (packageName == null) {
-            return false;
-        }
-        for (String item : this.mProcessPolicy.getWhiteList(flags)) {
-            if (packageName.equals(item)) {
-                return true;
-            }
-        }
-        return false;
+        return this.mProcessPolicy.isInWhiteList(packageName, flags);
     }
 
     private boolean isSystemApp(int pid) {
@@ -1080,6 +1075,44 @@ public class ProcessManagerService extends ProcessManagerNative {
         }
     }
 
+    /**
+     * Starts the main process of {@code packageName} ahead of a predicted launch. Unlike
+     * {@link #startProcesses} no protection is applied, so the process stays at its cached
+     * priority and is the first to go under memory pressure. Returns false when the process is
+     * already running or could not be started, and for packages that are not installed for
+     * {@code userId}, disabled, or stopped: a prewarm must not bring a stopped app back.
+     */
+    public boolean prewarmProcess(String packageName, int userId) {
+        if (Binder.getCallingUid() != Process.SYSTEM_UID) {
+            throw new SecurityException("Permission Denial: ProcessManager.prewarmProcess() from pid=" + Binder.getCallingPid() + ", uid=" + Binder.getCallingUid());
+        } else if (TextUtils.isEmpty(packageName) || ProcessUtils.isLowMemory() || !isPrewarmable(packageName, userId)) {
+            return false;
+        } else {
+            synchronized (this.mActivityManagerService) {
+                try {
+                    ActivityManagerService.boostPriorityForLockedSection();
+                    if (getProcessRecord(packageName, userId) != null) {
+                        ActivityManagerService.resetPriorityAfterLockedSection();
+                        return false;
+                    }
+                    ProcessRecord app = this.mProcessStarter.startProcessLocked(packageName, packageName, userId, ProcessStarter.HOSTING_TYPE_PREWARM);
+                    ActivityManagerService.resetPriorityAfterLockedSection();
+                    return app != null;
+                } catch (Throwable th) {
+                    while (true) {
+                        ActivityManagerService.resetPriorityAfterLockedSection();
+                        throw th;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isPrewarmable(String packageName, int userId) {
+        ApplicationInfo info = this.mPackageManagerService.getApplicationInfo(packageName, 0, userId);
+        return info != null && info.enabled && (info.flags & ApplicationInfo.FLAG_INSTALLED) != 0 && (info.flags & ApplicationInfo.FLAG_STOPPED) == 0;
+    }
+
     /* JADX WARNING: Code restructure failed: missing block: B:14:0x0031, code lost:
         r3 = r2.next();
      */
@@ -53,6 +53,9 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
     public static final int FLAG_SECRETLY_PROTECT_APP_LIST = 1024;
     public static final int FLAG_STATIC_WHILTE_LIST = 1;
     public static final int FLAG_USER_DEFINED_LIST = 8;
+    private static final Pair<Boolean, Boolean> IN_DYNAMIC_LIST = new Pair<>(Boolean.TRUE, Boolean.FALSE);
+    private static final Pair<Boolean, Boolean> IN_DYNAMIC_LIST_CONDITIONAL = new Pair<>(Boolean.TRUE, Boolean.TRUE);
+    private static final Pair<Boolean, Boolean> NOT_IN_DYNAMIC_LIST = new Pair<>(Boolean.FALSE, Boolean.FALSE);
     private static final String JSON_KEY_PACKAGE_NAMES = "pkgs";
     private static final String JSON_KEY_USER_ID = "u";
     private static final int MSG_UPDATE_AUDIO_OFF = 1;
@@ -106,7 +109,7 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
     @GuardedBy({"sLock"})
     private static List<String> sDisableTrimList = new ArrayList();
     @GuardedBy({"sLock"})
-    private static HashMap<String, Boolean> sDynamicWhiteList = new HashMap<>();
+    private static volatile HashMap<String, Boolean> sDynamicWhiteList = new HashMap<>();
     @GuardedBy({"sLock"})
     private static List<String> sEnableCallProtectList = new ArrayList();
     @GuardedBy({"sLock"})
@@ -124,6 +127,8 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
     private static HashMap<Integer, Set<String>> sLockedApplicationList = new HashMap<>();
     @GuardedBy({"sLock"})
     private static List<String> sNeedTraceList = new ArrayList();
+    private static volatile HashMap<String, Boolean> sIndexedDynamicWhiteList;
+    private static volatile ProcessPolicyIndex sPolicyIndex;
     public static final SparseArray<Pair<Integer, Integer>> sProcessPriorityMap = new SparseArray<>();
     @GuardedBy({"sLock"})
     private static List<String> sSecretlyProtectAppList = new ArrayList();
@@ -181,6 +186,7 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
         sCameraMemThresholdMap.put("perseus", 1887232);
         sCameraMemThresholdMap.put("equuleus", 1572864);
         sCameraMemThresholdMap.put("cactus", 768000);
+        rebuildPolicyIndexLocked();
     }
 
     class ActiveUpdateHandler extends Handler {
@@ -323,56 +329,74 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
             sSecretlyProtectAppList = new ArrayList(Arrays.asList(context.getResources().getStringArray(R.array.process_secretly_protect_list)));
             sFgServiceCheckList = Arrays.asList(context.getResources().getStringArray(R.array.process_fg_service_check_list));
             sCameraBoostProtectList = Arrays.asList(context.getResources().getStringArray(R.array.process_camera_boost_protect_list));
+            rebuildPolicyIndexLocked();
         }
         loadLockedAppFromSettings(context);
         updateApplicationLockedState("com.jeejen.family.miui", -100, true);
     }
 
+    /**
+     * Returns a read-only view of the lists selected by {@code flags}. Callers that only need
+     * membership should use {@link #isInWhiteList} instead.
+     */
     public List<String> getWhiteList(int flags) {
-        List<String> whiteList = new ArrayList<>();
-        synchronized (sLock) {
-            if ((flags & 1) != 0) {
-                try {
-                    whiteList.addAll(sStaticWhiteList);
-                } catch (Throwable th) {
-                    throw th;
+        return policyIndex().getList(maskEnterpriseFlag(flags));
+    }
+
+    /** Whether {@code name} is in any of the lists selected by {@code flags}, without locking. */
+    public boolean isInWhiteList(String name, int flags) {
+        return policyIndex().contains(name, maskEnterpriseFlag(flags));
+    }
+
+    private static int maskEnterpriseFlag(int flags) {
+        return EnterpriseSettings.ENTERPRISE_ACTIVATED ? flags : flags & -4097;
+    }
+
+    /**
+     * Returns the current index. updateDynamicWhiteList replaces sDynamicWhiteList without
+     * rebuilding, so the index is rebuilt here once it was built from another map.
+     */
+    private static ProcessPolicyIndex policyIndex() {
+        if (sDynamicWhiteList != sIndexedDynamicWhiteList) {
+            synchronized (sLock) {
+                if (sDynamicWhiteList != sIndexedDynamicWhiteList) {
+                    rebuildPolicyIndexLocked();
                 }
             }
-            if ((flags & 2) != 0) {
-                whiteList.addAll(sDynamicWhiteList.keySet());
-            }
-            if ((flags & 4) != 0) {
-                whiteList.addAll(sCloudWhiteList);
-            }
-            if ((flags & 8) != 0) {
-                whiteList.addAll(sUserDefinedWhiteList);
-            }
-            if ((flags & 16) != 0) {
-                whiteList.addAll(sDisableTrimList);
-            }
-            if ((flags & 32) != 0) {
-                whiteList.addAll(sDisableForceStopList);
-            }
-            if ((flags & 64) != 0) {
-                whiteList.addAll(sEnableCallProtectList);
-            }
-            if ((flags & 128) != 0) {
-                whiteList.addAll(sNeedTraceList);
-            }
-            if ((flags & 1024) != 0) {
-                whiteList.addAll(sSecretlyProtectAppList);
-            }
-            if ((flags & 2048) != 0) {
-                whiteList.addAll(sFastBootAppMap.keySet());
-            }
-            if (EnterpriseSettings.ENTERPRISE_ACTIVATED && (flags & 4096) != 0) {
-                whiteList.addAll(sEnterpriseAppList);
-            }
-            if ((flags & 8192) != 0) {
-                whiteList.addAll(sCameraBoostProtectList);
+        }
+        return sPolicyIndex;
+    }
+
+    /**
+     * Republishes {@link #sPolicyIndex} from the lists. Every change to the lists is followed by
+     * this before sLock is released.
+     */
+    @GuardedBy({"sLock"})
+    private static void rebuildPolicyIndexLocked() {
+        HashMap<String, Boolean> dynamicWhiteList = sDynamicWhiteList;
+        ProcessPolicyIndex.Builder builder = new ProcessPolicyIndex.Builder();
+        builder.setList(1, sStaticWhiteList);
+        builder.setList(2, dynamicWhiteList.keySet());
+        builder.setList(4, sCloudWhiteList);
+        builder.setList(8, sUserDefinedWhiteList);
+        builder.setList(16, sDisableTrimList);
+        builder.setList(32, sDisableForceStopList);
+        builder.setList(64, sEnableCallProtectList);
+        builder.setList(128, sNeedTraceList);
+        builder.setList(1024, sSecretlyProtectAppList);
+        builder.setList(2048, sFastBootAppMap.keySet());
+        builder.setList(4096, sEnterpriseAppList);
+        builder.setList(8192, sCameraBoostProtectList);
+        for (Map.Entry<String, Boolean> entry : dynamicWhiteList.entrySet()) {
+            if (Boolean.TRUE.equals(entry.getValue())) {
+                builder.mark(entry.getKey(), ProcessPolicyIndex.FLAG_DYNAMIC_CONDITIONAL);
             }
         }
-        return whiteList;
+        for (String packageName : sAppProtectMap.keySet()) {
+            builder.mark(packageName, ProcessPolicyIndex.FLAG_APP_PROTECT);
+        }
+        sPolicyIndex = builder.build();
+        sIndexedDynamicWhiteList = dynamicWhiteList;
     }
 
     public void addWhiteList(int flag, List<String> whiteList, boolean append) {
@@ -402,6 +426,7 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
                 targetWhiteList.clear();
             }
             targetWhiteList.addAll(whiteList);
+            rebuildPolicyIndexLocked();
         }
     }
 
@@ -663,6 +688,7 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
         updateDynamicWhiteList(context, userId);
         synchronized (sLock) {
             sUserDefinedWhiteList.clear();
+            rebuildPolicyIndexLocked();
         }
     }
 
@@ -801,6 +827,9 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
         updateFastBootList(cloudData);
         updateCameraMemThresholdMap(cloudData);
         updateSecretlyProtectAppList(cloudData);
+        synchronized (sLock) {
+            rebuildPolicyIndexLocked();
+        }
     }
 
     private void updateCloudWhiteList(ProcessCloudData cloudData) {
@@ -934,21 +963,21 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
     }
 
     public boolean isProcessImportant(ProcessRecord app) {
-        Pair<Boolean, Boolean> isInDynamicPair = isInDynamicList(app);
-        return ((Boolean) isInDynamicPair.first).booleanValue() && (!((Boolean) isInDynamicPair.second).booleanValue() || app.hasForegroundServices() || app.curAdj <= PERCEPTIBLE_APP_ADJ);
+        if (app == null) {
+            return false;
+        }
+        int flags = policyIndex().getFlags(app.info.packageName);
+        return (flags & 2) != 0 && ((flags & ProcessPolicyIndex.FLAG_DYNAMIC_CONDITIONAL) == 0 || app.hasForegroundServices() || app.curAdj <= PERCEPTIBLE_APP_ADJ);
     }
 
     public Pair<Boolean, Boolean> isInDynamicList(ProcessRecord app) {
         if (app != null) {
-            synchronized (sLock) {
-                String packageName = app.info.packageName;
-                if (sDynamicWhiteList.keySet().contains(packageName)) {
-                    Pair<Boolean, Boolean> pair = new Pair<>(Boolean.TRUE, sDynamicWhiteList.get(packageName));
-                    return pair;
-                }
+            int flags = policyIndex().getFlags(app.info.packageName);
+            if ((flags & 2) != 0) {
+                return (flags & ProcessPolicyIndex.FLAG_DYNAMIC_CONDITIONAL) != 0 ? IN_DYNAMIC_LIST_CONDITIONAL : IN_DYNAMIC_LIST;
             }
         }
-        return new Pair<>(Boolean.FALSE, Boolean.FALSE);
+        return NOT_IN_DYNAMIC_LIST;
     }
 
     public boolean isFastBootEnable(String packageName, int uid, boolean checkPss) {
@@ -958,6 +987,9 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
     public boolean isInFastBootList(String packageName, int uid, boolean checkPss) {
         long pss;
         boolean res;
+        if (!policyIndex().contains(packageName, 2048)) {
+            return false;
+        }
         if (checkPss) {
             pss = ProcessUtils.getPackageLastPss(this.mActivityManagerService, this.mProcessManagerService, packageName, UserHandle.getUserId(uid));
         } else {
@@ -974,19 +1006,11 @@ public class ProcessPolicy implements BatteryStatsImplInjector.ActiveCallback {
     }
 
     public boolean isInAppProtectList(String packageName) {
-        boolean contains;
-        synchronized (sLock) {
-            contains = sAppProtectMap.keySet().contains(packageName);
-        }
-        return contains;
+        return policyIndex().contains(packageName, ProcessPolicyIndex.FLAG_APP_PROTECT);
     }
 
     public boolean isInSecretlyProtectList(String processName) {
-        boolean contains;
-        synchronized (sLock) {
-            contains = sSecretlyProtectAppList.contains(processName);
-        }
-        return contains;
+        return policyIndex().contains(processName, 1024);
     }
 
     public long getCameraMemThreshold() {
@@ -0,0 +1,167 @@
+package com.android.server.am;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index from package or process name to the mask of ProcessPolicy white lists that
+ * contain it. ProcessPolicy rebuilds it under sLock whenever one of its lists changes and publishes
+ * it through a volatile field, so kill decisions read it without the lock and without allocating.
+ *
+ * Besides the public FLAG_* list bits, the mask carries {@link #FLAG_APP_PROTECT} for the app
+ * protect map and {@link #FLAG_DYNAMIC_CONDITIONAL} for dynamic entries that are only important
+ * while perceptible or running a foreground service.
+ */
+final class ProcessPolicyIndex {
+    static final int FLAG_APP_PROTECT = 65536;
+    static final int FLAG_DYNAMIC_CONDITIONAL = 131072;
+    private static final int LIST_BITS = 14;
+    private final String[] mKeys;
+    private final List<String>[] mLists;
+    private final int[] mMasks;
+
+    private ProcessPolicyIndex(String[] keys, int[] masks, List<String>[] lists) {
+        this.mKeys = keys;
+        this.mMasks = masks;
+        this.mLists = lists;
+    }
+
+    private static int slot(String name, int mask) {
+        int h = name.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** Returns the mask of the lists that contain {@code name}, or 0. */
+    int getFlags(String name) {
+        if (name == null) {
+            return 0;
+        }
+        String[] keys = this.mKeys;
+        int mask = keys.length - 1;
+        int i = slot(name, mask);
+        while (true) {
+            String key = keys[i];
+            if (key == null) {
+                return 0;
+            }
+            if (key == name || key.equals(name)) {
+                return this.mMasks[i];
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    boolean contains(String name, int flags) {
+        return (getFlags(name) & flags) != 0;
+    }
+
+    /**
+     * Returns a read-only view of the lists selected by {@code flags}, concatenated in flag order
+     * as getWhiteList always returned them.
+     */
+    List<String> getList(int flags) {
+        int count = 0;
+        int single = -1;
+        for (int bit = 0; bit < LIST_BITS; bit++) {
+            if ((flags & (1 << bit)) != 0 && !this.mLists[bit].isEmpty()) {
+                count++;
+                single = bit;
+            }
+        }
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        if (count == 1) {
+            return this.mLists[single];
+        }
+        return new MergedList(this.mLists, flags);
+    }
+
+    private static final class MergedList extends AbstractList<String> {
+        private final int mFlags;
+        private final List<String>[] mLists;
+        private final int mSize;
+
+        MergedList(List<String>[] lists, int flags) {
+            this.mLists = lists;
+            this.mFlags = flags;
+            int size = 0;
+            for (int bit = 0; bit < LIST_BITS; bit++) {
+                if ((flags & (1 << bit)) != 0) {
+                    size += lists[bit].size();
+                }
+            }
+            this.mSize = size;
+        }
+
+        public String get(int index) {
+            if (index >= 0) {
+                int offset = index;
+                for (int bit = 0; bit < LIST_BITS; bit++) {
+                    if ((this.mFlags & (1 << bit)) != 0) {
+                        List<String> list = this.mLists[bit];
+                        if (offset < list.size()) {
+                            return list.get(offset);
+                        }
+                        offset -= list.size();
+                    }
+                }
+            }
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.mSize);
+        }
+
+        public int size() {
+            return this.mSize;
+        }
+    }
+
+    static final class Builder {
+        private final String[][] mLists = new String[LIST_BITS][];
+        private final HashMap<String, Integer> mMasks = new HashMap<>();
+
+        /** Sets the members of the list for the single FLAG_* bit {@code flag}. */
+        Builder setList(int flag, Collection<String> names) {
+            String[] members = names.toArray(new String[names.size()]);
+            this.mLists[Integer.numberOfTrailingZeros(flag)] = members;
+            for (String name : members) {
+                mark(name, flag);
+            }
+            return this;
+        }
+
+        /** Adds {@code flag}, which need not be a list bit, to the mask of {@code name}. */
+        Builder mark(String name, int flag) {
+            if (name != null) {
+                Integer old = this.mMasks.get(name);
+                this.mMasks.put(name, Integer.valueOf((old != null ? old.intValue() : 0) | flag));
+            }
+            return this;
+        }
+
+        ProcessPolicyIndex build() {
+            int capacity = Integer.highestOneBit(Math.max(this.mMasks.size() * 2, 8) - 1) << 1;
+            String[] keys = new String[capacity];
+            int[] masks = new int[capacity];
+            int mask = capacity - 1;
+            for (Map.Entry<String, Integer> entry : this.mMasks.entrySet()) {
+                int i = slot(entry.getKey(), mask);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = entry.getKey();
+                masks[i] = entry.getValue().intValue();
+            }
+            List<String>[] lists = new List[LIST_BITS];
+            for (int bit = 0; bit < LIST_BITS; bit++) {
+                String[] members = this.mLists[bit];
+                lists[bit] = members == null || members.length == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(members));
+            }
+            return new ProcessPolicyIndex(keys, masks, lists);
+        }
+    }
+}
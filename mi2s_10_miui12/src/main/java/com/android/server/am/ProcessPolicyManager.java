@@ -25,7 +25,7 @@ public class ProcessPolicyManager {
     }
 
     public static boolean isNeedTraceProcess(ProcessRecord app) {
-        return ENABLE ? getProcessManagerService().getProcessPolicy().getWhiteList(128).contains(app.processName) : app.isPersistent();
+        return ENABLE ? getProcessManagerService().getProcessPolicy().isInWhiteList(app.processName, 128) : app.isPersistent();
     }
 
     public static boolean isSecureProtectedProcess(String packageName) {
@@ -109,6 +109,7 @@ class ProcessRecord implements WindowProcessListener {
     long lastStateTime;
     long lastSwapPss;
     long lastTopTime;
+    int lruIndex = -1;
     int lruSeq;
     final ArraySet<Binder> mAllowBackgroundActivityStartsTokens = new ArraySet<>();
     private ArraySet<Integer> mBoundClientUids = new ArraySet<>();
@@ -14,6 +14,7 @@ import miui.process.ProcessManager;
 
 public class ProcessStarter {
     static final int APP_PROTECTION_TIMEOUT = 1800000;
+    static final String HOSTING_TYPE_PREWARM = "Prewarm";
     static final int MAX_PROTECT_APP = 5;
     private static final int START_SUCCESS = 0;
     private static final String TAG = "ProcessStarter";
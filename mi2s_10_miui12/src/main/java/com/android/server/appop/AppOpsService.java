@@ -96,8 +96,7 @@ public class AppOpsService extends IAppOpsService.Stub {
     final ArrayMap<IBinder, SparseArray<ActiveCallback>> mActiveWatchers = new ArrayMap<>();
     private final AppOpsManagerInternalImpl mAppOpsManagerInternal = new AppOpsManagerInternalImpl();
     final SparseArray<SparseArray<Restriction>> mAudioRestrictions = new SparseArray<>();
-    @GuardedBy({"this"})
-    private AppOpsManagerInternal.CheckOpsDelegate mCheckOpsDelegate;
+    private volatile AppOpsManagerInternal.CheckOpsDelegate mCheckOpsDelegate;
     final ArrayMap<IBinder, ClientState> mClients = new ArrayMap<>();
     @VisibleForTesting
     final Constants mConstants;
@@ -117,25 +116,56 @@ public class AppOpsService extends IAppOpsService.Stub {
     final ArrayMap<String, ArraySet<ModeCallback>> mPackageModeWatchers = new ArrayMap<>();
     SparseIntArray mProfileOwners;
     private AppOpsServiceState mServiceState;
+    // All op state stays under the service lock: checkOperation and noteOperation take it for
+    // the lookup, and writeState() holds it while it serializes. Only the delegate is read
+    // without it.
     @GuardedBy({"this"})
     @VisibleForTesting
     final SparseArray<UidState> mUidStates = new SparseArray<>();
+    @GuardedBy({"this"})
+    boolean mWriteInFlight;
+    @GuardedBy({"this"})
+    boolean mWritePending;
     final Runnable mWriteRunner = new Runnable() {
         public void run() {
             synchronized (AppOpsService.this) {
                 AppOpsService.this.mWriteScheduled = false;
                 AppOpsService.this.mFastWriteScheduled = false;
-                new AsyncTask<Void, Void, Void>() {
-                    /* access modifiers changed from: protected */
-                    public Void doInBackground(Void... params) {
-                        AppOpsService.this.writeState();
-                        return null;
-                    }
-                }.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, (Void[]) null);
+                if (AppOpsService.this.mWriteInFlight) {
+                    AppOpsService.this.mWritePending = true;
+                    return;
+                }
+                AppOpsService.this.mWriteInFlight = true;
             }
+            AsyncTask.THREAD_POOL_EXECUTOR.execute(AppOpsService.this.mWriteStateRunner);
         }
     };
     boolean mWriteScheduled;
+    final Runnable mWriteStateRunner = new Runnable() {
+        public void run() {
+            boolean finished = false;
+            try {
+                while (true) {
+                    AppOpsService.this.writeState();
+                    synchronized (AppOpsService.this) {
+                        if (!AppOpsService.this.mWritePending) {
+                            AppOpsService.this.mWriteInFlight = false;
+                            finished = true;
+                            return;
+                        }
+                        AppOpsService.this.mWritePending = false;
+                    }
+                }
+            } finally {
+                if (!finished) {
+                    // writeState() threw; let the next write request start a new writer.
+                    synchronized (AppOpsService.this) {
+                        AppOpsService.this.mWriteInFlight = false;
+                    }
+                }
+            }
+        }
+    };
 
     @VisibleForTesting
     final class Constants extends ContentObserver {
@@ -2391,11 +2421,7 @@ public class AppOpsService extends IAppOpsService.Stub {
     }
 
     public AppOpsManagerInternal.CheckOpsDelegate getAppOpsServiceDelegate() {
-        AppOpsManagerInternal.CheckOpsDelegate checkOpsDelegate;
-        synchronized (this) {
-            checkOpsDelegate = this.mCheckOpsDelegate;
-        }
-        return checkOpsDelegate;
+        return this.mCheckOpsDelegate;
     }
 
     public void setAppOpsServiceDelegate(AppOpsManagerInternal.CheckOpsDelegate delegate) {
@@ -2413,10 +2439,7 @@ public class AppOpsService extends IAppOpsService.Stub {
     }
 
     private int checkOperationInternal(int code, int uid, String packageName, boolean raw) {
-        AppOpsManagerInternal.CheckOpsDelegate delegate;
-        synchronized (this) {
-            delegate = this.mCheckOpsDelegate;
-        }
+        AppOpsManagerInternal.CheckOpsDelegate delegate = this.mCheckOpsDelegate;
         if (delegate == null) {
             return checkOperationImpl(code, uid, packageName, raw);
         }
@@ -2529,10 +2552,7 @@ public class AppOpsService extends IAppOpsService.Stub {
     }
 
     public int checkAudioOperation(int code, int usage, int uid, String packageName) {
-        AppOpsManagerInternal.CheckOpsDelegate delegate;
-        synchronized (this) {
-            delegate = this.mCheckOpsDelegate;
-        }
+        AppOpsManagerInternal.CheckOpsDelegate delegate = this.mCheckOpsDelegate;
         if (delegate == null) {
             return checkAudioOperationImpl(code, usage, uid, packageName);
         }
@@ -2664,10 +2684,7 @@ public class AppOpsService extends IAppOpsService.Stub {
     }
 
     public int noteOperation(int code, int uid, String packageName) {
-        AppOpsManagerInternal.CheckOpsDelegate delegate;
-        synchronized (this) {
-            delegate = this.mCheckOpsDelegate;
-        }
+        AppOpsManagerInternal.CheckOpsDelegate delegate = this.mCheckOpsDelegate;
         if (delegate == null) {
             return noteOperationImpl(code, uid, packageName);
         }
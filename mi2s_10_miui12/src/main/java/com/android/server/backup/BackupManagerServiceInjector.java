@@ -27,6 +27,7 @@ import com.android.server.backup.internal.Operation;
 import com.android.server.backup.restore.FullRestoreEngine;
 import com.android.server.backup.utils.FullBackupUtils;
 import com.miui.server.BackupProxyHelper;
+import com.miui.server.IncrementalBackupFilter;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.FileInputStream;
@@ -109,6 +110,10 @@ public class BackupManagerServiceInjector {
         }
     }
 
+    public static boolean isRestoringIncrement(int fd) {
+        return IncrementalBackupFilter.isRestoringIncrement(fd);
+    }
+
     public static void addRestoredSize(long size, int fd) {
         IBackupManager bm = ServiceManager.getService("MiuiBackup");
         try {
@@ -341,6 +346,7 @@ public class BackupManagerServiceInjector {
                 if (!bm.isCanceling()) {
                     raw = new FileInputStream(inPipe.getFileDescriptor());
                     in = new DataInputStream(raw);
+                    OutputStream target = IncrementalBackupFilter.wrap(out, outFd);
                     byte[] buffer = new byte[32768];
                     while (true) {
                         int readInt = in.readInt();
@@ -348,20 +354,19 @@ public class BackupManagerServiceInjector {
                         if (readInt <= 0) {
                             break;
                         }
-                        while (true) {
-                            if (chunkTotal > 0) {
-                                int nRead = in.read(buffer, 0, chunkTotal > buffer.length ? buffer.length : chunkTotal);
-                                if (nRead >= 0) {
-                                    out.write(buffer, 0, nRead);
-                                    bm.addCompletedSize((long) nRead);
-                                    chunkTotal -= nRead;
-                                } else {
-                                    Slog.e(TAG, "Unexpectedly reached end of file while reading data");
-                                    throw new EOFException();
-                                }
+                        while (chunkTotal > 0) {
+                            int nRead = in.read(buffer, 0, chunkTotal > buffer.length ? buffer.length : chunkTotal);
+                            if (nRead >= 0) {
+                                target.write(buffer, 0, nRead);
+                                bm.addCompletedSize((long) nRead);
+                                chunkTotal -= nRead;
+                            } else {
+                                Slog.e(TAG, "Unexpectedly reached end of file while reading data");
+                                throw new EOFException();
                             }
                         }
                     }
+                    IncrementalBackupFilter.finish(target);
                 } else {
                     if (raw != null) {
                         raw.close();
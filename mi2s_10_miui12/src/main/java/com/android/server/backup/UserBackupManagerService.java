@@ -1865,6 +1865,10 @@ public class UserBackupManagerService {
     }
 
     public void clearApplicationDataBeforeRestore(String packageName) {
+        if (BackupManagerServiceInjector.isRestoringIncrement(this.mCallerFd)) {
+            Slog.i(BackupManagerService.TAG, "Restoring an incremental backup, keeping the data of " + packageName);
+            return;
+        }
         clearApplicationDataSynchronous(packageName, false, true);
     }
 
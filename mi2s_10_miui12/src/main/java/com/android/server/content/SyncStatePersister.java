@@ -0,0 +1,220 @@
+package com.android.server.content;
+
+import android.content.SyncStatusInfo;
+import android.os.Parcel;
+import android.util.AtomicFile;
+import android.util.Log;
+import android.util.Slog;
+import android.util.SparseArray;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+
+/**
+ * Coalesces sync status and statistics writes into a single binary file.
+ *
+ * Status records are marshalled once and cached per authority; only authorities whose bit is
+ * set in the dirty bitmap are re-marshalled on flush. A write covers status and statistics
+ * both; SyncStorageEngine schedules it, and skips it when nothing is dirty.
+ */
+class SyncStatePersister {
+    private static final String STATE_FILE_NAME = "sync-state.bin";
+    private static final int STATE_FILE_MAGIC = 0x53594e43;
+    private static final int STATE_FILE_VERSION = 1;
+    private static final int TAG_END = 0;
+    private static final String TAG = "SyncManager";
+    private static final String TAG_FILE = "SyncManagerFile";
+    private static final int TAG_STATISTICS = 101;
+    private static final int TAG_STATUS = 100;
+    private final BitSet mDirtyAuthorities = new BitSet();
+    private final AtomicFile[] mLegacyFiles;
+    private final Parcel mRecordParcel = Parcel.obtain();
+    private final AtomicFile mStateFile;
+    private boolean mStatisticsDirty;
+    private final SparseArray<byte[]> mStatusRecords = new SparseArray<>();
+
+    SyncStatePersister(File syncDir, AtomicFile... legacyFiles) {
+        this.mStateFile = new AtomicFile(new File(syncDir, STATE_FILE_NAME), "sync-state");
+        this.mLegacyFiles = legacyFiles;
+    }
+
+    /* access modifiers changed from: package-private */
+    public void markStatusDirtyLocked(int authorityId) {
+        this.mDirtyAuthorities.set(authorityId);
+    }
+
+    /* access modifiers changed from: package-private */
+    public void markAllStatusDirtyLocked(SparseArray<SyncStatusInfo> statuses) {
+        int N = statuses.size();
+        for (int i = 0; i < N; i++) {
+            this.mDirtyAuthorities.set(statuses.keyAt(i));
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public void markStatisticsDirtyLocked() {
+        this.mStatisticsDirty = true;
+    }
+
+    /* access modifiers changed from: package-private */
+    public boolean isDirtyLocked() {
+        return this.mStatisticsDirty || !this.mDirtyAuthorities.isEmpty();
+    }
+
+    /* access modifiers changed from: package-private */
+    public void removeStatusLocked(int authorityId) {
+        this.mStatusRecords.remove(authorityId);
+        this.mDirtyAuthorities.clear(authorityId);
+    }
+
+    /* access modifiers changed from: package-private */
+    public void clearLocked() {
+        this.mStatusRecords.clear();
+        this.mDirtyAuthorities.clear();
+        this.mStatisticsDirty = false;
+    }
+
+    /* access modifiers changed from: package-private */
+    public boolean readLocked(SparseArray<SyncStatusInfo> outStatus, SyncStorageEngine.DayStats[] outDayStats) {
+        if (!this.mStateFile.exists()) {
+            return false;
+        }
+        if (Log.isLoggable(TAG_FILE, 2)) {
+            Slog.v(TAG_FILE, "Reading " + this.mStateFile.getBaseFile());
+        }
+        Parcel in = Parcel.obtain();
+        Parcel record = Parcel.obtain();
+        try {
+            byte[] data = this.mStateFile.readFully();
+            in.unmarshall(data, 0, data.length);
+            in.setDataPosition(0);
+            if (in.readInt() != STATE_FILE_MAGIC || in.readInt() != STATE_FILE_VERSION) {
+                Slog.w(TAG, "Unknown sync state file version, falling back to legacy files");
+                return false;
+            }
+            int dayIndex = 0;
+            while (true) {
+                int token = in.readInt();
+                if (token == TAG_END) {
+                    return true;
+                }
+                if (token == TAG_STATUS) {
+                    int authorityId = in.readInt();
+                    byte[] bytes = in.createByteArray();
+                    record.unmarshall(bytes, 0, bytes.length);
+                    record.setDataPosition(0);
+                    SyncStatusInfo status = new SyncStatusInfo(record);
+                    if (status.authorityId == authorityId) {
+                        outStatus.put(authorityId, status);
+                        this.mStatusRecords.put(authorityId, bytes);
+                    }
+                } else if (token == TAG_STATISTICS) {
+                    SyncStorageEngine.DayStats ds = new SyncStorageEngine.DayStats(in.readInt());
+                    ds.successCount = in.readInt();
+                    ds.successTime = in.readLong();
+                    ds.failureCount = in.readInt();
+                    ds.failureTime = in.readLong();
+                    if (dayIndex < outDayStats.length) {
+                        outDayStats[dayIndex] = ds;
+                        dayIndex++;
+                    }
+                } else {
+                    Slog.w(TAG, "Unknown sync state token: " + token);
+                    return true;
+                }
+            }
+        } catch (IOException e) {
+            Slog.i(TAG, "No initial sync state");
+            return false;
+        } catch (RuntimeException ex) {
+            Slog.wtf(TAG, "sync state file may be broken", ex);
+            outStatus.clear();
+            this.mStatusRecords.clear();
+            return false;
+        } finally {
+            record.recycle();
+            in.recycle();
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public void writeLocked(SparseArray<SyncStatusInfo> statuses, SyncStorageEngine.DayStats[] dayStats) {
+        if (Log.isLoggable(TAG_FILE, 2)) {
+            Slog.v(TAG_FILE, "Writing new " + this.mStateFile.getBaseFile() + " dirty=" + this.mDirtyAuthorities.cardinality() + " stats=" + this.mStatisticsDirty);
+        }
+        Parcel out = Parcel.obtain();
+        FileOutputStream fos = null;
+        try {
+            out.writeInt(STATE_FILE_MAGIC);
+            out.writeInt(STATE_FILE_VERSION);
+            int N = statuses.size();
+            for (int i = 0; i < N; i++) {
+                int authorityId = statuses.keyAt(i);
+                byte[] bytes = this.mStatusRecords.get(authorityId);
+                if (bytes == null || this.mDirtyAuthorities.get(authorityId)) {
+                    bytes = marshallStatusLocked(statuses.valueAt(i));
+                    this.mStatusRecords.put(authorityId, bytes);
+                }
+                out.writeInt(TAG_STATUS);
+                out.writeInt(authorityId);
+                out.writeByteArray(bytes);
+            }
+            for (SyncStorageEngine.DayStats ds : dayStats) {
+                if (ds == null) {
+                    break;
+                }
+                out.writeInt(TAG_STATISTICS);
+                out.writeInt(ds.day);
+                out.writeInt(ds.successCount);
+                out.writeLong(ds.successTime);
+                out.writeInt(ds.failureCount);
+                out.writeLong(ds.failureTime);
+            }
+            out.writeInt(TAG_END);
+            fos = this.mStateFile.startWrite();
+            fos.write(out.marshall());
+            this.mStateFile.finishWrite(fos);
+            this.mDirtyAuthorities.clear();
+            this.mStatisticsDirty = false;
+            pruneStaleRecordsLocked(statuses);
+            deleteLegacyFilesLocked();
+        } catch (IOException e) {
+            Slog.w(TAG, "Error writing sync state", e);
+            if (fos != null) {
+                this.mStateFile.failWrite(fos);
+            }
+        } finally {
+            out.recycle();
+        }
+    }
+
+    private byte[] marshallStatusLocked(SyncStatusInfo status) {
+        Parcel p = this.mRecordParcel;
+        p.setDataSize(0);
+        p.setDataPosition(0);
+        status.writeToParcel(p, 0);
+        return p.marshall();
+    }
+
+    private void pruneStaleRecordsLocked(SparseArray<SyncStatusInfo> statuses) {
+        if (this.mStatusRecords.size() == statuses.size()) {
+            return;
+        }
+        int i = this.mStatusRecords.size();
+        while (i > 0) {
+            i--;
+            if (statuses.indexOfKey(this.mStatusRecords.keyAt(i)) < 0) {
+                this.mStatusRecords.removeAt(i);
+            }
+        }
+    }
+
+    private void deleteLegacyFilesLocked() {
+        for (AtomicFile legacy : this.mLegacyFiles) {
+            if (legacy.exists()) {
+                legacy.delete();
+            }
+        }
+    }
+}
@@ -11,6 +11,7 @@ import android.content.ISyncStatusObserver;
 import android.content.PeriodicSync;
 import android.content.SyncInfo;
 import android.content.SyncRequest;
+import android.content.SyncResult;
 import android.content.SyncStatusInfo;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
@@ -22,6 +23,7 @@ import android.os.Parcel;
 import android.os.Process;
 import android.os.RemoteCallbackList;
 import android.os.RemoteException;
+import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.ArraySet;
 import android.util.AtomicFile;
@@ -64,8 +66,7 @@ public class SyncStorageEngine {
     public static final String MESG_SUCCESS = "success";
     @VisibleForTesting
     static final long MILLIS_IN_4WEEKS = 2419200000L;
-    private static final int MSG_WRITE_STATISTICS = 2;
-    private static final int MSG_WRITE_STATUS = 1;
+    private static final int MSG_WRITE_STATE = 1;
     public static final long NOT_IN_BACKOFF_MODE = -1;
     public static final String[] SOURCES = {"OTHER", "LOCAL", "POLL", "USER", "PERIODIC", "FEED"};
     public static final int SOURCE_FEED = 5;
@@ -82,8 +83,8 @@ public class SyncStorageEngine {
     private static final boolean SYNC_ENABLED_DEFAULT = false;
     private static final String TAG = "SyncManager";
     private static final String TAG_FILE = "SyncManagerFile";
-    private static final long WRITE_STATISTICS_DELAY = 1800000;
-    private static final long WRITE_STATUS_DELAY = 600000;
+    private static final long WRITE_STATE_COALESCE_DELAY = 2000;
+    private static final long WRITE_STATE_MAX_DELAY = 600000;
     private static final String XML_ATTR_ENABLED = "enabled";
     private static final String XML_ATTR_LISTEN_FOR_TICKLES = "listen-for-tickles";
     private static final String XML_ATTR_NEXT_AUTHORITY_ID = "nextAuthorityId";
@@ -113,6 +114,8 @@ public class SyncStorageEngine {
     private int mNextAuthorityId = 0;
     private int mNextHistoryId = 0;
     private final ArrayMap<ComponentName, SparseArray<AuthorityInfo>> mServices = new ArrayMap<>();
+    private final SyncStatePersister mStatePersister;
+    private long mStateWriteDeadline;
     private final AtomicFile mStatisticsFile;
     private final AtomicFile mStatusFile;
     private final ArrayList<SyncHistoryItem> mSyncHistory = new ArrayList<>();
@@ -345,9 +348,9 @@ public class SyncStorageEngine {
         this.mAccountInfoFile = new AtomicFile(new File(syncDir, "accounts.xml"), "sync-accounts");
         this.mStatusFile = new AtomicFile(new File(syncDir, "status.bin"), "sync-status");
         this.mStatisticsFile = new AtomicFile(new File(syncDir, "stats.bin"), "sync-stats");
+        this.mStatePersister = new SyncStatePersister(syncDir, this.mStatusFile, this.mStatisticsFile);
         readAccountInfoLocked();
-        readStatusLocked();
-        readStatisticsLocked();
+        readStateLocked();
         SyncStorageEngineInjector.initAndReadAndWriteLocked(syncDir);
         if (this.mLogger.enabled()) {
             int size = this.mAuthorities.size();
@@ -404,11 +407,7 @@ public class SyncStorageEngine {
         public void handleMessage(Message msg) {
             if (msg.what == 1) {
                 synchronized (SyncStorageEngine.this.mAuthorities) {
-                    SyncStorageEngine.this.writeStatusLocked();
-                }
-            } else if (msg.what == 2) {
-                synchronized (SyncStorageEngine.this.mAuthorities) {
-                    SyncStorageEngine.this.writeStatisticsLocked();
+                    SyncStorageEngine.this.flushStateLocked();
                 }
             }
         }
@@ -1122,6 +1121,7 @@ public class SyncStorageEngine {
                         j--;
                         if (this.mSyncStatus.keyAt(j) == ident) {
                             this.mSyncStatus.remove(this.mSyncStatus.keyAt(j));
+                            this.mStatePersister.removeStatusLocked(ident);
                         }
                     }
                     int j2 = this.mSyncHistory.size();
@@ -1133,8 +1133,8 @@ public class SyncStorageEngine {
                     }
                 }
                 writeAccountInfoLocked();
-                writeStatusLocked();
-                writeStatisticsLocked();
+                this.mStatePersister.markStatisticsDirtyLocked();
+                writeStateLocked();
             }
             SyncStorageEngineInjector.doDatabaseCleanupLocked(currentAccounts, userId);
         }
@@ -1268,413 +1268,117 @@ public class SyncStorageEngine {
         throw new UnsupportedOperationException("Method not decompiled: com.android.server.content.SyncStorageEngine.insertStartSyncEvent(com.android.server.content.SyncOperation, long):long");
     }
 
-    /* JADX WARNING: Code restructure failed: missing block: B:84:0x02a3, code lost:
-        reportChange(8, r32);
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:85:0x02aa, code lost:
-        return;
-     */
-    /* JADX WARNING: Removed duplicated region for block: B:49:0x0178 A[Catch:{ all -> 0x02ab }] */
-    /* JADX WARNING: Removed duplicated region for block: B:55:0x019a A[Catch:{ all -> 0x02ab }] */
-    /* JADX WARNING: Removed duplicated region for block: B:64:0x022a A[Catch:{ all -> 0x02ab }] */
-    /* JADX WARNING: Removed duplicated region for block: B:73:0x0261 A[Catch:{ all -> 0x02ab }] */
-    /* JADX WARNING: Removed duplicated region for block: B:74:0x0267 A[Catch:{ all -> 0x02ab }] */
-    /* JADX WARNING: Removed duplicated region for block: B:79:0x0286 A[Catch:{ all -> 0x02ab }] */
-    /* JADX WARNING: Removed duplicated region for block: B:80:0x028a A[Catch:{ all -> 0x02ab }] */
-    /* Code decompiled incorrectly, please refer to instructions dump. */
-    public void stopSyncEvent(long r23, long r25, java.lang.String r27, long r28, long r30, int r32, android.content.SyncResult r33) {
-        /*
-            r22 = this;
-            r1 = r22
-            r2 = r23
-            r4 = r25
-            r6 = r27
-            android.util.SparseArray<com.android.server.content.SyncStorageEngine$AuthorityInfo> r7 = r1.mAuthorities
-            monitor-enter(r7)
-            java.lang.String r0 = "SyncManager"
-            r8 = 2
-            boolean r0 = android.util.Log.isLoggable(r0, r8)     // Catch:{ all -> 0x02ad }
-            if (r0 == 0) goto L_0x002b
-            java.lang.String r0 = "SyncManager"
-            java.lang.StringBuilder r9 = new java.lang.StringBuilder     // Catch:{ all -> 0x02ad }
-            r9.<init>()     // Catch:{ all -> 0x02ad }
-            java.lang.String r10 = "stopSyncEvent: historyId="
-            r9.append(r10)     // Catch:{ all -> 0x02ad }
-            r9.append(r2)     // Catch:{ all -> 0x02ad }
-            java.lang.String r9 = r9.toString()     // Catch:{ all -> 0x02ad }
-            android.util.Slog.v(r0, r9)     // Catch:{ all -> 0x02ad }
-        L_0x002b:
-            r0 = 0
-            java.util.ArrayList<com.android.server.content.SyncStorageEngine$SyncHistoryItem> r9 = r1.mSyncHistory     // Catch:{ all -> 0x02ad }
-            int r9 = r9.size()     // Catch:{ all -> 0x02ad }
-        L_0x0032:
-            if (r9 <= 0) goto L_0x0049
-            int r9 = r9 + -1
-            java.util.ArrayList<com.android.server.content.SyncStorageEngine$SyncHistoryItem> r10 = r1.mSyncHistory     // Catch:{ all -> 0x02ad }
-            java.lang.Object r10 = r10.get(r9)     // Catch:{ all -> 0x02ad }
-            com.android.server.content.SyncStorageEngine$SyncHistoryItem r10 = (com.android.server.content.SyncStorageEngine.SyncHistoryItem) r10     // Catch:{ all -> 0x02ad }
-            r0 = r10
-            int r10 = r0.historyId     // Catch:{ all -> 0x02ad }
-            long r10 = (long) r10     // Catch:{ all -> 0x02ad }
-            int r10 = (r10 > r2 ? 1 : (r10 == r2 ? 0 : -1))
-            if (r10 != 0) goto L_0x0047
-            goto L_0x0049
-        L_0x0047:
-            r0 = 0
-            goto L_0x0032
-        L_0x0049:
-            if (r0 != 0) goto L_0x0064
-            java.lang.String r8 = "SyncManager"
-            java.lang.StringBuilder r10 = new java.lang.StringBuilder     // Catch:{ all -> 0x02ad }
-            r10.<init>()     // Catch:{ all -> 0x02ad }
-            java.lang.String r11 = "stopSyncEvent: no history for id "
-            r10.append(r11)     // Catch:{ all -> 0x02ad }
-            r10.append(r2)     // Catch:{ all -> 0x02ad }
-            java.lang.String r10 = r10.toString()     // Catch:{ all -> 0x02ad }
-            android.util.Slog.w(r8, r10)     // Catch:{ all -> 0x02ad }
-            monitor-exit(r7)     // Catch:{ all -> 0x02ad }
-            return
-        L_0x0064:
-            r0.elapsedTime = r4     // Catch:{ all -> 0x02ad }
-            r10 = 1
-            r0.event = r10     // Catch:{ all -> 0x02ad }
-            r0.mesg = r6     // Catch:{ all -> 0x02ad }
-            r11 = r28
-            r0.downstreamActivity = r11     // Catch:{ all -> 0x02ad }
-            r13 = r30
-            r0.upstreamActivity = r13     // Catch:{ all -> 0x02ab }
-            int r15 = r0.authorityId     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo r15 = r1.getOrCreateSyncStatusLocked(r15)     // Catch:{ all -> 0x02ab }
-            boolean r8 = r22.isClockValid()     // Catch:{ all -> 0x02ab }
-            r10 = 0
-            r15.maybeResetTodayStats(r8, r10)     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r8 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r10 = r8.numSyncs     // Catch:{ all -> 0x02ab }
-            r16 = 1
-            int r10 = r10 + 1
-            r8.numSyncs = r10     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r8 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r10 = r8.numSyncs     // Catch:{ all -> 0x02ab }
-            int r10 = r10 + 1
-            r8.numSyncs = r10     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r8 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            long r2 = r8.totalElapsedTime     // Catch:{ all -> 0x02ab }
-            long r2 = r2 + r4
-            r8.totalElapsedTime = r2     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            r3 = r9
-            long r8 = r2.totalElapsedTime     // Catch:{ all -> 0x02ab }
-            long r8 = r8 + r4
-            r2.totalElapsedTime = r8     // Catch:{ all -> 0x02ab }
-            int r2 = r0.source     // Catch:{ all -> 0x02ab }
-            if (r2 == 0) goto L_0x0106
-            r8 = 1
-            if (r2 == r8) goto L_0x00f6
-            r8 = 2
-            if (r2 == r8) goto L_0x00e6
-            r8 = 3
-            if (r2 == r8) goto L_0x00d6
-            r8 = 4
-            if (r2 == r8) goto L_0x00c6
-            r8 = 5
-            if (r2 == r8) goto L_0x00b6
-            goto L_0x0116
-        L_0x00b6:
-            android.content.SyncStatusInfo$Stats r2 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceFeed     // Catch:{ all -> 0x02ab }
-            r9 = 1
-            int r8 = r8 + r9
-            r2.numSourceFeed = r8     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceFeed     // Catch:{ all -> 0x02ab }
-            int r8 = r8 + r9
-            r2.numSourceFeed = r8     // Catch:{ all -> 0x02ab }
-            goto L_0x0116
-        L_0x00c6:
-            android.content.SyncStatusInfo$Stats r2 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourcePeriodic     // Catch:{ all -> 0x02ab }
-            r9 = 1
-            int r8 = r8 + r9
-            r2.numSourcePeriodic = r8     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourcePeriodic     // Catch:{ all -> 0x02ab }
-            int r8 = r8 + r9
-            r2.numSourcePeriodic = r8     // Catch:{ all -> 0x02ab }
-            goto L_0x0116
-        L_0x00d6:
-            android.content.SyncStatusInfo$Stats r2 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceUser     // Catch:{ all -> 0x02ab }
-            r9 = 1
-            int r8 = r8 + r9
-            r2.numSourceUser = r8     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceUser     // Catch:{ all -> 0x02ab }
-            int r8 = r8 + r9
-            r2.numSourceUser = r8     // Catch:{ all -> 0x02ab }
-            goto L_0x0116
-        L_0x00e6:
-            android.content.SyncStatusInfo$Stats r2 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourcePoll     // Catch:{ all -> 0x02ab }
-            r9 = 1
-            int r8 = r8 + r9
-            r2.numSourcePoll = r8     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourcePoll     // Catch:{ all -> 0x02ab }
-            int r8 = r8 + r9
-            r2.numSourcePoll = r8     // Catch:{ all -> 0x02ab }
-            goto L_0x0116
-        L_0x00f6:
-            android.content.SyncStatusInfo$Stats r2 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceLocal     // Catch:{ all -> 0x02ab }
-            r9 = 1
-            int r8 = r8 + r9
-            r2.numSourceLocal = r8     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceLocal     // Catch:{ all -> 0x02ab }
-            int r8 = r8 + r9
-            r2.numSourceLocal = r8     // Catch:{ all -> 0x02ab }
-            goto L_0x0116
-        L_0x0106:
-            android.content.SyncStatusInfo$Stats r2 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceOther     // Catch:{ all -> 0x02ab }
-            r9 = 1
-            int r8 = r8 + r9
-            r2.numSourceOther = r8     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r2 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r8 = r2.numSourceOther     // Catch:{ all -> 0x02ab }
-            int r8 = r8 + r9
-            r2.numSourceOther = r8     // Catch:{ all -> 0x02ab }
-        L_0x0116:
-            r2 = 0
-            int r8 = r22.getCurrentDayLocked()     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$DayStats[] r9 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            r10 = 0
-            r9 = r9[r10]     // Catch:{ all -> 0x02ab }
-            if (r9 != 0) goto L_0x0133
-            com.android.server.content.SyncStorageEngine$DayStats[] r9 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$DayStats r10 = new com.android.server.content.SyncStorageEngine$DayStats     // Catch:{ all -> 0x02ab }
-            r10.<init>(r8)     // Catch:{ all -> 0x02ab }
-            r17 = 0
-            r9[r17] = r10     // Catch:{ all -> 0x02ab }
-            r18 = r2
-            r19 = r3
-            r3 = 0
-            goto L_0x0163
-        L_0x0133:
-            com.android.server.content.SyncStorageEngine$DayStats[] r9 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            r10 = 0
-            r9 = r9[r10]     // Catch:{ all -> 0x02ab }
-            int r9 = r9.day     // Catch:{ all -> 0x02ab }
-            if (r8 == r9) goto L_0x015a
-            com.android.server.content.SyncStorageEngine$DayStats[] r9 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$DayStats[] r10 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            r18 = r2
-            com.android.server.content.SyncStorageEngine$DayStats[] r2 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            int r2 = r2.length     // Catch:{ all -> 0x02ab }
-            r19 = r3
-            r3 = 1
-            int r2 = r2 - r3
-            r11 = 0
-            java.lang.System.arraycopy(r9, r11, r10, r3, r2)     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$DayStats[] r2 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$DayStats r3 = new com.android.server.content.SyncStorageEngine$DayStats     // Catch:{ all -> 0x02ab }
-            r3.<init>(r8)     // Catch:{ all -> 0x02ab }
-            r9 = 0
-            r2[r9] = r3     // Catch:{ all -> 0x02ab }
-            r2 = 1
-            r3 = 0
-            goto L_0x0165
-        L_0x015a:
-            r18 = r2
-            r19 = r3
-            com.android.server.content.SyncStorageEngine$DayStats[] r2 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            r3 = 0
-            r2 = r2[r3]     // Catch:{ all -> 0x02ab }
-        L_0x0163:
-            r2 = r18
-        L_0x0165:
-            com.android.server.content.SyncStorageEngine$DayStats[] r9 = r1.mDayStats     // Catch:{ all -> 0x02ab }
-            r3 = r9[r3]     // Catch:{ all -> 0x02ab }
-            long r9 = r0.eventTime     // Catch:{ all -> 0x02ab }
-            long r9 = r9 + r4
-            r11 = 0
-            java.lang.String r12 = "success"
-            boolean r12 = r12.equals(r6)     // Catch:{ all -> 0x02ab }
-            r17 = 0
-            if (r12 == 0) goto L_0x019a
-            r20 = r11
-            long r11 = r15.lastSuccessTime     // Catch:{ all -> 0x02ab }
-            int r11 = (r11 > r17 ? 1 : (r11 == r17 ? 0 : -1))
-            if (r11 == 0) goto L_0x0186
-            long r11 = r15.lastFailureTime     // Catch:{ all -> 0x02ab }
-            int r11 = (r11 > r17 ? 1 : (r11 == r17 ? 0 : -1))
-            if (r11 == 0) goto L_0x0189
-        L_0x0186:
-            r11 = 1
-            r20 = r11
-        L_0x0189:
-            int r11 = r0.source     // Catch:{ all -> 0x02ab }
-            r15.setLastSuccess(r11, r9)     // Catch:{ all -> 0x02ab }
-            int r11 = r3.successCount     // Catch:{ all -> 0x02ab }
-            r12 = 1
-            int r11 = r11 + r12
-            r3.successCount = r11     // Catch:{ all -> 0x02ab }
-            long r11 = r3.successTime     // Catch:{ all -> 0x02ab }
-            long r11 = r11 + r4
-            r3.successTime = r11     // Catch:{ all -> 0x02ab }
-            goto L_0x01e4
-        L_0x019a:
-            r20 = r11
-            java.lang.String r11 = "canceled"
-            boolean r11 = r11.equals(r6)     // Catch:{ all -> 0x02ab }
-            if (r11 != 0) goto L_0x01d0
-            long r11 = r15.lastFailureTime     // Catch:{ all -> 0x02ab }
-            int r11 = (r11 > r17 ? 1 : (r11 == r17 ? 0 : -1))
-            if (r11 != 0) goto L_0x01ad
-            r11 = 1
-            r20 = r11
-        L_0x01ad:
-            android.content.SyncStatusInfo$Stats r11 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r12 = r11.numFailures     // Catch:{ all -> 0x02ab }
-            r16 = 1
-            int r12 = r12 + 1
-            r11.numFailures = r12     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r11 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r12 = r11.numFailures     // Catch:{ all -> 0x02ab }
-            int r12 = r12 + 1
-            r11.numFailures = r12     // Catch:{ all -> 0x02ab }
-            int r11 = r0.source     // Catch:{ all -> 0x02ab }
-            r15.setLastFailure(r11, r9, r6)     // Catch:{ all -> 0x02ab }
-            int r11 = r3.failureCount     // Catch:{ all -> 0x02ab }
-            r12 = 1
-            int r11 = r11 + r12
-            r3.failureCount = r11     // Catch:{ all -> 0x02ab }
-            long r11 = r3.failureTime     // Catch:{ all -> 0x02ab }
-            long r11 = r11 + r4
-            r3.failureTime = r11     // Catch:{ all -> 0x02ab }
-            goto L_0x01e4
-        L_0x01d0:
-            android.content.SyncStatusInfo$Stats r11 = r15.totalStats     // Catch:{ all -> 0x02ab }
-            int r12 = r11.numCancels     // Catch:{ all -> 0x02ab }
-            r16 = 1
-            int r12 = r12 + 1
-            r11.numCancels = r12     // Catch:{ all -> 0x02ab }
-            android.content.SyncStatusInfo$Stats r11 = r15.todayStats     // Catch:{ all -> 0x02ab }
-            int r12 = r11.numCancels     // Catch:{ all -> 0x02ab }
-            int r12 = r12 + 1
-            r11.numCancels = r12     // Catch:{ all -> 0x02ab }
-            r20 = 1
-        L_0x01e4:
-            java.lang.StringBuilder r11 = new java.lang.StringBuilder     // Catch:{ all -> 0x02ab }
-            r11.<init>()     // Catch:{ all -> 0x02ab }
-            java.lang.StringBuilder r12 = new java.lang.StringBuilder     // Catch:{ all -> 0x02ab }
-            r12.<init>()     // Catch:{ all -> 0x02ab }
-            r17 = r3
-            java.lang.String r3 = ""
-            r12.append(r3)     // Catch:{ all -> 0x02ab }
-            r12.append(r6)     // Catch:{ all -> 0x02ab }
-            java.lang.String r3 = " Source="
-            r12.append(r3)     // Catch:{ all -> 0x02ab }
-            java.lang.String[] r3 = SOURCES     // Catch:{ all -> 0x02ab }
-            r18 = r8
-            int r8 = r0.source     // Catch:{ all -> 0x02ab }
-            r3 = r3[r8]     // Catch:{ all -> 0x02ab }
-            r12.append(r3)     // Catch:{ all -> 0x02ab }
-            java.lang.String r3 = " Elapsed="
-            r12.append(r3)     // Catch:{ all -> 0x02ab }
-            java.lang.String r3 = r12.toString()     // Catch:{ all -> 0x02ab }
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncManager.formatDurationHMS(r11, r4)     // Catch:{ all -> 0x02ab }
-            java.lang.String r3 = " Reason="
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            r3 = 0
-            int r8 = r0.reason     // Catch:{ all -> 0x02ab }
-            java.lang.String r3 = com.android.server.content.SyncOperation.reasonToString(r3, r8)     // Catch:{ all -> 0x02ab }
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            int r3 = r0.syncExemptionFlag     // Catch:{ all -> 0x02ab }
-            if (r3 == 0) goto L_0x0249
-            java.lang.String r3 = " Exemption="
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            int r3 = r0.syncExemptionFlag     // Catch:{ all -> 0x02ab }
-            r8 = 1
-            if (r3 == r8) goto L_0x0244
-            r8 = 2
-            if (r3 == r8) goto L_0x023d
-            int r3 = r0.syncExemptionFlag     // Catch:{ all -> 0x02ab }
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            goto L_0x0249
-        L_0x023d:
-            java.lang.String r3 = "top"
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            goto L_0x0249
-        L_0x0244:
-            java.lang.String r3 = "fg"
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-        L_0x0249:
-            java.lang.String r3 = " Extras="
-            r11.append(r3)     // Catch:{ all -> 0x02ab }
-            android.os.Bundle r3 = r0.extras     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncOperation.extrasToStringBuilder(r3, r11)     // Catch:{ all -> 0x02ab }
-            java.lang.String r3 = r11.toString()     // Catch:{ all -> 0x02ab }
-            r15.addEvent(r3)     // Catch:{ all -> 0x02ab }
-            r3 = r33
-            com.android.server.content.SyncStorageEngineInjector.updateResultStatusLocked(r15, r6, r3)     // Catch:{ all -> 0x02ab }
-            if (r20 == 0) goto L_0x0267
-            r22.writeStatusLocked()     // Catch:{ all -> 0x02ab }
-            r21 = r0
-            goto L_0x0284
-        L_0x0267:
-            com.android.server.content.SyncStorageEngine$MyHandler r8 = r1.mHandler     // Catch:{ all -> 0x02ab }
-            r12 = 1
-            boolean r8 = r8.hasMessages(r12)     // Catch:{ all -> 0x02ab }
-            if (r8 != 0) goto L_0x0282
-            com.android.server.content.SyncStorageEngine$MyHandler r8 = r1.mHandler     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$MyHandler r12 = r1.mHandler     // Catch:{ all -> 0x02ab }
-            r21 = r0
-            r0 = 1
-            android.os.Message r0 = r12.obtainMessage(r0)     // Catch:{ all -> 0x02ab }
-            r3 = 600000(0x927c0, double:2.964394E-318)
-            r8.sendMessageDelayed(r0, r3)     // Catch:{ all -> 0x02ab }
-            goto L_0x0284
-        L_0x0282:
-            r21 = r0
-        L_0x0284:
-            if (r2 == 0) goto L_0x028a
-            r22.writeStatisticsLocked()     // Catch:{ all -> 0x02ab }
-            goto L_0x02a2
-        L_0x028a:
-            com.android.server.content.SyncStorageEngine$MyHandler r0 = r1.mHandler     // Catch:{ all -> 0x02ab }
-            r3 = 2
-            boolean r0 = r0.hasMessages(r3)     // Catch:{ all -> 0x02ab }
-            if (r0 != 0) goto L_0x02a2
-            com.android.server.content.SyncStorageEngine$MyHandler r0 = r1.mHandler     // Catch:{ all -> 0x02ab }
-            com.android.server.content.SyncStorageEngine$MyHandler r3 = r1.mHandler     // Catch:{ all -> 0x02ab }
-            r4 = 2
-            android.os.Message r3 = r3.obtainMessage(r4)     // Catch:{ all -> 0x02ab }
-            r4 = 1800000(0x1b7740, double:8.89318E-318)
-            r0.sendMessageDelayed(r3, r4)     // Catch:{ all -> 0x02ab }
-        L_0x02a2:
-            monitor-exit(r7)     // Catch:{ all -> 0x02ab }
-            r0 = 8
-            r2 = r32
-            r1.reportChange(r0, r2)
-            return
-        L_0x02ab:
-            r0 = move-exception
-            goto L_0x02b0
-        L_0x02ad:
-            r0 = move-exception
-            r13 = r30
-        L_0x02b0:
-            r2 = r32
-        L_0x02b2:
-            monitor-exit(r7)     // Catch:{ all -> 0x02b4 }
-            throw r0
-        L_0x02b4:
-            r0 = move-exception
-            goto L_0x02b2
-        */
-        throw new UnsupportedOperationException("Method not decompiled: com.android.server.content.SyncStorageEngine.stopSyncEvent(long, long, java.lang.String, long, long, int, android.content.SyncResult):void");
+    public void stopSyncEvent(long historyId, long elapsedTime, String resultMessage, long downstreamActivity, long upstreamActivity, int userId, SyncResult syncResult) {
+        synchronized (this.mAuthorities) {
+            if (Log.isLoggable("SyncManager", 2)) {
+                Slog.v("SyncManager", "stopSyncEvent: historyId=" + historyId);
+            }
+            SyncHistoryItem item = null;
+            int i = this.mSyncHistory.size();
+            while (true) {
+                if (i <= 0) {
+                    break;
+                }
+                i--;
+                item = this.mSyncHistory.get(i);
+                if (((long) item.historyId) == historyId) {
+                    break;
+                }
+                item = null;
+            }
+            if (item == null) {
+                Slog.w("SyncManager", "stopSyncEvent: no history for id " + historyId);
+                return;
+            }
+            item.elapsedTime = elapsedTime;
+            item.event = 1;
+            item.mesg = resultMessage;
+            item.downstreamActivity = downstreamActivity;
+            item.upstreamActivity = upstreamActivity;
+            SyncStatusInfo status = getOrCreateSyncStatusLocked(item.authorityId);
+            status.maybeResetTodayStats(isClockValid(), false);
+            status.totalStats.numSyncs++;
+            status.todayStats.numSyncs++;
+            status.totalStats.totalElapsedTime += elapsedTime;
+            status.todayStats.totalElapsedTime += elapsedTime;
+            int i2 = item.source;
+            if (i2 == 0) {
+                status.totalStats.numSourceOther++;
+                status.todayStats.numSourceOther++;
+            } else if (i2 == 1) {
+                status.totalStats.numSourceLocal++;
+                status.todayStats.numSourceLocal++;
+            } else if (i2 == 2) {
+                status.totalStats.numSourcePoll++;
+                status.todayStats.numSourcePoll++;
+            } else if (i2 == 3) {
+                status.totalStats.numSourceUser++;
+                status.todayStats.numSourceUser++;
+            } else if (i2 == 4) {
+                status.totalStats.numSourcePeriodic++;
+                status.todayStats.numSourcePeriodic++;
+            } else if (i2 == 5) {
+                status.totalStats.numSourceFeed++;
+                status.todayStats.numSourceFeed++;
+            }
+            boolean writeStatisticsNow = false;
+            int day = getCurrentDayLocked();
+            DayStats[] dayStatsArr = this.mDayStats;
+            if (dayStatsArr[0] == null) {
+                dayStatsArr[0] = new DayStats(day);
+            } else if (day != dayStatsArr[0].day) {
+                System.arraycopy(dayStatsArr, 0, dayStatsArr, 1, dayStatsArr.length - 1);
+                this.mDayStats[0] = new DayStats(day);
+                writeStatisticsNow = true;
+            }
+            DayStats ds = this.mDayStats[0];
+            long lastSyncTime = item.eventTime + elapsedTime;
+            boolean writeStatusNow = false;
+            if (MESG_SUCCESS.equals(resultMessage)) {
+                if (status.lastSuccessTime == 0 || status.lastFailureTime != 0) {
+                    writeStatusNow = true;
+                }
+                status.setLastSuccess(item.source, lastSyncTime);
+                ds.successCount++;
+                ds.successTime += elapsedTime;
+            } else if (!MESG_CANCELED.equals(resultMessage)) {
+                if (status.lastFailureTime == 0) {
+                    writeStatusNow = true;
+                }
+                status.totalStats.numFailures++;
+                status.todayStats.numFailures++;
+                status.setLastFailure(item.source, lastSyncTime, resultMessage);
+                ds.failureCount++;
+                ds.failureTime += elapsedTime;
+            } else {
+                status.totalStats.numCancels++;
+                status.todayStats.numCancels++;
+                writeStatusNow = true;
+            }
+            StringBuilder event = new StringBuilder();
+            event.append("" + resultMessage + " Source=" + SOURCES[item.source] + " Elapsed=");
+            SyncManager.formatDurationHMS(event, elapsedTime);
+            event.append(" Reason=");
+            event.append(SyncOperation.reasonToString((PackageManager) null, item.reason));
+            if (item.syncExemptionFlag != 0) {
+                event.append(" Exemption=");
+                int i3 = item.syncExemptionFlag;
+                if (i3 == 1) {
+                    event.append("fg");
+                } else if (i3 != 2) {
+                    event.append(item.syncExemptionFlag);
+                } else {
+                    event.append("top");
+                }
+            }
+            event.append(" Extras=");
+            SyncOperation.extrasToStringBuilder(item.extras, event);
+            status.addEvent(event.toString());
+            SyncStorageEngineInjector.updateResultStatusLocked(status, resultMessage, syncResult);
+            this.mStatePersister.markStatisticsDirtyLocked();
+            scheduleWriteStateLocked(writeStatusNow || writeStatisticsNow);
+        }
+        reportChange(8, userId);
     }
 
     private List<SyncInfo> getCurrentSyncs(int userId) {
@@ -1778,7 +1482,7 @@ public class SyncStorageEngine {
     }
 
     private Pair<AuthorityInfo, SyncStatusInfo> createCopyPairOfAuthorityWithSyncStatusLocked(AuthorityInfo authorityInfo) {
-        return Pair.create(new AuthorityInfo(authorityInfo), new SyncStatusInfo(getOrCreateSyncStatusLocked(authorityInfo.ident)));
+        return Pair.create(new AuthorityInfo(authorityInfo), new SyncStatusInfo(peekOrCreateSyncStatusLocked(authorityInfo.ident)));
     }
 
     private int getCurrentDayLocked() {
@@ -1866,7 +1570,7 @@ public class SyncStorageEngine {
         }
     }
 
-    private SyncStatusInfo getOrCreateSyncStatusLocked(int authorityId) {
+    private SyncStatusInfo peekOrCreateSyncStatusLocked(int authorityId) {
         SyncStatusInfo status = this.mSyncStatus.get(authorityId);
         if (status != null) {
             return status;
@@ -1876,10 +1580,14 @@ public class SyncStorageEngine {
         return status2;
     }
 
+    private SyncStatusInfo getOrCreateSyncStatusLocked(int authorityId) {
+        this.mStatePersister.markStatusDirtyLocked(authorityId);
+        return peekOrCreateSyncStatusLocked(authorityId);
+    }
+
     public void writeAllState() {
         synchronized (this.mAuthorities) {
-            writeStatusLocked();
-            writeStatisticsLocked();
+            writeStateLocked();
         }
     }
 
@@ -1894,12 +1602,12 @@ public class SyncStorageEngine {
             this.mServices.clear();
             this.mSyncStatus.clear();
             this.mSyncHistory.clear();
+            this.mStatePersister.clearLocked();
             readAccountInfoLocked();
-            readStatusLocked();
-            readStatisticsLocked();
+            readStateLocked();
             writeAccountInfoLocked();
-            writeStatusLocked();
-            writeStatisticsLocked();
+            this.mStatePersister.markStatisticsDirtyLocked();
+            writeStateLocked();
             SyncStorageEngineInjector.clearAndReadAndWriteLocked();
         }
     }
@@ -2656,32 +2364,66 @@ public class SyncStorageEngine {
         }
     }
 
-    /* access modifiers changed from: private */
-    public void writeStatusLocked() {
-        if (Log.isLoggable(TAG_FILE, 2)) {
-            Slog.v(TAG_FILE, "Writing new " + this.mStatusFile.getBaseFile());
+    private void readStateLocked() {
+        if (this.mStatePersister.readLocked(this.mSyncStatus, this.mDayStats)) {
+            int i = this.mSyncStatus.size();
+            while (i > 0) {
+                i--;
+                int authorityId = this.mSyncStatus.keyAt(i);
+                if (this.mAuthorities.indexOfKey(authorityId) < 0) {
+                    this.mSyncStatus.removeAt(i);
+                    this.mStatePersister.removeStatusLocked(authorityId);
+                } else if (this.mSyncStatus.valueAt(i).pending) {
+                    this.mSyncStatus.valueAt(i).pending = false;
+                    this.mStatePersister.markStatusDirtyLocked(authorityId);
+                }
+            }
+            return;
         }
+        readStatusLocked();
+        readStatisticsLocked();
+        this.mStatePersister.markAllStatusDirtyLocked(this.mSyncStatus);
+        this.mStatePersister.markStatisticsDirtyLocked();
+    }
+
+    /* access modifiers changed from: private */
+    public void writeStateLocked() {
         this.mHandler.removeMessages(1);
-        try {
-            FileOutputStream fos = this.mStatusFile.startWrite();
-            Parcel out = Parcel.obtain();
-            int N = this.mSyncStatus.size();
-            for (int i = 0; i < N; i++) {
-                out.writeInt(100);
-                this.mSyncStatus.valueAt(i).writeToParcel(out, 0);
-            }
-            out.writeInt(0);
-            fos.write(out.marshall());
-            out.recycle();
-            this.mStatusFile.finishWrite(fos);
-        } catch (IOException e1) {
-            Slog.w("SyncManager", "Error writing status", e1);
-            if (0 != 0) {
-                this.mStatusFile.failWrite((FileOutputStream) null);
-            }
+        this.mStateWriteDeadline = 0;
+        this.mStatePersister.writeLocked(this.mSyncStatus, this.mDayStats);
+    }
+
+    /**
+     * Schedules a write of the state file for the changes a sync completion made. A change that
+     * the status or statistics readers care about right away, like a first failure or a new day,
+     * is written after WRITE_STATE_COALESCE_DELAY, so the completions of a burst of syncs share a
+     * write; any other change is written within WRITE_STATE_MAX_DELAY. A pending write is only
+     * ever moved earlier, so no change waits longer than the delay it was scheduled with.
+     */
+    private void scheduleWriteStateLocked(boolean soon) {
+        long deadline = SystemClock.uptimeMillis() + (soon ? WRITE_STATE_COALESCE_DELAY : WRITE_STATE_MAX_DELAY);
+        long j = this.mStateWriteDeadline;
+        if (j == 0 || deadline < j) {
+            this.mStateWriteDeadline = deadline;
+            this.mHandler.removeMessages(1);
+            MyHandler myHandler = this.mHandler;
+            myHandler.sendMessageAtTime(myHandler.obtainMessage(1), deadline);
+        }
+    }
+
+    /* access modifiers changed from: private */
+    public void flushStateLocked() {
+        this.mStateWriteDeadline = 0;
+        if (this.mStatePersister.isDirtyLocked()) {
+            this.mStatePersister.writeLocked(this.mSyncStatus, this.mDayStats);
         }
     }
 
+    /* access modifiers changed from: private */
+    public void writeStatusLocked() {
+        writeStateLocked();
+    }
+
     private void requestSync(AuthorityInfo authorityInfo, int reason, Bundle extras, int syncExemptionFlag, int callingUid, int callingPid) {
         OnSyncRequestListener onSyncRequestListener;
         if (Process.myUid() != 1000 || (onSyncRequestListener = this.mSyncRequestListener) == null) {
@@ -2752,41 +2494,8 @@ public class SyncStorageEngine {
 
     /* access modifiers changed from: private */
     public void writeStatisticsLocked() {
-        if (Log.isLoggable(TAG_FILE, 2)) {
-            Slog.v("SyncManager", "Writing new " + this.mStatisticsFile.getBaseFile());
-        }
-        this.mHandler.removeMessages(2);
-        try {
-            FileOutputStream fos = this.mStatisticsFile.startWrite();
-            Parcel out = Parcel.obtain();
-            int N = this.mDayStats.length;
-            int i = 0;
-            while (true) {
-                if (i >= N) {
-                    break;
-                }
-                DayStats ds = this.mDayStats[i];
-                if (ds == null) {
-                    break;
-                }
-                out.writeInt(101);
-                out.writeInt(ds.day);
-                out.writeInt(ds.successCount);
-                out.writeLong(ds.successTime);
-                out.writeInt(ds.failureCount);
-                out.writeLong(ds.failureTime);
-                i++;
-            }
-            out.writeInt(0);
-            fos.write(out.marshall());
-            out.recycle();
-            this.mStatisticsFile.finishWrite(fos);
-        } catch (IOException e1) {
-            Slog.w("SyncManager", "Error writing stats", e1);
-            if (0 != 0) {
-                this.mStatisticsFile.failWrite((FileOutputStream) null);
-            }
-        }
+        this.mStatePersister.markStatisticsDirtyLocked();
+        writeStateLocked();
     }
 
     public void queueBackup() {
@@ -2813,7 +2522,8 @@ public class SyncStorageEngine {
             for (int i = 0; i < N; i++) {
                 this.mSyncStatus.valueAt(i).maybeResetTodayStats(isClockValid(), force);
             }
-            writeStatusLocked();
+            this.mStatePersister.markAllStatusDirtyLocked(this.mSyncStatus);
+            writeStateLocked();
         }
     }
 
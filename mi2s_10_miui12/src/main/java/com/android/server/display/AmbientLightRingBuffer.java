@@ -1,24 +1,46 @@
 package com.android.server.display;
 
 import android.os.SystemClock;
+import android.util.Slog;
 
+/**
+ * Fixed-capacity ring of light sensor samples with running lux-time integrals.
+ *
+ * Every sample closes the interval of the one before it, so each slot carries the prefix sums of
+ * lux * dt and lux * d(t^2) / 2 up to its own timestamp. The weighted ambient lux over a horizon
+ * is then two prefix differences plus the two partial intervals at the ends, instead of a pass over
+ * the whole horizon per sensor event. Prefix sums are kept relative to a base time that is moved
+ * forward every REBASE_INTERVAL_MILLIS, which keeps the squared terms well inside double precision.
+ */
 public class AmbientLightRingBuffer {
     private static final long AMBIENT_LIGHT_PREDICTION_TIME_MILLIS = 100;
     private static final float BUFFER_SLACK = 1.5f;
-    private int mCapacity;
+    private static final long REBASE_INTERVAL_MILLIS = 60000;
+    private static final String TAG = "AmbientLightRingBuffer";
+    private long mBaseTime;
+    private final int mCapacity;
     private int mCount;
     private int mEnd;
-    private float[] mRingLux;
-    private long[] mRingTime;
+    private int mFoldedSamples;
+    private float mMaxLux;
+    private float mMiniLux;
+    private final float[] mRingLux;
+    private final double[] mRingLuxTime;
+    private final double[] mRingLuxTimeSquared;
+    private final long[] mRingTime;
     private int mStart;
     private final int mWeightingIntercept;
 
     public AmbientLightRingBuffer(long lightSensorRate, int ambientLightHorizon) {
-        this.mCapacity = (int) Math.ceil((double) ((((float) ambientLightHorizon) * BUFFER_SLACK) / ((float) lightSensorRate)));
+        this.mCapacity = Math.max(2, (int) Math.ceil((double) ((((float) ambientLightHorizon) * BUFFER_SLACK) / ((float) lightSensorRate))));
         int i = this.mCapacity;
         this.mRingLux = new float[i];
         this.mRingTime = new long[i];
+        this.mRingLuxTime = new double[i];
+        this.mRingLuxTimeSquared = new double[i];
         this.mWeightingIntercept = ambientLightHorizon;
+        this.mMaxLux = -1.0f;
+        this.mMiniLux = -1.0f;
     }
 
     public float getLux(int index) {
@@ -30,45 +52,39 @@ public class AmbientLightRingBuffer {
     }
 
     public void push(long time, float lux) {
-        int next = this.mEnd;
-        int i = this.mCount;
-        int i2 = this.mCapacity;
-        if (i == i2) {
-            int newSize = i2 * 2;
-            float[] newRingLux = new float[newSize];
-            long[] newRingTime = new long[newSize];
-            int i3 = this.mStart;
-            int length = i2 - i3;
-            System.arraycopy(this.mRingLux, i3, newRingLux, 0, length);
-            System.arraycopy(this.mRingTime, this.mStart, newRingTime, 0, length);
-            int i4 = this.mStart;
-            if (i4 != 0) {
-                System.arraycopy(this.mRingLux, 0, newRingLux, length, i4);
-                System.arraycopy(this.mRingTime, 0, newRingTime, length, this.mStart);
-            }
-            this.mRingLux = newRingLux;
-            this.mRingTime = newRingTime;
-            next = this.mCapacity;
-            this.mCapacity = newSize;
-            this.mStart = 0;
+        if (this.mCount == 0) {
+            this.mBaseTime = time;
+            this.mRingTime[this.mEnd] = time;
+            this.mRingLux[this.mEnd] = lux;
+            this.mRingLuxTime[this.mEnd] = 0.0d;
+            this.mRingLuxTimeSquared[this.mEnd] = 0.0d;
+            this.mEnd = nextOffset(this.mEnd);
+            this.mCount = 1;
+            return;
+        }
+        if (this.mCount == this.mCapacity) {
+            foldOldest();
         }
+        if (time - this.mBaseTime > REBASE_INTERVAL_MILLIS) {
+            rebase();
+        }
+        int prev = this.mEnd == 0 ? this.mCapacity - 1 : this.mEnd - 1;
+        int next = this.mEnd;
+        double prevTime = (double) (this.mRingTime[prev] - this.mBaseTime);
+        double nextTime = (double) (time - this.mBaseTime);
+        double prevLux = (double) this.mRingLux[prev];
+        this.mRingLuxTime[next] = this.mRingLuxTime[prev] + ((nextTime - prevTime) * prevLux);
+        this.mRingLuxTimeSquared[next] = this.mRingLuxTimeSquared[prev] + ((((nextTime * nextTime) - (prevTime * prevTime)) * 0.5d) * prevLux);
         this.mRingTime[next] = time;
         this.mRingLux[next] = lux;
-        this.mEnd = next + 1;
-        if (this.mEnd == this.mCapacity) {
-            this.mEnd = 0;
-        }
+        this.mEnd = nextOffset(next);
         this.mCount++;
     }
 
     public void prune(long horizon) {
         if (this.mCount != 0) {
             while (this.mCount > 1) {
-                int next = this.mStart + 1;
-                int i = this.mCapacity;
-                if (next >= i) {
-                    next -= i;
-                }
+                int next = nextOffset(this.mStart);
                 if (this.mRingTime[next] > horizon) {
                     break;
                 }
@@ -91,6 +107,12 @@ public class AmbientLightRingBuffer {
         this.mStart = 0;
         this.mEnd = 0;
         this.mCount = 0;
+        this.mMaxLux = -1.0f;
+        this.mMiniLux = -1.0f;
+    }
+
+    public int getFoldedSampleCount() {
+        return this.mFoldedSamples;
     }
 
     public String toString() {
@@ -128,40 +150,128 @@ public class AmbientLightRingBuffer {
         return index2;
     }
 
+    private int nextOffset(int offset) {
+        int next = offset + 1;
+        if (next == this.mCapacity) {
+            return 0;
+        }
+        return next;
+    }
+
+    /**
+     * Drops the oldest sample when the ring is full by handing its start time to its successor.
+     * The oldest interval sits at the far end of the horizon where the weight is close to zero,
+     * so this only matters when the sensor reports faster than the rate the ring was sized for.
+     */
+    private void foldOldest() {
+        int oldest = this.mStart;
+        this.mStart = nextOffset(oldest);
+        this.mRingTime[this.mStart] = this.mRingTime[oldest];
+        this.mCount--;
+        this.mFoldedSamples++;
+    }
+
+    private void rebase() {
+        int offset = this.mStart;
+        long base = this.mRingTime[offset];
+        double luxTime = 0.0d;
+        double luxTimeSquared = 0.0d;
+        this.mRingLuxTime[offset] = 0.0d;
+        this.mRingLuxTimeSquared[offset] = 0.0d;
+        for (int i = 1; i < this.mCount; i++) {
+            int next = nextOffset(offset);
+            double prevTime = (double) (this.mRingTime[offset] - base);
+            double nextTime = (double) (this.mRingTime[next] - base);
+            double prevLux = (double) this.mRingLux[offset];
+            luxTime += (nextTime - prevTime) * prevLux;
+            luxTimeSquared += ((nextTime * nextTime) - (prevTime * prevTime)) * 0.5d * prevLux;
+            this.mRingLuxTime[next] = luxTime;
+            this.mRingLuxTimeSquared[next] = luxTimeSquared;
+            offset = next;
+        }
+        this.mBaseTime = base;
+    }
+
+    /**
+     * Returns the index of the sample in effect at {@code time}, i.e. the last sample whose
+     * successor is not later than it, or 0 when every sample after the first is later.
+     */
+    public int findHorizonStartIndex(long time) {
+        int lo = 0;
+        int hi = this.mCount - 1;
+        while (lo < hi) {
+            int mid = ((lo + hi) + 1) >>> 1;
+            if (getTime(mid) <= time) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
     public float calculateAmbientLux(long now, long horizon) {
         int N = size();
         if (N == 0) {
             return -1.0f;
         }
-        int endIndex = 0;
         long horizonStartTime = now - horizon;
-        int i = 0;
-        while (i < N - 1 && getTime(i + 1) <= horizonStartTime) {
-            endIndex++;
-            i++;
+        int endIndex = findHorizonStartIndex(horizonStartTime);
+        long startTime = getTime(endIndex);
+        if (startTime < horizonStartTime) {
+            startTime = horizonStartTime;
         }
-        float sum = 0.0f;
-        float totalWeight = 0.0f;
-        long endTime = AMBIENT_LIGHT_PREDICTION_TIME_MILLIS;
+        double totalWeight = calculateWeight(startTime - now, AMBIENT_LIGHT_PREDICTION_TIME_MILLIS);
+        if (endIndex == N - 1) {
+            return getLux(endIndex);
+        }
+        long lastTime = getTime(N - 1);
+        double sum = (((double) getLux(endIndex)) * calculateWeight(startTime - now, getTime(endIndex + 1) - now)) + (((double) getLux(N - 1)) * calculateWeight(lastTime - now, AMBIENT_LIGHT_PREDICTION_TIME_MILLIS));
+        int from = offsetOf(endIndex + 1);
+        int to = offsetOf(N - 1);
+        double luxTime = this.mRingLuxTime[to] - this.mRingLuxTime[from];
+        double luxTimeSquared = this.mRingLuxTimeSquared[to] - this.mRingLuxTimeSquared[from];
+        double sum2 = sum + luxTimeSquared + (((double) (((long) this.mWeightingIntercept) - (now - this.mBaseTime))) * luxTime);
+        if (totalWeight <= 0.0d) {
+            return getLux(N - 1);
+        }
+        return (float) (sum2 / totalWeight);
+    }
+
+    private double calculateWeight(long startDelta, long endDelta) {
+        return weightIntegral(endDelta) - weightIntegral(startDelta);
+    }
+
+    private double weightIntegral(long x) {
+        return ((double) x) * ((((double) x) * 0.5d) + ((double) this.mWeightingIntercept));
+    }
+
+    public void sort(long horizon) {
+        int N = this.mCount;
+        if (N == 0) {
+            Slog.e(TAG, "sort: No ambient light readings available");
+            this.mMiniLux = -1.0f;
+            this.mMaxLux = -1.0f;
+            return;
+        }
+        int endIndex = findHorizonStartIndex(SystemClock.uptimeMillis() - horizon);
+        float lux = getLux(N - 1);
+        this.mMiniLux = lux;
+        this.mMaxLux = lux;
         for (int i2 = N - 1; i2 >= endIndex; i2--) {
-            long eventTime = getTime(i2);
-            if (i2 == endIndex && eventTime < horizonStartTime) {
-                eventTime = horizonStartTime;
+            if (getLux(i2) > this.mMaxLux) {
+                this.mMaxLux = getLux(i2);
+            } else if (getLux(i2) < this.mMiniLux) {
+                this.mMiniLux = getLux(i2);
             }
-            long startTime = eventTime - now;
-            float weight = calculateWeight(startTime, endTime);
-            totalWeight += weight;
-            sum += getLux(i2) * weight;
-            endTime = startTime;
         }
-        return sum / totalWeight;
     }
 
-    private float calculateWeight(long startDelta, long endDelta) {
-        return weightIntegral(endDelta) - weightIntegral(startDelta);
+    public float getMaxLux() {
+        return this.mMaxLux;
     }
 
-    private float weightIntegral(long x) {
-        return ((float) x) * ((((float) x) * 0.5f) + ((float) this.mWeightingIntercept));
+    public float getMiniLux() {
+        return this.mMiniLux;
     }
 }
@@ -165,7 +165,7 @@ class AutomaticBrightnessController {
         this.mShortTermModelValid = true;
         this.mShortTermModelAnchor = -1.0f;
         this.mHandler = new AutomaticBrightnessHandler(looper);
-        this.mAmbientLightRingBuffer = new AmbientLightRingBuffer((long) this.mNormalLightSensorRate, this.mAmbientLightHorizon);
+        this.mAmbientLightRingBuffer = new AmbientLightRingBuffer((long) (this.mInitialLightSensorRate > 0 ? Math.min(this.mNormalLightSensorRate, this.mInitialLightSensorRate) : this.mNormalLightSensorRate), this.mAmbientLightHorizon);
         this.mLightSensor = lightSensor;
         AutomaticBrightnessControllerInjector.initialize(sensorManager);
         this.mRotationWatcher = new RotationWatcher();
@@ -331,6 +331,7 @@ class AutomaticBrightnessController {
         pw.println("  mLastObservedLuxTime=" + TimeUtils.formatUptime(this.mLastObservedLuxTime));
         pw.println("  mRecentLightSamples=" + this.mRecentLightSamples);
         pw.println("  mAmbientLightRingBuffer=" + this.mAmbientLightRingBuffer);
+        pw.println("  mAmbientLightRingBuffer.foldedSamples=" + this.mAmbientLightRingBuffer.getFoldedSampleCount());
         pw.println("  mScreenAutoBrightness=" + this.mScreenAutoBrightness);
         pw.println("  mDisplayPolicy=" + DisplayManagerInternal.DisplayPowerRequest.policyToString(this.mDisplayPolicy));
         pw.println("  mShortTermModelTimeout=" + this.mShortTermModelTimeout);
@@ -450,66 +451,19 @@ class AutomaticBrightnessController {
     }
 
     private float calculateAmbientLux(long now, long horizon) {
-        long j = now;
-        long j2 = horizon;
         if (this.mLoggingEnabled) {
-            Slog.d(TAG, "calculateAmbientLux(" + j + ", " + j2 + ")");
+            Slog.d(TAG, "calculateAmbientLux(" + now + ", " + horizon + ")");
         }
-        int N = this.mAmbientLightRingBuffer.size();
-        if (N == 0) {
+        if (this.mAmbientLightRingBuffer.size() == 0) {
             Slog.e(TAG, "calculateAmbientLux: No ambient light readings available");
             return -1.0f;
         }
-        int endIndex = 0;
-        long horizonStartTime = j - j2;
-        int i = 0;
-        while (i < N - 1 && this.mAmbientLightRingBuffer.getTime(i + 1) <= horizonStartTime) {
-            endIndex++;
-            i++;
-        }
-        if (this.mLoggingEnabled != 0) {
-            Slog.d(TAG, "calculateAmbientLux: selected endIndex=" + endIndex + ", point=(" + this.mAmbientLightRingBuffer.getTime(endIndex) + ", " + this.mAmbientLightRingBuffer.getLux(endIndex) + ")");
-        }
-        float sum = 0.0f;
-        float totalWeight = 0.0f;
-        long endTime = AMBIENT_LIGHT_PREDICTION_TIME_MILLIS;
-        int i2 = N - 1;
-        while (i2 >= endIndex) {
-            long eventTime = this.mAmbientLightRingBuffer.getTime(i2);
-            if (i2 == endIndex && eventTime < horizonStartTime) {
-                eventTime = horizonStartTime;
-            }
-            long horizonStartTime2 = horizonStartTime;
-            int endIndex2 = endIndex;
-            long startTime = eventTime - j;
-            float weight = calculateWeight(startTime, endTime);
-            float lux = this.mAmbientLightRingBuffer.getLux(i2);
-            long j3 = eventTime;
-            if (this.mLoggingEnabled) {
-                Slog.d(TAG, "calculateAmbientLux: [" + startTime + ", " + endTime + "]: lux=" + lux + ", weight=" + weight);
-            }
-            totalWeight += weight;
-            sum += lux * weight;
-            endTime = startTime;
-            i2--;
-            j = now;
-            long j4 = horizon;
-            endIndex = endIndex2;
-            horizonStartTime = horizonStartTime2;
-        }
-        int i3 = endIndex;
+        float lux = this.mAmbientLightRingBuffer.calculateAmbientLux(now, horizon);
         if (this.mLoggingEnabled) {
-            Slog.d(TAG, "calculateAmbientLux: totalWeight=" + totalWeight + ", newAmbientLux=" + (sum / totalWeight));
+            int endIndex = this.mAmbientLightRingBuffer.findHorizonStartIndex(now - horizon);
+            Slog.d(TAG, "calculateAmbientLux: selected endIndex=" + endIndex + ", point=(" + this.mAmbientLightRingBuffer.getTime(endIndex) + ", " + this.mAmbientLightRingBuffer.getLux(endIndex) + "), newAmbientLux=" + lux);
         }
-        return sum / totalWeight;
-    }
-
-    private float calculateWeight(long startDelta, long endDelta) {
-        return weightIntegral(endDelta) - weightIntegral(startDelta);
-    }
-
-    private float weightIntegral(long x) {
-        return ((float) x) * ((((float) x) * 0.5f) + ((float) this.mWeightingIntercept));
+        return lux;
     }
 
     private long nextAmbientLightBrighteningTransition(long time) {
@@ -902,169 +856,6 @@ class AutomaticBrightnessController {
         }
     }
 
-    private static final class AmbientLightRingBuffer {
-        private static final float BUFFER_SLACK = 1.5f;
-        private int mCapacity;
-        private int mCount;
-        private int mEnd;
-        private float mMaxLux;
-        private float mMiniLux;
-        private float[] mRingLux;
-        private long[] mRingTime;
-        private int mStart;
-
-        public AmbientLightRingBuffer(long lightSensorRate, int ambientLightHorizon) {
-            this.mCapacity = (int) Math.ceil((double) ((((float) ambientLightHorizon) * BUFFER_SLACK) / ((float) lightSensorRate)));
-            int i = this.mCapacity;
-            this.mRingLux = new float[i];
-            this.mRingTime = new long[i];
-        }
-
-        public float getLux(int index) {
-            return this.mRingLux[offsetOf(index)];
-        }
-
-        public long getTime(int index) {
-            return this.mRingTime[offsetOf(index)];
-        }
-
-        public void push(long time, float lux) {
-            int next = this.mEnd;
-            int i = this.mCount;
-            int i2 = this.mCapacity;
-            if (i == i2) {
-                int newSize = i2 * 2;
-                float[] newRingLux = new float[newSize];
-                long[] newRingTime = new long[newSize];
-                int i3 = this.mStart;
-                int length = i2 - i3;
-                System.arraycopy(this.mRingLux, i3, newRingLux, 0, length);
-                System.arraycopy(this.mRingTime, this.mStart, newRingTime, 0, length);
-                int i4 = this.mStart;
-                if (i4 != 0) {
-                    System.arraycopy(this.mRingLux, 0, newRingLux, length, i4);
-                    System.arraycopy(this.mRingTime, 0, newRingTime, length, this.mStart);
-                }
-                this.mRingLux = newRingLux;
-                this.mRingTime = newRingTime;
-                next = this.mCapacity;
-                this.mCapacity = newSize;
-                this.mStart = 0;
-            }
-            this.mRingTime[next] = time;
-            this.mRingLux[next] = lux;
-            this.mEnd = next + 1;
-            if (this.mEnd == this.mCapacity) {
-                this.mEnd = 0;
-            }
-            this.mCount++;
-        }
-
-        public void prune(long horizon) {
-            if (this.mCount != 0) {
-                while (this.mCount > 1) {
-                    int next = this.mStart + 1;
-                    int i = this.mCapacity;
-                    if (next >= i) {
-                        next -= i;
-                    }
-                    if (this.mRingTime[next] > horizon) {
-                        break;
-                    }
-                    this.mStart = next;
-                    this.mCount--;
-                }
-                long[] jArr = this.mRingTime;
-                int i2 = this.mStart;
-                if (jArr[i2] < horizon) {
-                    jArr[i2] = horizon;
-                }
-            }
-        }
-
-        public int size() {
-            return this.mCount;
-        }
-
-        public void clear() {
-            this.mStart = 0;
-            this.mEnd = 0;
-            this.mCount = 0;
-            this.mMaxLux = -1.0f;
-            this.mMiniLux = -1.0f;
-        }
-
-        public String toString() {
-            StringBuffer buf = new StringBuffer();
-            buf.append('[');
-            int i = 0;
-            while (true) {
-                int i2 = this.mCount;
-                if (i < i2) {
-                    long next = i + 1 < i2 ? getTime(i + 1) : SystemClock.uptimeMillis();
-                    if (i != 0) {
-                        buf.append(", ");
-                    }
-                    buf.append(getLux(i));
-                    buf.append(" / ");
-                    buf.append(next - getTime(i));
-                    buf.append("ms");
-                    i++;
-                } else {
-                    buf.append(']');
-                    return buf.toString();
-                }
-            }
-        }
-
-        private int offsetOf(int index) {
-            if (index >= this.mCount || index < 0) {
-                throw new ArrayIndexOutOfBoundsException(index);
-            }
-            int index2 = index + this.mStart;
-            int i = this.mCapacity;
-            if (index2 >= i) {
-                return index2 - i;
-            }
-            return index2;
-        }
-
-        public void sort(long horizon) {
-            int N = this.mCount;
-            if (N == 0) {
-                Slog.e(AutomaticBrightnessController.TAG, "sort: No ambient light readings available");
-                this.mMiniLux = -1.0f;
-                this.mMaxLux = -1.0f;
-                return;
-            }
-            int endIndex = 0;
-            long horizonStartTime = SystemClock.uptimeMillis() - horizon;
-            int i = 0;
-            while (i < N - 1 && getTime(i + 1) <= horizonStartTime) {
-                endIndex++;
-                i++;
-            }
-            float lux = getLux(N - 1);
-            this.mMiniLux = lux;
-            this.mMaxLux = lux;
-            for (int i2 = N - 1; i2 >= endIndex; i2--) {
-                if (getLux(i2) > this.mMaxLux) {
-                    this.mMaxLux = getLux(i2);
-                } else if (getLux(i2) < this.mMiniLux) {
-                    this.mMiniLux = getLux(i2);
-                }
-            }
-        }
-
-        public float getMaxLux() {
-            return this.mMaxLux;
-        }
-
-        public float getMiniLux() {
-            return this.mMiniLux;
-        }
-    }
-
     private void registerBrightnessCorrectionListener() {
         ProcessManager.registerForegroundInfoListener(this.mForegroundInfoListener);
         registerRotationListener();
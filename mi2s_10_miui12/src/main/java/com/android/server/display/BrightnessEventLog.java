@@ -0,0 +1,326 @@
+package com.android.server.display;
+
+import android.hardware.display.BrightnessChangeEvent;
+import android.util.Slog;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of brightness change events.
+ *
+ * The file is a small header followed by a fixed number of fixed-size slots used as a ring: an
+ * event is written into slot {@code sequence % slotCount}, so retention is bounded by the slot
+ * count and a write touches only the new event's slot. Each slot carries its sequence number and
+ * a CRC, so a torn write only loses that event and the read order is recovered from the
+ * sequence numbers without a separate index. Reads walk a read-only mapping of the file and hand
+ * each event to the caller as it is decoded.
+ *
+ * A slot holds the newest MAX_LUX_SAMPLES lux samples of an event; an event that had more is
+ * flagged in its slot and counted, so the cut is visible in the file and in dumpsys.
+ */
+class BrightnessEventLog {
+    private static final int FLAG_DEFAULT_CONFIG = 2;
+    private static final int FLAG_LUX_TRUNCATED = 8;
+    private static final int FLAG_NIGHT_MODE = 1;
+    private static final int FLAG_USER_POINT = 4;
+    private static final int HEADER_SIZE = 16;
+    private static final int LOG_MAGIC = 0x42455654;
+    private static final int LOG_VERSION = 1;
+    static final int MAX_COLOR_BUCKETS = 64;
+    static final int MAX_LUX_SAMPLES = 64;
+    private static final int MAX_PACKAGE_BYTES = 255;
+    private static final int SLOT_SIZE = ((((((((((((((8 + 8) + 4) + 4) + 4) + 4) + 4) + 4) + 4) + 8) + (MAX_PACKAGE_BYTES + 2)) + ((MAX_LUX_SAMPLES * 8) + 2)) + ((MAX_COLOR_BUCKETS * 8) + 2)) + 4) + 7) & -8;
+    private static final String TAG = "BrightnessTracker";
+    private int mAppendCount;
+    private FileChannel mChannel;
+    private final CRC32 mCrc = new CRC32();
+    private final File mFile;
+    private long mNextSequence = 1;
+    private final ByteBuffer mSlot = ByteBuffer.allocate(SLOT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final int mSlotCount;
+    private int mTruncatedCount;
+
+    interface Reader {
+        void onEvent(int i, BrightnessChangeEvent.Builder builder);
+    }
+
+    BrightnessEventLog(File file, int slotCount) {
+        this.mFile = file;
+        this.mSlotCount = slotCount;
+    }
+
+    /* access modifiers changed from: package-private */
+    public boolean exists() {
+        return this.mFile.exists();
+    }
+
+    /* access modifiers changed from: package-private */
+    public int read(Reader reader) throws IOException {
+        if (!this.mFile.exists()) {
+            return 0;
+        }
+        FileChannel channel = FileChannel.open(this.mFile.toPath(), StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return 0;
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt(0) != LOG_MAGIC || map.getInt(4) != LOG_VERSION || map.getInt(8) != SLOT_SIZE) {
+                Slog.w(TAG, "Unknown brightness event log format, ignoring " + this.mFile);
+                return 0;
+            }
+            int slots = (int) Math.min((long) map.getInt(12), (size - HEADER_SIZE) / ((long) SLOT_SIZE));
+            long[] order = new long[slots];
+            int valid = 0;
+            for (int i = 0; i < slots; i++) {
+                int offset = (i * SLOT_SIZE) + HEADER_SIZE;
+                long sequence = map.getLong(offset);
+                if (sequence > 0 && checkSlot(map, offset)) {
+                    order[valid] = (sequence << 16) | ((long) i);
+                    valid++;
+                    if (sequence >= this.mNextSequence) {
+                        this.mNextSequence = 1 + sequence;
+                    }
+                }
+            }
+            Arrays.sort(order, 0, valid);
+            for (int i2 = 0; i2 < valid; i2++) {
+                decodeSlot(map, (((int) (order[i2] & 65535)) * SLOT_SIZE) + HEADER_SIZE, reader);
+            }
+            return valid;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public void append(BrightnessChangeEvent event, int userSerial) throws IOException {
+        FileChannel channel = openForWrite();
+        long sequence = this.mNextSequence;
+        encodeSlot(event, userSerial, sequence);
+        long position = (((long) (sequence % ((long) this.mSlotCount))) * ((long) SLOT_SIZE)) + HEADER_SIZE;
+        while (this.mSlot.hasRemaining()) {
+            channel.write(this.mSlot, ((long) this.mSlot.position()) + position);
+        }
+        this.mNextSequence = 1 + sequence;
+        this.mAppendCount++;
+        if (event.luxValues.length > MAX_LUX_SAMPLES) {
+            this.mTruncatedCount++;
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public long getNextSequence() {
+        return this.mNextSequence;
+    }
+
+    /**
+     * Makes the next append reuse the slots from {@code sequence} on, so a batch that failed
+     * halfway is written again over its own slots instead of next to them.
+     */
+    /* access modifiers changed from: package-private */
+    public void rewind(long sequence) {
+        this.mNextSequence = sequence;
+    }
+
+    /* access modifiers changed from: package-private */
+    public void sync() throws IOException {
+        FileChannel fileChannel = this.mChannel;
+        if (fileChannel != null) {
+            fileChannel.force(false);
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public void close() {
+        FileChannel fileChannel = this.mChannel;
+        if (fileChannel != null) {
+            try {
+                fileChannel.close();
+            } catch (IOException e) {
+            }
+            this.mChannel = null;
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public void delete() {
+        close();
+        this.mFile.delete();
+        this.mNextSequence = 1;
+    }
+
+    /* access modifiers changed from: package-private */
+    public int getAppendCount() {
+        return this.mAppendCount;
+    }
+
+    /* access modifiers changed from: package-private */
+    public int getTruncatedCount() {
+        return this.mTruncatedCount;
+    }
+
+    /* access modifiers changed from: package-private */
+    public int getSlotCount() {
+        return this.mSlotCount;
+    }
+
+    private FileChannel openForWrite() throws IOException {
+        FileChannel fileChannel = this.mChannel;
+        if (fileChannel != null) {
+            return fileChannel;
+        }
+        FileChannel channel = FileChannel.open(this.mFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            boolean valid = false;
+            if (channel.size() >= HEADER_SIZE) {
+                channel.read(header, 0);
+                valid = header.getInt(0) == LOG_MAGIC && header.getInt(4) == LOG_VERSION && header.getInt(8) == SLOT_SIZE && header.getInt(12) == this.mSlotCount;
+            }
+            if (!valid) {
+                channel.truncate(0);
+                header.clear();
+                header.putInt(LOG_MAGIC).putInt(LOG_VERSION).putInt(SLOT_SIZE).putInt(this.mSlotCount);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, (long) header.position());
+                }
+                this.mNextSequence = 1;
+            }
+            this.mChannel = channel;
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void encodeSlot(BrightnessChangeEvent event, int userSerial, long sequence) {
+        ByteBuffer slot = this.mSlot;
+        slot.clear();
+        Arrays.fill(slot.array(), (byte) 0);
+        int flags = 0;
+        if (event.nightMode) {
+            flags = FLAG_NIGHT_MODE;
+        }
+        if (event.isDefaultBrightnessConfig) {
+            flags |= FLAG_DEFAULT_CONFIG;
+        }
+        if (event.isUserSetBrightness) {
+            flags |= FLAG_USER_POINT;
+        }
+        if (event.luxValues.length > MAX_LUX_SAMPLES) {
+            flags |= FLAG_LUX_TRUNCATED;
+        }
+        slot.putLong(sequence);
+        slot.putLong(event.timeStamp);
+        slot.putFloat(event.brightness);
+        slot.putFloat(event.lastBrightness);
+        slot.putFloat(event.batteryLevel);
+        slot.putFloat(event.powerBrightnessFactor);
+        slot.putInt(userSerial);
+        slot.putInt(event.colorTemperature);
+        slot.putInt(flags);
+        byte[] pkg = event.packageName != null ? event.packageName.getBytes(StandardCharsets.UTF_8) : null;
+        if (pkg == null || pkg.length > MAX_PACKAGE_BYTES) {
+            slot.putShort((short) -1);
+            slot.position(slot.position() + MAX_PACKAGE_BYTES);
+        } else {
+            slot.putShort((short) pkg.length);
+            int start = slot.position();
+            slot.put(pkg);
+            slot.position(start + MAX_PACKAGE_BYTES);
+        }
+        int luxCount = Math.min(event.luxValues.length, MAX_LUX_SAMPLES);
+        int luxStart = event.luxValues.length - luxCount;
+        slot.putShort((short) luxCount);
+        int start2 = slot.position();
+        for (int i = luxStart; i < event.luxValues.length; i++) {
+            slot.putFloat(event.luxValues[i]);
+            slot.putInt((int) (event.timeStamp - event.luxTimestamps[i]));
+        }
+        slot.position((MAX_LUX_SAMPLES * 8) + start2);
+        long[] buckets = event.colorValueBuckets;
+        if (buckets == null || buckets.length > MAX_COLOR_BUCKETS) {
+            slot.putLong(0);
+            slot.putShort((short) 0);
+        } else {
+            slot.putLong(event.colorSampleDuration);
+            slot.putShort((short) buckets.length);
+            for (long bucket : buckets) {
+                slot.putLong(bucket);
+            }
+        }
+        this.mCrc.reset();
+        this.mCrc.update(slot.array(), 0, SLOT_SIZE - 4);
+        slot.putInt(SLOT_SIZE - 4, (int) this.mCrc.getValue());
+        slot.clear();
+    }
+
+    private boolean checkSlot(MappedByteBuffer map, int offset) {
+        ByteBuffer body = map.duplicate();
+        body.position(offset);
+        body.limit((offset + SLOT_SIZE) - 4);
+        this.mCrc.reset();
+        this.mCrc.update(body);
+        return map.getInt((offset + SLOT_SIZE) - 4) == ((int) this.mCrc.getValue());
+    }
+
+    private void decodeSlot(MappedByteBuffer map, int offset, Reader reader) {
+        ByteBuffer slot = map.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        slot.position(offset + 8);
+        BrightnessChangeEvent.Builder builder = new BrightnessChangeEvent.Builder();
+        long timeStamp = slot.getLong();
+        builder.setTimeStamp(timeStamp);
+        builder.setBrightness(slot.getFloat());
+        builder.setLastBrightness(slot.getFloat());
+        builder.setBatteryLevel(slot.getFloat());
+        builder.setPowerBrightnessFactor(slot.getFloat());
+        int userSerial = slot.getInt();
+        builder.setColorTemperature(slot.getInt());
+        int flags = slot.getInt();
+        builder.setNightMode((flags & FLAG_NIGHT_MODE) != 0);
+        builder.setIsDefaultBrightnessConfig((flags & FLAG_DEFAULT_CONFIG) != 0);
+        builder.setUserBrightnessPoint((flags & FLAG_USER_POINT) != 0);
+        int pkgLength = slot.getShort();
+        int start = slot.position();
+        if (pkgLength >= 0 && pkgLength <= MAX_PACKAGE_BYTES) {
+            byte[] pkg = new byte[pkgLength];
+            slot.get(pkg);
+            builder.setPackageName(new String(pkg, StandardCharsets.UTF_8));
+        }
+        slot.position(start + MAX_PACKAGE_BYTES);
+        int luxCount = Math.min(Math.max((int) slot.getShort(), 0), MAX_LUX_SAMPLES);
+        int start2 = slot.position();
+        float[] luxValues = new float[luxCount];
+        long[] luxTimestamps = new long[luxCount];
+        for (int i = 0; i < luxCount; i++) {
+            luxValues[i] = slot.getFloat();
+            luxTimestamps[i] = timeStamp - ((long) slot.getInt());
+        }
+        builder.setLuxValues(luxValues);
+        builder.setLuxTimestamps(luxTimestamps);
+        slot.position((MAX_LUX_SAMPLES * 8) + start2);
+        long colorSampleDuration = slot.getLong();
+        int bucketCount = Math.min(Math.max((int) slot.getShort(), 0), MAX_COLOR_BUCKETS);
+        if (bucketCount > 0) {
+            long[] buckets = new long[bucketCount];
+            for (int i2 = 0; i2 < bucketCount; i2++) {
+                buckets[i2] = slot.getLong();
+            }
+            builder.setColorValues(buckets, colorSampleDuration);
+        }
+        reader.onEvent(userSerial, builder);
+    }
+}
@@ -53,8 +53,6 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import libcore.io.IoUtils;
 import org.xmlpull.v1.XmlPullParser;
@@ -82,6 +80,7 @@ public class BrightnessTracker {
     private static final long COLOR_SAMPLE_DURATION = TimeUnit.SECONDS.toSeconds(10);
     static final boolean DEBUG = false;
     private static final String EVENTS_FILE = "brightness_events.xml";
+    private static final String EVENTS_LOG_FILE = "brightness_events.bin";
     private static final SimpleDateFormat FORMAT = new SimpleDateFormat("MM-dd HH:mm:ss.SSS");
     private static final long LUX_EVENT_HORIZON = TimeUnit.SECONDS.toNanos(10);
     private static final int MAX_EVENTS = 100;
@@ -108,6 +107,8 @@ public class BrightnessTracker {
     private RingBuffer<BrightnessChangeEvent> mEvents = new RingBuffer<>(BrightnessChangeEvent.class, 100);
     @GuardedBy({"mEventsLock"})
     private boolean mEventsDirty;
+    @GuardedBy({"mEventsLock"})
+    private BrightnessEventLog mEventLog;
     private final Object mEventsLock = new Object();
     private float mFrameRate;
     /* access modifiers changed from: private */
@@ -116,6 +117,8 @@ public class BrightnessTracker {
     private float mLastBatteryLevel = Float.NaN;
     @GuardedBy({"mDataCollectionLock"})
     private float mLastBrightness = -1.0f;
+    @GuardedBy({"mEventsLock"})
+    private BrightnessChangeEvent mLastLoggedEvent;
     @GuardedBy({"mDataCollectionLock"})
     private Deque<LightData> mLastSensorReadings = new ArrayDeque();
     private int mNoFramesToSample;
@@ -191,34 +194,30 @@ public class BrightnessTracker {
         this.mCurrentUserId = newUserId;
     }
 
+    /**
+     * Returns the events of {@code userId} and its profiles, oldest first. They come from the
+     * in-memory ring rather than from the event log: the ring holds every live event, including
+     * the ones not appended to the log yet, as decoded objects, while reading the mapping would
+     * decode each slot into a new event on every call and still need the unlogged tail from the
+     * ring. The ring is copied once, and each event is checked against the profile list directly.
+     */
     public ParceledListSlice<BrightnessChangeEvent> getEvents(int userId, boolean includePackage) {
         BrightnessChangeEvent[] events;
         synchronized (this.mEventsLock) {
             events = (BrightnessChangeEvent[]) this.mEvents.toArray();
         }
         int[] profiles = this.mInjector.getProfileIds(this.mUserManager, userId);
-        Map<Integer, Boolean> toRedact = new HashMap<>();
-        int i = 0;
-        while (true) {
-            boolean redact = true;
-            if (i >= profiles.length) {
-                break;
-            }
-            int profileId = profiles[i];
-            if (includePackage && profileId == userId) {
-                redact = false;
-            }
-            toRedact.put(Integer.valueOf(profiles[i]), Boolean.valueOf(redact));
-            i++;
-        }
         ArrayList<BrightnessChangeEvent> out = new ArrayList<>(events.length);
-        for (int i2 = 0; i2 < events.length; i2++) {
-            Boolean redact2 = toRedact.get(Integer.valueOf(events[i2].userId));
-            if (redact2 != null) {
-                if (!redact2.booleanValue()) {
-                    out.add(events[i2]);
+        for (BrightnessChangeEvent event : events) {
+            int i = 0;
+            while (i < profiles.length && profiles[i] != event.userId) {
+                i++;
+            }
+            if (i < profiles.length) {
+                if (includePackage && event.userId == userId) {
+                    out.add(event);
                 } else {
-                    out.add(new BrightnessChangeEvent(events[i2], true));
+                    out.add(new BrightnessChangeEvent(event, true));
                 }
             }
         }
@@ -481,22 +480,19 @@ public class BrightnessTracker {
     private void writeEvents() {
         synchronized (this.mEventsLock) {
             if (this.mEventsDirty) {
-                AtomicFile writeTo = this.mInjector.getFile(EVENTS_FILE);
-                if (writeTo != null) {
+                if (this.mEventLog != null) {
                     if (this.mEvents.isEmpty()) {
-                        if (writeTo.exists()) {
-                            writeTo.delete();
-                        }
+                        this.mEventLog.delete();
+                        this.mLastLoggedEvent = null;
+                        deleteLegacyEventsFileLocked();
                         this.mEventsDirty = false;
                     } else {
-                        FileOutputStream output = null;
                         try {
-                            output = writeTo.startWrite();
-                            writeEventsLocked(output);
-                            writeTo.finishWrite(output);
+                            appendEventsLocked();
                             this.mEventsDirty = false;
+                            deleteLegacyEventsFileLocked();
                         } catch (IOException e) {
-                            writeTo.failWrite(output);
+                            this.mEventLog.close();
                             Slog.e(TAG, "Failed to write change mEvents.", e);
                         }
                     }
@@ -505,6 +501,72 @@ public class BrightnessTracker {
         }
     }
 
+    /**
+     * Drops expired events and events of removed users from the ring, then appends the events
+     * that were added since the last successful write. mLastLoggedEvent only moves past events
+     * once they are synced; a failed batch is written again over the same slots next time.
+     */
+    @GuardedBy({"mEventsLock"})
+    private void appendEventsLocked() throws IOException {
+        BrightnessChangeEvent[] events = (BrightnessChangeEvent[]) this.mEvents.toArray();
+        int firstNew = 0;
+        if (this.mLastLoggedEvent != null) {
+            int i = events.length - 1;
+            while (true) {
+                if (i < 0) {
+                    break;
+                } else if (events[i] == this.mLastLoggedEvent) {
+                    firstNew = i + 1;
+                    break;
+                } else {
+                    i--;
+                }
+            }
+        }
+        this.mEvents.clear();
+        long timeCutOff = this.mInjector.currentTimeMillis() - MAX_EVENT_AGE;
+        int[] userSerials = new int[events.length];
+        BrightnessChangeEvent lastLogged = null;
+        for (int i2 = 0; i2 < events.length; i2++) {
+            int userSerialNo = this.mInjector.getUserSerialNumber(this.mUserManager, events[i2].userId);
+            userSerials[i2] = userSerialNo;
+            if (userSerialNo != -1 && events[i2].timeStamp > timeCutOff) {
+                this.mEvents.append(events[i2]);
+                if (i2 < firstNew) {
+                    lastLogged = events[i2];
+                }
+            } else {
+                events[i2] = null;
+            }
+        }
+        this.mLastLoggedEvent = lastLogged;
+        long batchStart = this.mEventLog.getNextSequence();
+        BrightnessChangeEvent lastAppended = null;
+        try {
+            for (int i3 = firstNew; i3 < events.length; i3++) {
+                if (events[i3] != null) {
+                    this.mEventLog.append(events[i3], userSerials[i3]);
+                    lastAppended = events[i3];
+                }
+            }
+            if (lastAppended != null) {
+                this.mEventLog.sync();
+                this.mLastLoggedEvent = lastAppended;
+            }
+        } catch (IOException e) {
+            this.mEventLog.rewind(batchStart);
+            throw e;
+        }
+    }
+
+    @GuardedBy({"mEventsLock"})
+    private void deleteLegacyEventsFileLocked() {
+        AtomicFile legacy = this.mInjector.getFile(EVENTS_FILE);
+        if (legacy != null && legacy.exists()) {
+            legacy.delete();
+        }
+    }
+
     private void writeAmbientBrightnessStats() {
         AtomicFile writeTo = this.mInjector.getFile(AMBIENT_BRIGHTNESS_STATS_FILE);
         if (writeTo != null) {
@@ -526,27 +588,60 @@ public class BrightnessTracker {
         synchronized (this.mEventsLock) {
             this.mEventsDirty = true;
             this.mEvents.clear();
-            AtomicFile readFrom = this.mInjector.getFile(EVENTS_FILE);
-            if (readFrom != null && readFrom.exists()) {
-                FileInputStream input = null;
-                try {
-                    input = readFrom.openRead();
-                    readEventsLocked(input);
-                    IoUtils.closeQuietly(input);
-                } catch (IOException e) {
+            this.mLastLoggedEvent = null;
+            AtomicFile logFile = this.mInjector.getFile(EVENTS_LOG_FILE);
+            this.mEventLog = logFile != null ? new BrightnessEventLog(logFile.getBaseFile(), MAX_EVENTS) : null;
+            BrightnessEventLog brightnessEventLog = this.mEventLog;
+            if (brightnessEventLog == null || !brightnessEventLog.exists()) {
+                AtomicFile readFrom = this.mInjector.getFile(EVENTS_FILE);
+                if (readFrom != null && readFrom.exists()) {
+                    FileInputStream input = null;
                     try {
-                        readFrom.delete();
-                        Slog.e(TAG, "Failed to read change mEvents.", e);
-                        IoUtils.closeQuietly(input);
-                    } catch (Throwable th) {
+                        input = readFrom.openRead();
+                        readEventsLocked(input);
                         IoUtils.closeQuietly(input);
-                        throw th;
+                    } catch (IOException e) {
+                        try {
+                            readFrom.delete();
+                            Slog.e(TAG, "Failed to read change mEvents.", e);
+                            IoUtils.closeQuietly(input);
+                        } catch (Throwable th) {
+                            IoUtils.closeQuietly(input);
+                            throw th;
+                        }
+                    }
+                }
+                return;
+            }
+            try {
+                final long timeCutOff = this.mInjector.currentTimeMillis() - MAX_EVENT_AGE;
+                this.mEventLog.read(new BrightnessEventLog.Reader() {
+                    public void onEvent(int userSerial, BrightnessChangeEvent.Builder builder) {
+                        BrightnessTracker.this.onEventLogRecord(userSerial, builder, timeCutOff);
                     }
+                });
+                if (!this.mEvents.isEmpty()) {
+                    BrightnessChangeEvent[] events = (BrightnessChangeEvent[]) this.mEvents.toArray();
+                    this.mLastLoggedEvent = events[events.length - 1];
                 }
+            } catch (IOException | RuntimeException e2) {
+                this.mEvents.clear();
+                this.mEventLog.delete();
+                Slog.e(TAG, "Failed to read brightness event log.", e2);
             }
         }
     }
 
+    /* access modifiers changed from: private */
+    @GuardedBy({"mEventsLock"})
+    public void onEventLogRecord(int userSerial, BrightnessChangeEvent.Builder builder, long timeCutOff) {
+        builder.setUserId(this.mInjector.getUserId(this.mUserManager, userSerial));
+        BrightnessChangeEvent event = builder.build();
+        if (event.userId != -1 && event.timeStamp > timeCutOff && event.luxValues.length > 0) {
+            this.mEvents.append(event);
+        }
+    }
+
     private void readAmbientBrightnessStats() {
         this.mAmbientBrightnessStatsTracker = new AmbientBrightnessStatsTracker(this.mUserManager, (AmbientBrightnessStatsTracker.Injector) null);
         AtomicFile readFrom = this.mInjector.getFile(AMBIENT_BRIGHTNESS_STATS_FILE);
@@ -826,6 +921,9 @@ public class BrightnessTracker {
         }
         synchronized (this.mEventsLock) {
             pw.println("  mEventsDirty=" + this.mEventsDirty);
+            if (this.mEventLog != null) {
+                pw.println("  mEventLog slots=" + this.mEventLog.getSlotCount() + " appended=" + this.mEventLog.getAppendCount() + " luxTruncated=" + this.mEventLog.getTruncatedCount());
+            }
             pw.println("  mEvents.size=" + this.mEvents.size());
             BrightnessChangeEvent[] events = (BrightnessChangeEvent[]) this.mEvents.toArray();
             for (int i = 0; i < events.length; i++) {
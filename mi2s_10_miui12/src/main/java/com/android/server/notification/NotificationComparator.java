@@ -5,11 +5,14 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.telecom.TelecomManager;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.util.NotificationMessagingUtil;
 import java.util.Comparator;
 import java.util.Objects;
 
 public class NotificationComparator implements Comparator<NotificationRecord> {
+    /* access modifiers changed from: private */
+    public volatile int mConfigGeneration;
     private final Context mContext;
     /* access modifiers changed from: private */
     public String mDefaultPhoneApp;
@@ -17,13 +20,19 @@ public class NotificationComparator implements Comparator<NotificationRecord> {
     private final BroadcastReceiver mPhoneAppBroadcastReceiver = new BroadcastReceiver() {
         public void onReceive(Context context, Intent intent) {
             String unused = NotificationComparator.this.mDefaultPhoneApp = intent.getStringExtra("android.telecom.extra.CHANGE_DEFAULT_DIALER_PACKAGE_NAME");
+            NotificationComparator.this.mConfigGeneration++;
         }
     };
 
     public NotificationComparator(Context context) {
+        this(context, new NotificationMessagingUtil(context));
+    }
+
+    @VisibleForTesting
+    NotificationComparator(Context context, NotificationMessagingUtil messagingUtil) {
         this.mContext = context;
         this.mContext.registerReceiver(this.mPhoneAppBroadcastReceiver, new IntentFilter("android.telecom.action.DEFAULT_DIALER_CHANGED"));
-        this.mMessagingUtil = new NotificationMessagingUtil(this.mContext);
+        this.mMessagingUtil = messagingUtil;
     }
 
     public int compare(NotificationRecord left, NotificationRecord right) {
@@ -87,6 +96,76 @@ public class NotificationComparator implements Comparator<NotificationRecord> {
         return Long.compare(left.getRankingTimeMs(), right.getRankingTimeMs()) * -1;
     }
 
+    /* access modifiers changed from: package-private */
+    public int getConfigGeneration() {
+        return this.mConfigGeneration;
+    }
+
+    /* access modifiers changed from: package-private */
+    public boolean updateSortKey(NotificationRecord record, NotificationSortKey key) {
+        int importance = record.getImportance();
+        boolean highImportance = importance >= 3;
+        boolean importantColorized = isImportantColorized(record);
+        boolean importantOngoing = isImportantOngoing(record);
+        boolean importantMessaging = isImportantMessaging(record);
+        boolean importantPeople = isImportantPeople(record);
+        float contactAffinity = record.getContactAffinity();
+        int packagePriority = record.getPackagePriority();
+        int priority = record.sbn.getNotification().priority;
+        long rankingTimeMs = record.getRankingTimeMs();
+        if (key.importance == importance && key.highImportance == highImportance && key.importantColorized == importantColorized && key.importantOngoing == importantOngoing && key.importantMessaging == importantMessaging && key.importantPeople == importantPeople && Float.compare(key.contactAffinity, contactAffinity) == 0 && key.packagePriority == packagePriority && key.priority == priority && key.rankingTimeMs == rankingTimeMs) {
+            return false;
+        }
+        key.importance = importance;
+        key.highImportance = highImportance;
+        key.importantColorized = importantColorized;
+        key.importantOngoing = importantOngoing;
+        key.importantMessaging = importantMessaging;
+        key.importantPeople = importantPeople;
+        key.contactAffinity = contactAffinity;
+        key.packagePriority = packagePriority;
+        key.priority = priority;
+        key.rankingTimeMs = rankingTimeMs;
+        return true;
+    }
+
+    /* access modifiers changed from: package-private */
+    public int compare(NotificationSortKey left, NotificationSortKey right) {
+        if (left.highImportance != right.highImportance) {
+            return Boolean.compare(left.highImportance, right.highImportance) * -1;
+        }
+        if (left.importantColorized != right.importantColorized) {
+            return Boolean.compare(left.importantColorized, right.importantColorized) * -1;
+        }
+        if (left.importantOngoing != right.importantOngoing) {
+            return Boolean.compare(left.importantOngoing, right.importantOngoing) * -1;
+        }
+        if (left.importantMessaging != right.importantMessaging) {
+            return Boolean.compare(left.importantMessaging, right.importantMessaging) * -1;
+        }
+        int contactAffinityComparison = Float.compare(left.contactAffinity, right.contactAffinity);
+        if (!left.importantPeople || !right.importantPeople) {
+            if (left.importantPeople != right.importantPeople) {
+                return Boolean.compare(left.importantPeople, right.importantPeople) * -1;
+            }
+        } else if (contactAffinityComparison != 0) {
+            return contactAffinityComparison * -1;
+        }
+        if (left.importance != right.importance) {
+            return Integer.compare(left.importance, right.importance) * -1;
+        }
+        if (contactAffinityComparison != 0) {
+            return contactAffinityComparison * -1;
+        }
+        if (left.packagePriority != right.packagePriority) {
+            return Integer.compare(left.packagePriority, right.packagePriority) * -1;
+        }
+        if (left.priority != right.priority) {
+            return Integer.compare(left.priority, right.priority) * -1;
+        }
+        return Long.compare(left.rankingTimeMs, right.rankingTimeMs) * -1;
+    }
+
     private boolean isImportantColorized(NotificationRecord record) {
         if (record.getImportance() < 2) {
             return false;
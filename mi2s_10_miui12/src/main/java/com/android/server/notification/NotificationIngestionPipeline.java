@@ -0,0 +1,214 @@
+package com.android.server.notification;
+
+import android.app.Notification;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+
+/**
+ * Holds incoming notifications for up to one frame and collapses updates to the same key, so
+ * that a burst of updates runs the enqueue/extractor/listener path only for the latest record.
+ * A pending record that may alert is only replaced by one that may alert too; otherwise it is
+ * released first, so coalescing never swallows a sound, vibration or light.
+ *
+ * Pending records are released into the worker handler, in arrival order, before any other
+ * message is queued there; this keeps them ordered with respect to cancels and snoozes. The
+ * service keeps pending records in its enqueued list meanwhile, so they count against the
+ * package limit and are found by lookups like any other enqueued notification.
+ */
+final class NotificationIngestionPipeline {
+    static final long COALESCE_WINDOW_MS = 16;
+    private final Runnable mDrainRunnable = new Runnable() {
+        public void run() {
+            NotificationIngestionPipeline.this.drain();
+        }
+    };
+    private boolean mDrainScheduled;
+    private final Handler mHandler;
+    private final Object mLock = new Object();
+    private final ArrayMap<String, Entry> mPendingByKey = new ArrayMap<>();
+    private final ArrayList<Entry> mPendingQueue = new ArrayList<>();
+    private final Sink mSink;
+    private final ArrayMap<String, PackageStats> mStats = new ArrayMap<>();
+
+    interface Sink {
+        void enqueue(int i, NotificationRecord notificationRecord);
+
+        void post(int i, NotificationRecord notificationRecord);
+    }
+
+    private static final class Entry {
+        final String key;
+        NotificationRecord r;
+        int userId;
+
+        Entry(String key2, int userId2, NotificationRecord r2) {
+            this.key = key2;
+            this.userId = userId2;
+            this.r = r2;
+        }
+    }
+
+    private static final class PackageStats {
+        int coalesced;
+        int enqueued;
+        long lastEnqueueTime;
+        int released;
+
+        private PackageStats() {
+        }
+    }
+
+    NotificationIngestionPipeline(Handler handler, Sink sink) {
+        this.mHandler = handler;
+        this.mSink = sink;
+    }
+
+    /**
+     * Whether {@code r} could play a sound, vibrate or blink when posted as an update. This is the
+     * part of buzzBeepBlinkLocked that is known before the extractors ran, so it errs on the side
+     * of alerting.
+     */
+    static boolean mayAlert(NotificationRecord r) {
+        Notification notification = r.getNotification();
+        if ((notification.flags & 8) != 0) {
+            return false;
+        }
+        if (r.sbn.isGroup() && notification.suppressAlertingDueToGrouping()) {
+            return false;
+        }
+        return (r.getSound() == null && r.getVibration() == null && r.getLight() == null) ? false : true;
+    }
+
+    /**
+     * Queues {@code r} and returns the pending record it replaced, or null. The caller swaps the
+     * two in the enqueued list.
+     */
+    /* access modifiers changed from: package-private */
+    public NotificationRecord enqueue(int userId, NotificationRecord r) {
+        String key = r.getKey();
+        synchronized (this.mLock) {
+            PackageStats stats = getStatsLocked(r.sbn.getPackageName());
+            stats.enqueued++;
+            stats.lastEnqueueTime = SystemClock.uptimeMillis();
+            Entry entry = this.mPendingByKey.get(key);
+            if (entry != null) {
+                if (!mayAlert(entry.r) || mayAlert(r)) {
+                    NotificationRecord replaced = entry.r;
+                    entry.userId = userId;
+                    entry.r = r;
+                    stats.coalesced++;
+                    return replaced;
+                }
+                postLocked(takePendingLocked());
+            }
+            Entry entry2 = new Entry(key, userId, r);
+            this.mPendingByKey.put(key, entry2);
+            this.mPendingQueue.add(entry2);
+            if (!this.mDrainScheduled) {
+                this.mDrainScheduled = true;
+                this.mHandler.postDelayed(this.mDrainRunnable, COALESCE_WINDOW_MS);
+            }
+            return null;
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public boolean isDrainCallback(Runnable callback) {
+        return callback == this.mDrainRunnable;
+    }
+
+    /* access modifiers changed from: package-private */
+    public void release() {
+        synchronized (this.mLock) {
+            postLocked(takePendingLocked());
+        }
+    }
+
+    /** Posts under the lock, so records released by two threads keep their arrival order. */
+    private void postLocked(ArrayList<Entry> entries) {
+        if (entries != null) {
+            int N = entries.size();
+            for (int i = 0; i < N; i++) {
+                Entry entry = entries.get(i);
+                this.mSink.post(entry.userId, entry.r);
+            }
+        }
+    }
+
+    /* access modifiers changed from: private */
+    public void drain() {
+        ArrayList<Entry> entries;
+        synchronized (this.mLock) {
+            entries = takePendingLocked();
+        }
+        if (entries != null) {
+            int N = entries.size();
+            for (int i = 0; i < N; i++) {
+                Entry entry = entries.get(i);
+                this.mSink.enqueue(entry.userId, entry.r);
+            }
+        }
+    }
+
+    private ArrayList<Entry> takePendingLocked() {
+        if (this.mDrainScheduled) {
+            this.mDrainScheduled = false;
+            this.mHandler.removeCallbacks(this.mDrainRunnable);
+        }
+        if (this.mPendingQueue.isEmpty()) {
+            return null;
+        }
+        ArrayList<Entry> entries = new ArrayList<>(this.mPendingQueue);
+        this.mPendingQueue.clear();
+        this.mPendingByKey.clear();
+        int N = entries.size();
+        for (int i = 0; i < N; i++) {
+            getStatsLocked(entries.get(i).r.sbn.getPackageName()).released++;
+        }
+        return entries;
+    }
+
+    private PackageStats getStatsLocked(String pkg) {
+        PackageStats stats = this.mStats.get(pkg);
+        if (stats != null) {
+            return stats;
+        }
+        PackageStats stats2 = new PackageStats();
+        this.mStats.put(pkg, stats2);
+        return stats2;
+    }
+
+    public void dump(PrintWriter pw, String prefix, NotificationManagerService.DumpFilter filter) {
+        synchronized (this.mLock) {
+            pw.print(prefix);
+            pw.print("pending=");
+            pw.print(this.mPendingQueue.size());
+            pw.print(" window=");
+            pw.print(COALESCE_WINDOW_MS);
+            pw.println("ms");
+            long now = SystemClock.uptimeMillis();
+            int N = this.mStats.size();
+            for (int i = 0; i < N; i++) {
+                String pkg = this.mStats.keyAt(i);
+                if (filter == null || filter.matches(pkg)) {
+                    PackageStats stats = this.mStats.valueAt(i);
+                    pw.print(prefix);
+                    pw.print("  ");
+                    pw.print(pkg);
+                    pw.print(": enqueued=");
+                    pw.print(stats.enqueued);
+                    pw.print(" coalesced=");
+                    pw.print(stats.coalesced);
+                    pw.print(" released=");
+                    pw.print(stats.released);
+                    pw.print(" lastEnqueue=");
+                    pw.print(now - stats.lastEnqueueTime);
+                    pw.println("ms ago");
+                }
+            }
+        }
+    }
+}
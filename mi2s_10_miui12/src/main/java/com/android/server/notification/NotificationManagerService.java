@@ -384,6 +384,7 @@ public class NotificationManagerService extends SystemService {
         public void enqueueInterceptNotifications(String pkg, int callingPid, int userId) {
         }
     };
+    private NotificationIngestionPipeline mIngestionPipeline;
     /* access modifiers changed from: private */
     public int mInterruptionFilter = 0;
     private boolean mIsAutomotive;
@@ -3300,6 +3301,15 @@ public class NotificationManagerService extends SystemService {
         this.mDpm = dpm;
         this.mUm = userManager;
         mHandler = new WorkerHandler(looper);
+        this.mIngestionPipeline = new NotificationIngestionPipeline(mHandler, new NotificationIngestionPipeline.Sink() {
+            public void enqueue(int userId, NotificationRecord r) {
+                new EnqueueNotificationRunnable(userId, r, true).run();
+            }
+
+            public void post(int userId, NotificationRecord r) {
+                NotificationManagerService.mHandler.post(new EnqueueNotificationRunnable(userId, r, true));
+            }
+        });
         this.mRankingThread.start();
         try {
             extractorNames = resources.getStringArray(17236050);
@@ -3330,6 +3340,7 @@ public class NotificationManagerService extends SystemService {
             /* access modifiers changed from: package-private */
             public void onPolicyChanged() {
                 NotificationManagerService.this.sendRegisteredOnlyBroadcast("android.app.action.NOTIFICATION_POLICY_CHANGED");
+                NotificationManagerService.this.mRankingHelper.invalidateSortOrder();
                 NotificationManagerService.this.mRankingHandler.requestSort();
             }
         });
@@ -4316,6 +4327,8 @@ public class NotificationManagerService extends SystemService {
             if (!zenOnly) {
                 pw.println("\n  Usage Stats:");
                 this.mUsageStats.dump(pw, "    ", filter);
+                pw.println("\n  Ingestion:");
+                this.mIngestionPipeline.dump(pw, "    ", filter);
             }
         }
     }
@@ -4432,7 +4445,13 @@ public class NotificationManagerService extends SystemService {
                         }
                     }
                 }
-                mHandler.post(new EnqueueNotificationRunnable(userId2, r));
+                synchronized (mNotificationLock) {
+                    NotificationRecord replaced = this.mIngestionPipeline.enqueue(userId2, r);
+                    if (replaced != null) {
+                        this.mEnqueuedNotifications.remove(replaced);
+                    }
+                    this.mEnqueuedNotifications.add(r);
+                }
             }
         } catch (PackageManager.NameNotFoundException e) {
             int i6 = userId;
@@ -5124,18 +5143,34 @@ public class NotificationManagerService extends SystemService {
     }
 
     protected class EnqueueNotificationRunnable implements Runnable {
+        private final boolean fromPipeline;
         private final NotificationRecord r;
         private final int userId;
 
         EnqueueNotificationRunnable(int userId2, NotificationRecord r2) {
+            this(userId2, r2, false);
+        }
+
+        /**
+         * A record released by the ingestion pipeline is already in the enqueued list; one posted
+         * directly, like an autogroup summary, is added when the runnable runs.
+         */
+        EnqueueNotificationRunnable(int userId2, NotificationRecord r2, boolean fromPipeline2) {
             this.userId = userId2;
             this.r = r2;
+            this.fromPipeline = fromPipeline2;
         }
 
         public void run() {
             int enqueueStatus;
             synchronized (NotificationManagerService.mNotificationLock) {
-                NotificationManagerService.this.mEnqueuedNotifications.add(this.r);
+                if (!NotificationManagerService.this.mEnqueuedNotifications.contains(this.r)) {
+                    if (this.fromPipeline) {
+                        // Cancelled while it waited in the ingestion pipeline.
+                        return;
+                    }
+                    NotificationManagerService.this.mEnqueuedNotifications.add(this.r);
+                }
                 NotificationManagerService.this.scheduleTimeoutLocked(this.r);
                 StatusBarNotification n = this.r.sbn;
                 if (NotificationManagerService.DBG) {
@@ -6527,6 +6562,15 @@ public class NotificationManagerService extends SystemService {
             super(looper);
         }
 
+        public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+            NotificationIngestionPipeline pipeline = NotificationManagerService.this.mIngestionPipeline;
+            Runnable callback = msg.getCallback();
+            if (pipeline != null && !(callback instanceof EnqueueNotificationRunnable) && !(callback instanceof PostNotificationRunnable) && !pipeline.isDrainCallback(callback)) {
+                pipeline.release();
+            }
+            return super.sendMessageAtTime(msg, uptimeMillis);
+        }
+
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case 2:
@@ -8055,7 +8099,14 @@ public class NotificationManagerService extends SystemService {
 
     public class NotificationListeners extends ManagedServices {
         static final String TAG_ENABLED_NOTIFICATION_LISTENERS = "enabled_listeners";
+        private final Runnable mDeliverCallbacks = new Runnable() {
+            public void run() {
+                NotificationListeners.this.deliverPendingCallbacks();
+            }
+        };
+        private boolean mDeliveryScheduled;
         private final ArraySet<ManagedServices.ManagedServiceInfo> mLightTrimListeners = new ArraySet<>();
+        private final ArrayList<Runnable> mPendingCallbacks = new ArrayList<>();
 
         public NotificationListeners(IPackageManager pm) {
             super(NotificationManagerService.this.getContext(), NotificationManagerService.mNotificationLock, NotificationManagerService.this.mUserProfiles, pm);
@@ -8157,6 +8208,35 @@ public class NotificationManagerService extends SystemService {
             }
         }
 
+        /**
+         * Queues a posted, removed or ranking update callback for the listeners. The callbacks
+         * queued until the worker handler gets to them, such as the ones of all records the
+         * ingestion pipeline released together, go out in one handler message, in order.
+         */
+        private void postCallback(Runnable callback) {
+            synchronized (this.mPendingCallbacks) {
+                this.mPendingCallbacks.add(callback);
+                if (!this.mDeliveryScheduled) {
+                    this.mDeliveryScheduled = true;
+                    NotificationManagerService.mHandler.post(this.mDeliverCallbacks);
+                }
+            }
+        }
+
+        /* access modifiers changed from: private */
+        public void deliverPendingCallbacks() {
+            ArrayList<Runnable> callbacks;
+            synchronized (this.mPendingCallbacks) {
+                callbacks = new ArrayList<>(this.mPendingCallbacks);
+                this.mPendingCallbacks.clear();
+                this.mDeliveryScheduled = false;
+            }
+            int N = callbacks.size();
+            for (int i = 0; i < N; i++) {
+                callbacks.get(i).run();
+            }
+        }
+
         @GuardedBy({"mNotificationLock"})
         public void notifyPostedLocked(NotificationRecord r, NotificationRecord old) {
             notifyPostedLocked(r, old, true);
@@ -8179,14 +8259,14 @@ public class NotificationManagerService extends SystemService {
                         }
                         NotificationManagerService.this.updateUriPermissions(r, old, info.component.getPackageName(), targetUserId);
                         final StatusBarNotification sbnToPost = trimCache.ForListener(info);
-                        NotificationManagerService.mHandler.post(new Runnable() {
+                        postCallback(new Runnable() {
                             public void run() {
                                 NotificationListeners.this.notifyPosted(info, sbnToPost, update);
                             }
                         });
                     } else {
                         final StatusBarNotification oldSbnLightClone = oldSbn.cloneLight();
-                        NotificationManagerService.mHandler.post(new Runnable() {
+                        postCallback(new Runnable() {
                             public void run() {
                                 NotificationListeners.this.notifyRemoved(info, oldSbnLightClone, update, (NotificationStats) null, 6);
                             }
@@ -8205,31 +8285,22 @@ public class NotificationManagerService extends SystemService {
             for (ManagedServices.ManagedServiceInfo info : getServices()) {
                 if (NotificationManagerService.this.isVisibleToListener(sbn, info) && ((!r.isHidden() || i == 14 || info.targetSdkVersion >= 28) && (i != 14 || info.targetSdkVersion < 28))) {
                     final NotificationStats stats = NotificationManagerService.this.mAssistants.isServiceTokenValidLocked(info.service) ? notificationStats : null;
-                    NotificationRankingUpdate update = NotificationManagerService.this.makeRankingUpdateLocked(info);
-                    WorkerHandler access$1800 = NotificationManagerService.mHandler;
+                    final NotificationRankingUpdate update = NotificationManagerService.this.makeRankingUpdateLocked(info);
                     final ManagedServices.ManagedServiceInfo managedServiceInfo = info;
                     final StatusBarNotification statusBarNotification = sbnLight;
-                    final NotificationRankingUpdate notificationRankingUpdate = update;
-                    AnonymousClass3 r9 = r0;
                     final int i2 = reason;
-                    AnonymousClass3 r0 = new Runnable() {
+                    postCallback(new Runnable() {
                         public void run() {
-                            NotificationListeners.this.notifyRemoved(managedServiceInfo, statusBarNotification, notificationRankingUpdate, stats, i2);
+                            NotificationListeners.this.notifyRemoved(managedServiceInfo, statusBarNotification, update, stats, i2);
                         }
-                    };
-                    access$1800.post(r9);
+                    });
                     i = reason;
                 }
             }
-            NotificationManagerService.mHandler.post(new Runnable(notificationRecord) {
-                private final /* synthetic */ NotificationRecord f$1;
-
-                {
-                    this.f$1 = r2;
-                }
-
-                public final void run() {
-                    NotificationManagerService.NotificationListeners.this.lambda$notifyRemovedLocked$1$NotificationManagerService$NotificationListeners(this.f$1);
+            final NotificationRecord removedRecord = notificationRecord;
+            postCallback(new Runnable() {
+                public void run() {
+                    NotificationListeners.this.lambda$notifyRemovedLocked$1$NotificationManagerService$NotificationListeners(removedRecord);
                 }
             });
         }
@@ -8259,7 +8330,7 @@ public class NotificationManagerService extends SystemService {
                     }
                     if (notifyThisListener || !isHiddenRankingUpdate) {
                         final NotificationRankingUpdate update = NotificationManagerService.this.makeRankingUpdateLocked(serviceInfo);
-                        NotificationManagerService.mHandler.post(new Runnable() {
+                        postCallback(new Runnable() {
                             public void run() {
                                 NotificationListeners.this.notifyRankingUpdate(serviceInfo, update);
                             }
@@ -49,7 +49,7 @@ import java.util.Objects;
 import java.util.function.Consumer;
 
 public final class NotificationRecord {
-    static final boolean DBG = Log.isLoggable(TAG, 3);
+    static final boolean DBG = Log.isLoggable("NotificationRecord", 3);
     private static final int MAX_SOUND_DELAY_MS = 2000;
     static final String TAG = "NotificationRecord";
     boolean isCanceled;
@@ -94,6 +94,7 @@ public final class NotificationRecord {
     private boolean mShowBadge;
     private ArrayList<CharSequence> mSmartReplies;
     private ArrayList<SnoozeCriterion> mSnoozeCriteria;
+    private final NotificationSortKey mSortKey = new NotificationSortKey();
     private Uri mSound;
     private final NotificationStats mStats;
     private boolean mStatusBarCheckedImportance;
@@ -597,7 +598,7 @@ public final class NotificationRecord {
                 if (signals.containsKey("key_importance")) {
                     setAssistantImportance(Math.min(4, Math.max(JobSchedulerShellCommand.CMD_ERR_NO_PACKAGE, signals.getInt("key_importance"))));
                 }
-                if (signals.isEmpty() == 0 && adjustment.getIssuer() != null) {
+                if (!signals.isEmpty() && adjustment.getIssuer() != null) {
                     this.mAdjustmentIssuer = adjustment.getIssuer();
                 }
             }
@@ -812,6 +813,11 @@ public final class NotificationRecord {
         return this.mGlobalSortKey;
     }
 
+    /* access modifiers changed from: package-private */
+    public NotificationSortKey getSortKey() {
+        return this.mSortKey;
+    }
+
     public boolean isSeen() {
         return this.mStats.hasSeen();
     }
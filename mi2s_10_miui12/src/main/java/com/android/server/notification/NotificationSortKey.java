@@ -0,0 +1,29 @@
+package com.android.server.notification;
+
+/**
+ * Precomputed inputs of {@link NotificationComparator} for one record, plus the pieces of the
+ * last global sort key built from them. Lets {@link RankingHelper} compare records without
+ * re-running the messaging/people checks and skip rebuilding unchanged global sort keys.
+ */
+final class NotificationSortKey {
+    float contactAffinity;
+    int criticality = -1;
+    String globalSortKey;
+    int groupProxyRank = -1;
+    String groupSortKeyPortion;
+    boolean highImportance;
+    int importance;
+    boolean importantColorized;
+    boolean importantMessaging;
+    boolean importantOngoing;
+    boolean importantPeople;
+    boolean inOrder;
+    char intrusive;
+    boolean isGroupSummary;
+    int packagePriority;
+    int priority;
+    String rawGroupSortKey;
+    int rank = -1;
+    long rankingTimeMs;
+    int seenPass;
+}
@@ -4,24 +4,45 @@ import android.content.Context;
 import android.util.ArrayMap;
 import android.util.Slog;
 import android.util.proto.ProtoOutputStream;
+import com.android.internal.annotations.VisibleForTesting;
 import com.android.server.notification.NotificationManagerService;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Objects;
 
 public class RankingHelper {
     private static final String TAG = "RankingHelper";
+    private int mConfigGeneration;
     private final Context mContext;
     private final GlobalSortKeyComparator mFinalComparator = new GlobalSortKeyComparator();
-    private final NotificationComparator mPreliminaryComparator;
+    private int mFullSortCount;
+    private int mIncrementalSortCount;
+    private final ArrayList<NotificationRecord> mPendingInsertTmp = new ArrayList<>();
+    /* access modifiers changed from: private */
+    public final NotificationComparator mPreliminaryComparator;
+    private final ArrayList<NotificationRecord> mPreliminaryOrder = new ArrayList<>();
     private final ArrayMap<String, NotificationRecord> mProxyByGroupTmp = new ArrayMap<>();
     private final RankingHandler mRankingHandler;
     private final NotificationSignalExtractor[] mSignalExtractors;
+    private final Comparator<NotificationRecord> mSortKeyComparator = new Comparator<NotificationRecord>() {
+        public int compare(NotificationRecord left, NotificationRecord right) {
+            return RankingHelper.this.mPreliminaryComparator.compare(left.getSortKey(), right.getSortKey());
+        }
+    };
+    private volatile boolean mSortInvalidated = true;
+    private int mSortPass;
 
     public RankingHelper(Context context, RankingHandler rankingHandler, RankingConfig config, ZenModeHelper zenHelper, NotificationUsageStats usageStats, String[] extractorNames) {
+        this(context, rankingHandler, new NotificationComparator(context), config, zenHelper, usageStats, extractorNames);
+    }
+
+    @VisibleForTesting
+    RankingHelper(Context context, RankingHandler rankingHandler, NotificationComparator preliminaryComparator, RankingConfig config, ZenModeHelper zenHelper, NotificationUsageStats usageStats, String[] extractorNames) {
         this.mContext = context;
         this.mRankingHandler = rankingHandler;
-        this.mPreliminaryComparator = new NotificationComparator(this.mContext);
+        this.mPreliminaryComparator = preliminaryComparator;
         int N = extractorNames.length;
         this.mSignalExtractors = new NotificationSignalExtractor[N];
         for (int i = 0; i < N; i++) {
@@ -44,7 +65,7 @@ public class RankingHelper {
     public <T extends NotificationSignalExtractor> T findExtractor(Class<T> extractorClass) {
         for (NotificationSignalExtractor extractor : this.mSignalExtractors) {
             if (extractorClass.equals(extractor.getClass())) {
-                return extractor;
+                return (T) extractor;
             }
         }
         return null;
@@ -64,59 +85,127 @@ public class RankingHelper {
     }
 
     public void sort(ArrayList<NotificationRecord> notificationList) {
-        String groupSortKeyPortion;
         int N = notificationList.size();
-        for (int i = N - 1; i >= 0; i--) {
-            notificationList.get(i).setGlobalSortKey((String) null);
+        int configGeneration = this.mPreliminaryComparator.getConfigGeneration();
+        boolean fullSort = this.mSortInvalidated || configGeneration != this.mConfigGeneration;
+        this.mSortInvalidated = false;
+        this.mConfigGeneration = configGeneration;
+        int pass = this.mSortPass + 1;
+        this.mSortPass = pass;
+        ArrayList<NotificationRecord> pending = this.mPendingInsertTmp;
+        for (int i = 0; i < N; i++) {
+            NotificationRecord record = notificationList.get(i);
+            NotificationSortKey key = record.getSortKey();
+            key.seenPass = pass;
+            if (this.mPreliminaryComparator.updateSortKey(record, key) || !key.inOrder) {
+                key.inOrder = false;
+                pending.add(record);
+            }
         }
-        Collections.sort(notificationList, this.mPreliminaryComparator);
-        synchronized (this.mProxyByGroupTmp) {
-            int i2 = 0;
-            while (i2 < N) {
-                try {
-                    NotificationRecord record = notificationList.get(i2);
-                    record.setAuthoritativeRank(i2);
-                    String groupKey = record.getGroupKey();
-                    if (this.mProxyByGroupTmp.get(groupKey) == null) {
-                        this.mProxyByGroupTmp.put(groupKey, record);
-                    }
-                    i2++;
-                } catch (Throwable th) {
-                    while (true) {
-                        throw th;
-                    }
-                }
+        ArrayList<NotificationRecord> order = this.mPreliminaryOrder;
+        if (fullSort || pending.size() > (N >> 2) + 1) {
+            for (int i2 = order.size() - 1; i2 >= 0; i2--) {
+                order.get(i2).getSortKey().inOrder = false;
             }
+            order.clear();
+            order.addAll(notificationList);
+            Collections.sort(order, this.mSortKeyComparator);
             for (int i3 = 0; i3 < N; i3++) {
-                NotificationRecord record2 = notificationList.get(i3);
-                NotificationRecord groupProxy = this.mProxyByGroupTmp.get(record2.getGroupKey());
-                String groupSortKey = record2.getNotification().getSortKey();
-                if (groupSortKey == null) {
-                    groupSortKeyPortion = "nsk";
-                } else if (groupSortKey.equals("")) {
-                    groupSortKeyPortion = "esk";
+                order.get(i3).getSortKey().inOrder = true;
+            }
+            this.mFullSortCount++;
+        } else {
+            int kept = 0;
+            int size = order.size();
+            for (int i4 = 0; i4 < size; i4++) {
+                NotificationRecord record2 = order.get(i4);
+                NotificationSortKey key2 = record2.getSortKey();
+                if (key2.seenPass != pass || !key2.inOrder) {
+                    key2.inOrder = false;
                 } else {
-                    groupSortKeyPortion = "gsk=" + groupSortKey;
+                    order.set(kept, record2);
+                    kept++;
                 }
-                boolean isGroupSummary = record2.getNotification().isGroupSummary();
-                Object[] objArr = new Object[6];
-                objArr[0] = Integer.valueOf(record2.getCriticality());
-                char c = '0';
-                objArr[1] = Character.valueOf((!record2.isRecentlyIntrusive() || record2.getImportance() <= 1) ? '1' : '0');
-                objArr[2] = Integer.valueOf(groupProxy.getAuthoritativeRank());
-                if (!isGroupSummary) {
-                    c = '1';
+            }
+            for (int i5 = size - 1; i5 >= kept; i5--) {
+                order.remove(i5);
+            }
+            int P = pending.size();
+            for (int i6 = 0; i6 < P; i6++) {
+                NotificationRecord record3 = pending.get(i6);
+                int index = Collections.binarySearch(order, record3, this.mSortKeyComparator);
+                if (index < 0) {
+                    index = -(index + 1);
                 }
-                objArr[3] = Character.valueOf(c);
-                objArr[4] = groupSortKeyPortion;
-                objArr[5] = Integer.valueOf(record2.getAuthoritativeRank());
-                record2.setGlobalSortKey(String.format("crtcl=0x%04x:intrsv=%c:grnk=0x%04x:gsmry=%c:%s:rnk=0x%04x", objArr));
+                order.add(index, record3);
+                record3.getSortKey().inOrder = true;
+            }
+            this.mIncrementalSortCount++;
+        }
+        pending.clear();
+        synchronized (this.mProxyByGroupTmp) {
+            for (int i7 = 0; i7 < N; i7++) {
+                NotificationRecord record4 = order.get(i7);
+                record4.setAuthoritativeRank(i7);
+                String groupKey = record4.getGroupKey();
+                if (this.mProxyByGroupTmp.get(groupKey) == null) {
+                    this.mProxyByGroupTmp.put(groupKey, record4);
+                }
+            }
+            for (int i8 = 0; i8 < N; i8++) {
+                NotificationRecord record5 = order.get(i8);
+                updateGlobalSortKey(record5, this.mProxyByGroupTmp.get(record5.getGroupKey()));
             }
             this.mProxyByGroupTmp.clear();
         }
         Collections.sort(notificationList, this.mFinalComparator);
     }
 
+    private void updateGlobalSortKey(NotificationRecord record, NotificationRecord groupProxy) {
+        String groupSortKeyPortion;
+        NotificationSortKey key = record.getSortKey();
+        int criticality = record.getCriticality();
+        char c = '0';
+        char intrusive = (!record.isRecentlyIntrusive() || record.getImportance() <= 1) ? '1' : '0';
+        int groupProxyRank = groupProxy.getAuthoritativeRank();
+        boolean isGroupSummary = record.getNotification().isGroupSummary();
+        String groupSortKey = record.getNotification().getSortKey();
+        int rank = record.getAuthoritativeRank();
+        if (key.globalSortKey != null && key.criticality == criticality && key.intrusive == intrusive && key.groupProxyRank == groupProxyRank && key.isGroupSummary == isGroupSummary && key.rank == rank && Objects.equals(key.rawGroupSortKey, groupSortKey)) {
+            record.setGlobalSortKey(key.globalSortKey);
+            return;
+        }
+        if (groupSortKey == null) {
+            groupSortKeyPortion = "nsk";
+        } else if (groupSortKey.equals("")) {
+            groupSortKeyPortion = "esk";
+        } else {
+            groupSortKeyPortion = "gsk=" + groupSortKey;
+        }
+        Object[] objArr = new Object[6];
+        objArr[0] = Integer.valueOf(criticality);
+        objArr[1] = Character.valueOf(intrusive);
+        objArr[2] = Integer.valueOf(groupProxyRank);
+        if (!isGroupSummary) {
+            c = '1';
+        }
+        objArr[3] = Character.valueOf(c);
+        objArr[4] = groupSortKeyPortion;
+        objArr[5] = Integer.valueOf(rank);
+        key.criticality = criticality;
+        key.intrusive = intrusive;
+        key.groupProxyRank = groupProxyRank;
+        key.isGroupSummary = isGroupSummary;
+        key.rawGroupSortKey = groupSortKey;
+        key.rank = rank;
+        key.globalSortKey = String.format("crtcl=0x%04x:intrsv=%c:grnk=0x%04x:gsmry=%c:%s:rnk=0x%04x", objArr);
+        record.setGlobalSortKey(key.globalSortKey);
+    }
+
+    public void invalidateSortOrder() {
+        this.mSortInvalidated = true;
+    }
+
     public int indexOf(ArrayList<NotificationRecord> notificationList, NotificationRecord target) {
         return Collections.binarySearch(notificationList, target, this.mFinalComparator);
     }
@@ -124,12 +213,17 @@ public class RankingHelper {
     public void dump(PrintWriter pw, String prefix, NotificationManagerService.DumpFilter filter) {
         pw.print(prefix);
         pw.print("mSignalExtractors.length = ");
-        pw.println(N);
+        pw.println(this.mSignalExtractors.length);
         for (NotificationSignalExtractor notificationSignalExtractor : this.mSignalExtractors) {
             pw.print(prefix);
             pw.print("  ");
             pw.println(notificationSignalExtractor.getClass().getSimpleName());
         }
+        pw.print(prefix);
+        pw.print("sorts: full=");
+        pw.print(this.mFullSortCount);
+        pw.print(" incremental=");
+        pw.println(this.mIncrementalSortCount);
     }
 
     public void dump(ProtoOutputStream proto, NotificationManagerService.DumpFilter filter) {
@@ -543,6 +543,10 @@ public class ClientModeImpl extends StateMachine {
         }
         this.mTargetRoamBSSID = bssid;
         config.getNetworkSelectionStatus().setNetworkSelectionBSSID(bssid);
+        ScanDetailCache scanDetailCache = this.mWifiConfigManager.getScanDetailCacheForNetwork(config.networkId);
+        if (scanDetailCache != null) {
+            scanDetailCache.setTargetBssid(bssid);
+        }
         return true;
     }
 
@@ -2295,6 +2299,9 @@ public class ClientModeImpl extends StateMachine {
                 this.mWifiInfo.setNetworkSuggestionOrSpecifierPackageName(config.creatorName);
             }
             ScanDetailCache scanDetailCache = this.mWifiConfigManager.getScanDetailCacheForNetwork(config.networkId);
+            if (scanDetailCache != null) {
+                scanDetailCache.setCurrentBssid(stateChangeResult.BSSID);
+            }
             if (!(scanDetailCache == null || (scanDetail = scanDetailCache.getScanDetail(stateChangeResult.BSSID)) == null)) {
                 this.mWifiInfo.setFrequency(scanDetail.getScanResult().frequency);
                 NetworkDetail networkDetail = scanDetail.getNetworkDetail();
@@ -6144,6 +6151,7 @@ public class ClientModeImpl extends StateMachine {
 
     public void updateWifiMetrics() {
         this.mWifiMetrics.updateSavedNetworks(this.mWifiConfigManager.getSavedNetworks(1010));
+        this.mWifiConfigManager.updateScanDetailCacheMetrics(this.mWifiMetrics);
         this.mPasspointManager.updateMetrics();
     }
 
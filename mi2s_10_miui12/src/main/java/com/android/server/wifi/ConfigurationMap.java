@@ -10,6 +10,7 @@ import java.util.Map;
 
 public class ConfigurationMap {
     private int mCurrentUserId = 0;
+    private int mGeneration = 1;
     private final Map<Integer, WifiConfiguration> mPerID = new HashMap();
     private final Map<Integer, WifiConfiguration> mPerIDForCurrentUser = new HashMap();
     private final Map<ScanResultMatchInfo, WifiConfiguration> mScanResultMatchInfoMapForCurrentUser = new HashMap();
@@ -20,6 +21,7 @@ public class ConfigurationMap {
     }
 
     public WifiConfiguration put(WifiConfiguration config) {
+        this.mGeneration++;
         WifiConfiguration current = this.mPerID.put(Integer.valueOf(config.networkId), config);
         if (WifiConfigurationUtil.isVisibleToAnyProfile(config, this.mUserManager.getProfiles(this.mCurrentUserId))) {
             this.mPerIDForCurrentUser.put(Integer.valueOf(config.networkId), config);
@@ -33,6 +35,7 @@ public class ConfigurationMap {
         if (config == null) {
             return null;
         }
+        this.mGeneration++;
         this.mPerIDForCurrentUser.remove(Integer.valueOf(netID));
         Iterator<Map.Entry<ScanResultMatchInfo, WifiConfiguration>> scanResultMatchInfoEntries = this.mScanResultMatchInfoMapForCurrentUser.entrySet().iterator();
         while (true) {
@@ -49,12 +52,14 @@ public class ConfigurationMap {
     }
 
     public void clear() {
+        this.mGeneration++;
         this.mPerID.clear();
         this.mPerIDForCurrentUser.clear();
         this.mScanResultMatchInfoMapForCurrentUser.clear();
     }
 
     public void setNewUser(int userId) {
+        this.mGeneration++;
         this.mCurrentUserId = userId;
     }
 
@@ -86,6 +91,15 @@ public class ConfigurationMap {
         return null;
     }
 
+    /**
+     * Returns a number that changes whenever a network is added, replaced or removed, or the
+     * current user changes, so that answers of getByScanResultForCurrentUser can be reused until
+     * then. Never 0.
+     */
+    public int getGeneration() {
+        return this.mGeneration;
+    }
+
     public WifiConfiguration getByScanResultForCurrentUser(ScanResult scanResult) {
         return this.mScanResultMatchInfoMapForCurrentUser.get(ScanResultMatchInfo.fromScanResult(scanResult));
     }
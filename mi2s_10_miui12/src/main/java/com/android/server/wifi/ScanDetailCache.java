@@ -2,19 +2,52 @@ package com.android.server.wifi;
 
 import android.net.wifi.ScanResult;
 import android.net.wifi.WifiConfiguration;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
+import android.net.wifi.WifiSsid;
+import android.util.Log;
+import com.android.server.wifi.hotspot2.Utils;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
-import java.util.Iterator;
 
+/**
+ * The BSSIDs a saved network was seen with. Entries are kept in parallel arrays sorted by the
+ * BSSID packed into a long, with only the fields channel selection, network linking and the
+ * connection path read: frequency, channel width and center frequencies, level, seen, TSF,
+ * capabilities and SSID. The full ScanDetail, with its information elements and NetworkDetail, is
+ * kept for the BSSIDs set with setTargetBssid and setCurrentBssid, which the connection path and
+ * the connection metrics read, and for a few other freshest and strongest BSSIDs; for the others
+ * getScanDetail builds a ScanDetail without NetworkDetail from the compact fields.
+ *
+ * Entries not seen for longer than any reader looks back are dropped, and when the cache is full
+ * the oldest ones are trimmed away as before.
+ */
 public class ScanDetailCache {
+    private static final long AGE_CHECK_INTERVAL_MS = 600000;
     private static final boolean DBG = false;
+    private static final long FRESH_WINDOW_MS = 10000;
+    private static final int FULL_DETAILS_MAX = 8;
+    private static final int FULL_DETAIL_BYTES = 480;
+    private static final int INFORMATION_ELEMENT_BYTES = 40;
+    private static final long MAX_AGE_MS = 2592000000L;
     private static final String TAG = "ScanDetailCache";
+    private long[] mBssids = new long[8];
+    private String[] mCapabilities = new String[8];
+    private int[] mCenterFreqs0 = new int[8];
+    private int[] mCenterFreqs1 = new int[8];
+    private int[] mChannelWidths = new int[8];
     private final WifiConfiguration mConfig;
-    private final HashMap<String, ScanDetail> mMap = new HashMap<>(16, 0.75f);
+    private long mCurrentBssid = -1;
+    private ScanDetail[] mDetails = new ScanDetail[8];
+    private int[] mFrequencies = new int[8];
+    private long mFullDetailBytes;
+    private int mFullDetails;
+    private int[] mLevels = new int[8];
     private final int mMaxSize;
+    private long mNextAgeCheck;
+    private long[] mSeen = new long[8];
+    private int mSize;
+    private WifiSsid[] mSsids = new WifiSsid[8];
+    private long mTargetBssid = -1;
+    private long[] mTimestamps = new long[8];
     private final int mTrimSize;
 
     ScanDetailCache(WifiConfiguration config, int maxSize, int trimSize) {
@@ -23,12 +56,109 @@ public class ScanDetailCache {
         this.mTrimSize = trimSize;
     }
 
+    private static long parseBssid(String bssid) {
+        if (bssid == null) {
+            return -1;
+        }
+        try {
+            return Utils.parseMac(bssid);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static String toBssidString(long bssid) {
+        char[] chars = new char[17];
+        for (int i = 0; i < 6; i++) {
+            int octet = (int) (bssid >>> ((5 - i) * 8)) & 255;
+            chars[i * 3] = Character.forDigit(octet >> 4, 16);
+            chars[(i * 3) + 1] = Character.forDigit(octet & 15, 16);
+            if (i < 5) {
+                chars[(i * 3) + 2] = ':';
+            }
+        }
+        return new String(chars);
+    }
+
+    private static int estimateBytes(ScanDetail scanDetail) {
+        int bytes = FULL_DETAIL_BYTES;
+        ScanResult.InformationElement[] ies = scanDetail.getScanResult().informationElements;
+        if (ies != null) {
+            for (ScanResult.InformationElement ie : ies) {
+                bytes += INFORMATION_ELEMENT_BYTES + (ie.bytes != null ? ie.bytes.length : 0);
+            }
+        }
+        return bytes;
+    }
+
+    private int indexOf(long bssid) {
+        int lo = 0;
+        int hi = this.mSize - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long value = this.mBssids[mid];
+            if (value < bssid) {
+                lo = mid + 1;
+            } else if (value <= bssid) {
+                return mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return ~lo;
+    }
+
     /* access modifiers changed from: package-private */
     public void put(ScanDetail scanDetail) {
-        if (this.mMap.size() >= this.mMaxSize) {
-            trim();
+        long bssid = parseBssid(scanDetail.getBSSIDString());
+        if (bssid < 0) {
+            Log.e(TAG, "Not caching scan detail with bad BSSID " + scanDetail.getBSSIDString());
+            return;
+        }
+        ScanResult result = scanDetail.getScanResult();
+        long seen = scanDetail.getSeen();
+        if (seen >= this.mNextAgeCheck) {
+            this.mNextAgeCheck = seen + AGE_CHECK_INTERVAL_MS;
+            removeOlderThan(seen - MAX_AGE_MS);
+        }
+        int i = indexOf(bssid);
+        if (i < 0) {
+            if (this.mSize >= this.mMaxSize) {
+                trim();
+                i = indexOf(bssid);
+            }
+            i = ~i;
+            insert(i, bssid);
+        }
+        this.mFrequencies[i] = result.frequency;
+        this.mChannelWidths[i] = result.channelWidth;
+        this.mCenterFreqs0[i] = result.centerFreq0;
+        this.mCenterFreqs1[i] = result.centerFreq1;
+        this.mLevels[i] = result.level;
+        this.mSeen[i] = seen;
+        this.mTimestamps[i] = result.timestamp;
+        // Keep the string of the previous scan when it is the same, so one copy is held.
+        if (this.mCapabilities[i] == null || !this.mCapabilities[i].equals(result.capabilities)) {
+            this.mCapabilities[i] = result.capabilities;
+        }
+        if (result.wifiSsid != null) {
+            this.mSsids[i] = result.wifiSsid;
+        } else if (this.mSsids[i] == null || !result.SSID.equals(this.mSsids[i].toString())) {
+            this.mSsids[i] = WifiSsid.createFromAsciiEncoded(result.SSID);
+        }
+        ScanDetail previous = this.mDetails[i];
+        if (previous != scanDetail) {
+            if (previous != null) {
+                this.mFullDetailBytes -= (long) estimateBytes(previous);
+            } else {
+                this.mFullDetails++;
+            }
+            this.mDetails[i] = scanDetail;
+            this.mFullDetailBytes += (long) estimateBytes(scanDetail);
+            if (this.mFullDetails > FULL_DETAILS_MAX) {
+                dropFullDetail(i);
+            }
         }
-        this.mMap.put(scanDetail.getBSSIDString(), scanDetail);
     }
 
     public ScanResult getScanResult(String bssid) {
@@ -39,21 +169,57 @@ public class ScanDetailCache {
         return scanDetail.getScanResult();
     }
 
+    /**
+     * Returns the scan detail of {@code bssid}. Unless it is one of the few kept in full, this is
+     * a new ScanDetail without NetworkDetail; changes to it are not seen by the cache until it is
+     * put back.
+     */
     public ScanDetail getScanDetail(String bssid) {
-        if (bssid == null) {
+        int i = indexOf(parseBssid(bssid));
+        if (i < 0) {
             return null;
         }
-        return this.mMap.get(bssid);
+        ScanDetail scanDetail = this.mDetails[i];
+        if (scanDetail != null) {
+            return scanDetail;
+        }
+        ScanDetail scanDetail2 = new ScanDetail(this.mSsids[i], toBssidString(this.mBssids[i]), this.mCapabilities[i], this.mLevels[i], this.mFrequencies[i], this.mTimestamps[i], this.mSeen[i]);
+        ScanResult result = scanDetail2.getScanResult();
+        result.channelWidth = this.mChannelWidths[i];
+        result.centerFreq0 = this.mCenterFreqs0[i];
+        result.centerFreq1 = this.mCenterFreqs1[i];
+        if (this.mConfig.ephemeral) {
+            result.untrusted = true;
+        }
+        return scanDetail2;
+    }
+
+    /**
+     * Sets the BSSID the network is about to connect to, whose full ScanDetail is kept from its
+     * next scan on. Null or "any" clears it.
+     */
+    /* access modifiers changed from: package-private */
+    public void setTargetBssid(String bssid) {
+        this.mTargetBssid = parseBssid(bssid);
+    }
+
+    /** Sets the BSSID the network is connected to, whose full ScanDetail is kept the same way. */
+    /* access modifiers changed from: package-private */
+    public void setCurrentBssid(String bssid) {
+        this.mCurrentBssid = parseBssid(bssid);
     }
 
     /* access modifiers changed from: package-private */
     public void remove(String bssid) {
-        this.mMap.remove(bssid);
+        int i = indexOf(parseBssid(bssid));
+        if (i >= 0) {
+            removeAt(i);
+        }
     }
 
     /* access modifiers changed from: package-private */
     public int size() {
-        return this.mMap.size();
+        return this.mSize;
     }
 
     /* access modifiers changed from: package-private */
@@ -61,85 +227,240 @@ public class ScanDetailCache {
         return size() == 0;
     }
 
+    /** The BSSID of the entry at {@code index}, which runs from 0 to size() in BSSID order. */
+    long getBssid(int index) {
+        return this.mBssids[index];
+    }
+
+    String getBssidString(int index) {
+        return toBssidString(this.mBssids[index]);
+    }
+
+    int getFrequency(int index) {
+        return this.mFrequencies[index];
+    }
+
+    int getLevel(int index) {
+        return this.mLevels[index];
+    }
+
+    long getSeen(int index) {
+        return this.mSeen[index];
+    }
+
     /* access modifiers changed from: package-private */
-    public Collection<String> keySet() {
-        return this.mMap.keySet();
+    public int getFullDetailCount() {
+        return this.mFullDetails;
     }
 
+    /** Returns an estimate of the heap the cache holds on to, in bytes. */
     /* access modifiers changed from: package-private */
-    public Collection<ScanDetail> values() {
-        return this.mMap.values();
+    public long getMemoryFootprint() {
+        long bytes = (((long) this.mBssids.length) * 56) + (((long) this.mSize) * 64) + this.mFullDetailBytes;
+        for (int i = 0; i < this.mSize; i++) {
+            String capabilities = this.mCapabilities[i];
+            if (capabilities != null) {
+                bytes += (long) ((capabilities.length() * 2) + 24);
+            }
+        }
+        return bytes;
+    }
+
+    private void insert(int index, long bssid) {
+        int size = this.mSize;
+        if (size == this.mBssids.length) {
+            int capacity = Math.min(size * 2, Math.max(this.mMaxSize, 8));
+            if (capacity <= size) {
+                capacity = size + 1;
+            }
+            this.mBssids = Arrays.copyOf(this.mBssids, capacity);
+            this.mCapabilities = (String[]) Arrays.copyOf(this.mCapabilities, capacity);
+            this.mCenterFreqs0 = Arrays.copyOf(this.mCenterFreqs0, capacity);
+            this.mCenterFreqs1 = Arrays.copyOf(this.mCenterFreqs1, capacity);
+            this.mChannelWidths = Arrays.copyOf(this.mChannelWidths, capacity);
+            this.mDetails = (ScanDetail[]) Arrays.copyOf(this.mDetails, capacity);
+            this.mFrequencies = Arrays.copyOf(this.mFrequencies, capacity);
+            this.mLevels = Arrays.copyOf(this.mLevels, capacity);
+            this.mSeen = Arrays.copyOf(this.mSeen, capacity);
+            this.mSsids = (WifiSsid[]) Arrays.copyOf(this.mSsids, capacity);
+            this.mTimestamps = Arrays.copyOf(this.mTimestamps, capacity);
+        }
+        int count = size - index;
+        if (count > 0) {
+            System.arraycopy(this.mBssids, index, this.mBssids, index + 1, count);
+            System.arraycopy(this.mCapabilities, index, this.mCapabilities, index + 1, count);
+            System.arraycopy(this.mCenterFreqs0, index, this.mCenterFreqs0, index + 1, count);
+            System.arraycopy(this.mCenterFreqs1, index, this.mCenterFreqs1, index + 1, count);
+            System.arraycopy(this.mChannelWidths, index, this.mChannelWidths, index + 1, count);
+            System.arraycopy(this.mDetails, index, this.mDetails, index + 1, count);
+            System.arraycopy(this.mFrequencies, index, this.mFrequencies, index + 1, count);
+            System.arraycopy(this.mLevels, index, this.mLevels, index + 1, count);
+            System.arraycopy(this.mSeen, index, this.mSeen, index + 1, count);
+            System.arraycopy(this.mSsids, index, this.mSsids, index + 1, count);
+            System.arraycopy(this.mTimestamps, index, this.mTimestamps, index + 1, count);
+        }
+        this.mBssids[index] = bssid;
+        this.mCapabilities[index] = null;
+        this.mDetails[index] = null;
+        this.mSsids[index] = null;
+        this.mSize = size + 1;
+    }
+
+    private void moveEntry(int from, int to) {
+        this.mBssids[to] = this.mBssids[from];
+        this.mCapabilities[to] = this.mCapabilities[from];
+        this.mCenterFreqs0[to] = this.mCenterFreqs0[from];
+        this.mCenterFreqs1[to] = this.mCenterFreqs1[from];
+        this.mChannelWidths[to] = this.mChannelWidths[from];
+        this.mDetails[to] = this.mDetails[from];
+        this.mFrequencies[to] = this.mFrequencies[from];
+        this.mLevels[to] = this.mLevels[from];
+        this.mSeen[to] = this.mSeen[from];
+        this.mSsids[to] = this.mSsids[from];
+        this.mTimestamps[to] = this.mTimestamps[from];
+    }
+
+    private void forgetEntry(int index) {
+        ScanDetail scanDetail = this.mDetails[index];
+        if (scanDetail != null) {
+            this.mFullDetails--;
+            this.mFullDetailBytes -= (long) estimateBytes(scanDetail);
+        }
+    }
+
+    private void truncate(int size) {
+        for (int i = size; i < this.mSize; i++) {
+            this.mCapabilities[i] = null;
+            this.mDetails[i] = null;
+            this.mSsids[i] = null;
+        }
+        this.mSize = size;
+    }
+
+    private void removeAt(int index) {
+        forgetEntry(index);
+        for (int i = index + 1; i < this.mSize; i++) {
+            moveEntry(i, i - 1);
+        }
+        truncate(this.mSize - 1);
+    }
+
+    /** Drops the entries last seen before {@code time}; entries restored without a time stay. */
+    private void removeOlderThan(long time) {
+        int size = 0;
+        for (int i = 0; i < this.mSize; i++) {
+            long seen = this.mSeen[i];
+            if (seen <= 0 || seen >= time) {
+                if (i != size) {
+                    moveEntry(i, size);
+                }
+                size++;
+            } else {
+                forgetEntry(i);
+            }
+        }
+        truncate(size);
     }
 
     private void trim() {
-        int currentSize = this.mMap.size();
+        int currentSize = this.mSize;
         if (currentSize >= this.mTrimSize) {
-            ArrayList<ScanDetail> list = new ArrayList<>(this.mMap.values());
-            if (list.size() != 0) {
-                Collections.sort(list, new Comparator() {
-                    public int compare(Object o1, Object o2) {
-                        ScanDetail a = (ScanDetail) o1;
-                        ScanDetail b = (ScanDetail) o2;
-                        if (a.getSeen() > b.getSeen()) {
-                            return 1;
+            int remove = currentSize - this.mTrimSize;
+            if (remove > 0) {
+                long[] seen = Arrays.copyOf(this.mSeen, currentSize);
+                Arrays.sort(seen);
+                long cutoff = seen[remove - 1];
+                // Among entries seen at the cutoff time, the lowest BSSIDs go first, as they did
+                // when the oldest were found by sorting on seen and then on the BSSID string.
+                int ties = remove;
+                while (ties > 0 && seen[remove - ties] < cutoff) {
+                    ties--;
+                }
+                int size = 0;
+                for (int i = 0; i < currentSize; i++) {
+                    long entrySeen = this.mSeen[i];
+                    if (entrySeen < cutoff || (entrySeen == cutoff && ties > 0)) {
+                        if (entrySeen == cutoff) {
+                            ties--;
                         }
-                        if (a.getSeen() < b.getSeen()) {
-                            return -1;
+                        forgetEntry(i);
+                    } else {
+                        if (i != size) {
+                            moveEntry(i, size);
                         }
-                        return a.getBSSIDString().compareTo(b.getBSSIDString());
+                        size++;
                     }
-                });
-            }
-            for (int i = 0; i < currentSize - this.mTrimSize; i++) {
-                this.mMap.remove(list.get(i).getBSSIDString());
+                }
+                truncate(size);
             }
         }
     }
 
-    private ArrayList<ScanDetail> sort() {
-        ArrayList<ScanDetail> list = new ArrayList<>(this.mMap.values());
-        if (list.size() != 0) {
-            Collections.sort(list, new Comparator() {
-                public int compare(Object o1, Object o2) {
-                    ScanResult a = ((ScanDetail) o1).getScanResult();
-                    ScanResult b = ((ScanDetail) o2).getScanResult();
-                    if (a.seen > b.seen) {
-                        return -1;
-                    }
-                    if (a.seen < b.seen) {
-                        return 1;
-                    }
-                    if (a.level > b.level) {
-                        return -1;
-                    }
-                    if (a.level < b.level) {
-                        return 1;
+    /**
+     * Lets go of one full ScanDetail other than the one at {@code keep} and those of the target
+     * and current BSSIDs: the oldest of those seen before the newest scan, or else the weakest of
+     * the newest scan.
+     */
+    private void dropFullDetail(int keep) {
+        long fresh = this.mSeen[keep] - FRESH_WINDOW_MS;
+        int victim = -1;
+        for (int i = 0; i < this.mSize; i++) {
+            long bssid = this.mBssids[i];
+            if (i != keep && this.mDetails[i] != null && bssid != this.mTargetBssid && bssid != this.mCurrentBssid) {
+                if (victim < 0) {
+                    victim = i;
+                } else {
+                    long seen = this.mSeen[i];
+                    long victimSeen = this.mSeen[victim];
+                    if (seen < fresh || victimSeen < fresh) {
+                        if (seen < victimSeen) {
+                            victim = i;
+                        }
+                    } else if (this.mLevels[i] < this.mLevels[victim]) {
+                        victim = i;
                     }
-                    return a.BSSID.compareTo(b.BSSID);
                 }
-            });
+            }
+        }
+        if (victim >= 0) {
+            forgetEntry(victim);
+            this.mDetails[victim] = null;
         }
-        return list;
     }
 
     public String toString() {
         StringBuilder sbuf = new StringBuilder();
         sbuf.append("Scan Cache:  ");
         sbuf.append(10);
-        ArrayList<ScanDetail> list = sort();
+        Integer[] order = new Integer[this.mSize];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer o1, Integer o2) {
+                int a = o1.intValue();
+                int b = o2.intValue();
+                if (ScanDetailCache.this.mSeen[a] != ScanDetailCache.this.mSeen[b]) {
+                    return ScanDetailCache.this.mSeen[a] > ScanDetailCache.this.mSeen[b] ? -1 : 1;
+                }
+                if (ScanDetailCache.this.mLevels[a] != ScanDetailCache.this.mLevels[b]) {
+                    return ScanDetailCache.this.mLevels[a] > ScanDetailCache.this.mLevels[b] ? -1 : 1;
+                }
+                return Long.compare(ScanDetailCache.this.mBssids[a], ScanDetailCache.this.mBssids[b]);
+            }
+        });
         long now_ms = System.currentTimeMillis();
-        if (list.size() > 0) {
-            Iterator<ScanDetail> it = list.iterator();
-            while (it.hasNext()) {
-                ScanDetail scanDetail = it.next();
-                ScanResult result = scanDetail.getScanResult();
-                long milli = now_ms - scanDetail.getSeen();
+        if (order.length > 0) {
+            for (Integer index : order) {
+                int i = index.intValue();
+                long seen = this.mSeen[i];
+                long milli = now_ms - seen;
                 long ageSec = 0;
                 long ageMin = 0;
                 long ageHour = 0;
                 long ageMilli = 0;
                 long ageDay = 0;
-                if (now_ms > scanDetail.getSeen() && scanDetail.getSeen() > 0) {
+                if (now_ms > seen && seen > 0) {
                     ageMilli = milli % 1000;
                     ageSec = (milli / 1000) % 60;
                     ageMin = (milli / 60000) % 60;
@@ -147,17 +468,15 @@ public class ScanDetailCache {
                     ageDay = milli / 86400000;
                 }
                 sbuf.append("{");
-                sbuf.append(result.BSSID);
+                sbuf.append(toBssidString(this.mBssids[i]));
                 sbuf.append(",");
-                ArrayList<ScanDetail> list2 = list;
-                sbuf.append(result.frequency);
+                sbuf.append(this.mFrequencies[i]);
                 sbuf.append(",");
-                sbuf.append(String.format("%3d", new Object[]{Integer.valueOf(result.level)}));
+                sbuf.append(String.format("%3d", new Object[]{Integer.valueOf(this.mLevels[i])}));
                 if (ageSec > 0 || ageMilli > 0) {
                     sbuf.append(String.format(",%4d.%02d.%02d.%02d.%03dms", new Object[]{Long.valueOf(ageDay), Long.valueOf(ageHour), Long.valueOf(ageMin), Long.valueOf(ageSec), Long.valueOf(ageMilli)}));
                 }
                 sbuf.append("} ");
-                list = list2;
             }
             sbuf.append(10);
         }
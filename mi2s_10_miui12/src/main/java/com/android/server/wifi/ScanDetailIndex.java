@@ -0,0 +1,126 @@
+package com.android.server.wifi;
+
+import android.net.wifi.WifiConfiguration;
+import java.util.Arrays;
+
+/**
+ * The scan details of one network selection, indexed by identity, with the saved network each one
+ * resolved to. The evaluators, the scored network evaluator and the open and carrier unsaved
+ * network queries all ask WifiConfigManager for the network of the same scan details; with the
+ * index only the first of them derives the SSID and security key of the scan result, looks it up
+ * and stores the scan detail in the network's cache, and the others reuse that answer.
+ *
+ * An answer is only reused while the ConfigurationMap generation it was resolved under is current,
+ * so networks added or removed by an evaluator are seen by the ones that run after it. The arrays
+ * are kept across selections and only grow.
+ */
+final class ScanDetailIndex {
+    private static final int UNRESOLVED = 0;
+    private int mCount;
+    private ScanDetail[] mDetails = new ScanDetail[64];
+    private int[] mGenerations = new int[64];
+    private WifiConfiguration[] mNetworks = new WifiConfiguration[64];
+
+    private static int slot(ScanDetail detail, int mask) {
+        int h = System.identityHashCode(detail);
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /** Forgets the previous selection and makes room for {@code expected} scan details. */
+    void reset(int expected) {
+        int capacity = this.mDetails.length;
+        if (expected * 2 > capacity) {
+            while (expected * 2 > capacity) {
+                capacity <<= 1;
+            }
+            this.mDetails = new ScanDetail[capacity];
+            this.mGenerations = new int[capacity];
+            this.mNetworks = new WifiConfiguration[capacity];
+        } else if (this.mCount > 0) {
+            Arrays.fill(this.mDetails, (Object) null);
+            Arrays.fill(this.mNetworks, (Object) null);
+            Arrays.fill(this.mGenerations, UNRESOLVED);
+        }
+        this.mCount = 0;
+    }
+
+    void add(ScanDetail detail) {
+        if ((this.mCount + 1) * 2 > this.mDetails.length) {
+            grow();
+        }
+        ScanDetail[] details = this.mDetails;
+        int mask = details.length - 1;
+        int i = slot(detail, mask);
+        while (details[i] != null) {
+            if (details[i] == detail) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        details[i] = detail;
+        this.mCount++;
+    }
+
+    /** Returns the slot of {@code detail}, or -1 if it is not part of this selection. */
+    int indexOf(ScanDetail detail) {
+        if (this.mCount == 0) {
+            return -1;
+        }
+        ScanDetail[] details = this.mDetails;
+        int mask = details.length - 1;
+        int i = slot(detail, mask);
+        while (true) {
+            ScanDetail key = details[i];
+            if (key == null) {
+                return -1;
+            }
+            if (key == detail) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    boolean isResolved(int slot, int generation) {
+        return this.mGenerations[slot] == generation;
+    }
+
+    /** Returns the internal network the slot resolved to, or null if it matches no saved network. */
+    WifiConfiguration getNetwork(int slot) {
+        return this.mNetworks[slot];
+    }
+
+    void setNetwork(int slot, WifiConfiguration network, int generation) {
+        this.mNetworks[slot] = network;
+        this.mGenerations[slot] = generation;
+    }
+
+    int size() {
+        return this.mCount;
+    }
+
+    private void grow() {
+        ScanDetail[] oldDetails = this.mDetails;
+        WifiConfiguration[] oldNetworks = this.mNetworks;
+        int[] oldGenerations = this.mGenerations;
+        int capacity = oldDetails.length * 2;
+        ScanDetail[] details = new ScanDetail[capacity];
+        WifiConfiguration[] networks = new WifiConfiguration[capacity];
+        int[] generations = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldDetails.length; j++) {
+            if (oldDetails[j] != null) {
+                int i = slot(oldDetails[j], mask);
+                while (details[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                details[i] = oldDetails[j];
+                networks[i] = oldNetworks[j];
+                generations[i] = oldGenerations[j];
+            }
+        }
+        this.mDetails = details;
+        this.mNetworks = networks;
+        this.mGenerations = generations;
+    }
+}
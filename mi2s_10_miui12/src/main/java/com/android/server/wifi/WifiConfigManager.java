@@ -114,6 +114,7 @@ public class WifiConfigManager {
     private final Map<String, String> mRandomizedMacAddressMapping;
     private final RandomizedMacStoreData mRandomizedMacStoreData;
     private final Map<Integer, ScanDetailCache> mScanDetailCaches;
+    private ScanDetailIndex mScanDetailIndex;
     private int mSystemUiUid;
     private final TelephonyManager mTelephonyManager;
     private final UserManager mUserManager;
@@ -1116,6 +1117,10 @@ public class WifiConfigManager {
         config.getNetworkSelectionStatus().setCandidate(scanResult);
         config.getNetworkSelectionStatus().setCandidateScore(score);
         config.getNetworkSelectionStatus().setSeenInLastQualifiedNetworkSelection(true);
+        ScanDetailCache scanDetailCache = getScanDetailCacheForNetwork(networkId);
+        if (!(scanDetailCache == null || scanResult == null)) {
+            scanDetailCache.setTargetBssid(scanResult.BSSID);
+        }
         return true;
     }
 
@@ -1229,6 +1234,19 @@ public class WifiConfigManager {
         return this.mScanDetailCaches.get(Integer.valueOf(networkId));
     }
 
+    /** Reports how many BSSIDs the scan detail caches hold, and an estimate of their heap. */
+    public void updateScanDetailCacheMetrics(WifiMetrics wifiMetrics) {
+        int entries = 0;
+        int fullDetails = 0;
+        long bytes = 0;
+        for (ScanDetailCache cache : this.mScanDetailCaches.values()) {
+            entries += cache.size();
+            fullDetails += cache.getFullDetailCount();
+            bytes += cache.getMemoryFootprint();
+        }
+        wifiMetrics.updateScanDetailCacheFootprint(this.mScanDetailCaches.size(), entries, fullDetails, bytes);
+    }
+
     private ScanDetailCache getOrCreateScanDetailCacheForNetwork(WifiConfiguration config) {
         if (config == null) {
             return null;
@@ -1272,30 +1290,58 @@ public class WifiConfigManager {
             if (this.mVerboseLoggingEnabled) {
                 Log.v(TAG, "getSavedNetworkFromScanDetail Found " + config.configKey() + " for " + scanResult.SSID + "[" + scanResult.capabilities + "]");
             }
-            if (config.allowedKeyManagement.get(3)) {
-                if (scanResult.capabilities.contains("FILS-SHA256")) {
-                    config.allowedKeyManagement.set(13);
-                } else {
-                    config.allowedKeyManagement.clear(13);
-                }
-                if (scanResult.capabilities.contains("FILS-SHA384")) {
-                    config.allowedKeyManagement.set(14);
-                } else {
-                    config.allowedKeyManagement.clear(14);
-                }
-            }
+            updateFilsKeyManagement(config, scanResult);
         }
         return config;
     }
 
-    public WifiConfiguration getConfiguredNetworkForScanDetailAndCache(ScanDetail scanDetail) {
-        WifiConfiguration network = getConfiguredNetworkForScanDetail(scanDetail);
-        if (network == null) {
-            return null;
+    private static void updateFilsKeyManagement(WifiConfiguration config, ScanResult scanResult) {
+        if (config.allowedKeyManagement.get(3)) {
+            if (scanResult.capabilities.contains("FILS-SHA256")) {
+                config.allowedKeyManagement.set(13);
+            } else {
+                config.allowedKeyManagement.clear(13);
+            }
+            if (scanResult.capabilities.contains("FILS-SHA384")) {
+                config.allowedKeyManagement.set(14);
+            } else {
+                config.allowedKeyManagement.clear(14);
+            }
         }
-        saveToScanDetailCacheForNetwork(network, scanDetail);
-        if (scanDetail.getNetworkDetail() != null && scanDetail.getNetworkDetail().getDtimInterval() > 0) {
-            network.dtimInterval = scanDetail.getNetworkDetail().getDtimInterval();
+    }
+
+    /**
+     * Lets getConfiguredNetworkForScanDetailAndCache remember the network of each scan detail in
+     * {@code index} until the configured networks change. WifiNetworkSelector installs the index
+     * of its filtered scan details for each selection; null removes it.
+     */
+    public void setScanDetailIndex(ScanDetailIndex index) {
+        this.mScanDetailIndex = index;
+    }
+
+    public WifiConfiguration getConfiguredNetworkForScanDetailAndCache(ScanDetail scanDetail) {
+        WifiConfiguration network;
+        ScanDetailIndex index = this.mScanDetailIndex;
+        int slot = index != null ? index.indexOf(scanDetail) : -1;
+        int generation = this.mConfiguredNetworks.getGeneration();
+        if (slot < 0 || !index.isResolved(slot, generation)) {
+            network = getConfiguredNetworkForScanDetail(scanDetail);
+            if (slot >= 0) {
+                index.setNetwork(slot, network, generation);
+            }
+            if (network == null) {
+                return null;
+            }
+            saveToScanDetailCacheForNetwork(network, scanDetail);
+            if (scanDetail.getNetworkDetail() != null && scanDetail.getNetworkDetail().getDtimInterval() > 0) {
+                network.dtimInterval = scanDetail.getNetworkDetail().getDtimInterval();
+            }
+        } else {
+            network = index.getNetwork(slot);
+            if (network == null) {
+                return null;
+            }
+            updateFilsKeyManagement(network, scanDetail.getScanResult());
         }
         return createExternalWifiConfiguration(network, true, 1010);
     }
@@ -1306,6 +1352,7 @@ public class WifiConfigManager {
         if (config == null || scanDetailCache == null) {
             return;
         }
+        scanDetailCache.setCurrentBssid(info.getBSSID());
         ScanDetail scanDetail = scanDetailCache.getScanDetail(info.getBSSID());
         if (scanDetail != null) {
             ScanResult result = scanDetail.getScanResult();
@@ -1322,6 +1369,7 @@ public class WifiConfigManager {
                 double alpha = 0.5d - (((double) age) / ((double) 40000));
                 result.level = (int) ((((double) result.level) * (1.0d - alpha)) + (((double) previousRssi) * alpha));
             }
+            scanDetailCache.put(scanDetail);
             if (this.mVerboseLoggingEnabled) {
                 Log.v(TAG, "Updating scan detail cache freq=" + result.frequency + " BSSID=" + result.BSSID + " RSSI=" + result.level + " for " + config.configKey());
                 return;
@@ -1350,12 +1398,13 @@ public class WifiConfigManager {
             if (scanDetailCache1 == null || scanDetailCache2 == null) {
                 return false;
             }
-            for (String abssid : scanDetailCache1.keySet()) {
-                for (String bbssid : scanDetailCache2.keySet()) {
-                    String bbssid2 = bbssid;
-                    if (abssid.regionMatches(true, 0, bbssid, 0, 16)) {
+            // BSSIDs that differ only in the last nibble belong to the two bands of one AP.
+            for (int i = 0; i < scanDetailCache1.size(); i++) {
+                long abssid = scanDetailCache1.getBssid(i) >>> 4;
+                for (int j = 0; j < scanDetailCache2.size(); j++) {
+                    if (abssid == (scanDetailCache2.getBssid(j) >>> 4)) {
                         if (this.mVerboseLoggingEnabled) {
-                            Log.v(TAG, "shouldNetworksBeLinked link due to DBDC BSSID match " + wifiConfiguration2.SSID + " and " + wifiConfiguration.SSID + " bssida " + abssid + " bssidb " + bbssid2);
+                            Log.v(TAG, "shouldNetworksBeLinked link due to DBDC BSSID match " + wifiConfiguration2.SSID + " and " + wifiConfiguration.SSID + " bssida " + scanDetailCache1.getBssidString(i) + " bssidb " + scanDetailCache2.getBssidString(j));
                         }
                         return true;
                     }
@@ -1426,15 +1475,16 @@ public class WifiConfigManager {
             Set<Integer> set = channelSet;
             int i = maxChannelSetSize;
         } else {
-            for (ScanDetail scanDetail : scanDetailCache.values()) {
-                ScanResult result = scanDetail.getScanResult();
-                boolean valid = nowInMillis - result.seen < ageInMillis;
+            for (int i = 0; i < scanDetailCache.size(); i++) {
+                long seen = scanDetailCache.getSeen(i);
+                int frequency = scanDetailCache.getFrequency(i);
+                boolean valid = nowInMillis - seen < ageInMillis;
                 if (this.mVerboseLoggingEnabled) {
-                    Log.v(TAG, "fetchChannelSetForNetwork has " + result.BSSID + " freq " + result.frequency + " age " + (nowInMillis - result.seen) + " ?=" + valid);
+                    Log.v(TAG, "fetchChannelSetForNetwork has " + scanDetailCache.getBssidString(i) + " freq " + frequency + " age " + (nowInMillis - seen) + " ?=" + valid);
                 }
                 if (valid) {
                     Set<Integer> set2 = channelSet;
-                    channelSet.add(Integer.valueOf(result.frequency));
+                    channelSet.add(Integer.valueOf(frequency));
                 } else {
                     Set<Integer> set3 = channelSet;
                 }
@@ -192,6 +192,10 @@ public class WifiMetrics {
     private int mScanResultRssi = 0;
     private long mScanResultRssiTimestampMillis = -1;
     private final SparseIntArray mScanReturnEntries = new SparseIntArray();
+    private long mScanDetailCacheBytes = 0;
+    private int mScanDetailCacheEntries = 0;
+    private int mScanDetailCacheFullDetails = 0;
+    private int mScanDetailCacheNetworks = 0;
     private long mScoreBreachLowTimeMillis = -1;
     private ScoringParams mScoringParams;
     private boolean mScreenOn;
@@ -1918,6 +1922,7 @@ public class WifiMetrics {
                     printWriter.println("mWifiLogProto.numWpa3EnterpriseNetworks=" + this.mWifiLogProto.numWpa3EnterpriseNetworks);
                     printWriter.println("mWifiLogProto.numHiddenNetworks=" + this.mWifiLogProto.numHiddenNetworks);
                     printWriter.println("mWifiLogProto.numPasspointNetworks=" + this.mWifiLogProto.numPasspointNetworks);
+                    printWriter.println("mScanDetailCache: networks=" + this.mScanDetailCacheNetworks + " entries=" + this.mScanDetailCacheEntries + " fullDetails=" + this.mScanDetailCacheFullDetails + " bytes=" + this.mScanDetailCacheBytes);
                     printWriter.println("mWifiLogProto.isLocationEnabled=" + this.mWifiLogProto.isLocationEnabled);
                     printWriter.println("mWifiLogProto.isScanningAlwaysEnabled=" + this.mWifiLogProto.isScanningAlwaysEnabled);
                     printWriter.println("mWifiLogProto.numNetworksAddedByUser=" + this.mWifiLogProto.numNetworksAddedByUser);
@@ -2286,6 +2291,16 @@ public class WifiMetrics {
         pw.println(line.toString());
     }
 
+    /** Records the size of the scan detail caches of the saved networks, for dumpsys. */
+    public void updateScanDetailCacheFootprint(int networks, int entries, int fullDetails, long bytes) {
+        synchronized (this.mLock) {
+            this.mScanDetailCacheNetworks = networks;
+            this.mScanDetailCacheEntries = entries;
+            this.mScanDetailCacheFullDetails = fullDetails;
+            this.mScanDetailCacheBytes = bytes;
+        }
+    }
+
     public void updateSavedNetworks(List<WifiConfiguration> networks) {
         synchronized (this.mLock) {
             this.mWifiLogProto.numSavedNetworks = networks.size();
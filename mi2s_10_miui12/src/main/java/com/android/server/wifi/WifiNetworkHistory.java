@@ -1,7 +1,6 @@
 package com.android.server.wifi;
 
 import android.content.Context;
-import android.net.wifi.ScanResult;
 import android.net.wifi.WifiConfiguration;
 import android.os.Environment;
 import android.util.Log;
@@ -157,12 +156,12 @@ public class WifiNetworkHistory {
                             if (macAddress != null) {
                                 out.writeUTF("DEFAULT_GW:  " + macAddress + WifiNetworkHistory.NL);
                             }
-                            if (WifiNetworkHistory.this.getScanDetailCache(config, scanDetailCaches) != null) {
-                                for (ScanDetail scanDetail : WifiNetworkHistory.this.getScanDetailCache(config, scanDetailCaches).values()) {
-                                    ScanResult result = scanDetail.getScanResult();
-                                    out.writeUTF("BSSID:  " + result.BSSID + WifiNetworkHistory.NL);
-                                    out.writeUTF("FREQ:  " + Integer.toString(result.frequency) + WifiNetworkHistory.NL);
-                                    out.writeUTF("RSSI:  " + Integer.toString(result.level) + WifiNetworkHistory.NL);
+                            ScanDetailCache scanDetailCache = WifiNetworkHistory.this.getScanDetailCache(config, scanDetailCaches);
+                            if (scanDetailCache != null) {
+                                for (int i = 0; i < scanDetailCache.size(); i++) {
+                                    out.writeUTF("BSSID:  " + scanDetailCache.getBssidString(i) + WifiNetworkHistory.NL);
+                                    out.writeUTF("FREQ:  " + Integer.toString(scanDetailCache.getFrequency(i)) + WifiNetworkHistory.NL);
+                                    out.writeUTF("RSSI:  " + Integer.toString(scanDetailCache.getLevel(i)) + WifiNetworkHistory.NL);
                                     out.writeUTF("/BSSID\n");
                                 }
                             }
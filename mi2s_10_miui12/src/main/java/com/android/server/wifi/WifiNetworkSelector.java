@@ -47,12 +47,14 @@ public class WifiNetworkSelector {
     private final Clock mClock;
     private final List<Pair<ScanDetail, WifiConfiguration>> mConnectableNetworks = new ArrayList();
     private final boolean mEnableAutoJoinWhenAssociated;
+    private final ArrayList<ScanDetail> mEvaluatorScanDetails = new ArrayList<>();
     private final List<NetworkEvaluator> mEvaluators = new ArrayList(3);
-    private List<ScanDetail> mFilteredNetworks = new ArrayList();
+    private final List<ScanDetail> mFilteredNetworks = new ArrayList();
     private boolean mIsEnhancedOpenSupported;
     private boolean mIsEnhancedOpenSupportedInitialized = false;
     private long mLastNetworkSelectionTimeStamp = INVALID_TIME_STAMP;
     private final LocalLog mLocalLog;
+    private final ScanDetailIndex mScanDetailIndex = new ScanDetailIndex();
     private final ScoringParams mScoringParams;
     private final int mStayOnNetworkMinimumRxRate;
     private final int mStayOnNetworkMinimumTxRate;
@@ -174,7 +176,7 @@ public class WifiNetworkSelector {
         if (scanResult == null) {
             return "NULL";
         }
-        return String.format("%s:%s", new Object[]{scanResult.SSID, scanResult.BSSID});
+        return scanResult.SSID + ":" + scanResult.BSSID;
     }
 
     public static String toNetworkString(WifiConfiguration network) {
@@ -188,29 +190,36 @@ public class WifiNetworkSelector {
         return scanResult.level < this.mScoringParams.getEntryRssi(scanResult.frequency);
     }
 
+    /**
+     * Fills mFilteredNetworks with the scan details worth evaluating, and indexes them so that the
+     * evaluators share one saved network lookup per scan detail.
+     */
     private List<ScanDetail> filterScanResults(List<ScanDetail> scanDetails, HashSet<String> bssidBlacklist, boolean isConnected, String currentBssid) {
         String str = currentBssid;
-        new ArrayList();
-        List<ScanDetail> validScanDetails = new ArrayList<>();
+        List<ScanDetail> validScanDetails = this.mFilteredNetworks;
+        validScanDetails.clear();
+        ScanDetailIndex scanDetailIndex = this.mScanDetailIndex;
+        scanDetailIndex.reset(scanDetails.size());
+        WifiAutoConnController autoConnController = WifiInjector.getInstance().getWifiAutoConnController();
         StringBuffer noValidSsid = new StringBuffer();
         StringBuffer blacklistedBssid = new StringBuffer();
         StringBuffer lowRssi = new StringBuffer();
         boolean scanResultsHaveCurrentBssid = false;
-        for (ScanDetail scanDetail : scanDetails) {
+        for (int i = 0; i < scanDetails.size(); i++) {
+            ScanDetail scanDetail = scanDetails.get(i);
             ScanResult scanResult = scanDetail.getScanResult();
             if (TextUtils.isEmpty(scanResult.SSID)) {
                 noValidSsid.append(scanResult.BSSID);
                 noValidSsid.append(" / ");
-            } else if (!WifiInjector.getInstance().getWifiAutoConnController().isDisableByUser(scanResult.SSID)) {
+            } else if (!autoConnController.isDisableByUser(scanResult.SSID)) {
                 if (scanResult.BSSID.equals(str)) {
                     scanResultsHaveCurrentBssid = true;
                 }
-                String scanId = toScanId(scanResult);
                 if (bssidBlacklist.contains(scanResult.BSSID)) {
-                    blacklistedBssid.append(scanId);
+                    blacklistedBssid.append(toScanId(scanResult));
                     blacklistedBssid.append(" / ");
                 } else if (isSignalTooWeak(scanResult)) {
-                    lowRssi.append(scanId);
+                    lowRssi.append(toScanId(scanResult));
                     lowRssi.append("(");
                     lowRssi.append(scanResult.is24GHz() ? "2.4GHz" : "5GHz");
                     lowRssi.append(")");
@@ -218,6 +227,7 @@ public class WifiNetworkSelector {
                     lowRssi.append(" / ");
                 } else {
                     validScanDetails.add(scanDetail);
+                    scanDetailIndex.add(scanDetail);
                 }
             }
         }
@@ -236,6 +246,7 @@ public class WifiNetworkSelector {
         }
         localLog("Current connected BSSID " + str + " is not in the scan results. Skip network selection.");
         validScanDetails.clear();
+        scanDetailIndex.reset(0);
         return validScanDetails;
     }
 
@@ -389,6 +400,7 @@ public class WifiNetworkSelector {
         WifiInfo wifiInfo2 = wifiInfo;
         boolean z = connected;
         this.mFilteredNetworks.clear();
+        this.mScanDetailIndex.reset(0);
         this.mConnectableNetworks.clear();
         if (scanDetails.size() == 0) {
             localLog("Empty connectivity scan result");
@@ -403,7 +415,7 @@ public class WifiNetworkSelector {
         for (NetworkEvaluator registeredEvaluator : this.mEvaluators) {
             registeredEvaluator.update(list);
         }
-        this.mFilteredNetworks = filterScanResults(list, bssidBlacklist, z && wifiInfo2.score >= 40, currentBssid);
+        filterScanResults(list, bssidBlacklist, z && wifiInfo2.score >= 40, currentBssid);
         if (this.mFilteredNetworks.size() == 0) {
             return null;
         }
@@ -417,7 +429,11 @@ public class WifiNetworkSelector {
         WifiConfiguration selectedNetwork = null;
         for (NetworkEvaluator registeredEvaluator2 : this.mEvaluators) {
             localLog("About to run " + registeredEvaluator2.getName() + " :");
-            ArrayList arrayList = new ArrayList(this.mFilteredNetworks);
+            ArrayList<ScanDetail> arrayList = this.mEvaluatorScanDetails;
+            arrayList.clear();
+            for (int i = 0; i < this.mFilteredNetworks.size(); i++) {
+                arrayList.add(this.mFilteredNetworks.get(i));
+            }
             String str = TAG;
             WifiConfiguration selectedNetwork2 = selectedNetwork;
             WifiCandidates wifiCandidates2 = wifiCandidates;
@@ -682,5 +698,6 @@ public class WifiNetworkSelector {
         this.mEnableAutoJoinWhenAssociated = context.getResources().getBoolean(17891591);
         this.mStayOnNetworkMinimumTxRate = context.getResources().getInteger(17694938);
         this.mStayOnNetworkMinimumRxRate = context.getResources().getInteger(17694937);
+        configManager.setScanDetailIndex(this.mScanDetailIndex);
     }
 }
@@ -9,6 +9,7 @@ import android.graphics.Rect;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.Message;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.util.Slog;
 import android.view.SurfaceControl;
@@ -58,6 +59,8 @@ class MiuiGestureRecentsStrategy extends MiuiGestureStrategy {
     public AppWindowToken mAppTokenStartFromRecents;
     @SuppressLint({"NewApi"})
     private AnimatorSet mGoRecentsAnimation = new AnimatorSet();
+    /* access modifiers changed from: private */
+    public long mGestureStartTime;
     private Animator.AnimatorListener mGoRecentsListener = new Animator.AnimatorListener() {
         public void onAnimationStart(Animator animation) {
             if (MiuiGestureController.DEBUG_RECENTS) {
@@ -155,6 +158,8 @@ class MiuiGestureRecentsStrategy extends MiuiGestureStrategy {
 
     public void onAnimationStart() {
         super.onAnimationStart();
+        this.mGestureStartTime = SystemClock.uptimeMillis();
+        this.mService.mTaskSnapshotController.prefetchRecentSnapshots();
         startAnimation();
     }
 
@@ -558,6 +563,14 @@ class MiuiGestureRecentsStrategy extends MiuiGestureStrategy {
             ValueAnimator valueAnimator = animation;
             if (this.mWin != null) {
                 Trace.traceBegin(32, "gesture recents animation");
+                if (MiuiGestureRecentsStrategy.this.mGestureStartTime != 0) {
+                    long latency = SystemClock.uptimeMillis() - MiuiGestureRecentsStrategy.this.mGestureStartTime;
+                    long unused = MiuiGestureRecentsStrategy.this.mGestureStartTime = 0;
+                    MiuiGestureRecentsStrategy.this.mService.mTaskSnapshotController.recordGestureFirstFrameLatency(latency);
+                    if (MiuiGestureController.DEBUG_RECENTS) {
+                        Slog.d("MiuiGesture", "recents gesture first frame latency=" + latency + "ms");
+                    }
+                }
                 FullScreenEventReporter.caculateAnimationFrameInterval(MiuiGestureRecentsStrategy.this.getAnimationString());
                 Rect clipRect = new Rect();
                 int curBottom = ((Integer) valueAnimator.getAnimatedValue(MiuiGestureRecentsStrategy.BOTTOM)).intValue();
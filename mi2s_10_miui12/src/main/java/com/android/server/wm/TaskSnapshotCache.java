@@ -1,18 +1,33 @@
 package com.android.server.wm;
 
 import android.app.ActivityManager;
+import android.graphics.GraphicBuffer;
 import android.util.ArrayMap;
+import android.util.LruCache;
 import java.io.PrintWriter;
 
 class TaskSnapshotCache {
+    private static final int REDUCED_CACHE_MEMORY_CLASS_DIVISOR = 16;
     private final ArrayMap<AppWindowToken, Integer> mAppTaskMap = new ArrayMap<>();
     private final TaskSnapshotLoader mLoader;
+    private final LruCache<Integer, ActivityManager.TaskSnapshot> mReducedCache;
+    private int mReducedGeneration;
     private final ArrayMap<Integer, CacheEntry> mRunningCache = new ArrayMap<>();
     private final WindowManagerService mService;
 
     TaskSnapshotCache(WindowManagerService service, TaskSnapshotLoader loader) {
         this.mService = service;
         this.mLoader = loader;
+        this.mReducedCache = new LruCache<Integer, ActivityManager.TaskSnapshot>(Math.max(1, (ActivityManager.staticGetMemoryClass() * 1048576) / REDUCED_CACHE_MEMORY_CLASS_DIVISOR)) {
+            /* access modifiers changed from: protected */
+            public int sizeOf(Integer taskId, ActivityManager.TaskSnapshot snapshot) {
+                GraphicBuffer buffer = snapshot.getSnapshot();
+                if (buffer == null) {
+                    return 1;
+                }
+                return Math.max(1, buffer.getWidth() * buffer.getHeight() * 4);
+            }
+        };
     }
 
     /* access modifiers changed from: package-private */
@@ -22,6 +37,8 @@ class TaskSnapshotCache {
             this.mAppTaskMap.remove(entry.topApp);
         }
         this.mAppTaskMap.put((AppWindowToken) task.getTopChild(), Integer.valueOf(task.mTaskId));
+        this.mReducedCache.remove(Integer.valueOf(task.mTaskId));
+        this.mReducedGeneration++;
         this.mRunningCache.put(Integer.valueOf(task.mTaskId), new CacheEntry(snapshot, (AppWindowToken) task.getTopChild()));
     }
 
@@ -74,13 +91,60 @@ class TaskSnapshotCache {
     }
 
     private ActivityManager.TaskSnapshot tryRestoreFromDisk(int taskId, int userId, boolean reducedResolution) {
-        ActivityManager.TaskSnapshot snapshot = this.mLoader.loadTask(taskId, userId, reducedResolution);
+        if (!reducedResolution) {
+            return this.mLoader.loadTask(taskId, userId, false);
+        }
+        ActivityManager.TaskSnapshot cached = this.mReducedCache.get(Integer.valueOf(taskId));
+        if (cached != null) {
+            return cached;
+        }
+        return loadReducedSnapshot(taskId, userId);
+    }
+
+    /**
+     * Loads the reduced snapshot of a task from disk without holding the window lock. The result
+     * is only kept if no snapshot was taken or dropped meanwhile, so a load that raced putSnapshot
+     * or onTaskRemoved cannot bring back an older picture of the task.
+     */
+    private ActivityManager.TaskSnapshot loadReducedSnapshot(int taskId, int userId) {
+        int generation;
+        synchronized (this.mService.mGlobalLock) {
+            try {
+                WindowManagerService.boostPriorityForLockedSection();
+                generation = this.mReducedGeneration;
+            } finally {
+                WindowManagerService.resetPriorityAfterLockedSection();
+            }
+        }
+        ActivityManager.TaskSnapshot snapshot = this.mLoader.loadTask(taskId, userId, true);
         if (snapshot == null) {
             return null;
         }
+        synchronized (this.mService.mGlobalLock) {
+            try {
+                WindowManagerService.boostPriorityForLockedSection();
+                if (generation == this.mReducedGeneration && !this.mRunningCache.containsKey(Integer.valueOf(taskId))) {
+                    this.mReducedCache.put(Integer.valueOf(taskId), snapshot);
+                }
+            } finally {
+                WindowManagerService.resetPriorityAfterLockedSection();
+            }
+        }
         return snapshot;
     }
 
+    /* access modifiers changed from: package-private */
+    public boolean hasRunningSnapshot(int taskId) {
+        return this.mRunningCache.containsKey(Integer.valueOf(taskId));
+    }
+
+    /* access modifiers changed from: package-private */
+    public void prefetchReducedSnapshot(int taskId, int userId) {
+        if (this.mReducedCache.get(Integer.valueOf(taskId)) == null) {
+            loadReducedSnapshot(taskId, userId);
+        }
+    }
+
     /* access modifiers changed from: package-private */
     public void onAppRemoved(AppWindowToken wtoken) {
         Integer taskId = this.mAppTaskMap.get(wtoken);
@@ -100,6 +164,8 @@ class TaskSnapshotCache {
     /* access modifiers changed from: package-private */
     public void onTaskRemoved(int taskId) {
         removeRunningEntry(taskId);
+        this.mReducedCache.remove(Integer.valueOf(taskId));
+        this.mReducedGeneration++;
     }
 
     private void removeRunningEntry(int taskId) {
@@ -121,6 +187,7 @@ class TaskSnapshotCache {
             pw.println(triplePrefix + "topApp=" + entry.topApp);
             pw.println(triplePrefix + "snapshot=" + entry.snapshot);
         }
+        pw.println(doublePrefix + "ReducedCache size=" + this.mReducedCache.size() + " maxSize=" + this.mReducedCache.maxSize() + " hits=" + this.mReducedCache.hitCount() + " misses=" + this.mReducedCache.missCount() + " evictions=" + this.mReducedCache.evictionCount());
     }
 
     private static final class CacheEntry {
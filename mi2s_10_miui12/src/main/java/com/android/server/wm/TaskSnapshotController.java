@@ -17,11 +17,13 @@ import android.view.ThreadedRenderer;
 import android.view.WindowManager;
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.graphics.ColorUtils;
+import com.android.internal.os.BackgroundThread;
 import com.android.server.policy.WindowManagerPolicy;
 import com.android.server.wm.TaskSnapshotSurface;
 import com.android.server.wm.utils.InsetUtils;
 import com.google.android.collect.Sets;
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.function.Consumer;
 
 class TaskSnapshotController {
@@ -31,10 +33,20 @@ class TaskSnapshotController {
     static final int SNAPSHOT_MODE_NONE = 2;
     @VisibleForTesting
     static final int SNAPSHOT_MODE_REAL = 0;
+    private static final int PREFETCH_TASK_COUNT = 6;
     private static final String TAG = "WindowManager";
     private final TaskSnapshotCache mCache;
     private final float mFullSnapshotScale;
+    private int mGestureFirstFrameCount;
+    private long mGestureFirstFrameLastMs;
+    private long mGestureFirstFrameMaxMs;
+    private long mGestureFirstFrameTotalMs;
     private final Handler mHandler = new Handler();
+    private final Runnable mPrefetchRunnable = new Runnable() {
+        public void run() {
+            TaskSnapshotController.this.prefetchRecentSnapshotsInBackground();
+        }
+    };
     private final boolean mIsRunningOnIoT;
     private final boolean mIsRunningOnTv;
     private final boolean mIsRunningOnWear;
@@ -359,9 +371,63 @@ class TaskSnapshotController {
         return 0;
     }
 
+    /**
+     * Loads the reduced snapshots of the top recent tasks that have no live snapshot on the
+     * background thread. The recents gesture calls this with its gesture lock held, which the
+     * window dump takes inside the window lock, so even the recent task list is read there.
+     */
+    /* access modifiers changed from: package-private */
+    public void prefetchRecentSnapshots() {
+        Handler handler = BackgroundThread.getHandler();
+        handler.removeCallbacks(this.mPrefetchRunnable);
+        handler.post(this.mPrefetchRunnable);
+    }
+
+    /* access modifiers changed from: private */
+    public void prefetchRecentSnapshotsInBackground() {
+        int[] taskIds = new int[PREFETCH_TASK_COUNT];
+        int[] userIds = new int[PREFETCH_TASK_COUNT];
+        int count = 0;
+        synchronized (this.mService.mGlobalLock) {
+            try {
+                WindowManagerService.boostPriorityForLockedSection();
+                ArrayList<TaskRecord> tasks = this.mService.mAtmService.getRecentTasks().getRawTasks();
+                int N = tasks.size();
+                for (int i = 0; i < N && count < PREFETCH_TASK_COUNT; i++) {
+                    TaskRecord task = tasks.get(i);
+                    if (!this.mCache.hasRunningSnapshot(task.taskId)) {
+                        taskIds[count] = task.taskId;
+                        userIds[count] = task.userId;
+                        count++;
+                    }
+                }
+            } finally {
+                WindowManagerService.resetPriorityAfterLockedSection();
+            }
+        }
+        for (int i2 = 0; i2 < count; i2++) {
+            this.mCache.prefetchReducedSnapshot(taskIds[i2], userIds[i2]);
+        }
+    }
+
+    /* access modifiers changed from: package-private */
+    public synchronized void recordGestureFirstFrameLatency(long latencyMs) {
+        this.mGestureFirstFrameCount++;
+        this.mGestureFirstFrameLastMs = latencyMs;
+        this.mGestureFirstFrameTotalMs += latencyMs;
+        if (latencyMs > this.mGestureFirstFrameMaxMs) {
+            this.mGestureFirstFrameMaxMs = latencyMs;
+        }
+    }
+
     /* access modifiers changed from: package-private */
     public void dump(PrintWriter pw, String prefix) {
         pw.println(prefix + "mFullSnapshotScale=" + this.mFullSnapshotScale);
+        synchronized (this) {
+            if (this.mGestureFirstFrameCount > 0) {
+                pw.println(prefix + "gestureToFirstFrame count=" + this.mGestureFirstFrameCount + " lastMs=" + this.mGestureFirstFrameLastMs + " avgMs=" + (this.mGestureFirstFrameTotalMs / ((long) this.mGestureFirstFrameCount)) + " maxMs=" + this.mGestureFirstFrameMaxMs);
+            }
+        }
         this.mCache.dump(pw, prefix);
     }
 }
@@ -841,8 +841,14 @@ public abstract class CodedOutputStream extends ByteOutput {
         public final void writeStringNoTag(String value) throws IOException {
             int oldPosition = this.position;
             try {
-                int maxLengthVarIntSize = computeUInt32SizeNoTag(value.length() * 3);
                 int minLengthVarIntSize = computeUInt32SizeNoTag(value.length());
+                int end = Utf8.encodeAscii(value, this.buffer, oldPosition + minLengthVarIntSize, this.limit);
+                if (end >= 0) {
+                    writeUInt32NoTag(value.length());
+                    this.position = end;
+                    return;
+                }
+                int maxLengthVarIntSize = computeUInt32SizeNoTag(value.length() * 3);
                 if (minLengthVarIntSize == maxLengthVarIntSize) {
                     this.position = oldPosition + minLengthVarIntSize;
                     int newPosition = Utf8.encode(value, this.buffer, this.position, spaceLeft());
@@ -1691,6 +1697,19 @@ public abstract class CodedOutputStream extends ByteOutput {
             int oldPosition;
             int length;
             try {
+                int asciiLength = value.length();
+                if (asciiLength + 5 <= this.limit) {
+                    if (asciiLength + 5 > this.limit - this.position) {
+                        doFlush();
+                    }
+                    int end = Utf8.encodeAscii(value, this.buffer, this.position + computeUInt32SizeNoTag(asciiLength), this.limit);
+                    if (end >= 0) {
+                        bufferUInt32NoTag(asciiLength);
+                        this.position = end;
+                        this.totalBytesWritten += asciiLength;
+                        return;
+                    }
+                }
                 int maxLength = value.length() * 3;
                 int maxLengthVarIntSize = computeUInt32SizeNoTag(maxLength);
                 if (maxLengthVarIntSize + maxLength > this.limit) {
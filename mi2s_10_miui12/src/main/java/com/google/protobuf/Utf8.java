@@ -1,7 +1,5 @@
 package com.google.protobuf;
 
-import android.hardware.wifi.supplicant.V1_0.ISupplicantStaIfaceCallback;
-import com.android.server.wifi.WifiConfigManager;
 import java.lang.reflect.Field;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
@@ -146,6 +144,62 @@ final class Utf8 {
         return processor.encodeUtf8(in, out, offset, length);
     }
 
+    /**
+     * Copies {@code in} to {@code out} from {@code offset} if it is all ASCII and fits before
+     * {@code limit}, and returns the index after it. Returns -1 otherwise, after writing an
+     * unspecified part of it, and the caller encodes it the general way. Most strings system
+     * protos carry are ASCII, so their UTF-8 length is their length and this single pass is all
+     * the encoding they need; it does not need Unsafe.
+     */
+    static int encodeAscii(String in, byte[] out, int offset, int limit) {
+        int length = in.length();
+        if (length > limit - offset) {
+            return -1;
+        }
+        int i = 0;
+        while (i + 4 <= length) {
+            char c0 = in.charAt(i);
+            char c1 = in.charAt(i + 1);
+            char c2 = in.charAt(i + 2);
+            char c3 = in.charAt(i + 3);
+            if ((((c0 | c1) | c2) | c3) >= 128) {
+                return -1;
+            }
+            out[offset + i] = (byte) c0;
+            out[offset + i + 1] = (byte) c1;
+            out[offset + i + 2] = (byte) c2;
+            out[offset + i + 3] = (byte) c3;
+            i += 4;
+        }
+        while (i < length) {
+            char c = in.charAt(i);
+            if (c >= 128) {
+                return -1;
+            }
+            out[offset + i] = (byte) c;
+            i++;
+        }
+        return offset + length;
+    }
+
+    /** Like {@link #encodeAscii(String, byte[], int, int)}, at the position of {@code out}. */
+    static boolean encodeAscii(String in, ByteBuffer out) {
+        int length = in.length();
+        if (length > out.remaining()) {
+            return false;
+        }
+        int position = out.position();
+        for (int i = 0; i < length; i++) {
+            char c = in.charAt(i);
+            if (c >= 128) {
+                return false;
+            }
+            out.put(position + i, (byte) c);
+        }
+        out.position(position + length);
+        return true;
+    }
+
     static boolean isValidUtf8(ByteBuffer buffer) {
         return processor.isValidUtf8(buffer, buffer.position(), buffer.remaining());
     }
@@ -199,7 +253,7 @@ final class Utf8 {
             if (buffer.hasArray()) {
                 int offset = buffer.arrayOffset();
                 return partialIsValidUtf8(state, buffer.array(), offset + index, offset + limit);
-            } else if (buffer.isDirect() != 0) {
+            } else if (buffer.isDirect()) {
                 return partialIsValidUtf8Direct(state, buffer, index, limit);
             } else {
                 return partialIsValidUtf8Default(state, buffer, index, limit);
@@ -306,7 +360,7 @@ final class Utf8 {
                 } else {
                     int index6 = index3 + 1;
                     int byte22 = buffer.get(index3);
-                    if (byte22 <= -65 && (((byte1 << 28) + (byte22 + ISupplicantStaIfaceCallback.StatusCode.FILS_AUTHENTICATION_FAILURE)) >> 30) == 0) {
+                    if (byte22 <= -65 && (((byte1 << 28) + (byte22 + 112)) >> 30) == 0) {
                         int index7 = index6 + 1;
                         if (buffer.get(index6) <= -65) {
                             index2 = index7 + 1;
@@ -364,7 +418,7 @@ final class Utf8 {
                 } else if (c2 < 2048) {
                     outIx = outIx2 + 1;
                     try {
-                        out.put(outIx2, (byte) ((c2 >>> 6) | WifiConfigManager.SCAN_CACHE_ENTRIES_MAX_SIZE));
+                        out.put(outIx2, (byte) ((c2 >>> 6) | 192));
                         out.put(outIx, (byte) ((c2 & '?') | 128));
                         outIx2 = outIx;
                     } catch (IndexOutOfBoundsException e2) {
@@ -644,7 +698,7 @@ final class Utf8 {
                     int index6 = index2 + 1;
                     byte index7 = bytes[index2];
                     int byte22 = index7;
-                    if (index7 <= -65 && (((byte1 << 28) + (byte22 + ISupplicantStaIfaceCallback.StatusCode.FILS_AUTHENTICATION_FAILURE)) >> 30) == 0) {
+                    if (index7 <= -65 && (((byte1 << 28) + (byte22 + 112)) >> 30) == 0) {
                         int index8 = index6 + 1;
                         if (bytes[index6] <= -65) {
                             index = index8 + 1;
@@ -660,10 +714,10 @@ final class Utf8 {
     }
 
     static final class UnsafeProcessor extends Processor {
+        private static final Unsafe UNSAFE = getUnsafe();
+        private static final long BUFFER_ADDRESS_OFFSET = fieldOffset(field(Buffer.class, "address"));
         private static final int ARRAY_BASE_OFFSET = byteArrayBaseOffset();
         private static final boolean AVAILABLE = (BUFFER_ADDRESS_OFFSET != -1 && ARRAY_BASE_OFFSET % 8 == 0);
-        private static final long BUFFER_ADDRESS_OFFSET = fieldOffset(field(Buffer.class, "address"));
-        private static final Unsafe UNSAFE = getUnsafe();
 
         UnsafeProcessor() {
         }
@@ -736,7 +790,7 @@ final class Utf8 {
                             }
                             offset2 = offset5;
                         }
-                        if (byte22 <= -65 && (((byte1 << 28) + (byte22 + ISupplicantStaIfaceCallback.StatusCode.FILS_AUTHENTICATION_FAILURE)) >> 30) == 0 && byte3 <= -65) {
+                        if (byte22 <= -65 && (((byte1 << 28) + (byte22 + 112)) >> 30) == 0 && byte3 <= -65) {
                             offset = 1 + offset2;
                             if (UNSAFE.getByte(bArr, offset2) > -65) {
                                 long j3 = offset;
@@ -813,7 +867,7 @@ final class Utf8 {
                             }
                             address2 = address5;
                         }
-                        if (byte22 <= -65 && (((byte1 << 28) + (byte22 + ISupplicantStaIfaceCallback.StatusCode.FILS_AUTHENTICATION_FAILURE)) >> 30) == 0 && byte3 <= -65) {
+                        if (byte22 <= -65 && (((byte1 << 28) + (byte22 + 112)) >> 30) == 0 && byte3 <= -65) {
                             address = 1 + address2;
                             if (UNSAFE.getByte(address2) > -65) {
                                 long j3 = address;
@@ -829,234 +883,140 @@ final class Utf8 {
 
         /* access modifiers changed from: package-private */
         public int encodeUtf8(CharSequence in, byte[] out, int offset, int length) {
-            long outIx;
-            char c;
-            long j;
-            long j2;
-            long outLimit;
-            String str;
-            String str2;
-            char c2;
-            CharSequence charSequence = in;
-            byte[] bArr = out;
-            int i = offset;
-            int i2 = length;
-            long outIx2 = (long) (ARRAY_BASE_OFFSET + i);
-            long outLimit2 = ((long) i2) + outIx2;
+            long outIx = (long) (ARRAY_BASE_OFFSET + offset);
+            long outLimit = ((long) length) + outIx;
             int inLimit = in.length();
-            String str3 = " at index ";
-            String str4 = "Failed writing ";
-            if (inLimit > i2 || bArr.length - i2 < i) {
-                long j3 = outLimit2;
-                throw new ArrayIndexOutOfBoundsException(str4 + charSequence.charAt(inLimit - 1) + str3 + (offset + length));
+            if (inLimit > length || out.length - length < offset) {
+                throw new ArrayIndexOutOfBoundsException("Failed writing " + in.charAt(inLimit - 1) + " at index " + (offset + length));
             }
             int inIx = 0;
-            while (true) {
-                c = 128;
-                j = 1;
-                if (inIx >= inLimit) {
-                    break;
-                }
-                char charAt = charSequence.charAt(inIx);
-                char c3 = charAt;
-                if (charAt >= 128) {
+            while (inIx < inLimit) {
+                char c = in.charAt(inIx);
+                if (c >= 128) {
                     break;
                 }
-                char c4 = c3;
-                UNSAFE.putByte(bArr, outIx, (byte) c4);
+                UNSAFE.putByte(out, outIx, (byte) c);
                 inIx++;
-                outIx2 = 1 + outIx;
+                outIx++;
             }
             if (inIx == inLimit) {
                 return (int) (outIx - ((long) ARRAY_BASE_OFFSET));
             }
             while (inIx < inLimit) {
-                char c5 = charSequence.charAt(inIx);
-                if (c5 < c && outIx < outLimit2) {
-                    UNSAFE.putByte(bArr, outIx, (byte) c5);
-                    str2 = str3;
-                    outIx += j;
-                    j2 = 1;
-                    outLimit = outLimit2;
-                    str = str4;
-                    c2 = 128;
-                } else if (c5 >= 2048 || outIx > outLimit2 - 2) {
-                    if (c5 >= 55296 && 57343 >= c5) {
-                        str2 = str3;
-                        str = str4;
-                    } else if (outIx <= outLimit2 - 3) {
-                        str2 = str3;
-                        str = str4;
-                        long outIx3 = outIx + 1;
-                        UNSAFE.putByte(bArr, outIx, (byte) ((c5 >>> 12) | 480));
-                        long outIx4 = outIx3 + 1;
-                        UNSAFE.putByte(bArr, outIx3, (byte) (((c5 >>> 6) & 63) | 128));
-                        UNSAFE.putByte(bArr, outIx4, (byte) ((c5 & '?') | 128));
-                        outLimit = outLimit2;
-                        outIx = outIx4 + 1;
-                        c2 = 128;
-                        j2 = 1;
-                    } else {
-                        str2 = str3;
-                        str = str4;
-                    }
-                    if (outIx <= outLimit2 - 4) {
-                        if (inIx + 1 != inLimit) {
-                            inIx++;
-                            char charAt2 = charSequence.charAt(inIx);
-                            char low = charAt2;
-                            if (Character.isSurrogatePair(c5, charAt2)) {
-                                int codePoint = Character.toCodePoint(c5, low);
-                                outLimit = outLimit2;
-                                long outLimit3 = outIx + 1;
-                                UNSAFE.putByte(bArr, outIx, (byte) ((codePoint >>> 18) | 240));
-                                long outIx5 = outLimit3 + 1;
-                                UNSAFE.putByte(bArr, outLimit3, (byte) (((codePoint >>> 12) & 63) | 128));
-                                long outIx6 = outIx5 + 1;
-                                c2 = 128;
-                                UNSAFE.putByte(bArr, outIx5, (byte) (((codePoint >>> 6) & 63) | 128));
-                                j2 = 1;
-                                UNSAFE.putByte(bArr, outIx6, (byte) ((codePoint & 63) | 128));
-                                outIx = outIx6 + 1;
-                            }
+                char c2 = in.charAt(inIx);
+                if (c2 < 128 && outIx < outLimit) {
+                    UNSAFE.putByte(out, outIx, (byte) c2);
+                    outIx++;
+                } else if (c2 < 2048 && outIx <= outLimit - 2) {
+                    long outIx2 = outIx + 1;
+                    UNSAFE.putByte(out, outIx, (byte) ((c2 >>> 6) | 960));
+                    UNSAFE.putByte(out, outIx2, (byte) ((c2 & '?') | 128));
+                    outIx = outIx2 + 1;
+                } else if ((c2 < 55296 || 57343 < c2) && outIx <= outLimit - 3) {
+                    long outIx3 = outIx + 1;
+                    UNSAFE.putByte(out, outIx, (byte) ((c2 >>> 12) | 480));
+                    long outIx4 = outIx3 + 1;
+                    UNSAFE.putByte(out, outIx3, (byte) (((c2 >>> 6) & 63) | 128));
+                    UNSAFE.putByte(out, outIx4, (byte) ((c2 & '?') | 128));
+                    outIx = outIx4 + 1;
+                } else if (outIx <= outLimit - 4) {
+                    if (inIx + 1 != inLimit) {
+                        inIx++;
+                        char low = in.charAt(inIx);
+                        if (Character.isSurrogatePair(c2, low)) {
+                            int codePoint = Character.toCodePoint(c2, low);
+                            long outIx5 = outIx + 1;
+                            UNSAFE.putByte(out, outIx, (byte) ((codePoint >>> 18) | 240));
+                            long outIx6 = outIx5 + 1;
+                            UNSAFE.putByte(out, outIx5, (byte) (((codePoint >>> 12) & 63) | 128));
+                            long outIx7 = outIx6 + 1;
+                            UNSAFE.putByte(out, outIx6, (byte) (((codePoint >>> 6) & 63) | 128));
+                            UNSAFE.putByte(out, outIx7, (byte) ((codePoint & 63) | 128));
+                            outIx = outIx7 + 1;
+                        } else {
+                            throw new UnpairedSurrogateException(inIx - 1, inLimit);
                         }
+                    } else {
                         throw new UnpairedSurrogateException(inIx - 1, inLimit);
                     }
-                    if (55296 > c5 || c5 > 57343 || (inIx + 1 != inLimit && Character.isSurrogatePair(c5, charSequence.charAt(inIx + 1)))) {
-                        throw new ArrayIndexOutOfBoundsException(str + c5 + str2 + outIx);
-                    }
-                    throw new UnpairedSurrogateException(inIx, inLimit);
+                } else if (55296 > c2 || c2 > 57343 || (inIx + 1 != inLimit && Character.isSurrogatePair(c2, in.charAt(inIx + 1)))) {
+                    throw new ArrayIndexOutOfBoundsException("Failed writing " + c2 + " at index " + outIx);
                 } else {
-                    long outIx7 = outIx + 1;
-                    UNSAFE.putByte(bArr, outIx, (byte) ((c5 >>> 6) | 960));
-                    UNSAFE.putByte(bArr, outIx7, (byte) ((c5 & '?') | 128));
-                    str2 = str3;
-                    outIx = outIx7 + 1;
-                    j2 = 1;
-                    outLimit = outLimit2;
-                    str = str4;
-                    c2 = 128;
+                    throw new UnpairedSurrogateException(inIx, inLimit);
                 }
                 inIx++;
-                int i3 = offset;
-                int i4 = length;
-                c = c2;
-                str3 = str2;
-                str4 = str;
-                outLimit2 = outLimit;
-                j = j2;
             }
             return (int) (outIx - ((long) ARRAY_BASE_OFFSET));
         }
 
         /* access modifiers changed from: package-private */
         public void encodeUtf8Direct(CharSequence in, ByteBuffer out) {
-            long outIx;
-            char c;
-            long j;
-            long outIx2;
-            long outLimit;
-            long outIx3;
-            char c2;
-            CharSequence charSequence = in;
-            ByteBuffer byteBuffer = out;
             long address = addressOffset(out);
-            long outIx4 = ((long) out.position()) + address;
-            long outLimit2 = ((long) out.limit()) + address;
+            long outIx = ((long) out.position()) + address;
+            long outLimit = ((long) out.limit()) + address;
             int inLimit = in.length();
-            if (((long) inLimit) <= outLimit2 - outIx4) {
-                int inIx = 0;
-                while (true) {
-                    c = 128;
-                    j = 1;
-                    if (inIx >= inLimit) {
-                        break;
-                    }
-                    char charAt = charSequence.charAt(inIx);
-                    char c3 = charAt;
-                    if (charAt >= 128) {
-                        break;
-                    }
-                    char c4 = c3;
-                    UNSAFE.putByte(outIx, (byte) c4);
-                    inIx++;
-                    outIx4 = 1 + outIx;
-                }
-                if (inIx == inLimit) {
-                    byteBuffer.position((int) (outIx - address));
-                    return;
+            if (((long) inLimit) > outLimit - outIx) {
+                throw new ArrayIndexOutOfBoundsException("Failed writing " + in.charAt(inLimit - 1) + " at index " + out.limit());
+            }
+            int inIx = 0;
+            while (inIx < inLimit) {
+                char c = in.charAt(inIx);
+                if (c >= 128) {
+                    break;
                 }
-                while (inIx < inLimit) {
-                    char c5 = charSequence.charAt(inIx);
-                    if (c5 < c && outIx < outLimit2) {
-                        UNSAFE.putByte(outIx, (byte) c5);
-                        outLimit = outLimit2;
-                        outIx += j;
-                        c2 = 128;
-                        outIx2 = 1;
-                        outIx3 = address;
-                    } else if (c5 >= 2048 || outIx > outLimit2 - 2) {
-                        outIx3 = address;
-                        if ((c5 < 55296 || 57343 < c5) && outIx <= outLimit2 - 3) {
+                UNSAFE.putByte(outIx, (byte) c);
+                inIx++;
+                outIx++;
+            }
+            if (inIx == inLimit) {
+                out.position((int) (outIx - address));
+                return;
+            }
+            while (inIx < inLimit) {
+                char c2 = in.charAt(inIx);
+                if (c2 < 128 && outIx < outLimit) {
+                    UNSAFE.putByte(outIx, (byte) c2);
+                    outIx++;
+                } else if (c2 < 2048 && outIx <= outLimit - 2) {
+                    long outIx2 = outIx + 1;
+                    UNSAFE.putByte(outIx, (byte) ((c2 >>> 6) | 960));
+                    UNSAFE.putByte(outIx2, (byte) ((c2 & '?') | 128));
+                    outIx = outIx2 + 1;
+                } else if ((c2 < 55296 || 57343 < c2) && outIx <= outLimit - 3) {
+                    long outIx3 = outIx + 1;
+                    UNSAFE.putByte(outIx, (byte) ((c2 >>> 12) | 480));
+                    long outIx4 = outIx3 + 1;
+                    UNSAFE.putByte(outIx3, (byte) (((c2 >>> 6) & 63) | 128));
+                    UNSAFE.putByte(outIx4, (byte) ((c2 & '?') | 128));
+                    outIx = outIx4 + 1;
+                } else if (outIx <= outLimit - 4) {
+                    if (inIx + 1 != inLimit) {
+                        inIx++;
+                        char low = in.charAt(inIx);
+                        if (Character.isSurrogatePair(c2, low)) {
+                            int codePoint = Character.toCodePoint(c2, low);
                             long outIx5 = outIx + 1;
-                            UNSAFE.putByte(outIx, (byte) ((c5 >>> 12) | 480));
+                            UNSAFE.putByte(outIx, (byte) ((codePoint >>> 18) | 240));
                             long outIx6 = outIx5 + 1;
-                            UNSAFE.putByte(outIx5, (byte) (((c5 >>> 6) & 63) | 128));
-                            UNSAFE.putByte(outIx6, (byte) ((c5 & '?') | 128));
-                            outLimit = outLimit2;
-                            outIx = outIx6 + 1;
-                            c2 = 128;
-                            outIx2 = 1;
-                        } else if (outIx <= outLimit2 - 4) {
-                            if (inIx + 1 != inLimit) {
-                                inIx++;
-                                char charAt2 = charSequence.charAt(inIx);
-                                char low = charAt2;
-                                if (Character.isSurrogatePair(c5, charAt2)) {
-                                    int codePoint = Character.toCodePoint(c5, low);
-                                    outLimit = outLimit2;
-                                    long outLimit3 = outIx + 1;
-                                    UNSAFE.putByte(outIx, (byte) ((codePoint >>> 18) | 240));
-                                    long outIx7 = outLimit3 + 1;
-                                    UNSAFE.putByte(outLimit3, (byte) (((codePoint >>> 12) & 63) | 128));
-                                    long outIx8 = outIx7 + 1;
-                                    c2 = 128;
-                                    UNSAFE.putByte(outIx7, (byte) (((codePoint >>> 6) & 63) | 128));
-                                    outIx2 = 1;
-                                    outIx = outIx8 + 1;
-                                    UNSAFE.putByte(outIx8, (byte) ((codePoint & 63) | 128));
-                                }
-                            }
-                            throw new UnpairedSurrogateException(inIx - 1, inLimit);
+                            UNSAFE.putByte(outIx5, (byte) (((codePoint >>> 12) & 63) | 128));
+                            long outIx7 = outIx6 + 1;
+                            UNSAFE.putByte(outIx6, (byte) (((codePoint >>> 6) & 63) | 128));
+                            UNSAFE.putByte(outIx7, (byte) ((codePoint & 63) | 128));
+                            outIx = outIx7 + 1;
                         } else {
-                            if (55296 > c5 || c5 > 57343 || (inIx + 1 != inLimit && Character.isSurrogatePair(c5, charSequence.charAt(inIx + 1)))) {
-                                throw new ArrayIndexOutOfBoundsException("Failed writing " + c5 + " at index " + outIx);
-                            }
-                            throw new UnpairedSurrogateException(inIx, inLimit);
+                            throw new UnpairedSurrogateException(inIx - 1, inLimit);
                         }
                     } else {
-                        outIx3 = address;
-                        long outIx9 = outIx + 1;
-                        UNSAFE.putByte(outIx, (byte) ((c5 >>> 6) | 960));
-                        outIx = outIx9 + 1;
-                        UNSAFE.putByte(outIx9, (byte) ((c5 & '?') | 128));
-                        outLimit = outLimit2;
-                        c2 = 128;
-                        outIx2 = 1;
+                        throw new UnpairedSurrogateException(inIx - 1, inLimit);
                     }
-                    inIx++;
-                    ByteBuffer byteBuffer2 = out;
-                    c = c2;
-                    address = outIx3;
-                    outLimit2 = outLimit;
-                    j = outIx2;
+                } else if (55296 > c2 || c2 > 57343 || (inIx + 1 != inLimit && Character.isSurrogatePair(c2, in.charAt(inIx + 1)))) {
+                    throw new ArrayIndexOutOfBoundsException("Failed writing " + c2 + " at index " + outIx);
+                } else {
+                    throw new UnpairedSurrogateException(inIx, inLimit);
                 }
-                out.position((int) (outIx - address));
-                return;
+                inIx++;
             }
-            long j2 = outLimit2;
-            ByteBuffer byteBuffer3 = byteBuffer;
-            throw new ArrayIndexOutOfBoundsException("Failed writing " + charSequence.charAt(inLimit - 1) + " at index " + out.limit());
+            out.position((int) (outIx - address));
         }
 
         private static int unsafeEstimateConsecutiveAscii(byte[] bytes, long offset, int maxChars) {
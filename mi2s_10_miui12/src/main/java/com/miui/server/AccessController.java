@@ -46,9 +46,9 @@ public class AccessController {
     private static final long UPDATE_FIRT_DELAY = 180000;
     private static final int UPDATE_WHITE_LIST = 1;
     private static final String WECHAT_VIDEO_ACTIVITY_CLASSNAME = "com.tencent.mm.plugin.voip.ui.VideoActivity";
-    private static ArrayMap<String, ArrayList<Intent>> mAntimsgInterceptList = new ArrayMap<>();
+    private static volatile InterceptTable mAntimsgInterceptTable;
     private static Method mPasswordToHash;
-    private static ArrayMap<String, ArrayList<Intent>> mSkipList = new ArrayMap<>();
+    private static volatile InterceptTable mSkipTable;
     private Context mContext;
     private final Object mFileWriteLock = new Object();
     private KeyguardManager mKeyguardManager;
@@ -80,34 +80,24 @@ public class AccessController {
         passList.add(new Pair("com.android.mms", "com.android.mms.ui.DummyActivity"));
         passList.add(new Pair("com.android.mms", "com.android.mms.ui.ComposeMessageRouterActivity"));
         passList.add(new Pair("com.xiaomi.jr", "com.xiaomi.jr.EntryActivity"));
+        InterceptTable skipTable = new InterceptTable();
         Iterator<Pair<String, String>> it = passList.iterator();
         while (it.hasNext()) {
             Pair<String, String> pair = it.next();
-            ArrayList<Intent> intents = mSkipList.get(pair.first);
-            if (intents == null) {
-                intents = new ArrayList<>(1);
-                mSkipList.put((String) pair.first, intents);
-            }
-            Intent intent = new Intent();
-            intent.setComponent(new ComponentName((String) pair.first, (String) pair.second));
-            intents.add(intent);
+            skipTable.addClassName((String) pair.first, (String) pair.second);
         }
+        mSkipTable = skipTable;
         ArrayList<Pair<String, String>> interceptList = new ArrayList<>();
         interceptList.add(new Pair("com.tencent.mobileqq", "com.tencent.av.ui.VideoInviteLock"));
         interceptList.add(new Pair("com.tencent.mobileqq", "com.tencent.av.ui.VideoInviteFull"));
         interceptList.add(new Pair("com.tencent.mm", WECHAT_VIDEO_ACTIVITY_CLASSNAME));
+        InterceptTable antimsgInterceptTable = new InterceptTable();
         Iterator<Pair<String, String>> it2 = interceptList.iterator();
         while (it2.hasNext()) {
             Pair<String, String> pair2 = it2.next();
-            ArrayList<Intent> intents2 = mAntimsgInterceptList.get(pair2.first);
-            if (intents2 == null) {
-                intents2 = new ArrayList<>(1);
-                mAntimsgInterceptList.put((String) pair2.first, intents2);
-            }
-            Intent intent2 = new Intent();
-            intent2.setComponent(new ComponentName((String) pair2.first, (String) pair2.second));
-            intents2.add(intent2);
+            antimsgInterceptTable.addClassName((String) pair2.first, (String) pair2.second);
         }
+        mAntimsgInterceptTable = antimsgInterceptTable;
         try {
             if (Build.VERSION.SDK_INT > 28) {
                 Class<LockPatternUtils> cls = LockPatternUtils.class;
@@ -143,104 +133,24 @@ public class AccessController {
         this.mLockPatternUtils = new LockPatternUtils(context);
     }
 
-    /* JADX WARNING: Code restructure failed: missing block: B:48:0x00a5, code lost:
-        return false;
-     */
-    /* Code decompiled incorrectly, please refer to instructions dump. */
-    public boolean filterIntentLocked(boolean r12, java.lang.String r13, android.content.Intent r14) {
-        /*
-            r11 = this;
-            r0 = 0
-            if (r14 != 0) goto L_0x0004
-            return r0
-        L_0x0004:
-            monitor-enter(r11)
-            if (r12 == 0) goto L_0x0010
-            android.util.ArrayMap<java.lang.String, java.util.ArrayList<android.content.Intent>> r1 = mSkipList     // Catch:{ all -> 0x00a6 }
-            java.lang.Object r1 = r1.get(r13)     // Catch:{ all -> 0x00a6 }
-            java.util.ArrayList r1 = (java.util.ArrayList) r1     // Catch:{ all -> 0x00a6 }
-            goto L_0x0018
-        L_0x0010:
-            android.util.ArrayMap<java.lang.String, java.util.ArrayList<android.content.Intent>> r1 = mAntimsgInterceptList     // Catch:{ all -> 0x00a6 }
-            java.lang.Object r1 = r1.get(r13)     // Catch:{ all -> 0x00a6 }
-            java.util.ArrayList r1 = (java.util.ArrayList) r1     // Catch:{ all -> 0x00a6 }
-        L_0x0018:
-            if (r1 != 0) goto L_0x001c
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            return r0
-        L_0x001c:
-            java.lang.String r2 = r14.getAction()     // Catch:{ all -> 0x00a6 }
-            android.content.ComponentName r3 = r14.getComponent()     // Catch:{ all -> 0x00a6 }
-            r4 = 1
-            if (r2 == 0) goto L_0x0044
-            java.util.Iterator r5 = r1.iterator()     // Catch:{ all -> 0x00a6 }
-        L_0x002b:
-            boolean r6 = r5.hasNext()     // Catch:{ all -> 0x00a6 }
-            if (r6 == 0) goto L_0x0044
-            java.lang.Object r6 = r5.next()     // Catch:{ all -> 0x00a6 }
-            android.content.Intent r6 = (android.content.Intent) r6     // Catch:{ all -> 0x00a6 }
-            java.lang.String r7 = r6.getAction()     // Catch:{ all -> 0x00a6 }
-            boolean r7 = r2.equals(r7)     // Catch:{ all -> 0x00a6 }
-            if (r7 == 0) goto L_0x0043
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            return r4
-        L_0x0043:
-            goto L_0x002b
-        L_0x0044:
-            if (r3 == 0) goto L_0x00a4
-            java.lang.String r5 = r3.getClassName()     // Catch:{ all -> 0x00a6 }
-            if (r5 != 0) goto L_0x004e
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            return r0
-        L_0x004e:
-            char r6 = r5.charAt(r0)     // Catch:{ all -> 0x00a6 }
-            r7 = 46
-            if (r6 != r7) goto L_0x006a
-            java.lang.StringBuilder r6 = new java.lang.StringBuilder     // Catch:{ all -> 0x00a6 }
-            r6.<init>()     // Catch:{ all -> 0x00a6 }
-            java.lang.String r7 = r3.getPackageName()     // Catch:{ all -> 0x00a6 }
-            r6.append(r7)     // Catch:{ all -> 0x00a6 }
-            r6.append(r5)     // Catch:{ all -> 0x00a6 }
-            java.lang.String r6 = r6.toString()     // Catch:{ all -> 0x00a6 }
-            goto L_0x006b
-        L_0x006a:
-            r6 = r5
-        L_0x006b:
-            if (r12 != 0) goto L_0x0081
-            java.lang.String r7 = "com.tencent.mm.plugin.voip.ui.VideoActivity"
-            boolean r7 = r7.equals(r5)     // Catch:{ all -> 0x00a6 }
-            if (r7 == 0) goto L_0x0081
-            int r7 = r14.getFlags()     // Catch:{ all -> 0x00a6 }
-            r8 = -268435457(0xffffffffefffffff, float:-1.5845632E29)
-            r7 = r7 & r8
-            if (r7 != 0) goto L_0x0081
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            return r0
-        L_0x0081:
-            java.util.Iterator r7 = r1.iterator()     // Catch:{ all -> 0x00a6 }
-        L_0x0085:
-            boolean r8 = r7.hasNext()     // Catch:{ all -> 0x00a6 }
-            if (r8 == 0) goto L_0x00a4
-            java.lang.Object r8 = r7.next()     // Catch:{ all -> 0x00a6 }
-            android.content.Intent r8 = (android.content.Intent) r8     // Catch:{ all -> 0x00a6 }
-            android.content.ComponentName r9 = r8.getComponent()     // Catch:{ all -> 0x00a6 }
-            if (r9 == 0) goto L_0x00a3
-            java.lang.String r10 = r9.getClassName()     // Catch:{ all -> 0x00a6 }
-            boolean r10 = r6.equals(r10)     // Catch:{ all -> 0x00a6 }
-            if (r10 == 0) goto L_0x00a3
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            return r4
-        L_0x00a3:
-            goto L_0x0085
-        L_0x00a4:
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            return r0
-        L_0x00a6:
-            r0 = move-exception
-            monitor-exit(r11)     // Catch:{ all -> 0x00a6 }
-            throw r0
-        */
-        throw new UnsupportedOperationException("Method not decompiled: com.miui.server.AccessController.filterIntentLocked(boolean, java.lang.String, android.content.Intent):boolean");
+    public boolean filterIntentLocked(boolean isSkipList, String packageName, Intent intent) {
+        if (intent == null) {
+            return false;
+        }
+        InterceptTable table = isSkipList ? mSkipTable : mAntimsgInterceptTable;
+        String action = intent.getAction();
+        if (action != null && table.containsAction(packageName, action)) {
+            return true;
+        }
+        ComponentName component = intent.getComponent();
+        if (component == null) {
+            return false;
+        }
+        String className = component.getClassName();
+        if (!isSkipList && WECHAT_VIDEO_ACTIVITY_CLASSNAME.equals(className) && (intent.getFlags() & -268435457) == 0) {
+            return false;
+        }
+        return table.containsClassName(packageName, component.getPackageName(), className);
     }
 
     /* access modifiers changed from: package-private */
@@ -840,51 +750,47 @@ public class AccessController {
             this.mWorkHandler.sendEmptyMessageDelayed(1, 43200000);
             List<MiuiSettings.SettingsCloudData.CloudData> appLockList = MiuiSettings.SettingsCloudData.getCloudDataList(resolver, APPLOCK_WHILTE);
             List<MiuiSettings.SettingsCloudData.CloudData> gameAntimsgList = MiuiSettings.SettingsCloudData.getCloudDataList(resolver, GAMEBOOSTER_ANTIMSG);
-            updateWhiteList(appLockList, mSkipList);
-            updateWhiteList(gameAntimsgList, mAntimsgInterceptList);
+            InterceptTable skipTable = compileWhiteList(appLockList);
+            if (skipTable != null) {
+                mSkipTable = skipTable;
+            }
+            InterceptTable antimsgInterceptTable = compileWhiteList(gameAntimsgList);
+            if (antimsgInterceptTable != null) {
+                mAntimsgInterceptTable = antimsgInterceptTable;
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    /* Debug info: failed to restart local var, previous not found, register: 12 */
-    private void updateWhiteList(List<MiuiSettings.SettingsCloudData.CloudData> dataList, ArrayMap<String, ArrayList<Intent>> list) {
-        if (dataList != null) {
-            try {
-                if (dataList.size() != 0) {
-                    ArrayMap<String, ArrayList<Intent>> cloudList = new ArrayMap<>();
-                    for (MiuiSettings.SettingsCloudData.CloudData data : dataList) {
-                        String json = data.toString();
-                        if (!TextUtils.isEmpty(json)) {
-                            JSONObject jsonObject = new JSONObject(json);
-                            String pkg = jsonObject.optString(SplitScreenReporter.STR_PKG);
-                            String cls = jsonObject.optString("cls");
-                            String action = jsonObject.optString("act");
-                            Intent intent = new Intent();
-                            if (!TextUtils.isEmpty(action)) {
-                                intent.setAction(action);
-                            } else {
-                                intent.setComponent(new ComponentName(pkg, cls));
-                            }
-                            ArrayList<Intent> intents = cloudList.get(pkg);
-                            if (intents == null) {
-                                intents = new ArrayList<>(1);
-                                cloudList.put(pkg, intents);
-                            }
-                            intents.add(intent);
-                        }
-                    }
-                    if (cloudList.size() > 0) {
-                        synchronized (this) {
-                            list.clear();
-                            list.putAll(cloudList);
-                        }
+    /** Returns the table for a cloud list, or null to keep the current one. */
+    private InterceptTable compileWhiteList(List<MiuiSettings.SettingsCloudData.CloudData> dataList) {
+        if (dataList == null || dataList.size() == 0) {
+            return null;
+        }
+        try {
+            InterceptTable table = new InterceptTable();
+            for (MiuiSettings.SettingsCloudData.CloudData data : dataList) {
+                String json = data.toString();
+                if (!TextUtils.isEmpty(json)) {
+                    JSONObject jsonObject = new JSONObject(json);
+                    String pkg = jsonObject.optString(SplitScreenReporter.STR_PKG);
+                    String cls = jsonObject.optString("cls");
+                    String action = jsonObject.optString("act");
+                    if (!TextUtils.isEmpty(action)) {
+                        table.addAction(pkg, action);
+                    } else {
+                        table.addClassName(pkg, cls);
                     }
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
+            if (!table.isEmpty()) {
+                return table;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
+        return null;
     }
 
     private byte[] passwordToHash(String password, int userId) {
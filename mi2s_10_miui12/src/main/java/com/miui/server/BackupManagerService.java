@@ -2,6 +2,7 @@ package com.miui.server;
 
 import android.app.ActivityManager;
 import android.app.AppGlobals;
+import android.app.IProcessObserver;
 import android.app.backup.IFullBackupRestoreObserver;
 import android.content.ComponentName;
 import android.content.Context;
@@ -34,8 +35,8 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import libcore.io.IoBridge;
@@ -50,6 +51,7 @@ public class BackupManagerService extends IBackupManager.Stub {
     public static final int FD_CLOSE = -2;
     public static final int FD_NONE = -1;
     private static final int PID_NONE = -1;
+    private static final long WAIT_APP_KILLED_TIMEOUT = 10000;
     private static final String TAG = "Backup:BackupManagerService";
     private ActivityManager mActivityManager;
     /* access modifiers changed from: private */
@@ -72,11 +74,17 @@ public class BackupManagerService extends IBackupManager.Stub {
     private String mEncryptedPwdInBakFile;
     private Handler mHandler;
     private HandlerThread mHandlerThread;
+    private Handler mPrefetchHandler;
+    private HandlerThread mPrefetchThread;
+    private volatile int mPrefetchGeneration;
+    private final HashMap<String, PackageStats> mPrefetchedStats = new HashMap<>();
     /* access modifiers changed from: private */
     public IBinder mICaller = null;
     /* access modifiers changed from: private */
     public boolean mIsCanceling = false;
     private int mLastError;
+    private boolean mCompressBackup;
+    private boolean mIncrementalBackup;
     private HashMap<String, Boolean> mNeedBeKilledPkgs = new HashMap<>();
     private ParcelFileDescriptor mOutputFile = null;
     /* access modifiers changed from: private */
@@ -138,6 +146,9 @@ public class BackupManagerService extends IBackupManager.Stub {
         this.mHandlerThread = new HandlerThread("MiuiBackup", 10);
         this.mHandlerThread.start();
         this.mHandler = new BackupHandler(this.mHandlerThread.getLooper());
+        this.mPrefetchThread = new HandlerThread("MiuiBackupPrefetch", 10);
+        this.mPrefetchThread.start();
+        this.mPrefetchHandler = new Handler(this.mPrefetchThread.getLooper());
         restoreLastPackageEnableState(getPackageEnableStateFile());
     }
 
@@ -169,35 +180,61 @@ public class BackupManagerService extends IBackupManager.Stub {
             this.mAppUserId = z3 ? 999 : 0;
             this.mPackageLastEnableState = -1;
             this.mCurrentWorkingPkg = str;
-            if (!isSystemApp) {
-                disablePackageAndWait(str, this.mAppUserId);
-            }
-            this.mOutputFile = parcelFileDescriptor;
-            this.mShouldSkipData = z2;
-            this.mCurrentWorkingFeature = i;
-            this.mLastError = 0;
-            this.mProgType = 0;
-            this.mState = 1;
-            this.mCurrentCompletedSize = 0;
-            this.mCurrentTotalSize = -1;
-            BackupManagerServiceProxy.getPackageSizeInfo(this.mContext, this.mPackageManager, str, this.mAppUserId, this.mPackageStatsObserver);
-            synchronized (this) {
-                this.mTaskLatch = new AtomicBoolean(false);
-                this.mCallerFd = outFileDescriptor.getFd();
-                Slog.d(TAG, "backupPackage, MIUI FD is " + this.mCallerFd);
-            }
-            synchronized (this.mTaskLatch) {
-                if (this.mOwnerPid != -1) {
-                    BackupManagerServiceProxy.fullBackup(parcelFileDescriptor, new String[]{str}, z);
+            long startTime = SystemClock.elapsedRealtime();
+            long disabledTime;
+            long streamStartTime;
+            long streamEndTime;
+            PackageStats prefetchedStats;
+            boolean streamed = false;
+            try {
+                if (!isSystemApp) {
+                    disablePackageAndWait(str, this.mAppUserId);
+                }
+                disabledTime = SystemClock.elapsedRealtime();
+                this.mOutputFile = parcelFileDescriptor;
+                this.mShouldSkipData = z2;
+                this.mCurrentWorkingFeature = i;
+                this.mLastError = 0;
+                this.mProgType = 0;
+                this.mState = 1;
+                this.mCurrentCompletedSize = 0;
+                this.mCurrentTotalSize = -1;
+                prefetchedStats = takePrefetchedStats(str, this.mAppUserId);
+                if (prefetchedStats != null) {
+                    this.mPackageStatsObserver.onGetStatsCompleted(prefetchedStats, true);
+                    recheckPackageStats(str, this.mAppUserId);
                 } else {
-                    errorOccur(10);
+                    BackupManagerServiceProxy.getPackageSizeInfo(this.mContext, this.mPackageManager, str, this.mAppUserId, this.mPackageStatsObserver);
+                }
+                streamStartTime = SystemClock.elapsedRealtime();
+                synchronized (this) {
+                    this.mTaskLatch = new AtomicBoolean(false);
+                    this.mCallerFd = outFileDescriptor.getFd();
+                    Slog.d(TAG, "backupPackage, MIUI FD is " + this.mCallerFd);
+                }
+                if (!z2) {
+                    IncrementalBackupFilter.beginBackup(this.mCallerFd, str, this.mAppUserId, this.mIncrementalBackup);
+                }
+                synchronized (this.mTaskLatch) {
+                    if (this.mOwnerPid != -1) {
+                        BackupManagerServiceProxy.fullBackup(parcelFileDescriptor, new String[]{str}, z, this.mCompressBackup);
+                    } else {
+                        errorOccur(10);
+                    }
+                    this.mTaskLatch.set(true);
+                    this.mTaskLatch.notifyAll();
+                }
+                streamed = true;
+                streamEndTime = SystemClock.elapsedRealtime();
+            } finally {
+                IncrementalBackupFilter.endBackup(streamed && this.mLastError == 0 && !this.mIsCanceling);
+                if (!isSystemApp) {
+                    enablePackage(str, this.mAppUserId, defaultIme);
                 }
-                this.mTaskLatch.set(true);
-                this.mTaskLatch.notifyAll();
-            }
-            if (!isSystemApp) {
-                enablePackage(str, this.mAppUserId, defaultIme);
             }
+            long endTime = SystemClock.elapsedRealtime();
+            long streamTime = streamEndTime - streamStartTime;
+            Slog.i(TAG, "backupPackage done, pkg=" + str + " bytes=" + this.mCurrentCompletedSize + " disable=" + (disabledTime - startTime) + "ms prepare=" + (streamStartTime - disabledTime) + "ms stream=" + streamTime + "ms enable=" + (endTime - streamEndTime) + "ms total=" + (endTime - startTime) + "ms rate=" + (streamTime > 0 ? (this.mCurrentCompletedSize / streamTime) : 0) + "KB/s" + (prefetchedStats != null ? " prefetched" : ""));
             this.mPwd = null;
             this.mEncryptedPwd = null;
             this.mTaskLatch = null;
@@ -213,23 +250,113 @@ public class BackupManagerService extends IBackupManager.Stub {
         }
     }
 
-    @Deprecated
+    /**
+     * Tells the service which packages the client is going to back up next, so that their size
+     * queries, which go through installd, run on the prefetch thread while the current package
+     * streams instead of at the start of each backupPackage. Replaces any earlier list.
+     */
     public void setFutureTask(List<String> list) {
+        if (Binder.getCallingPid() != this.mOwnerPid) {
+            Slog.e(TAG, "You must acquire first to use the backup or restore service");
+            return;
+        }
+        final int generation = cancelPrefetch();
+        if (list != null && !list.isEmpty()) {
+            final ArrayList<String> pkgs = new ArrayList<>(list);
+            this.mPrefetchHandler.post(new Runnable() {
+                public void run() {
+                    BackupManagerService.this.prefetchPackageStats(pkgs, generation);
+                }
+            });
+        }
     }
 
-    private boolean isApplicationInstalled(String packageName, int userId) {
-        List<PackageInfo> installedList = this.mPackageManager.getInstalledPackagesAsUser(0, userId);
-        boolean isInstalled = false;
-        int i = 0;
-        while (true) {
-            if (i >= installedList.size()) {
-                break;
-            } else if (installedList.get(i).packageName.equals(packageName)) {
-                isInstalled = true;
-                break;
-            } else {
-                i++;
+    /** Drops the prefetched stats and stops the running prefetch; returns the new generation. */
+    /* access modifiers changed from: private */
+    public int cancelPrefetch() {
+        int generation = this.mPrefetchGeneration + 1;
+        this.mPrefetchGeneration = generation;
+        this.mPrefetchHandler.removeCallbacksAndMessages(null);
+        synchronized (this.mPrefetchedStats) {
+            this.mPrefetchedStats.clear();
+        }
+        return generation;
+    }
+
+    /* access modifiers changed from: private */
+    public void prefetchPackageStats(List<String> pkgs, final int generation) {
+        IPackageStatsObserver observer = new IPackageStatsObserver() {
+            public void onGetStatsCompleted(PackageStats pStats, boolean succeeded) {
+                if (succeeded) {
+                    synchronized (BackupManagerService.this.mPrefetchedStats) {
+                        if (generation == BackupManagerService.this.mPrefetchGeneration) {
+                            BackupManagerService.this.mPrefetchedStats.put(pStats.packageName, pStats);
+                        }
+                    }
+                }
+            }
+
+            public IBinder asBinder() {
+                return null;
+            }
+        };
+        for (String pkg : pkgs) {
+            if (this.mIsCanceling || generation != this.mPrefetchGeneration) {
+                return;
+            }
+            synchronized (this.mPrefetchedStats) {
+                if (this.mPrefetchedStats.containsKey(pkg)) {
+                    continue;
+                }
+            }
+            BackupManagerServiceProxy.getPackageSizeInfo(this.mContext, this.mPackageManager, pkg, 0, observer);
+        }
+    }
+
+    /**
+     * Prefetched stats were taken while the package could still run, install or clear data, so the
+     * total they give is only a first estimate. Queries the size again on the prefetch thread, ahead
+     * of the remaining prefetches, and replaces the total if the package is still being backed up.
+     * The package is disabled by now, so the second answer stays valid for the rest of the backup.
+     */
+    private void recheckPackageStats(final String pkg, final int userId) {
+        final IPackageStatsObserver observer = new IPackageStatsObserver() {
+            public void onGetStatsCompleted(PackageStats pStats, boolean succeeded) throws RemoteException {
+                if (succeeded && BackupManagerService.this.mState != 0 && pkg.equals(BackupManagerService.this.mCurrentWorkingPkg) && userId == BackupManagerService.this.mAppUserId) {
+                    BackupManagerService.this.mPackageStatsObserver.onGetStatsCompleted(pStats, true);
+                }
+            }
+
+            public IBinder asBinder() {
+                return null;
+            }
+        };
+        this.mPrefetchHandler.postAtFrontOfQueue(new Runnable() {
+            public void run() {
+                BackupManagerServiceProxy.getPackageSizeInfo(BackupManagerService.this.mContext, BackupManagerService.this.mPackageManager, pkg, userId, observer);
             }
+        });
+    }
+
+    /** Returns the prefetched stats of {@code pkg}, which are only taken for the owner user. */
+    private PackageStats takePrefetchedStats(String pkg, int userId) {
+        PackageStats remove;
+        if (userId != 0) {
+            return null;
+        }
+        synchronized (this.mPrefetchedStats) {
+            remove = this.mPrefetchedStats.remove(pkg);
+        }
+        return remove;
+    }
+
+    private boolean isApplicationInstalled(String packageName, int userId) {
+        boolean isInstalled;
+        try {
+            this.mPackageManager.getPackageInfoAsUser(packageName, 0, userId);
+            isInstalled = true;
+        } catch (PackageManager.NameNotFoundException e) {
+            isInstalled = false;
         }
         Slog.d(TAG, "isApplicationInstalled, packageName:" + packageName + " isInstalled:" + isInstalled);
         return isInstalled;
@@ -400,6 +527,19 @@ public class BackupManagerService extends IBackupManager.Stub {
     }
 
     public void restoreFile(ParcelFileDescriptor bakFd, String pwd, boolean forceBackup, IPackageBackupRestoreObserver observer) throws RemoteException {
+        restoreFiles(new ParcelFileDescriptor[]{bakFd}, pwd, forceBackup, observer);
+    }
+
+    /**
+     * Restores a full backup followed by the incremental backups taken after it, oldest first.
+     * The package stays disabled across the chain and only the full backup clears its data, so
+     * every increment restores over what the ones before it left.
+     *
+     * Not part of the miui.app.backup.IBackupManager AIDL yet, which lives in the framework and
+     * not in this tree. Binder clients can only call it once the AIDL declares it; until then
+     * restoreFile restores a single archive through it.
+     */
+    public void restoreFiles(ParcelFileDescriptor[] bakFds, String pwd, boolean forceBackup, IPackageBackupRestoreObserver observer) throws RemoteException {
         this.mBackupRestoreObserver = observer;
         if (getCallingPid() != this.mOwnerPid) {
             Slog.e(TAG, "You must acquire first to use the backup or restore service");
@@ -414,19 +554,35 @@ public class BackupManagerService extends IBackupManager.Stub {
             this.mProgType = 0;
             this.mPackageLastEnableState = -1;
             this.mState = 2;
-            this.mCurrentTotalSize = bakFd.getStatSize();
+            long totalSize = 0;
+            for (ParcelFileDescriptor bakFd : bakFds) {
+                totalSize += bakFd.getStatSize();
+            }
+            this.mCurrentTotalSize = totalSize;
             this.mCurrentCompletedSize = 0;
             synchronized (this) {
                 this.mTaskLatch = new AtomicBoolean(false);
-                this.mCallerFd = bakFd.getFd();
-                Slog.d(TAG, "restoreFile, MIUI FD is " + this.mCallerFd);
+                this.mCallerFd = bakFds[0].getFd();
+                Slog.d(TAG, "restoreFile, MIUI FD is " + this.mCallerFd + " archives=" + bakFds.length);
             }
             synchronized (this.mTaskLatch) {
-                if (this.mOwnerPid != -1) {
-                    BackupManagerServiceProxy.fullRestore(bakFd);
-                } else {
-                    errorOccur(10);
+                int i = 0;
+                while (true) {
+                    if (i >= bakFds.length || this.mLastError != 0 || this.mIsCanceling) {
+                        break;
+                    } else if (this.mOwnerPid != -1) {
+                        if (i > 0) {
+                            this.mCallerFd = bakFds[i].getFd();
+                            IncrementalBackupFilter.setRestoringIncrement(this.mCallerFd);
+                        }
+                        BackupManagerServiceProxy.fullRestore(bakFds[i]);
+                        i++;
+                    } else {
+                        errorOccur(10);
+                        break;
+                    }
                 }
+                IncrementalBackupFilter.setRestoringIncrement(-1);
                 this.mTaskLatch.set(true);
                 this.mTaskLatch.notifyAll();
             }
@@ -513,10 +669,13 @@ public class BackupManagerService extends IBackupManager.Stub {
             }
             if (Binder.getCallingPid() == this.mOwnerPid) {
                 this.mIsCanceling = true;
+                cancelPrefetch();
                 scheduleReleaseResource();
                 waitForTheLastWorkingTask();
                 this.mIsCanceling = false;
                 this.mOwnerPid = -1;
+                this.mIncrementalBackup = false;
+                this.mCompressBackup = false;
                 this.mICaller.unlinkToDeath(this.mDeathLinker, 0);
                 this.mICaller = null;
                 this.mPreviousWorkingPkg = null;
@@ -641,42 +800,45 @@ public class BackupManagerService extends IBackupManager.Stub {
         }
     }
 
+    /**
+     * Waits until no process of {@code pkg} runs for the working user, or gives up after
+     * WAIT_APP_KILLED_TIMEOUT. The running processes are only listed again when one of the
+     * listed ones dies.
+     */
     private void waitUntilAppKilled(String pkg) {
         boolean killed;
-        int round = 0;
         ActivityManager am = (ActivityManager) this.mContext.getSystemService("activity");
-        while (true) {
-            killed = true;
-            Iterator<ActivityManager.RunningAppProcessInfo> it = am.getRunningAppProcesses().iterator();
+        ProcessDeathWaiter waiter = new ProcessDeathWaiter();
+        boolean registered = setProcessObserverRegistered(waiter, true);
+        try {
+            long deadline = SystemClock.elapsedRealtime() + WAIT_APP_KILLED_TIMEOUT;
             while (true) {
-                if (!it.hasNext()) {
-                    break;
-                }
-                ActivityManager.RunningAppProcessInfo procInfo = it.next();
-                if (!procInfo.processName.equals(pkg)) {
-                    String str = procInfo.processName;
-                    if (!str.startsWith(pkg + ":")) {
-                        continue;
+                waiter.beginRound();
+                ArrayList<Integer> pids = new ArrayList<>();
+                List<ActivityManager.RunningAppProcessInfo> processes = am.getRunningAppProcesses();
+                if (processes != null) {
+                    for (ActivityManager.RunningAppProcessInfo procInfo : processes) {
+                        if (procInfo.processName.equals(pkg) || procInfo.processName.startsWith(pkg + ":")) {
+                            if (this.mAppUserId == UserHandle.getUserId(procInfo.uid)) {
+                                pids.add(Integer.valueOf(procInfo.pid));
+                            }
+                        }
                     }
                 }
-                if (this.mAppUserId == UserHandle.getUserId(procInfo.uid)) {
-                    killed = false;
+                killed = pids.isEmpty();
+                long remaining = deadline - SystemClock.elapsedRealtime();
+                if (killed || remaining <= 0) {
                     break;
                 }
-            }
-            if (killed) {
-                break;
-            }
-            try {
-                Thread.sleep(500);
-                int round2 = round + 1;
-                if (round >= 20) {
-                    int i = round2;
-                    break;
+                try {
+                    waiter.awaitDeath(pids, registered ? remaining : Math.min(remaining, 500));
+                } catch (InterruptedException e) {
+                    Slog.e(TAG, "interrupted while waiting", e);
                 }
-                round = round2;
-            } catch (InterruptedException e) {
-                Slog.e(TAG, "interrupted while waiting", e);
+            }
+        } finally {
+            if (registered) {
+                setProcessObserverRegistered(waiter, false);
             }
         }
         if (killed) {
@@ -686,6 +848,75 @@ public class BackupManagerService extends IBackupManager.Stub {
         Slog.w(TAG, "continue while app: " + pkg + " is still alive!");
     }
 
+    /**
+     * Registers or unregisters {@code observer} as the system, since the caller of the binder
+     * call that got here may not hold SET_ACTIVITY_WATCHER. Returns false if that failed, in
+     * which case waitUntilAppKilled polls.
+     */
+    private static boolean setProcessObserverRegistered(IProcessObserver observer, boolean register) {
+        long token = Binder.clearCallingIdentity();
+        try {
+            if (register) {
+                ActivityManager.getService().registerProcessObserver(observer);
+            } else {
+                ActivityManager.getService().unregisterProcessObserver(observer);
+            }
+            return true;
+        } catch (RemoteException | RuntimeException e) {
+            Slog.e(TAG, (register ? "registerProcessObserver" : "unregisterProcessObserver") + " failed", e);
+            return false;
+        } finally {
+            Binder.restoreCallingIdentity(token);
+        }
+    }
+
+    private static class ProcessDeathWaiter extends IProcessObserver.Stub {
+        private final ArrayList<Integer> mDiedPids = new ArrayList<>();
+
+        private ProcessDeathWaiter() {
+        }
+
+        /** Forgets earlier deaths; called before the running processes are listed. */
+        public synchronized void beginRound() {
+            this.mDiedPids.clear();
+        }
+
+        /**
+         * Waits up to {@code timeout} ms for one of {@code pids} to die, returning at once if one
+         * died since beginRound.
+         */
+        public synchronized void awaitDeath(List<Integer> pids, long timeout) throws InterruptedException {
+            long deadline = SystemClock.elapsedRealtime() + timeout;
+            while (!hasDied(pids)) {
+                long remaining = deadline - SystemClock.elapsedRealtime();
+                if (remaining <= 0) {
+                    return;
+                }
+                wait(remaining);
+            }
+        }
+
+        private boolean hasDied(List<Integer> pids) {
+            for (int i = 0; i < pids.size(); i++) {
+                if (this.mDiedPids.contains(pids.get(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public void onForegroundActivitiesChanged(int pid, int uid, boolean foregroundActivities) {
+        }
+
+        public void onForegroundServicesChanged(int pid, int uid, int serviceTypes) {
+        }
+
+        public synchronized void onProcessDied(int pid, int uid) {
+            this.mDiedPids.add(Integer.valueOf(pid));
+            notifyAll();
+        }
+    }
+
     private File getPackageEnableStateFile() {
         return new File(new File(Environment.getDataDirectory(), "system"), "backup_pkg_enable_state");
     }
@@ -914,6 +1145,40 @@ public class BackupManagerService extends IBackupManager.Stub {
         return this.mShouldSkipData;
     }
 
+    /**
+     * Makes the following backupPackage calls of this session leave out the app data files that
+     * did not change since the last incremental backup of each package. The first one of a
+     * package carries every file. Only backups taken in this mode become the base of the next
+     * one, so a plain full backup in between does not break the chain.
+     *
+     * Not part of the miui.app.backup.IBackupManager AIDL yet, which lives in the framework and
+     * not in this tree. Binder clients can only call it once the AIDL declares it.
+     */
+    public void setIncrementalBackup(boolean incremental) {
+        if (Binder.getCallingPid() != this.mOwnerPid) {
+            Slog.e(TAG, "You must acquire first to use the backup or restore service");
+            return;
+        }
+        Slog.d(TAG, "setIncrementalBackup, incremental=" + incremental);
+        this.mIncrementalBackup = incremental;
+    }
+
+    /**
+     * Makes the following backupPackage calls of this session write deflated archives. The archive
+     * header carries the compress flag, so restoring one needs nothing from the client. Off by
+     * default, since a client that reads the tar stream of its archives itself cannot read these.
+     *
+     * Like setIncrementalBackup, not part of the miui.app.backup.IBackupManager AIDL yet.
+     */
+    public void setCompressBackup(boolean compress) {
+        if (Binder.getCallingPid() != this.mOwnerPid) {
+            Slog.e(TAG, "You must acquire first to use the backup or restore service");
+            return;
+        }
+        Slog.d(TAG, "setCompressBackup, compress=" + compress);
+        this.mCompressBackup = compress;
+    }
+
     public int getAppUserId() {
         return this.mAppUserId;
     }
@@ -972,10 +1237,13 @@ public class BackupManagerService extends IBackupManager.Stub {
         public void binderDied() {
             Slog.d(BackupManagerService.TAG, "Client binder has died. Start canceling...");
             boolean unused = BackupManagerService.this.mIsCanceling = true;
+            BackupManagerService.this.cancelPrefetch();
             BackupManagerService.this.scheduleReleaseResource();
             BackupManagerService.this.waitForTheLastWorkingTask();
             boolean unused2 = BackupManagerService.this.mIsCanceling = false;
             int unused3 = BackupManagerService.this.mOwnerPid = -1;
+            boolean unused6 = BackupManagerService.this.mIncrementalBackup = false;
+            boolean unused7 = BackupManagerService.this.mCompressBackup = false;
             BackupManagerService.this.mICaller.unlinkToDeath(BackupManagerService.this.mDeathLinker, 0);
             IBinder unused4 = BackupManagerService.this.mICaller = null;
             String unused5 = BackupManagerService.this.mPreviousWorkingPkg = null;
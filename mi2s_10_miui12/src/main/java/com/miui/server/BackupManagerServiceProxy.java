@@ -21,8 +21,8 @@ class BackupManagerServiceProxy {
     BackupManagerServiceProxy() {
     }
 
-    static void fullBackup(ParcelFileDescriptor outFileDescriptor, String[] pkgs, boolean includeApk) throws RemoteException {
-        ServiceManager.getService(BatteryService.HealthServiceWrapper.INSTANCE_HEALTHD).adbBackup(0, outFileDescriptor, includeApk, true, false, false, false, false, false, false, pkgs);
+    static void fullBackup(ParcelFileDescriptor outFileDescriptor, String[] pkgs, boolean includeApk, boolean compress) throws RemoteException {
+        ServiceManager.getService(BatteryService.HealthServiceWrapper.INSTANCE_HEALTHD).adbBackup(0, outFileDescriptor, includeApk, true, false, false, false, false, compress, false, pkgs);
     }
 
     static void fullRestore(ParcelFileDescriptor fd) throws RemoteException {
@@ -0,0 +1,133 @@
+package com.miui.server;
+
+import android.os.Environment;
+import android.util.AtomicFile;
+import android.util.Slog;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The files of one package as the last successful incremental MIUI backup of it streamed them: tar
+ * path, size, mtime in seconds and CRC32 of the content. The first incremental backup of a package
+ * has no manifest to compare with and carries every file, and each one after it leaves out the
+ * files whose entry still matches, so the manifest always describes the newest archive of the
+ * chain. Backups outside incremental mode neither read nor write it.
+ */
+final class BackupManifest {
+    private static final String TAG = "Backup:BackupManifest";
+    private static final int VERSION = 1;
+    private final HashMap<String, Entry> mEntries;
+
+    static final class Entry {
+        final long hash;
+        final long mtime;
+        final long size;
+
+        Entry(long size2, long mtime2, long hash2) {
+            this.size = size2;
+            this.mtime = mtime2;
+            this.hash = hash2;
+        }
+    }
+
+    BackupManifest() {
+        this(16);
+    }
+
+    private BackupManifest(int capacity) {
+        this.mEntries = new HashMap<>(capacity);
+    }
+
+    static File getManifestFile(String pkg, int userId) {
+        return new File(new File(new File(new File(Environment.getDataDirectory(), "system"), "backup_manifest"), String.valueOf(userId)), pkg);
+    }
+
+    Entry get(String path) {
+        return this.mEntries.get(path);
+    }
+
+    void put(String path, long size, long mtime, long hash) {
+        this.mEntries.put(path, new Entry(size, mtime, hash));
+    }
+
+    /** Returns the number of entries of {@code this} that {@code newer} no longer has. */
+    int countRemoved(BackupManifest newer) {
+        int removed = 0;
+        for (String path : this.mEntries.keySet()) {
+            if (!newer.mEntries.containsKey(path)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /** Returns the manifest saved in {@code file}, or null if there is none or it is unreadable. */
+    static BackupManifest load(File file) {
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new AtomicFile(file).openRead()));
+            if (in.readInt() != VERSION) {
+                Slog.w(TAG, "Unknown manifest version, ignoring " + file);
+                return null;
+            }
+            int count = in.readInt();
+            BackupManifest manifest = new BackupManifest((count * 4) / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                manifest.put(in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+            }
+            return manifest;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e2) {
+            Slog.e(TAG, "Unable to read " + file, e2);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e3) {
+                }
+            }
+        }
+    }
+
+    boolean save(File file) {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Slog.e(TAG, "Unable to create " + dir);
+            return false;
+        }
+        AtomicFile atomicFile = new AtomicFile(file);
+        FileOutputStream fos = null;
+        try {
+            fos = atomicFile.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            out.writeInt(VERSION);
+            out.writeInt(this.mEntries.size());
+            for (Map.Entry<String, Entry> item : this.mEntries.entrySet()) {
+                Entry entry = item.getValue();
+                out.writeUTF(item.getKey());
+                out.writeLong(entry.size);
+                out.writeLong(entry.mtime);
+                out.writeLong(entry.hash);
+            }
+            out.flush();
+            atomicFile.finishWrite(fos);
+            return true;
+        } catch (IOException e) {
+            Slog.e(TAG, "Unable to write " + file, e);
+            if (fos != null) {
+                atomicFile.failWrite(fos);
+            }
+            return false;
+        }
+    }
+}
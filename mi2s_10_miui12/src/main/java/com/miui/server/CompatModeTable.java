@@ -0,0 +1,76 @@
+package com.miui.server;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The packages, special mode, user cutout and cloud cutout modes of MiuiCompatModePackages merged
+ * into one immutable map, so every activity launch looks a package up once without taking its
+ * mLock. The four maps stay the writers' copy under mLock, and every change to them publishes a
+ * new table; the config files are also written from the table. A mode a map has no entry for is
+ * UNSET.
+ */
+final class CompatModeTable {
+    static final CompatModeTable EMPTY = new CompatModeTable(new HashMap<>());
+    static final int UNSET = Integer.MIN_VALUE;
+    private final HashMap<String, Entry> mEntries;
+
+    /** The modes of one package. Never changed once the table is built. */
+    static final class Entry {
+        int cloudCutoutMode = UNSET;
+        int packageMode = UNSET;
+        int specialMode = UNSET;
+        int userCutoutMode = UNSET;
+
+        Entry() {
+        }
+    }
+
+    private CompatModeTable(HashMap<String, Entry> entries) {
+        this.mEntries = entries;
+    }
+
+    static CompatModeTable build(Map<String, Integer> packages, Map<String, Integer> specialModes, Map<String, Integer> userCutoutModes, Map<String, Integer> cloudCutoutModes) {
+        HashMap<String, Entry> entries = new HashMap<>();
+        for (Map.Entry<String, Integer> mode : packages.entrySet()) {
+            entry(entries, mode.getKey()).packageMode = mode.getValue().intValue();
+        }
+        for (Map.Entry<String, Integer> mode2 : specialModes.entrySet()) {
+            entry(entries, mode2.getKey()).specialMode = mode2.getValue().intValue();
+        }
+        for (Map.Entry<String, Integer> mode3 : userCutoutModes.entrySet()) {
+            entry(entries, mode3.getKey()).userCutoutMode = mode3.getValue().intValue();
+        }
+        for (Map.Entry<String, Integer> mode4 : cloudCutoutModes.entrySet()) {
+            entry(entries, mode4.getKey()).cloudCutoutMode = mode4.getValue().intValue();
+        }
+        return new CompatModeTable(entries);
+    }
+
+    private static Entry entry(HashMap<String, Entry> entries, String packageName) {
+        Entry entry = entries.get(packageName);
+        if (entry != null) {
+            return entry;
+        }
+        Entry entry2 = new Entry();
+        entries.put(packageName, entry2);
+        return entry2;
+    }
+
+    /* access modifiers changed from: package-private */
+    public Set<Map.Entry<String, Entry>> entrySet() {
+        return Collections.unmodifiableMap(this.mEntries).entrySet();
+    }
+
+    /* access modifiers changed from: package-private */
+    public Entry get(String packageName) {
+        return this.mEntries.get(packageName);
+    }
+
+    /* access modifiers changed from: package-private */
+    public int size() {
+        return this.mEntries.size();
+    }
+}
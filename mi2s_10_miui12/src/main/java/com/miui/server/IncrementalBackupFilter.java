@@ -0,0 +1,423 @@
+package com.miui.server;
+
+import android.util.Slog;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Sits between a backup agent and the MIUI backup output and records a {@link BackupManifest} of
+ * the app data files the agent streams. In incremental mode it also drops the files whose size
+ * and mtime match the manifest of the previous incremental backup, so the archive carries only
+ * what changed. Only files up to VERIFY_LIMIT can be dropped: they are held back and compared by
+ * content first. Larger files always go to the archive, since they cannot be held back.
+ *
+ * The manifest is only saved by incremental sessions. A plain full backup may go to an archive
+ * the client does not keep, so it must not become the base of the next increment.
+ *
+ * Restoring an incremental archive must not wipe what the base archive restored, so the chain
+ * restore marks every archive after the base with {@link #setRestoringIncrement}.
+ *
+ * Files are only deduplicated against the previous backup of the same package. Each backupPackage
+ * writes its own archive and the client restores each one on its own, so a file left out because
+ * another package's archive holds the same bytes could not be found again on restore.
+ *
+ * The filter sees the plain tar stream: when the session compresses, the deflater sits below it,
+ * in the adb backup task that also writes the compress flag into the archive header.
+ */
+public final class IncrementalBackupFilter extends FilterOutputStream {
+    private static final int BLOCK_SIZE = 512;
+    private static final int MODE_EMIT = 0;
+    private static final int MODE_VERIFY = 1;
+    private static final int STATE_DATA = 2;
+    private static final int STATE_HEADER = 0;
+    private static final int STATE_PAX = 1;
+    private static final String TAG = "Backup:IncrementalBackupFilter";
+    private static final int VERIFY_LIMIT = 262144;
+    private static volatile Session sBackupSession;
+    private static volatile int sRestoringIncrementFd = -1;
+    private final CRC32 mCrc = new CRC32();
+    private long mDataRemaining;
+    private long mDroppedBytes;
+    private int mDroppedFiles;
+    private long mEmittedBytes;
+    private int mEmittedFiles;
+    private final byte[] mHeader = new byte[BLOCK_SIZE];
+    private int mHeaderLength;
+    private int mMode;
+    private long mMtime;
+    private BackupManifest.Entry mOld;
+    private String mPath;
+    private int mPaxLength;
+    private String mPaxPath;
+    private long mPaxSize = -1;
+    private int mPaxStart;
+    private byte[] mPending = new byte[8192];
+    private int mPendingLength;
+    private boolean mRecord;
+    private long mRemaining;
+    private final Session mSession;
+    private long mSize;
+    private final byte[] mSingle = new byte[1];
+    private int mState = STATE_HEADER;
+
+    private static final class Session {
+        BackupManifest mBase;
+        boolean mComplete;
+        boolean mFailed;
+        final int mFd;
+        final boolean mIncremental;
+        final String mPackageName;
+        final BackupManifest mResult = new BackupManifest();
+        final int mUserId;
+
+        Session(int fd, String packageName, int userId, boolean incremental) {
+            this.mFd = fd;
+            this.mPackageName = packageName;
+            this.mUserId = userId;
+            this.mIncremental = incremental;
+        }
+    }
+
+    private IncrementalBackupFilter(OutputStream out, Session session) {
+        super(out);
+        this.mSession = session;
+    }
+
+    /**
+     * Starts recording the manifest of the backup written to {@code fd}. With {@code incremental}
+     * the files that did not change since the last backup of {@code pkg} are left out.
+     */
+    static void beginBackup(int fd, String pkg, int userId, boolean incremental) {
+        Session session = new Session(fd, pkg, userId, incremental);
+        if (incremental) {
+            session.mBase = BackupManifest.load(BackupManifest.getManifestFile(pkg, userId));
+            if (session.mBase == null) {
+                Slog.i(TAG, "No manifest of " + pkg + ", the incremental backup is a full one");
+            }
+        }
+        sBackupSession = session;
+    }
+
+    /**
+     * Ends the current backup. The manifest of an incremental session is saved if {@code succeeded}
+     * and the stream was whole, and becomes the base of the next incremental backup.
+     */
+    static void endBackup(boolean succeeded) {
+        Session session = sBackupSession;
+        sBackupSession = null;
+        if (session != null && session.mIncremental && succeeded && session.mComplete && !session.mFailed) {
+            session.mResult.save(BackupManifest.getManifestFile(session.mPackageName, session.mUserId));
+        }
+    }
+
+    static void setRestoringIncrement(int fd) {
+        sRestoringIncrementFd = fd;
+    }
+
+    /** Returns whether {@code fd} is an incremental archive, which restores over the base. */
+    public static boolean isRestoringIncrement(int fd) {
+        return fd >= 0 && sRestoringIncrementFd == fd;
+    }
+
+    /** Returns {@code out} wrapped in a filter if {@code fd} is the output of the current backup. */
+    public static OutputStream wrap(OutputStream out, int fd) {
+        Session session = sBackupSession;
+        if (session == null || session.mFd != fd) {
+            return out;
+        }
+        return new IncrementalBackupFilter(out, session);
+    }
+
+    /** Marks the stream the agent wrote through {@code out} as complete. */
+    public static void finish(OutputStream out) {
+        if (out instanceof IncrementalBackupFilter) {
+            ((IncrementalBackupFilter) out).finish();
+        }
+    }
+
+    private void finish() {
+        Session session = this.mSession;
+        if (this.mState != STATE_HEADER || this.mHeaderLength != 0 || this.mPendingLength != 0) {
+            Slog.w(TAG, "Backup stream of " + session.mPackageName + " ended inside an entry");
+            session.mFailed = true;
+            return;
+        }
+        session.mComplete = true;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Backup of ");
+        sb.append(session.mPackageName);
+        sb.append(session.mIncremental ? " incremental" : " full");
+        sb.append(": emitted ");
+        sb.append(this.mEmittedFiles);
+        sb.append(" files/");
+        sb.append(this.mEmittedBytes);
+        sb.append(" bytes, unchanged ");
+        sb.append(this.mDroppedFiles);
+        sb.append(" files/");
+        sb.append(this.mDroppedBytes);
+        sb.append(" bytes");
+        if (session.mBase != null) {
+            sb.append(", removed ");
+            sb.append(session.mBase.countRemoved(session.mResult));
+        }
+        Slog.i(TAG, sb.toString());
+    }
+
+    public void write(int b) throws IOException {
+        this.mSingle[0] = (byte) b;
+        write(this.mSingle, 0, 1);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int n;
+            int i = this.mState;
+            if (i == STATE_HEADER) {
+                n = Math.min(BLOCK_SIZE - this.mHeaderLength, len);
+                System.arraycopy(b, off, this.mHeader, this.mHeaderLength, n);
+                this.mHeaderLength += n;
+                if (this.mHeaderLength == BLOCK_SIZE) {
+                    this.mHeaderLength = 0;
+                    onHeader();
+                }
+            } else if (i == STATE_PAX) {
+                n = (int) Math.min(this.mRemaining, (long) len);
+                appendPending(b, off, n);
+                this.mRemaining -= (long) n;
+                if (this.mRemaining == 0) {
+                    this.mState = STATE_HEADER;
+                }
+            } else {
+                n = (int) Math.min(this.mRemaining, (long) len);
+                int hashed = (int) Math.min(this.mDataRemaining, (long) n);
+                if (this.mRecord && hashed > 0) {
+                    this.mCrc.update(b, off, hashed);
+                }
+                this.mDataRemaining -= (long) hashed;
+                int i2 = this.mMode;
+                if (i2 == MODE_EMIT) {
+                    this.out.write(b, off, n);
+                } else if (i2 == MODE_VERIFY) {
+                    appendPending(b, off, n);
+                }
+                this.mRemaining -= (long) n;
+                if (this.mRemaining == 0) {
+                    onEntryEnd();
+                }
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void onHeader() throws IOException {
+        byte[] header = this.mHeader;
+        if (isZeroBlock(header)) {
+            flushPending();
+            this.out.write(header, 0, BLOCK_SIZE);
+            return;
+        }
+        byte type = header[156];
+        long size = parseOctal(header, 124, 12);
+        long padded = (size + 511) & -512;
+        if (type == 120 || type == 103) {
+            // A pax header, whose records carry the path and size of the entry that follows.
+            appendPending(header, 0, BLOCK_SIZE);
+            int start = this.mPendingLength;
+            this.mRemaining = padded;
+            if (padded > 0) {
+                this.mState = STATE_PAX;
+                ensurePending((int) padded);
+            }
+            if (type == 120) {
+                this.mPaxStart = start;
+                this.mPaxLength = (int) size;
+            }
+            return;
+        }
+        if (this.mPaxLength > 0) {
+            parsePax(this.mPending, this.mPaxStart, this.mPaxLength);
+            this.mPaxLength = 0;
+        }
+        String path = this.mPaxPath != null ? this.mPaxPath : parseName(header);
+        if (this.mPaxSize >= 0) {
+            size = this.mPaxSize;
+            padded = (size + 511) & -512;
+        }
+        this.mPaxPath = null;
+        this.mPaxSize = -1;
+        this.mPath = path;
+        this.mSize = size;
+        this.mMtime = parseOctal(header, 136, 12);
+        this.mRecord = (type == 48 || type == 0) && isDataDomain(path);
+        this.mOld = null;
+        this.mMode = MODE_EMIT;
+        if (this.mRecord) {
+            BackupManifest base = this.mSession.mBase;
+            BackupManifest.Entry old = base != null ? base.get(path) : null;
+            if (old != null && old.size == size && old.mtime == this.mMtime && padded <= ((long) VERIFY_LIMIT)) {
+                this.mOld = old;
+                this.mMode = MODE_VERIFY;
+            }
+            this.mCrc.reset();
+        }
+        if (this.mMode == MODE_EMIT) {
+            flushPending();
+            this.out.write(header, 0, BLOCK_SIZE);
+        } else {
+            appendPending(header, 0, BLOCK_SIZE);
+        }
+        this.mRemaining = padded;
+        this.mDataRemaining = size;
+        if (padded == 0) {
+            onEntryEnd();
+        } else {
+            this.mState = STATE_DATA;
+        }
+    }
+
+    private void onEntryEnd() throws IOException {
+        this.mState = STATE_HEADER;
+        if (!this.mRecord) {
+            return;
+        }
+        long hash = this.mCrc.getValue();
+        if (this.mMode == MODE_EMIT) {
+            this.mEmittedFiles++;
+            this.mEmittedBytes += this.mSize;
+        } else if (hash == this.mOld.hash) {
+            this.mPendingLength = 0;
+            this.mDroppedFiles++;
+            this.mDroppedBytes += this.mSize;
+        } else {
+            flushPending();
+            this.mEmittedFiles++;
+            this.mEmittedBytes += this.mSize;
+        }
+        this.mSession.mResult.put(this.mPath, this.mSize, this.mMtime, hash);
+    }
+
+    private void flushPending() throws IOException {
+        if (this.mPendingLength > 0) {
+            this.out.write(this.mPending, 0, this.mPendingLength);
+            this.mPendingLength = 0;
+        }
+    }
+
+    private void ensurePending(int extra) {
+        int needed = this.mPendingLength + extra;
+        if (needed > this.mPending.length) {
+            byte[] pending = new byte[Math.max(needed, this.mPending.length * 2)];
+            System.arraycopy(this.mPending, 0, pending, 0, this.mPendingLength);
+            this.mPending = pending;
+        }
+    }
+
+    private void appendPending(byte[] b, int off, int len) {
+        ensurePending(len);
+        System.arraycopy(b, off, this.mPending, this.mPendingLength, len);
+        this.mPendingLength += len;
+    }
+
+    /** Reads the path and size records of a pax extended header, "<length> <key>=<value>\n". */
+    private void parsePax(byte[] data, int off, int len) {
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            int space = i;
+            int length = 0;
+            while (space < end && data[space] >= 48 && data[space] <= 57) {
+                length = (length * 10) + (data[space] - 48);
+                space++;
+            }
+            if (length <= 0 || space >= end || data[space] != 32 || i + length > end) {
+                return;
+            }
+            int equals = space + 1;
+            int recordEnd = (i + length) - 1;
+            while (equals < recordEnd && data[equals] != 61) {
+                equals++;
+            }
+            String key = new String(data, space + 1, equals - (space + 1), StandardCharsets.UTF_8);
+            if (equals < recordEnd) {
+                String value = new String(data, equals + 1, recordEnd - (equals + 1), StandardCharsets.UTF_8);
+                if ("path".equals(key)) {
+                    this.mPaxPath = value;
+                } else if ("size".equals(key)) {
+                    try {
+                        this.mPaxSize = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                    }
+                }
+            }
+            i += length;
+        }
+    }
+
+    private static String parseName(byte[] header) {
+        String name = parseString(header, 0, 100);
+        if (header[345] == 0) {
+            return name;
+        }
+        return parseString(header, 345, 155) + "/" + name;
+    }
+
+    private static String parseString(byte[] header, int off, int max) {
+        int end = off;
+        while (end < off + max && header[end] != 0) {
+            end++;
+        }
+        return new String(header, off, end - off, StandardCharsets.UTF_8);
+    }
+
+    private static long parseOctal(byte[] header, int off, int max) {
+        long value = 0;
+        int end = off + max;
+        int i = off;
+        while (i < end && header[i] == 32) {
+            i++;
+        }
+        while (i < end && header[i] >= 48 && header[i] <= 55) {
+            value = (value << 3) + ((long) (header[i] - 48));
+            i++;
+        }
+        return value;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether {@code path}, "apps/<package>/<domain>/...", lies in one of the app data
+     * domains. The manifest, metadata, apk, obb and key/value entries always go to the archive.
+     */
+    private static boolean isDataDomain(String path) {
+        int start = path.indexOf(47, path.indexOf(47) + 1) + 1;
+        int end = path.indexOf(47, start);
+        if (start <= 0 || end < 0) {
+            return false;
+        }
+        switch (end - start) {
+            case 1:
+                char c = path.charAt(start);
+                return c == 'r' || c == 'f';
+            case 2:
+                return path.startsWith("db", start) || path.startsWith("sp", start) || path.startsWith("ef", start);
+            case 3:
+                return path.startsWith("d_r", start) || path.startsWith("d_f", start);
+            case 4:
+                return path.startsWith("d_db", start) || path.startsWith("d_sp", start);
+            default:
+                return false;
+        }
+    }
+}
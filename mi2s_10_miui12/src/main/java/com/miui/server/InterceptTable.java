@@ -0,0 +1,63 @@
+package com.miui.server;
+
+import android.util.ArrayMap;
+import android.util.ArraySet;
+
+/**
+ * Intercept rules of one cloud list, keyed by target package: the actions and the fully
+ * qualified activity class names listed for it. A table is filled before it is published and
+ * never changed after, so filterIntentLocked reads it without taking the lock.
+ */
+final class InterceptTable {
+    private final ArrayMap<String, ArraySet<String>> mActions = new ArrayMap<>();
+    private final ArrayMap<String, ArraySet<String>> mClassNames = new ArrayMap<>();
+
+    void addAction(String packageName, String action) {
+        add(this.mActions, packageName, action);
+    }
+
+    void addClassName(String packageName, String className) {
+        add(this.mClassNames, packageName, className);
+    }
+
+    private static void add(ArrayMap<String, ArraySet<String>> map, String packageName, String value) {
+        ArraySet<String> values = map.get(packageName);
+        if (values == null) {
+            values = new ArraySet<>(1);
+            map.put(packageName, values);
+        }
+        values.add(value);
+    }
+
+    boolean isEmpty() {
+        return this.mActions.isEmpty() && this.mClassNames.isEmpty();
+    }
+
+    boolean containsAction(String packageName, String action) {
+        ArraySet<String> actions = this.mActions.get(packageName);
+        return actions != null && actions.contains(action);
+    }
+
+    /**
+     * Whether {@code className} is listed for {@code packageName}. A class name starting with
+     * '.' is relative to {@code componentPackage} and is matched in place rather than by
+     * building the full name.
+     */
+    boolean containsClassName(String packageName, String componentPackage, String className) {
+        ArraySet<String> classNames = this.mClassNames.get(packageName);
+        if (classNames == null) {
+            return false;
+        }
+        if (className.isEmpty() || className.charAt(0) != '.') {
+            return classNames.contains(className);
+        }
+        int length = componentPackage.length() + className.length();
+        for (int i = classNames.size() - 1; i >= 0; i--) {
+            String name = classNames.valueAt(i);
+            if (name.length() == length && name.startsWith(componentPackage) && name.endsWith(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,280 @@
+package com.miui.server;
+
+import android.util.ArrayMap;
+import android.util.SparseArray;
+import com.android.internal.app.LaunchTimeRecord;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Learns, per user, which app tends to be launched after which from the activity launch records
+ * PerfShielderService receives, and asks a {@link Prewarmer} to start the most likely next app
+ * while the current one is in front.
+ *
+ * The model is a first-order transition table with exponentially decayed counts: every launch
+ * that follows another one within SESSION_GAP_MILLIS adds one to the edge between them and decays
+ * the other edges leaving the same app, so habits that change are forgotten after a few dozen
+ * launches. Each app keeps at most MAX_SUCCESSORS outgoing edges. A prediction is only acted on
+ * once an edge carries MIN_PROBABILITY of the decayed total and the app has been left at least
+ * MIN_OBSERVATIONS times.
+ *
+ * Off by default: PerfShielderService only feeds it launches while the global setting
+ * perf_launch_prewarm_enabled is set. Not thread safe; PerfShielderService drives it from its
+ * handler thread.
+ */
+final class LaunchPredictor {
+    private static final float DECAY = 0.95f;
+    private static final int HISTORY_SIZE = 512;
+    private static final int MAX_SUCCESSORS = 8;
+    private static final float MIN_OBSERVATIONS = 3.0f;
+    private static final float MIN_PROBABILITY = 0.4f;
+    private static final long PREWARM_COOLDOWN_MILLIS = 60000;
+    private static final long SESSION_GAP_MILLIS = 300000;
+    private final LaunchTimeRecord[] mHistory = new LaunchTimeRecord[HISTORY_SIZE];
+    private int mHistoryCount;
+    private int mHistoryStart;
+    private long mLaunches;
+    private final Prewarmer mPrewarmer;
+    private long mPrewarmHits;
+    private long mPrewarms;
+    private long mSavedColdStarts;
+    private final SparseArray<UserModel> mUsers = new SparseArray<>();
+
+    interface Prewarmer {
+        boolean prewarm(String str, int i);
+    }
+
+    private static final class Successors {
+        final String[] packages = new String[MAX_SUCCESSORS];
+        float total;
+        final float[] weights = new float[MAX_SUCCESSORS];
+
+        private Successors() {
+        }
+
+        /* access modifiers changed from: package-private */
+        public void observe(String packageName) {
+            int slot = -1;
+            int weakest = 0;
+            for (int i = 0; i < MAX_SUCCESSORS; i++) {
+                float[] fArr = this.weights;
+                fArr[i] = fArr[i] * DECAY;
+                String[] strArr = this.packages;
+                if (strArr[i] != null && strArr[i].equals(packageName)) {
+                    slot = i;
+                }
+                float[] fArr2 = this.weights;
+                if (fArr2[i] < fArr2[weakest]) {
+                    weakest = i;
+                }
+            }
+            if (slot < 0) {
+                slot = weakest;
+                this.packages[slot] = packageName;
+                this.weights[slot] = 0.0f;
+            }
+            float[] fArr3 = this.weights;
+            fArr3[slot] = fArr3[slot] + 1.0f;
+            this.total = (this.total * DECAY) + 1.0f;
+        }
+
+        /* access modifiers changed from: package-private */
+        public int best() {
+            int best = -1;
+            for (int i = 0; i < MAX_SUCCESSORS; i++) {
+                if (this.packages[i] != null && (best < 0 || this.weights[i] > this.weights[best])) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final class UserModel {
+        long lastLaunchTime;
+        String lastPackage;
+        long lastPrewarmTime;
+        String predicted;
+        boolean prewarmed;
+        final ArrayMap<String, Successors> transitions = new ArrayMap<>();
+
+        private UserModel() {
+        }
+    }
+
+    /** Outcome of replaying a launch log through a fresh predictor. */
+    static final class Evaluation {
+        long launches;
+        long prewarmHits;
+        long prewarms;
+        long savedColdStarts;
+        long wastedPssKb;
+        long wastedPrewarms;
+
+        Evaluation() {
+        }
+
+        /* access modifiers changed from: package-private */
+        public float hitRate() {
+            long j = this.prewarms;
+            if (j == 0) {
+                return 0.0f;
+            }
+            return ((float) this.prewarmHits) / ((float) j);
+        }
+
+        public String toString() {
+            return "launches=" + this.launches + " prewarms=" + this.prewarms + " hits=" + this.prewarmHits + " hitRate=" + hitRate() + " savedColdStarts=" + this.savedColdStarts + " wasted=" + this.wastedPrewarms + " wastedPss=" + this.wastedPssKb + "kB";
+        }
+    }
+
+    LaunchPredictor(Prewarmer prewarmer) {
+        this.mPrewarmer = prewarmer;
+    }
+
+    /**
+     * Feeds one launch into the model of {@code userId}, settles the prediction made after the
+     * previous launch and prewarms the app predicted to follow this one.
+     */
+    public void onLaunch(int userId, LaunchTimeRecord record) {
+        addToHistory(record);
+        UserModel user = this.mUsers.get(userId);
+        if (user == null) {
+            user = new UserModel();
+            this.mUsers.put(userId, user);
+        }
+        String packageName = record.getPackageName();
+        long time = record.getLaunchStartTime();
+        this.mLaunches++;
+        if (user.prewarmed && packageName.equals(user.predicted)) {
+            this.mPrewarmHits++;
+            if (!record.isColdStart()) {
+                this.mSavedColdStarts++;
+            }
+        }
+        user.predicted = null;
+        user.prewarmed = false;
+        String last = user.lastPackage;
+        if (last != null && !last.equals(packageName) && time >= user.lastLaunchTime && time - user.lastLaunchTime <= SESSION_GAP_MILLIS) {
+            Successors successors = user.transitions.get(last);
+            if (successors == null) {
+                successors = new Successors();
+                user.transitions.put(last, successors);
+            }
+            successors.observe(packageName);
+        }
+        user.lastPackage = packageName;
+        user.lastLaunchTime = time;
+        String next = predict(user, packageName);
+        if (next != null) {
+            user.predicted = next;
+            if (time - user.lastPrewarmTime >= PREWARM_COOLDOWN_MILLIS || time < user.lastPrewarmTime) {
+                user.lastPrewarmTime = time;
+                user.prewarmed = this.mPrewarmer.prewarm(next, userId);
+                if (user.prewarmed) {
+                    this.mPrewarms++;
+                }
+            }
+        }
+    }
+
+    private static String predict(UserModel user, String packageName) {
+        int best;
+        Successors successors = user.transitions.get(packageName);
+        if (successors == null || successors.total < MIN_OBSERVATIONS || (best = successors.best()) < 0 || successors.weights[best] < successors.total * MIN_PROBABILITY) {
+            return null;
+        }
+        return successors.packages[best];
+    }
+
+    private void addToHistory(LaunchTimeRecord record) {
+        int i = this.mHistoryCount;
+        if (i < HISTORY_SIZE) {
+            this.mHistory[(this.mHistoryStart + i) % HISTORY_SIZE] = record;
+            this.mHistoryCount = i + 1;
+            return;
+        }
+        LaunchTimeRecord[] launchTimeRecordArr = this.mHistory;
+        int i2 = this.mHistoryStart;
+        launchTimeRecordArr[i2] = record;
+        this.mHistoryStart = (i2 + 1) % HISTORY_SIZE;
+    }
+
+    /**
+     * Replays {@code records}, oldest first, through a fresh predictor whose prewarms always
+     * succeed unless the app is the one in front, and reports how many were used by the next
+     * launch. A used prewarm that the log shows as a cold start is a cold start saved; an unused
+     * one costs the app's PSS from {@code pssKb} when known.
+     */
+    static Evaluation evaluate(List<LaunchTimeRecord> records, final Map<String, Long> pssKb) {
+        final Evaluation evaluation = new Evaluation();
+        final String[] foreground = new String[1];
+        final String[] pending = new String[1];
+        LaunchPredictor predictor = new LaunchPredictor(new Prewarmer() {
+            public boolean prewarm(String packageName, int userId) {
+                if (packageName.equals(foreground[0])) {
+                    return false;
+                }
+                pending[0] = packageName;
+                return true;
+            }
+        });
+        int N = records.size();
+        for (int i = 0; i < N; i++) {
+            LaunchTimeRecord record = records.get(i);
+            if (record.getPackageName() != null) {
+                String prewarmed = pending[0];
+                if (prewarmed != null && prewarmed.equals(record.getPackageName())) {
+                    if (record.isColdStart()) {
+                        evaluation.savedColdStarts++;
+                    }
+                } else if (prewarmed != null) {
+                    evaluation.wastedPrewarms++;
+                    Long pss = pssKb != null ? pssKb.get(prewarmed) : null;
+                    if (pss != null) {
+                        evaluation.wastedPssKb += pss.longValue();
+                    }
+                }
+                pending[0] = null;
+                foreground[0] = record.getPackageName();
+                predictor.onLaunch(0, record);
+            }
+        }
+        evaluation.launches = predictor.mLaunches;
+        evaluation.prewarms = predictor.mPrewarms;
+        evaluation.prewarmHits = predictor.mPrewarmHits;
+        return evaluation;
+    }
+
+    /** Evaluates a fresh model against the launches this predictor has seen most recently. */
+    public Evaluation evaluateHistory(Map<String, Long> pssKb) {
+        ArrayList<LaunchTimeRecord> records = new ArrayList<>(this.mHistoryCount);
+        for (int i = 0; i < this.mHistoryCount; i++) {
+            records.add(this.mHistory[(this.mHistoryStart + i) % HISTORY_SIZE]);
+        }
+        return evaluate(records, pssKb);
+    }
+
+    /* access modifiers changed from: package-private */
+    public void dump(PrintWriter pw, boolean evaluate) {
+        pw.println("---- Launch Prediction ----");
+        pw.println("launches=" + this.mLaunches + " prewarms=" + this.mPrewarms + " hits=" + this.mPrewarmHits + " savedColdStarts=" + this.mSavedColdStarts);
+        for (int i = 0; i < this.mUsers.size(); i++) {
+            UserModel user = this.mUsers.valueAt(i);
+            pw.println("  user " + this.mUsers.keyAt(i) + ": apps=" + user.transitions.size() + " last=" + user.lastPackage + " predicted=" + user.predicted + " prewarmed=" + user.prewarmed);
+            for (int j = 0; j < user.transitions.size(); j++) {
+                Successors successors = user.transitions.valueAt(j);
+                int best = successors.best();
+                if (best >= 0) {
+                    pw.println("    " + user.transitions.keyAt(j) + " -> " + successors.packages[best] + " p=" + (successors.weights[best] / successors.total) + " n=" + successors.total);
+                }
+            }
+        }
+        if (evaluate) {
+            pw.println("  replay of last " + this.mHistoryCount + " launches: " + evaluateHistory(null));
+        }
+        pw.println("---- End of Launch Prediction ----\n");
+    }
+}
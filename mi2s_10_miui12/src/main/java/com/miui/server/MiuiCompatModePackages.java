@@ -48,6 +48,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import miui.app.AlertDialog;
 import miui.util.CustomizeUtil;
 import org.json.JSONObject;
@@ -56,6 +59,9 @@ import org.xmlpull.v1.XmlSerializer;
 
 public final class MiuiCompatModePackages {
     private static final String ATTR_CONFIG_NOTIFY_SUGGEST_APPS = "notifySuggestApps";
+    private static final int FILE_CUTOUT_MODE = 4;
+    private static final int FILE_PACKAGES = 1;
+    private static final int FILE_SPECIAL_MODE = 2;
     private static final String MODULE_CUTOUT_MODE = "cutout_mode";
     private static final int MSG_DONT_SHOW_AGAIN = 105;
     private static final int MSG_ON_APP_LAUNCH = 104;
@@ -64,8 +70,6 @@ public final class MiuiCompatModePackages {
     private static final int MSG_UNREGISTER_OBSERVER = 103;
     private static final int MSG_UPDATE_CLOUD_DATA = 108;
     private static final int MSG_WRITE = 100;
-    private static final int MSG_WRITE_CUTOUT_MODE = 107;
-    private static final int MSG_WRITE_SPECIAL_MODE = 106;
     private static final String TAG = "MiuiCompatModePackages";
     private static final String TAG_NAME_CONFIG = "config";
     /* access modifiers changed from: private */
@@ -94,15 +98,16 @@ public final class MiuiCompatModePackages {
     public final Context mContext;
     private final AtomicFile mCutoutModeFile;
     private float mDefaultAspect;
+    private final ConcurrentHashMap<String, Integer> mDefaultType = new ConcurrentHashMap<>();
+    private final AtomicInteger mDefaultsGeneration = new AtomicInteger();
     @GuardedBy({"mLock"})
-    private final HashMap<String, Integer> mDefaultType = new HashMap<>();
+    private int mDirtyFiles;
     private final AtomicFile mFile;
     /* access modifiers changed from: private */
     public final CompatHandler mHandler;
     private final Object mLock = new Object();
     private final Handler mMainHandler;
-    @GuardedBy({"mLock"})
-    private final HashMap<String, Integer> mNotchConfig = new HashMap<>();
+    private final ConcurrentHashMap<String, Integer> mNotchConfig = new ConcurrentHashMap<>();
     @GuardedBy({"mLock"})
     private final HashMap<String, Integer> mNotchSpecialModePackages = new HashMap<>();
     private boolean mNotifySuggestApps = true;
@@ -113,6 +118,7 @@ public final class MiuiCompatModePackages {
     private final AtomicFile mSpecialModeFile;
     private final HashSet<String> mSuggestList = new HashSet<>();
     private final HashSet<String> mSupportNotchList = new HashSet<>();
+    private volatile CompatModeTable mTable = CompatModeTable.EMPTY;
     @GuardedBy({"mLock"})
     private final HashMap<String, Integer> mUserCutoutModePackages = new HashMap<>();
 
@@ -124,12 +130,10 @@ public final class MiuiCompatModePackages {
         public void handleMessage(Message msg) {
             switch (msg.what) {
                 case 100:
-                    MiuiCompatModePackages.this.saveCompatModes();
+                    MiuiCompatModePackages.this.writeDirtyFiles();
                     return;
                 case 101:
-                    MiuiCompatModePackages.this.readCutoutModeConfig();
-                    MiuiCompatModePackages.this.readSpecialModeConfig();
-                    MiuiCompatModePackages.this.readPackagesConfig();
+                    MiuiCompatModePackages.this.readConfigs();
                     MiuiCompatModePackages.this.readSuggestApps();
                     return;
                 case 102:
@@ -147,12 +151,6 @@ public final class MiuiCompatModePackages {
                         return;
                     }
                     return;
-                case 106:
-                    MiuiCompatModePackages.this.saveSpecialModeFile();
-                    return;
-                case 107:
-                    MiuiCompatModePackages.this.saveCutoutModeFile();
-                    return;
                 case 108:
                     MiuiCompatModePackages.this.updateCloudData();
                     return;
@@ -220,13 +218,10 @@ public final class MiuiCompatModePackages {
     /* access modifiers changed from: private */
     public void updateCloudData() {
         Log.d(TAG, "updateCloudData");
-        synchronized (this.mLock) {
-            this.mCloudCutoutModePackages.clear();
-        }
+        HashMap<String, Integer> pkgs = new HashMap<>();
         List<MiuiSettings.SettingsCloudData.CloudData> dataList = MiuiSettings.SettingsCloudData.getCloudDataList(this.mContext.getContentResolver(), MODULE_CUTOUT_MODE);
         if (dataList != null && dataList.size() != 0) {
             try {
-                HashMap<String, Integer> pkgs = new HashMap<>();
                 for (MiuiSettings.SettingsCloudData.CloudData data : dataList) {
                     String json = data.toString();
                     if (!TextUtils.isEmpty(json)) {
@@ -238,18 +233,46 @@ public final class MiuiCompatModePackages {
                         }
                     }
                 }
-                synchronized (this.mLock) {
-                    this.mCloudCutoutModePackages.putAll(pkgs);
-                }
             } catch (Exception e) {
+                pkgs.clear();
                 e.printStackTrace();
             }
         }
+        synchronized (this.mLock) {
+            this.mCloudCutoutModePackages.clear();
+            this.mCloudCutoutModePackages.putAll(pkgs);
+            publishTableLocked();
+        }
+    }
+
+    /**
+     * Reads the three config files on the handler thread and publishes their modes in one table,
+     * so a launch sees either none or all of them.
+     */
+    /* access modifiers changed from: private */
+    public void readConfigs() {
+        HashMap<String, Integer> cutoutModes = new HashMap<>();
+        HashMap<String, Integer> specialModes = new HashMap<>();
+        HashMap<String, Integer> packages = new HashMap<>();
+        readCutoutModeConfig(cutoutModes);
+        readSpecialModeConfig(specialModes);
+        readPackagesConfig(packages);
+        synchronized (this.mLock) {
+            this.mUserCutoutModePackages.putAll(cutoutModes);
+            this.mNotchSpecialModePackages.putAll(specialModes);
+            this.mPackages.putAll(packages);
+            publishTableLocked();
+        }
+    }
+
+    @GuardedBy({"mLock"})
+    private void publishTableLocked() {
+        this.mTable = CompatModeTable.build(this.mPackages, this.mNotchSpecialModePackages, this.mUserCutoutModePackages, this.mCloudCutoutModePackages);
     }
 
     /* Debug info: failed to restart local var, previous not found, register: 11 */
     /* access modifiers changed from: private */
-    public void readSpecialModeConfig() {
+    public void readSpecialModeConfig(HashMap<String, Integer> out) {
         String pkg;
         FileInputStream fis = null;
         try {
@@ -282,9 +305,7 @@ public final class MiuiCompatModePackages {
                         eventType2 = parser.next();
                     } while (eventType2 != 1);
                 }
-                synchronized (this.mLock) {
-                    this.mNotchSpecialModePackages.putAll(pkgs);
-                }
+                out.putAll(pkgs);
                 if (fis != null) {
                     try {
                         fis.close();
@@ -313,7 +334,7 @@ public final class MiuiCompatModePackages {
 
     /* Debug info: failed to restart local var, previous not found, register: 11 */
     /* access modifiers changed from: private */
-    public void readCutoutModeConfig() {
+    public void readCutoutModeConfig(HashMap<String, Integer> out) {
         String pkg;
         FileInputStream fis = null;
         try {
@@ -344,9 +365,7 @@ public final class MiuiCompatModePackages {
                         eventType2 = parser.next();
                     } while (eventType2 != 1);
                 }
-                synchronized (this.mLock) {
-                    this.mUserCutoutModePackages.putAll(pkgs);
-                }
+                out.putAll(pkgs);
                 if (fis != null) {
                     try {
                         fis.close();
@@ -375,7 +394,7 @@ public final class MiuiCompatModePackages {
 
     /* Debug info: failed to restart local var, previous not found, register: 11 */
     /* access modifiers changed from: private */
-    public void readPackagesConfig() {
+    public void readPackagesConfig(HashMap<String, Integer> out) {
         FileInputStream fis = null;
         try {
             fis = this.mFile.openRead();
@@ -414,9 +433,7 @@ public final class MiuiCompatModePackages {
                         eventType2 = parser.next();
                     } while (eventType2 != 1);
                 }
-                synchronized (this.mLock) {
-                    this.mPackages.putAll(pkgs);
-                }
+                out.putAll(pkgs);
                 if (fis != null) {
                     try {
                         fis.close();
@@ -449,45 +466,51 @@ public final class MiuiCompatModePackages {
     }
 
     private float getPackageMode(String packageName) {
-        Integer mode;
-        synchronized (this.mLock) {
-            mode = this.mPackages.get(packageName);
-        }
-        return (float) (mode != null ? mode.intValue() : getDefaultMode(packageName));
+        CompatModeTable.Entry entry = this.mTable.get(packageName);
+        return (float) ((entry == null || entry.packageMode == CompatModeTable.UNSET) ? getDefaultMode(packageName) : entry.packageMode);
     }
 
     private int getSpecialMode(String packageName) {
-        Integer mode;
-        synchronized (this.mLock) {
-            mode = this.mNotchSpecialModePackages.get(packageName);
-        }
-        if (mode != null) {
-            return mode.intValue();
+        CompatModeTable.Entry entry = this.mTable.get(packageName);
+        if (entry == null || entry.specialMode == CompatModeTable.UNSET) {
+            return 0;
         }
-        return 0;
+        return entry.specialMode;
     }
 
-    private void scheduleWrite() {
+    /**
+     * Marks {@code files} for the next write and pushes it back by the usual delay, so a burst of
+     * changes to any of the files ends in one write of each changed file.
+     */
+    private void scheduleWrite(int files) {
+        synchronized (this.mLock) {
+            this.mDirtyFiles |= files;
+        }
         this.mHandler.removeMessages(100);
         this.mHandler.sendMessageDelayed(this.mHandler.obtainMessage(100), JobStatus.DEFAULT_TRIGGER_UPDATE_DELAY);
     }
 
-    private void scheduleWriteSpecialMode() {
-        this.mHandler.removeMessages(106);
-        this.mHandler.sendMessageDelayed(this.mHandler.obtainMessage(106), JobStatus.DEFAULT_TRIGGER_UPDATE_DELAY);
-    }
-
-    private void scheduleWriteCutoutMode() {
-        this.mHandler.removeMessages(107);
-        this.mHandler.sendMessageDelayed(this.mHandler.obtainMessage(107), JobStatus.DEFAULT_TRIGGER_UPDATE_DELAY);
+    /* access modifiers changed from: private */
+    public void writeDirtyFiles() {
+        int files;
+        synchronized (this.mLock) {
+            files = this.mDirtyFiles;
+            this.mDirtyFiles = 0;
+        }
+        if ((files & 1) != 0) {
+            saveCompatModes();
+        }
+        if ((files & 2) != 0) {
+            saveSpecialModeFile();
+        }
+        if ((files & 4) != 0) {
+            saveCutoutModeFile();
+        }
     }
 
     /* access modifiers changed from: package-private */
     public void saveCompatModes() {
-        HashMap<String, Integer> pkgs = new HashMap<>();
-        synchronized (this.mLock) {
-            pkgs.putAll(this.mPackages);
-        }
+        CompatModeTable table = this.mTable;
         FileOutputStream fos = null;
         try {
             FileOutputStream fos2 = this.mFile.startWrite();
@@ -499,10 +522,10 @@ public final class MiuiCompatModePackages {
             out.startTag((String) null, TAG_NAME_CONFIG);
             out.attribute((String) null, ATTR_CONFIG_NOTIFY_SUGGEST_APPS, String.valueOf(this.mNotifySuggestApps));
             out.endTag((String) null, TAG_NAME_CONFIG);
-            for (Map.Entry<String, Integer> entry : pkgs.entrySet()) {
+            for (Map.Entry<String, CompatModeTable.Entry> entry : table.entrySet()) {
                 String pkg = entry.getKey();
-                int mode = entry.getValue().intValue();
-                if ((mode > 0) != isDefaultRestrict(pkg)) {
+                int mode = entry.getValue().packageMode;
+                if (mode != CompatModeTable.UNSET && (mode > 0) != isDefaultRestrict(pkg)) {
                     if (getDefaultAspectType(pkg) != 1) {
                         out.startTag((String) null, SplitScreenReporter.STR_PKG);
                         out.attribute((String) null, Settings.ATTR_NAME, pkg);
@@ -541,10 +564,7 @@ public final class MiuiCompatModePackages {
 
     /* access modifiers changed from: package-private */
     public void saveSpecialModeFile() {
-        HashMap<String, Integer> pkgs = new HashMap<>();
-        synchronized (this.mLock) {
-            pkgs.putAll(this.mNotchSpecialModePackages);
-        }
+        CompatModeTable table = this.mTable;
         FileOutputStream fos = null;
         try {
             FileOutputStream fos2 = this.mSpecialModeFile.startWrite();
@@ -553,9 +573,9 @@ public final class MiuiCompatModePackages {
             out.startDocument((String) null, true);
             out.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
             out.startTag((String) null, "special-mode");
-            for (Map.Entry<String, Integer> entry : pkgs.entrySet()) {
+            for (Map.Entry<String, CompatModeTable.Entry> entry : table.entrySet()) {
                 String pkg = entry.getKey();
-                int mode = entry.getValue().intValue();
+                int mode = entry.getValue().specialMode;
                 if (mode > 0) {
                     out.startTag((String) null, SplitScreenReporter.STR_PKG);
                     out.attribute((String) null, Settings.ATTR_NAME, pkg);
@@ -593,10 +613,7 @@ public final class MiuiCompatModePackages {
 
     /* access modifiers changed from: package-private */
     public void saveCutoutModeFile() {
-        HashMap<String, Integer> pkgs = new HashMap<>();
-        synchronized (this.mLock) {
-            pkgs.putAll(this.mUserCutoutModePackages);
-        }
+        CompatModeTable table = this.mTable;
         FileOutputStream fos = null;
         try {
             FileOutputStream fos2 = this.mCutoutModeFile.startWrite();
@@ -605,8 +622,11 @@ public final class MiuiCompatModePackages {
             out.startDocument((String) null, true);
             out.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true);
             out.startTag((String) null, "cutout-mode");
-            for (Map.Entry<String, Integer> entry : pkgs.entrySet()) {
-                int mode = entry.getValue().intValue();
+            for (Map.Entry<String, CompatModeTable.Entry> entry : table.entrySet()) {
+                int mode = entry.getValue().userCutoutMode;
+                if (mode == CompatModeTable.UNSET) {
+                    continue;
+                }
                 out.startTag((String) null, SplitScreenReporter.STR_PKG);
                 out.attribute((String) null, Settings.ATTR_NAME, entry.getKey());
                 out.attribute((String) null, "mode", Integer.toString(mode));
@@ -665,31 +685,55 @@ public final class MiuiCompatModePackages {
         return isDefaultRestrict(pkg) ? 1 : 0;
     }
 
+    /**
+     * Drops the resolved default aspect type and notch config of {@code packageName}. A lookup
+     * that resolved it before this call and caches it after takes its value back out again.
+     */
+    private void forgetDefaults(String packageName) {
+        this.mDefaultsGeneration.incrementAndGet();
+        this.mDefaultType.remove(packageName);
+        this.mNotchConfig.remove(packageName);
+    }
+
+    /**
+     * Caches {@code value} resolved for {@code packageName} at {@code generation}, unless the
+     * package was forgotten since; a forget racing with the put removes it either way.
+     */
+    private void putDefault(ConcurrentHashMap<String, Integer> cache, String packageName, int value, int generation) {
+        Integer boxed = Integer.valueOf(value);
+        cache.put(packageName, boxed);
+        if (this.mDefaultsGeneration.get() != generation) {
+            cache.remove(packageName, boxed);
+        }
+    }
+
     private void removePackage(String packageName) {
         boolean realRemove = false;
+        forgetDefaults(packageName);
         synchronized (this.mLock) {
-            this.mDefaultType.remove(packageName);
             if (this.mPackages.containsKey(packageName)) {
                 this.mPackages.remove(packageName);
+                publishTableLocked();
                 realRemove = true;
             }
         }
         if (realRemove) {
-            scheduleWrite();
+            scheduleWrite(1);
         }
     }
 
     private void removeSpecialModePackage(String packageName) {
         boolean realRemove = false;
+        forgetDefaults(packageName);
         synchronized (this.mLock) {
-            this.mNotchConfig.remove(packageName);
             if (this.mNotchSpecialModePackages.containsKey(packageName)) {
                 this.mNotchSpecialModePackages.remove(packageName);
+                publishTableLocked();
                 realRemove = true;
             }
         }
         if (realRemove) {
-            scheduleWriteSpecialMode();
+            scheduleWrite(2);
         }
     }
 
@@ -701,10 +745,7 @@ public final class MiuiCompatModePackages {
 
     /* access modifiers changed from: private */
     public void handleUpdatePackage(String packageName) {
-        synchronized (this.mLock) {
-            this.mDefaultType.remove(packageName);
-            this.mNotchConfig.remove(packageName);
-        }
+        forgetDefaults(packageName);
         if (isDefaultRestrict(packageName) == isRestrictAspect(packageName) || getDefaultAspectType(packageName) == 1) {
             Slog.i(TAG, "package " + packageName + " updated, removing config");
             removePackage(packageName);
@@ -719,28 +760,18 @@ public final class MiuiCompatModePackages {
     }
 
     public int getNotchConfig(String packageName) {
-        Integer mode;
-        int config = 0;
-        synchronized (this.mLock) {
-            if (this.mNotchSpecialModePackages.containsKey(packageName) && (mode = this.mNotchSpecialModePackages.get(packageName)) != null) {
-                config = mode.intValue() != 0 ? 128 : 0;
-            }
-        }
-        return config | getDefaultNotchConfig(packageName);
+        return (getSpecialMode(packageName) != 0 ? 128 : 0) | getDefaultNotchConfig(packageName);
     }
 
     private int getDefaultNotchConfig(String packageName) {
-        synchronized (this.mLock) {
-            if (this.mNotchConfig.containsKey(packageName)) {
-                int intValue = this.mNotchConfig.get(packageName).intValue();
-                return intValue;
-            }
-            int type = resolveNotchConfig(packageName);
-            synchronized (this.mLock) {
-                this.mNotchConfig.put(packageName, Integer.valueOf(type));
-            }
-            return type;
+        Integer config = this.mNotchConfig.get(packageName);
+        if (config != null) {
+            return config.intValue();
         }
+        int generation = this.mDefaultsGeneration.get();
+        int type = resolveNotchConfig(packageName);
+        putDefault(this.mNotchConfig, packageName, type, generation);
+        return type;
     }
 
     private int resolveNotchConfig(String packageName) {
@@ -774,8 +805,9 @@ public final class MiuiCompatModePackages {
         if (special != isNotchSpecailMode(pkg)) {
             synchronized (this.mLock) {
                 this.mNotchSpecialModePackages.put(pkg, Integer.valueOf(special ? 1 : 0));
+                publishTableLocked();
             }
-            scheduleWriteSpecialMode();
+            scheduleWrite(2);
             ((ActivityManager) this.mContext.getSystemService("activity")).forceStopPackage(pkg);
         }
     }
@@ -787,103 +819,34 @@ public final class MiuiCompatModePackages {
     public void setCutoutMode(String pkg, int mode) {
         synchronized (this.mLock) {
             this.mUserCutoutModePackages.put(pkg, Integer.valueOf(mode));
+            publishTableLocked();
         }
-        scheduleWriteCutoutMode();
+        scheduleWrite(4);
         ((ActivityManager) this.mContext.getSystemService("activity")).forceStopPackage(pkg);
     }
 
-    /* JADX WARNING: Code restructure failed: missing block: B:10:0x001c, code lost:
-        monitor-enter(r1);
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:13:0x0023, code lost:
-        if (r4.mCloudCutoutModePackages.containsKey(r5) == false) goto L_0x0033;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:14:0x0025, code lost:
-        r0 = r4.mCloudCutoutModePackages.get(r5).intValue();
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:15:0x0031, code lost:
-        monitor-exit(r1);
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:16:0x0032, code lost:
-        return r0;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:17:0x0033, code lost:
-        monitor-exit(r1);
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:19:0x003d, code lost:
-        if ((getDefaultNotchConfig(r5) & com.android.server.usb.descriptors.UsbTerminalTypes.TERMINAL_EMBED_UNDEFINED) != 1792) goto L_?;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:20:0x003f, code lost:
-        return 1;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:35:?, code lost:
-        return 0;
-     */
-    /* JADX WARNING: Code restructure failed: missing block: B:9:0x001a, code lost:
-        r1 = r4.mLock;
-     */
-    /* Code decompiled incorrectly, please refer to instructions dump. */
-    public int getCutoutMode(java.lang.String r5) {
-        /*
-            r4 = this;
-            java.lang.Object r0 = r4.mLock
-            monitor-enter(r0)
-            java.util.HashMap<java.lang.String, java.lang.Integer> r1 = r4.mUserCutoutModePackages     // Catch:{ all -> 0x0044 }
-            boolean r1 = r1.containsKey(r5)     // Catch:{ all -> 0x0044 }
-            if (r1 == 0) goto L_0x0019
-            java.util.HashMap<java.lang.String, java.lang.Integer> r1 = r4.mUserCutoutModePackages     // Catch:{ all -> 0x0044 }
-            java.lang.Object r1 = r1.get(r5)     // Catch:{ all -> 0x0044 }
-            java.lang.Integer r1 = (java.lang.Integer) r1     // Catch:{ all -> 0x0044 }
-            int r1 = r1.intValue()     // Catch:{ all -> 0x0044 }
-            monitor-exit(r0)     // Catch:{ all -> 0x0044 }
-            return r1
-        L_0x0019:
-            monitor-exit(r0)     // Catch:{ all -> 0x0044 }
-            java.lang.Object r1 = r4.mLock
-            monitor-enter(r1)
-            java.util.HashMap<java.lang.String, java.lang.Integer> r0 = r4.mCloudCutoutModePackages     // Catch:{ all -> 0x0041 }
-            boolean r0 = r0.containsKey(r5)     // Catch:{ all -> 0x0041 }
-            if (r0 == 0) goto L_0x0033
-            java.util.HashMap<java.lang.String, java.lang.Integer> r0 = r4.mCloudCutoutModePackages     // Catch:{ all -> 0x0041 }
-            java.lang.Object r0 = r0.get(r5)     // Catch:{ all -> 0x0041 }
-            java.lang.Integer r0 = (java.lang.Integer) r0     // Catch:{ all -> 0x0041 }
-            int r0 = r0.intValue()     // Catch:{ all -> 0x0041 }
-            monitor-exit(r1)     // Catch:{ all -> 0x0041 }
-            return r0
-        L_0x0033:
-            monitor-exit(r1)     // Catch:{ all -> 0x0041 }
-            int r0 = r4.getDefaultNotchConfig(r5)
-            r1 = 1792(0x700, float:2.511E-42)
-            r2 = 0
-            r3 = r0 & r1
-            if (r3 != r1) goto L_0x0040
-            r2 = 1
-        L_0x0040:
-            return r2
-        L_0x0041:
-            r0 = move-exception
-            monitor-exit(r1)     // Catch:{ all -> 0x0041 }
-            throw r0
-        L_0x0044:
-            r1 = move-exception
-            monitor-exit(r0)     // Catch:{ all -> 0x0044 }
-            throw r1
-        */
-        throw new UnsupportedOperationException("Method not decompiled: com.miui.server.MiuiCompatModePackages.getCutoutMode(java.lang.String):int");
+    public int getCutoutMode(String pkg) {
+        CompatModeTable.Entry entry = this.mTable.get(pkg);
+        if (entry != null) {
+            if (entry.userCutoutMode != CompatModeTable.UNSET) {
+                return entry.userCutoutMode;
+            }
+            if (entry.cloudCutoutMode != CompatModeTable.UNSET) {
+                return entry.cloudCutoutMode;
+            }
+        }
+        return (getDefaultNotchConfig(pkg) & UsbTerminalTypes.TERMINAL_EMBED_UNDEFINED) == 1792 ? 1 : 0;
     }
 
     public int getDefaultAspectType(String packageName) {
-        synchronized (this.mLock) {
-            if (this.mDefaultType.containsKey(packageName)) {
-                int intValue = this.mDefaultType.get(packageName).intValue();
-                return intValue;
-            }
-            int type = resolveDefaultAspectType(packageName);
-            synchronized (this.mLock) {
-                this.mDefaultType.put(packageName, Integer.valueOf(type));
-            }
-            return type;
+        Integer type = this.mDefaultType.get(packageName);
+        if (type != null) {
+            return type.intValue();
         }
+        int generation = this.mDefaultsGeneration.get();
+        int type2 = resolveDefaultAspectType(packageName);
+        putDefault(this.mDefaultType, packageName, type2, generation);
+        return type2;
     }
 
     private int resolveDefaultAspectType(String packageName) {
@@ -920,8 +883,9 @@ public final class MiuiCompatModePackages {
         if (restrict != isRestrictAspect(pkg)) {
             synchronized (this.mLock) {
                 this.mPackages.put(pkg, Integer.valueOf(restrict ? 1 : 0));
+                publishTableLocked();
             }
-            scheduleWrite();
+            scheduleWrite(1);
             ((ActivityManager) this.mContext.getSystemService("activity")).forceStopPackage(pkg);
         }
     }
@@ -1005,6 +969,9 @@ public final class MiuiCompatModePackages {
     public void handleDontShowAgain() {
         this.mNotifySuggestApps = false;
         this.mHandler.sendEmptyMessage(103);
+        synchronized (this.mLock) {
+            this.mDirtyFiles |= 1;
+        }
         this.mHandler.sendEmptyMessage(100);
     }
 
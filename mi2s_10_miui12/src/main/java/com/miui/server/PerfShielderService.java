@@ -1,11 +1,13 @@
 package com.miui.server;
 
+import android.app.ActivityManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageInfo;
+import android.database.ContentObserver;
 import android.net.Uri;
 import android.os.Binder;
 import android.os.Build;
@@ -18,13 +20,17 @@ import android.os.Message;
 import android.os.ParcelFileDescriptor;
 import android.os.Process;
 import android.os.RemoteException;
+import android.os.ServiceManager;
+import android.os.SharedMemory;
 import android.os.StrictMode;
 import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.statistics.E2EScenario;
 import android.os.statistics.E2EScenarioPayload;
 import android.os.statistics.E2EScenarioSettings;
+import android.provider.Settings;
 import android.server.am.SplitScreenReporter;
+import android.system.ErrnoException;
 import android.text.TextUtils;
 import android.util.Slog;
 import com.android.internal.app.IMiuiSysUser;
@@ -38,6 +44,7 @@ import com.android.server.am.MiuiActivityHelper;
 import com.android.server.am.MiuiBroadcastDispatchHelper;
 import com.android.server.am.MiuiContentProviderControl;
 import com.android.server.am.MiuiSysUserServiceHelper;
+import com.android.server.am.ProcessManagerService;
 import com.android.server.am.ProcessPolicy;
 import com.android.server.job.JobSchedulerShellCommand;
 import com.android.server.job.controllers.JobStatus;
@@ -63,6 +70,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Pattern;
 
@@ -75,6 +84,7 @@ public final class PerfShielderService extends IPerfShielder.Stub {
     private static final long BIND_SYSOPT_SERVICE_FIRST = 1500;
     private static final boolean DEBUG = true;
     private static final long DELAY_TIME = 300000;
+    private static final String LAUNCH_PREWARM_ENABLED = "perf_launch_prewarm_enabled";
     private static final int LAUNCH_TYPE_DEFAULT = 0;
     private static final int LAUNCH_TYPE_FROM_HOME = 1;
     private static final String MIUI_SYS_USER_CLASS = "com.miui.daemon.performance.SysoptService";
@@ -107,6 +117,13 @@ public final class PerfShielderService extends IPerfShielder.Stub {
     };
     /* access modifiers changed from: private */
     public BindServiceHandler mHandler;
+    /* access modifiers changed from: private */
+    public volatile boolean mLaunchPrewarmEnabled;
+    private final LaunchPredictor mLaunchPredictor = new LaunchPredictor(new LaunchPredictor.Prewarmer() {
+        public boolean prewarm(String packageName, int userId) {
+            return PerfShielderService.this.prewarmProcess(packageName, userId);
+        }
+    });
     private List<LaunchTimeRecord> mLaunchTimes = new ArrayList();
     /* access modifiers changed from: private */
     public MiuiSysUserServiceConnection mMiuiSysUserConnection = new MiuiSysUserServiceConnection();
@@ -120,7 +137,11 @@ public final class PerfShielderService extends IPerfShielder.Stub {
     };
     private final AtomicReference<ParcelFileDescriptor> mPerfEventSocketFd = new AtomicReference<>();
     private final Object mPerfEventSocketFdLock = new Object();
+    private final ProcessMemSnapshot mMemSnapshot = new ProcessMemSnapshot();
+    private final Object mMemSnapshotLock = new Object();
     protected IMiuiPerfService mPerfService;
+    private final ProcessMemSnapshot mPidMemSnapshot = new ProcessMemSnapshot();
+    private ProcessManagerService mProcessManagerService;
     /* access modifiers changed from: private */
     public final ServiceConnection mPerformanceConnection = new ServiceConnection() {
         public void onServiceDisconnected(ComponentName arg0) {
@@ -179,6 +200,13 @@ public final class PerfShielderService extends IPerfShielder.Stub {
                 PerfShielderService.this.mSystemPressureController.start(PerfShielderService.this.mContext);
             }
         });
+        ContentObserver launchPrewarmObserver = new ContentObserver(this.mHandler) {
+            public void onChange(boolean selfChange) {
+                PerfShielderService.this.updateLaunchPrewarmEnabled();
+            }
+        };
+        this.mContext.getContentResolver().registerContentObserver(Settings.Global.getUriFor(LAUNCH_PREWARM_ENABLED), false, launchPrewarmObserver, -1);
+        updateLaunchPrewarmEnabled();
         this.mHandler.postDelayed(new Runnable() {
             public void run() {
                 PerfShielderService.this.bindService();
@@ -272,69 +300,95 @@ public final class PerfShielderService extends IPerfShielder.Stub {
         return ExtraActivityManagerService.getMemoryTrimLevel();
     }
 
+    /**
+     * Returns the running processes' memory table packed into a read-only SharedMemory region, or
+     * null when nothing changed since {@code knownSequence}, the sequence of the last snapshot the
+     * caller read. See ProcessMemSnapshot for the layout.
+     */
+    public SharedMemory getProcessMemSnapshot(long knownSequence) {
+        synchronized (this.mMemSnapshotLock) {
+            this.mMemSnapshot.refreshRunning();
+            if (this.mMemSnapshot.mSequence == knownSequence) {
+                return null;
+            }
+            try {
+                return this.mMemSnapshot.pack();
+            } catch (ErrnoException e) {
+                Slog.w(TAG, "Failed to pack process memory snapshot", e);
+                return null;
+            }
+        }
+    }
+
     public List<Bundle> getAllRunningProcessMemInfos() {
-        List<Bundle> result = ExtraActivityManagerService.getRunningProcessInfos();
-        if (result == null) {
-            result = new ArrayList<>();
-        }
-        PidSwapGetter swapgetter = new PidSwapGetter();
-        for (Bundle bundle : result) {
-            long[] pidStatus = getProcessStatusValues(bundle.getInt("pid"));
-            bundle.putLong("swap", pidStatus[0]);
-            int ppid = (int) pidStatus[1];
-            bundle.putInt("ppid", ppid);
-            bundle.putLong("pswap", swapgetter.get(ppid));
-            bundle.putLong("rss", pidStatus[2]);
-            bundle.putLong("lastRssTime", SystemClock.uptimeMillis());
+        List<Bundle> result;
+        synchronized (this.mMemSnapshotLock) {
+            ProcessMemSnapshot snapshot = this.mMemSnapshot;
+            snapshot.refreshRunning();
+            result = new ArrayList<>(snapshot.mCount);
+            PidSwapGetter swapgetter = new PidSwapGetter(snapshot);
+            for (int i = 0; i < snapshot.mCount; i++) {
+                Bundle bundle = new Bundle();
+                bundle.putInt("pid", snapshot.mPid[i]);
+                bundle.putInt("adj", snapshot.mAdj[i]);
+                bundle.putLong("lastPss", snapshot.mPss[i]);
+                bundle.putLong("lastPssTime", snapshot.mPssTime[i]);
+                bundle.putString("processName", snapshot.mProcessName[i]);
+                if (snapshot.mPackageName[i] != null) {
+                    bundle.putInt("packageUid", snapshot.mUid[i]);
+                    bundle.putString("packageName", snapshot.mPackageName[i]);
+                }
+                putStatusValues(bundle, snapshot, i, swapgetter);
+                result.add(bundle);
+            }
         }
         return result;
     }
 
     public List<Bundle> updateProcessFullMemInfoByPids(int[] pids) {
-        int pidSize = pids.length;
-        List<Bundle> result = new ArrayList<>(pidSize);
-        PidSwapGetter swapgetter = new PidSwapGetter();
-        for (int i = 0; i < pidSize; i++) {
-            Bundle bundle = new Bundle();
-            bundle.putInt("pid", pids[i]);
-            bundle.putLong("lastPssTime", SystemClock.uptimeMillis());
-            bundle.putLong("lastPss", getProcessPss(pids[i]));
-            bundle.putLong("lastRssTime", SystemClock.uptimeMillis());
-            long[] pidStatus = getProcessStatusValues(pids[i]);
-            bundle.putLong("swap", pidStatus[0]);
-            int ppid = (int) pidStatus[1];
-            bundle.putInt("ppid", ppid);
-            bundle.putLong("pswap", swapgetter.get(ppid));
-            bundle.putLong("rss", pidStatus[2]);
-            result.add(bundle);
-        }
-        return result;
+        return getProcessMemInfosByPids(pids, true);
     }
 
     public List<Bundle> updateProcessPartialMemInfoByPids(int[] pids) {
-        int pidSize = pids.length;
-        List<Bundle> result = new ArrayList<>(pidSize);
-        PidSwapGetter swapgetter = new PidSwapGetter();
-        for (int i = 0; i < pidSize; i++) {
-            Bundle bundle = new Bundle();
-            bundle.putInt("pid", pids[i]);
-            bundle.putLong("lastRssTime", SystemClock.uptimeMillis());
-            long[] pidStatus = getProcessStatusValues(pids[i]);
-            bundle.putLong("swap", pidStatus[0]);
-            int ppid = (int) pidStatus[1];
-            bundle.putInt("ppid", ppid);
-            bundle.putLong("pswap", swapgetter.get(ppid));
-            bundle.putLong("rss", pidStatus[2]);
-            result.add(bundle);
+        return getProcessMemInfosByPids(pids, false);
+    }
+
+    private List<Bundle> getProcessMemInfosByPids(int[] pids, boolean withPss) {
+        List<Bundle> result = new ArrayList<>(pids.length);
+        synchronized (this.mMemSnapshotLock) {
+            ProcessMemSnapshot snapshot = this.mPidMemSnapshot;
+            snapshot.refreshPids(pids);
+            PidSwapGetter swapgetter = new PidSwapGetter(snapshot);
+            for (int i = 0; i < snapshot.mCount; i++) {
+                Bundle bundle = new Bundle();
+                bundle.putInt("pid", snapshot.mPid[i]);
+                if (withPss) {
+                    bundle.putLong("lastPssTime", SystemClock.uptimeMillis());
+                    bundle.putLong("lastPss", getProcessPss(snapshot.mPid[i]));
+                }
+                putStatusValues(bundle, snapshot, i, swapgetter);
+                result.add(bundle);
+            }
         }
         return result;
     }
 
+    private static void putStatusValues(Bundle bundle, ProcessMemSnapshot snapshot, int i, PidSwapGetter swapgetter) {
+        bundle.putLong("lastRssTime", snapshot.mTime);
+        bundle.putLong("swap", snapshot.mSwap[i]);
+        bundle.putInt("ppid", snapshot.mPpid[i]);
+        bundle.putLong("pswap", swapgetter.get(snapshot.mPpid[i]));
+        bundle.putLong("rss", snapshot.mRss[i]);
+    }
+
     private class PidSwapGetter {
         Map<Integer, Long> pidSwapMap;
 
-        private PidSwapGetter() {
+        private PidSwapGetter(ProcessMemSnapshot snapshot) {
             this.pidSwapMap = new HashMap();
+            for (int i = 0; i < snapshot.mCount; i++) {
+                this.pidSwapMap.put(Integer.valueOf(snapshot.mPid[i]), Long.valueOf(snapshot.mSwap[i]));
+            }
         }
 
         public long get(int pid) {
@@ -465,6 +519,15 @@ public final class PerfShielderService extends IPerfShielder.Stub {
             LaunchTimeRecord record = new LaunchTimeRecord(packageName, activityName, launchStartTime, launchEndTime, isColdStart);
             record.setType(z ? 1 : 0);
             this.mLaunchTimes.add(record);
+            if (this.mLaunchPrewarmEnabled) {
+                final int userId = ActivityManager.getCurrentUser();
+                final LaunchTimeRecord launch = record;
+                this.mHandler.post(new Runnable() {
+                    public void run() {
+                        PerfShielderService.this.mLaunchPredictor.onLaunch(userId, launch);
+                    }
+                });
+            }
             long batchStartTime = this.mLaunchTimes.get(0).getLaunchStartTime();
             List<LaunchTimeRecord> list = this.mLaunchTimes;
             long batchEndTime = list.get(list.size() - 1).getLaunchEndTime();
@@ -475,6 +538,32 @@ public final class PerfShielderService extends IPerfShielder.Stub {
         }
     }
 
+    /* access modifiers changed from: private */
+    public void updateLaunchPrewarmEnabled() {
+        boolean z = false;
+        if (Settings.Global.getInt(this.mContext.getContentResolver(), LAUNCH_PREWARM_ENABLED, 0) != 0) {
+            z = true;
+        }
+        this.mLaunchPrewarmEnabled = z;
+    }
+
+    /* access modifiers changed from: private */
+    public boolean prewarmProcess(String packageName, int userId) {
+        if (this.mProcessManagerService == null) {
+            this.mProcessManagerService = (ProcessManagerService) ServiceManager.getService("ProcessManager");
+        }
+        ProcessManagerService processManagerService = this.mProcessManagerService;
+        if (processManagerService == null) {
+            return false;
+        }
+        try {
+            return processManagerService.prewarmProcess(packageName, userId);
+        } catch (Exception e) {
+            Slog.w(TAG, "prewarm " + packageName + " failed", e);
+            return false;
+        }
+    }
+
     private void reportActivityLaunchRecords() {
         try {
             if (this.mPerfService != null && this.mLaunchTimes.size() > 0) {
@@ -606,6 +695,10 @@ public final class PerfShielderService extends IPerfShielder.Stub {
             this.mSystemPressureController.dump(fd, pw, argsList);
             return;
         }
+        if (argsList.contains("LaunchPrediction")) {
+            dumpLaunchPrediction(pw, argsList.contains("evaluate"));
+            return;
+        }
         pw.println("---- ION Memory Usage ----");
         dumpFromFile(pw, "/d/ion/heaps/system");
         dumpFromFile(pw, "/d/ion/heaps/ion_mm_heap");
@@ -618,6 +711,20 @@ public final class PerfShielderService extends IPerfShielder.Stub {
         pw.println("---- End of minfree & adj ----\n");
     }
 
+    private void dumpLaunchPrediction(final PrintWriter pw, final boolean evaluate) {
+        final CountDownLatch latch = new CountDownLatch(1);
+        this.mHandler.post(new Runnable() {
+            public void run() {
+                PerfShielderService.this.mLaunchPredictor.dump(pw, evaluate);
+                latch.countDown();
+            }
+        });
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+        }
+    }
+
     /* access modifiers changed from: private */
     public void sendRebindServiceMsg(long delayedTime) {
         this.mHandler.removeMessages(1);
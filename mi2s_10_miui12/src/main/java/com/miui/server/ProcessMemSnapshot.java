@@ -0,0 +1,250 @@
+package com.miui.server;
+
+import android.os.Process;
+import android.os.SharedMemory;
+import android.os.SystemClock;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+import android.util.SparseArray;
+import com.android.server.am.ExtraActivityManagerService;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Process memory table kept as parallel primitive columns, and its packed read-only form handed
+ * to clients in one SharedMemory region.
+ *
+ * Every refresh that changes any row, or drops one, takes a new sequence number, and each row
+ * records the sequence at which its values last changed, so a client that remembers the last
+ * sequence it saw can tell that nothing changed without reading the region, and otherwise only
+ * look at rows newer than it.
+ *
+ * Packed layout, little endian, version 1:
+ * <pre>
+ *   header   int magic, int version, int headerSize, int count,
+ *            long sequence, long uptimeMillis, int stringTableOffset, int stringTableSize,
+ *            8 bytes reserved
+ *   columns  int pid[count], uid[count], adj[count], procState[count], ppid[count],
+ *            processName[count], packageName[count]      (string table offsets, -1 if none)
+ *            long rssKb[count], pssKb[count], swapKb[count], pssTime[count], rowSequence[count]
+ *   strings  u16 length + UTF-8 bytes, per referenced string
+ * </pre>
+ */
+final class ProcessMemSnapshot {
+    static final int HEADER_SIZE = 48;
+    private static final int INT_COLUMNS = 7;
+    private static final int LONG_COLUMNS = 5;
+    static final int MAGIC = 0x504D5353;
+    private static final int NO_ADJ = -1000;
+    private static final String[] STATUS_KEYS = {"VmSwap:", "PPid:", "VmRSS:"};
+    static final int VERSION = 1;
+    int[] mAdj = new int[64];
+    int mCount;
+    String[] mPackageName = new String[64];
+    private SparseArray<long[]> mPrevious = new SparseArray<>();
+    private SparseArray<long[]> mPreviousSpare = new SparseArray<>();
+    int[] mPid = new int[64];
+    int[] mPpid = new int[64];
+    int[] mProcState = new int[64];
+    String[] mProcessName = new String[64];
+    long[] mPss = new long[64];
+    long[] mPssTime = new long[64];
+    long[] mRowSequence = new long[64];
+    long[] mRss = new long[64];
+    private final long[] mScratch = new long[3];
+    long mSequence;
+    long[] mSwap = new long[64];
+    long mTime;
+    int[] mUid = new int[64];
+
+    private final ExtraActivityManagerService.RunningProcessVisitor mCollector = new ExtraActivityManagerService.RunningProcessVisitor() {
+        public void onProcess(int pid, int uid, int adj, int procState, long lastPss, long lastPssTime, String processName, String packageName) {
+            ProcessMemSnapshot.this.add(pid, uid, adj, procState, lastPss, lastPssTime, processName, packageName);
+        }
+    };
+
+    ProcessMemSnapshot() {
+    }
+
+    /** Replaces the rows with the processes ExtraActivityManagerService reports as running. */
+    void refreshRunning() {
+        this.mCount = 0;
+        ExtraActivityManagerService.collectRunningProcesses(this.mCollector);
+        readStatus();
+        commit();
+    }
+
+    /** Replaces the rows with {@code pids} alone; only the /proc status columns are filled. */
+    void refreshPids(int[] pids) {
+        this.mCount = 0;
+        for (int pid : pids) {
+            add(pid, -1, NO_ADJ, -1, -1, 0, null, null);
+        }
+        readStatus();
+        commit();
+    }
+
+    /* access modifiers changed from: private */
+    public void add(int pid, int uid, int adj, int procState, long pss, long pssTime, String processName, String packageName) {
+        int i = this.mCount;
+        if (i == this.mPid.length) {
+            grow(i * 2);
+        }
+        this.mPid[i] = pid;
+        this.mUid[i] = uid;
+        this.mAdj[i] = adj;
+        this.mProcState[i] = procState;
+        this.mPss[i] = pss;
+        this.mPssTime[i] = pssTime;
+        this.mProcessName[i] = processName;
+        this.mPackageName[i] = packageName;
+        this.mCount = i + 1;
+    }
+
+    private void grow(int capacity) {
+        this.mPid = Arrays.copyOf(this.mPid, capacity);
+        this.mUid = Arrays.copyOf(this.mUid, capacity);
+        this.mAdj = Arrays.copyOf(this.mAdj, capacity);
+        this.mProcState = Arrays.copyOf(this.mProcState, capacity);
+        this.mPpid = Arrays.copyOf(this.mPpid, capacity);
+        this.mRss = Arrays.copyOf(this.mRss, capacity);
+        this.mPss = Arrays.copyOf(this.mPss, capacity);
+        this.mSwap = Arrays.copyOf(this.mSwap, capacity);
+        this.mPssTime = Arrays.copyOf(this.mPssTime, capacity);
+        this.mRowSequence = Arrays.copyOf(this.mRowSequence, capacity);
+        this.mProcessName = (String[]) Arrays.copyOf(this.mProcessName, capacity);
+        this.mPackageName = (String[]) Arrays.copyOf(this.mPackageName, capacity);
+    }
+
+    private void readStatus() {
+        long[] values = this.mScratch;
+        for (int i = 0; i < this.mCount; i++) {
+            values[0] = -1;
+            values[1] = -1;
+            values[2] = -1;
+            Process.readProcLines("/proc/" + this.mPid[i] + "/status", STATUS_KEYS, values);
+            this.mSwap[i] = values[0];
+            this.mPpid[i] = (int) values[1];
+            this.mRss[i] = values[2];
+        }
+        this.mTime = SystemClock.uptimeMillis();
+    }
+
+    /** Stamps rows whose values moved since the previous refresh and advances the sequence. */
+    private void commit() {
+        long next = this.mSequence + 1;
+        boolean changed = this.mPrevious.size() != this.mCount;
+        SparseArray<long[]> current = this.mPreviousSpare;
+        current.clear();
+        for (int i = 0; i < this.mCount; i++) {
+            long[] last = this.mPrevious.get(this.mPid[i]);
+            if (last == null || last[0] != this.mRss[i] || last[1] != this.mPss[i] || last[2] != this.mSwap[i] || last[3] != ((long) this.mAdj[i]) || last[4] != ((long) this.mProcState[i])) {
+                last = new long[]{this.mRss[i], this.mPss[i], this.mSwap[i], (long) this.mAdj[i], (long) this.mProcState[i], next};
+                changed = true;
+            }
+            this.mRowSequence[i] = last[5];
+            current.put(this.mPid[i], last);
+        }
+        this.mPreviousSpare = this.mPrevious;
+        this.mPrevious = current;
+        if (changed) {
+            this.mSequence = next;
+        }
+    }
+
+    /** Writes the current rows into a new read-only SharedMemory region. */
+    SharedMemory pack() throws ErrnoException {
+        int count = this.mCount;
+        byte[][] strings = new byte[(count * 2)][];
+        int stringSize = 0;
+        for (int i = 0; i < count; i++) {
+            strings[i * 2] = encode(this.mProcessName[i]);
+            strings[(i * 2) + 1] = encode(this.mPackageName[i]);
+            for (int j = 0; j < 2; j++) {
+                byte[] bytes = strings[(i * 2) + j];
+                if (bytes != null) {
+                    stringSize += bytes.length + 2;
+                }
+            }
+        }
+        int stringOffset = HEADER_SIZE + (count * 4 * INT_COLUMNS) + (count * 8 * LONG_COLUMNS);
+        SharedMemory memory = SharedMemory.create("ProcessMemSnapshot", Math.max(stringOffset + stringSize, 1));
+        boolean success = false;
+        try {
+            ByteBuffer buffer = memory.mapReadWrite();
+            try {
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION).putInt(HEADER_SIZE).putInt(count);
+                buffer.putLong(this.mSequence).putLong(this.mTime);
+                buffer.putInt(stringOffset).putInt(stringSize);
+                buffer.position(HEADER_SIZE);
+                putInts(buffer, this.mPid, count);
+                putInts(buffer, this.mUid, count);
+                putInts(buffer, this.mAdj, count);
+                putInts(buffer, this.mProcState, count);
+                putInts(buffer, this.mPpid, count);
+                int next = 0;
+                int[] offsets = new int[(count * 2)];
+                for (int i2 = 0; i2 < count * 2; i2++) {
+                    if (strings[i2] == null) {
+                        offsets[i2] = -1;
+                    } else {
+                        offsets[i2] = next;
+                        next += strings[i2].length + 2;
+                    }
+                }
+                for (int i3 = 0; i3 < count; i3++) {
+                    buffer.putInt(offsets[i3 * 2]);
+                }
+                for (int i4 = 0; i4 < count; i4++) {
+                    buffer.putInt(offsets[(i4 * 2) + 1]);
+                }
+                putLongs(buffer, this.mRss, count);
+                putLongs(buffer, this.mPss, count);
+                putLongs(buffer, this.mSwap, count);
+                putLongs(buffer, this.mPssTime, count);
+                putLongs(buffer, this.mRowSequence, count);
+                for (int i5 = 0; i5 < count; i5++) {
+                    for (int j2 = 0; j2 < 2; j2++) {
+                        byte[] bytes2 = strings[(i5 * 2) + j2];
+                        if (bytes2 != null) {
+                            buffer.putShort((short) bytes2.length);
+                            buffer.put(bytes2);
+                        }
+                    }
+                }
+            } finally {
+                SharedMemory.unmap(buffer);
+            }
+            memory.setProtect(OsConstants.PROT_READ);
+            success = true;
+            return memory;
+        } finally {
+            if (!success) {
+                memory.close();
+            }
+        }
+    }
+
+    private static byte[] encode(String str) {
+        if (str == null) {
+            return null;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        return bytes.length > 65535 ? Arrays.copyOf(bytes, 65535) : bytes;
+    }
+
+    private static void putInts(ByteBuffer buffer, int[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(values[i]);
+        }
+    }
+
+    private static void putLongs(ByteBuffer buffer, long[] values, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(values[i]);
+        }
+    }
+}
@@ -179,7 +179,7 @@ public class ApplicationManagerService extends IApplicationManager.Stub {
             z = false;
         }
         ProcessManager.updateApplicationLockedState(str2, i2, z);
-        List<String> whiteList = this.mProcessManagerService.getProcessPolicy().getWhiteList(4096);
+        List<String> whiteList = new ArrayList<>(this.mProcessManagerService.getProcessPolicy().getWhiteList(4096));
         boolean modified = false;
         if ((i & 1) != 0) {
             if (!whiteList.contains(str2)) {
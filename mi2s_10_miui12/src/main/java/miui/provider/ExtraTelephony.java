@@ -602,28 +602,45 @@ public final class ExtraTelephony {
     }
 
     public static boolean isPrefixInBlack(Context context, String number, int state, int simId) {
-        int dbState;
         if (TextUtils.isEmpty(number)) {
             return false;
         }
-        String tmp = Prefix.EMPTY;
-        for (int i = 0; i < number.length(); i++) {
-            tmp = tmp + number.charAt(i);
-            Cursor c = context.getContentResolver().query(Phonelist.CONTENT_URI, (String[]) null, "number = ? AND type = ? AND sim_id = ? AND sync_dirty <> ? ", new String[]{tmp + "*", "1", String.valueOf(simId), String.valueOf(1)}, (String) null);
-            if (c != null) {
+        return isPrefixInPhonelist(context, number, "1", state, simId, "Cursor exception in isPrefixInBlack(): ");
+    }
+
+    private static boolean isPrefixInPhonelist(Context context, String number, String type, int state, int simId, String errorMessage) {
+        int dbState;
+        int length = number.length();
+        StringBuilder selection = new StringBuilder("number IN (");
+        String[] args = new String[(length + 3)];
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                selection.append(',');
+            }
+            selection.append('?');
+            args[i] = number.substring(0, i + 1) + "*";
+        }
+        selection.append(") AND type = ? AND sim_id = ? AND sync_dirty <> ? ");
+        args[length] = type;
+        args[length + 1] = String.valueOf(simId);
+        args[length + 2] = String.valueOf(1);
+        Cursor c = context.getContentResolver().query(Phonelist.CONTENT_URI, new String[]{"state"}, selection.toString(), args, (String) null);
+        if (c != null) {
+            while (c.moveToNext()) {
                 try {
-                    if (c.moveToNext() && ((dbState = c.getInt(c.getColumnIndex("state"))) == 0 || dbState == state)) {
+                    dbState = c.getInt(0);
+                    if (dbState == 0 || dbState == state) {
                         c.close();
                         return true;
                     }
                 } catch (Exception e) {
-                    Log.e(TAG, "Cursor exception in isPrefixInBlack(): ", e);
+                    Log.e(TAG, errorMessage, e);
                 } catch (Throwable th) {
                     c.close();
                     throw th;
                 }
-                c.close();
             }
+            c.close();
         }
         return false;
     }
@@ -706,13 +723,11 @@ public final class ExtraTelephony {
 
     public static boolean isInWhiteList(Context context, String rawNumber, int state, int simId) {
         int dbState;
-        int dbState2;
         int dbState3;
         int i = state;
         if (TextUtils.isEmpty(rawNumber)) {
             return false;
         }
-        int i2 = 4;
         Cursor cursor = context.getContentResolver().query(Phonelist.CONTENT_URI, (String[]) null, "number = ? AND type = ? AND sim_id = ? AND sync_dirty <> ? ", new String[]{PrefixCode + PhoneNumberUtils.PhoneNumber.getLocationAreaCode(context, rawNumber), "2", String.valueOf(simId), String.valueOf(1)}, (String) null);
         if (cursor != null) {
             try {
@@ -729,34 +744,8 @@ public final class ExtraTelephony {
             cursor.close();
         }
         String normalizedNum = PhoneNumberUtils.PhoneNumber.parse(rawNumber).getNormalizedNumber(false, true);
-        int i3 = 0;
-        String tmp = Prefix.EMPTY;
-        while (i3 < normalizedNum.length()) {
-            tmp = tmp + normalizedNum.charAt(i3);
-            ContentResolver contentResolver = context.getContentResolver();
-            Uri uri = Phonelist.CONTENT_URI;
-            String[] strArr = new String[i2];
-            strArr[0] = tmp + "*";
-            strArr[1] = "2";
-            strArr[2] = String.valueOf(simId);
-            strArr[3] = String.valueOf(1);
-            Cursor cursor2 = contentResolver.query(uri, (String[]) null, "number = ? AND type = ? AND sim_id = ? AND sync_dirty <> ? ", strArr, (String) null);
-            if (cursor2 != null) {
-                try {
-                    if (cursor2.moveToNext() && ((dbState2 = cursor2.getInt(cursor2.getColumnIndex("state"))) == 0 || dbState2 == i)) {
-                        cursor2.close();
-                        return true;
-                    }
-                } catch (Exception e2) {
-                    Log.e(TAG, "Cursor exception when prefix check in whiteList: ", e2);
-                } catch (Throwable th2) {
-                    cursor2.close();
-                    throw th2;
-                }
-                cursor2.close();
-            }
-            i3++;
-            i2 = 4;
+        if (!TextUtils.isEmpty(normalizedNum) && isPrefixInPhonelist(context, normalizedNum, "2", i, simId, "Cursor exception when prefix check in whiteList: ")) {
+            return true;
         }
         Cursor cursor3 = context.getContentResolver().query(Phonelist.CONTENT_URI, (String[]) null, "number= ? AND type= ? AND sim_id = ? AND sync_dirty <> ? ", new String[]{normalizedNum, "2", String.valueOf(simId), String.valueOf(1)}, (String) null);
         if (cursor3 != null) {
@@ -823,12 +812,13 @@ public final class ExtraTelephony {
     }
 
     public static boolean containsKeywords(Context context, String smsBody, int type, int simId) {
-        Cursor cursor = context.getContentResolver().query(Keyword.CONTENT_URI, (String[]) null, "type = ? AND sim_id = ? ", new String[]{String.valueOf(type), String.valueOf(simId)}, (String) null);
+        Cursor cursor = context.getContentResolver().query(Keyword.CONTENT_URI, new String[]{"data"}, "type = ? AND sim_id = ? ", new String[]{String.valueOf(type), String.valueOf(simId)}, (String) null);
         if (cursor != null) {
+            String body = smsBody.toLowerCase();
             while (cursor.moveToNext()) {
                 try {
-                    String keyword = cursor.getString(cursor.getColumnIndex("data")).trim();
-                    if (!TextUtils.isEmpty(keyword) && smsBody.toLowerCase().contains(keyword.toLowerCase())) {
+                    String keyword = cursor.getString(0).trim();
+                    if (!TextUtils.isEmpty(keyword) && body.contains(keyword.toLowerCase())) {
                         cursor.close();
                         return true;
                     }
@@ -13,7 +13,7 @@ public class WakePathRuleInfo
   {
     public WakePathRuleInfo createFromParcel(Parcel paramAnonymousParcel)
     {
-      return new WakePathRuleInfo(paramAnonymousParcel, null);
+      return new WakePathRuleInfo(paramAnonymousParcel);
     }
     
     public WakePathRuleInfo[] newArray(int paramAnonymousInt)
@@ -231,9 +231,9 @@ public class WakePathRuleInfo
       }
       return bool;
     }
-    catch (ClassCastException paramObject)
+    catch (ClassCastException localClassCastException)
     {
-      ((ClassCastException)paramObject).printStackTrace();
+      localClassCastException.printStackTrace();
     }
     return false;
   }
@@ -0,0 +1,184 @@
+package miui.upnp.manager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import miui.upnp.manager.ctrlpoint.AbstractDevice;
+import miui.upnp.typedef.device.Device;
+import miui.upnp.typedef.device.DiscoveryType;
+import miui.upnp.typedef.device.Icon;
+import miui.upnp.typedef.device.Service;
+import miui.upnp.typedef.property.Property;
+
+/**
+ * The devices a control point has found, by UDN. The upnp service reports a device again for
+ * every announcement it sees and for every way it finds it, so in a home with many renderers the
+ * same descriptions arrive over and over. A device found again with the same UDN, description URL
+ * and description is the device of the cached wrapper, which is returned as it is. The service
+ * does not pass on BOOTID.UPNP.ORG, so the description URL stands in for it; a device that comes
+ * back with another URL has restarted, and replaces its entry.
+ *
+ * A cached description is never changed, since listeners read it on their own threads. A device
+ * that comes back with the same URL but another description gets a new wrapper, built by the
+ * caller from the new description like the wrapper of a new device, so its class follows the
+ * device type and its services have exactly the actions described. The subscription state and
+ * property values of its services are carried over before the new description is handed out.
+ */
+final class DeviceDescriptionCache {
+    private final HashMap<String, Entry> mDevices = new HashMap<>();
+
+    private static final class Entry {
+        final AbstractDevice device;
+        final String location;
+
+        Entry(String location2, AbstractDevice device2) {
+            this.location = location2;
+            this.device = device2;
+        }
+    }
+
+    private static boolean same(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Returns the cached wrapper of {@code device} if it was found before with the same description
+     * URL and description, or null if a wrapper has to be created for {@code device} and put.
+     */
+    synchronized AbstractDevice get(Device device) {
+        String udn = device.getDeviceId();
+        if (udn == null) {
+            return null;
+        }
+        Entry entry = this.mDevices.get(udn);
+        if (entry == null || !same(entry.location, device.getLocation())) {
+            return null;
+        }
+        Device cached = entry.device.device;
+        if (cached == null || cached == device || sameDescription(cached, device)) {
+            return entry.device;
+        }
+        carryOver(cached, device);
+        return null;
+    }
+
+    /** Returns whether {@code device} describes nothing that {@code cached} does not. */
+    private static boolean sameDescription(Device cached, Device device) {
+        if (!cached.getDiscoveryTypes().containsAll(device.getDiscoveryTypes())
+                || !same(cached.getDeviceType(), device.getDeviceType())
+                || !same(cached.getFriendlyName(), device.getFriendlyName())
+                || !same(cached.getManufacturer(), device.getManufacturer())
+                || !same(cached.getManufacturerUrl(), device.getManufacturerUrl())
+                || !same(cached.getModelDescription(), device.getModelDescription())
+                || !same(cached.getModelName(), device.getModelName())
+                || !same(cached.getModelNumber(), device.getModelNumber())
+                || !same(cached.getModelUrl(), device.getModelUrl())
+                || !same(cached.getSerialNumber(), device.getSerialNumber())
+                || !same(cached.getPresentationUrl(), device.getPresentationUrl())
+                || !same(cached.getUrlBase(), device.getUrlBase())
+                || !same(cached.getUpc(), device.getUpc())
+                || !same(cached.getQplayCapability(), device.getQplayCapability())
+                || !same(cached.getDlnaDoc(), device.getDlnaDoc())
+                || !same(cached.getDlnaCap(), device.getDlnaCap())) {
+            return false;
+        }
+        List<Icon> cachedIcons = cached.getIcons();
+        List<Icon> icons = device.getIcons();
+        if (cachedIcons.size() != icons.size()) {
+            return false;
+        }
+        for (int i = 0; i < icons.size(); i++) {
+            if (!same(cachedIcons.get(i).getUrl(), icons.get(i).getUrl())) {
+                return false;
+            }
+        }
+        Map<String, Service> cachedServices = cached.getServices();
+        Map<String, Service> services = device.getServices();
+        if (!cachedServices.keySet().equals(services.keySet())) {
+            return false;
+        }
+        for (Service service : services.values()) {
+            Service old = cachedServices.get(service.getServiceId());
+            if (!same(old.getType(), service.getType())
+                    || !same(old.getControlUrl(), service.getControlUrl())
+                    || !same(old.getEventSubUrl(), service.getEventSubUrl())
+                    || !same(old.getScpdUrl(), service.getScpdUrl())
+                    || !old.getActions().keySet().equals(service.getActions().keySet())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Carries the discovery types of {@code cached}, and the subscription state and property
+     * values of its services, over to {@code device}, which nobody else has seen yet.
+     */
+    private static void carryOver(Device cached, Device device) {
+        for (DiscoveryType type : cached.getDiscoveryTypes()) {
+            device.addDiscoveryType(type);
+        }
+        for (Service service : device.getServices().values()) {
+            Service old = cached.getService(service.getServiceId());
+            if (old == null) {
+                continue;
+            }
+            if (old.isSubscribed()) {
+                service.setSubscriptionId(old.getSubscriptionId());
+                service.setSubscribed(true);
+            }
+            for (Property property : service.getProperties()) {
+                Property oldProperty = old.getProperty(property.getDefinition().getName());
+                if (oldProperty != null && property.getCurrentValue() == null && oldProperty.getCurrentValue() != null) {
+                    property.setDataValue(oldProperty.getCurrentValue());
+                }
+            }
+        }
+    }
+
+    /** Returns the wrapper cached for {@code udn}, or null. */
+    synchronized AbstractDevice get(String udn) {
+        Entry entry = this.mDevices.get(udn);
+        if (entry != null) {
+            return entry.device;
+        }
+        return null;
+    }
+
+    synchronized List<AbstractDevice> getDevices() {
+        List<AbstractDevice> devices = new ArrayList<>(this.mDevices.size());
+        for (Entry entry : this.mDevices.values()) {
+            devices.add(entry.device);
+        }
+        return devices;
+    }
+
+    synchronized void put(Device device, AbstractDevice wrapper) {
+        String udn = device.getDeviceId();
+        if (udn != null) {
+            this.mDevices.put(udn, new Entry(device.getLocation(), wrapper));
+        }
+    }
+
+    /** Forgets {@code device} and returns the wrapper it was found with, or null. */
+    synchronized AbstractDevice remove(Device device) {
+        String udn = device.getDeviceId();
+        if (udn == null) {
+            return null;
+        }
+        Entry entry = this.mDevices.remove(udn);
+        if (entry != null) {
+            return entry.device;
+        }
+        return null;
+    }
+
+    synchronized int size() {
+        return this.mDevices.size();
+    }
+
+    synchronized void clear() {
+        this.mDevices.clear();
+    }
+}
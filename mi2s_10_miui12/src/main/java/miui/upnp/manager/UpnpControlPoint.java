@@ -6,7 +6,6 @@ import android.os.IBinder;
 import android.os.RemoteException;
 import android.util.Log;
 import java.util.List;
-import miui.telephony.phonenumber.Prefix;
 import miui.upnp.manager.ctrlpoint.AbstractDevice;
 import miui.upnp.manager.ctrlpoint.DeviceFactory;
 import miui.upnp.manager.handler.UpnpCompletionHandler;
@@ -36,6 +35,8 @@ public class UpnpControlPoint extends Binding {
     /* access modifiers changed from: private */
     public static final String TAG = UpnpControlPoint.class.getSimpleName();
     private static final String UPNP_SERVICE_PACKAGE_NAME = "com.xiaomi.upnp";
+    /* access modifiers changed from: private */
+    public final DeviceDescriptionCache deviceCache = new DeviceDescriptionCache();
     private IUpnpControlPointService serviceInstance;
 
     public UpnpControlPoint(Context context) {
@@ -54,6 +55,17 @@ public class UpnpControlPoint extends Binding {
     /* access modifiers changed from: protected */
     public void onServiceDisconnected(ComponentName name) {
         this.serviceInstance = null;
+        this.deviceCache.clear();
+    }
+
+    /** Returns the device with UDN {@code deviceId} found since the last start, or null. */
+    public AbstractDevice getDevice(String deviceId) {
+        return this.deviceCache.get(deviceId);
+    }
+
+    /** Returns the devices found since the last start and not lost since. */
+    public List<AbstractDevice> getDevices() {
+        return this.deviceCache.getDevices();
     }
 
     public void start() throws UpnpException {
@@ -73,6 +85,7 @@ public class UpnpControlPoint extends Binding {
     public void stop() throws UpnpException {
         Log.d(TAG, "stop");
         if (super.isBound()) {
+            this.deviceCache.clear();
             try {
                 this.serviceInstance.stop();
             } catch (RemoteException e) {
@@ -107,10 +120,14 @@ public class UpnpControlPoint extends Binding {
                 }, new IScanListener.Stub() {
                     public void onDeviceFound(Device device) throws RemoteException {
                         Log.d(UpnpControlPoint.TAG, "onDeviceFound");
-                        AbstractDevice d = DeviceFactory.createDevice(device);
+                        AbstractDevice d = UpnpControlPoint.this.deviceCache.get(device);
                         if (d == null) {
-                            Log.d(UpnpControlPoint.TAG, "DeviceFactory createDevice failed");
-                            return;
+                            d = DeviceFactory.createDevice(device);
+                            if (d == null) {
+                                Log.d(UpnpControlPoint.TAG, "DeviceFactory createDevice failed");
+                                return;
+                            }
+                            UpnpControlPoint.this.deviceCache.put(device, d);
                         }
                         try {
                             listener.onDeviceFound(d);
@@ -121,7 +138,10 @@ public class UpnpControlPoint extends Binding {
 
                     public void onDeviceLost(Device device) throws RemoteException {
                         Log.d(UpnpControlPoint.TAG, "onDeviceLost");
-                        AbstractDevice d = DeviceFactory.createDevice(device);
+                        AbstractDevice d = UpnpControlPoint.this.deviceCache.remove(device);
+                        if (d == null) {
+                            d = DeviceFactory.createDevice(device);
+                        }
                         if (d == null) {
                             Log.d(UpnpControlPoint.TAG, "DeviceFactory createDevice failed");
                             return;
@@ -270,7 +290,7 @@ public class UpnpControlPoint extends Binding {
                 this.serviceInstance.unsubscribe(SubscriptionInfoCreator.create(service), new ICompletionHandler.Stub() {
                     public void onSucceed() throws RemoteException {
                         service.setSubscribed(false);
-                        service.setSubscriptionId(Prefix.EMPTY);
+                        service.setSubscriptionId("");
                         try {
                             handler.onSucceed();
                         } catch (Exception e) {
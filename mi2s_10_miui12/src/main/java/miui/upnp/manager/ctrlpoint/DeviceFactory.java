@@ -2,12 +2,30 @@ package miui.upnp.manager.ctrlpoint;
 
 import android.annotation.TargetApi;
 import android.util.Log;
+import java.lang.reflect.Method;
+import java.util.HashMap;
 import miui.upnp.manager.UpnpManager;
 import miui.upnp.typedef.device.Device;
 import miui.upnp.typedef.deviceclass.DeviceClass;
 
 public class DeviceFactory {
     private static final String TAG = "DeviceFactroy";
+    private static final HashMap<Class<?>, Method> sCreateMethods = new HashMap<>();
+
+    private static Method getCreateMethod(Class<?> clazz) throws NoSuchMethodException {
+        Method method;
+        synchronized (sCreateMethods) {
+            method = sCreateMethods.get(clazz);
+        }
+        if (method != null) {
+            return method;
+        }
+        Method method2 = clazz.getMethod("create", new Class[]{Device.class});
+        synchronized (sCreateMethods) {
+            sCreateMethods.put(clazz, method2);
+        }
+        return method2;
+    }
 
     @TargetApi(19)
     public static AbstractDevice createDevice(Device device) {
@@ -27,7 +45,7 @@ public class DeviceFactory {
             return null;
         }
         try {
-            return (AbstractDevice) clazz.getMethod("create", new Class[]{Device.class}).invoke((Object) null, new Object[]{device});
+            return (AbstractDevice) getCreateMethod(clazz).invoke((Object) null, new Object[]{device});
         } catch (ReflectiveOperationException e) {
             e.printStackTrace();
             return null;
@@ -1,8 +1,6 @@
 package miui.upnp.typedef.datatype;
 
 import android.util.Log;
-import miui.cloud.backup.data.KeyStringSettingItem;
-import miui.telephony.phonenumber.Prefix;
 import miui.upnp.typedef.exception.InvalidDataTypeException;
 
 public enum DataType {
@@ -32,11 +30,7 @@ public enum DataType {
     URI,
     UUID;
     
-    private static final String TAG = null;
-
-    static {
-        TAG = DataType.class.getSimpleName();
-    }
+    private static final String TAG = DataType.class.getSimpleName();
 
     public boolean validate(Object min, Object max) {
         Class<?> clazz = getJavaDataType();
@@ -139,7 +133,7 @@ public enum DataType {
         if (type.equals("bin.hex")) {
             return BIN_HEX;
         }
-        if (type.equals(KeyStringSettingItem.TYPE)) {
+        if (type.equals("string")) {
             return STRING;
         }
         if (type.equals("time")) {
@@ -215,7 +209,7 @@ public enum DataType {
             case BIN_HEX:
                 return "bin.hex";
             case STRING:
-                return KeyStringSettingItem.TYPE;
+                return "string";
             case TIME:
                 return "time";
             case TIME_TZ:
@@ -317,7 +311,7 @@ public enum DataType {
     public Object createObjectValue() {
         Class<?> clazz = getJavaDataType();
         if (clazz == String.class) {
-            return Prefix.EMPTY;
+            return "";
         }
         if (clazz == Integer.class) {
             try {
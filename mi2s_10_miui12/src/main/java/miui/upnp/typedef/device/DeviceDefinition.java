@@ -8,7 +8,7 @@ public class DeviceDefinition {
     public static FieldDefinition Address = new FieldDefinition("address", DataType.STRING);
     private static final String DLNA_CAP = "dlna:X_DLNACAP";
     private static final String DLNA_DOC = "dlna:X_DLNADOC";
-    public static FieldDefinition DeviceId = new FieldDefinition(UDN, DataType.STRING);
+    public static FieldDefinition DeviceId = new FieldDefinition("UDN", DataType.STRING);
     public static FieldDefinition DlnaCap = new FieldDefinition(DLNA_CAP, DataType.STRING);
     public static FieldDefinition DlnaDoc = new FieldDefinition(DLNA_DOC, DataType.STRING);
     private static final String FRIENDLY_NAME = "friendlyName";
@@ -1,16 +1,13 @@
 package miui.upnp.typedef.device;
 
-import com.milink.api.v1.type.DeviceType;
-import miui.yellowpage.YellowPageContract;
-
 public enum DiscoveryType {
     UNDEFINED("undefined"),
-    LOCAL(YellowPageContract.Search.LOCAL_SEARCH),
+    LOCAL("local"),
     LAN("lan"),
-    BLUETOOTH(DeviceType.BLUETOOTH),
+    BLUETOOTH("bluetooth"),
     BLE("ble"),
     AP("ap"),
-    AIRTUNES(DeviceType.AIRTUNES);
+    AIRTUNES("airtunes");
     
     private String string;
 
@@ -2,8 +2,6 @@ package miui.upnp.typedef.error;
 
 import android.os.Parcel;
 import android.os.Parcelable;
-import com.android.server.wifi.scanner.ChannelHelper;
-import miui.telephony.phonenumber.Prefix;
 
 public class UpnpError implements Comparable<UpnpError>, Parcelable {
     public static final UpnpError ACTION_EXECUTE = new UpnpError(820, "action execute error");
@@ -24,7 +22,7 @@ public class UpnpError implements Comparable<UpnpError>, Parcelable {
     public static final UpnpError NOT_INITIALIZED = new UpnpError(802, "not initialized");
     public static final UpnpError OBJECT_NOT_REGISTERED = new UpnpError(831, "not registered");
     public static final UpnpError OBJECT_REGISTERED = new UpnpError(830, "registered");
-    public static final UpnpError OK = new UpnpError(ChannelHelper.SCAN_PERIOD_PER_CHANNEL_MS, "OK");
+    public static final UpnpError OK = new UpnpError(200, "OK");
     public static final UpnpError SERVICE_BIND_FAILED = new UpnpError(806, "service bind failed");
     public static final UpnpError SERVICE_NOT_BOUND = new UpnpError(806, "service not bound");
     public static final UpnpError SERVICE_SUBSCRIBE = new UpnpError(810, "subscribe error");
@@ -111,7 +109,7 @@ public class UpnpError implements Comparable<UpnpError>, Parcelable {
         out.writeInt(this.code);
         String str = this.message;
         if (str == null) {
-            str = Prefix.EMPTY;
+            str = "";
         }
         out.writeString(str);
     }
@@ -20,7 +20,7 @@ public enum AllowedValueType {
 
     /* renamed from: miui.upnp.typedef.property.AllowedValueType$1  reason: invalid class name */
     static /* synthetic */ class AnonymousClass1 {
-        static final /* synthetic */ int[] $SwitchMap$miui$upnp$typedef$property$AllowedValueType = null;
+        static final /* synthetic */ int[] $SwitchMap$miui$upnp$typedef$property$AllowedValueType;
 
         static {
             $SwitchMap$miui$upnp$typedef$property$AllowedValueType = new int[AllowedValueType.values().length];
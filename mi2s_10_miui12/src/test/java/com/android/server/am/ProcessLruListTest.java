@@ -0,0 +1,91 @@
+package com.android.server.am;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessLruListTest {
+    private ProcessRecord mA;
+    private ProcessRecord mB;
+    private ProcessRecord mC;
+    private ProcessLruList mList;
+
+    /**
+     * The list only reads and writes lruIndex, so the records are allocated without running the
+     * ProcessRecord constructor, which needs a running ActivityManagerService.
+     */
+    private static ProcessRecord newRecord() throws Exception {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Field field = unsafeClass.getDeclaredField("theUnsafe");
+        field.setAccessible(true);
+        Method allocateInstance = unsafeClass.getMethod("allocateInstance", Class.class);
+        ProcessRecord app = (ProcessRecord) allocateInstance.invoke(field.get(null), ProcessRecord.class);
+        app.lruIndex = -1;
+        return app;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mA = newRecord();
+        mB = newRecord();
+        mC = newRecord();
+        mList = new ProcessLruList();
+        mList.add(mA);
+        mList.add(mB);
+        mList.add(mC);
+    }
+
+    private void assertPositions() {
+        for (int i = 0; i < mList.size(); i++) {
+            assertEquals(i, mList.get(i).lruIndex);
+            assertEquals(i, mList.indexOf(mList.get(i)));
+        }
+    }
+
+    @Test
+    public void setDuplicateKeepsPositionOfReplacedRecordStillOnList() {
+        // [A, A, C]: A is at both 0 and 1 and B has left the list.
+        assertSame(mB, mList.set(1, mA));
+        assertEquals(1, mA.lruIndex);
+        assertEquals(-1, mB.lruIndex);
+        assertFalse(mList.contains(mB));
+
+        // Replacing the copy A's position points at moves it to the copy that is left.
+        assertSame(mA, mList.set(1, mB));
+        assertEquals(0, mA.lruIndex);
+        assertEquals(0, mList.indexOf(mA));
+        assertTrue(mList.contains(mA));
+        assertPositions();
+    }
+
+    @Test
+    public void setDuplicateLeavesOtherPositionOfReplacedRecord() {
+        // [A, B, A]: C has left the list, A's position is the new one.
+        assertSame(mC, mList.set(2, mA));
+        assertEquals(2, mA.lruIndex);
+        assertEquals(-1, mC.lruIndex);
+
+        // Replacing the older copy of A does not touch the position it has at 2.
+        assertSame(mA, mList.set(0, mC));
+        assertEquals(2, mA.lruIndex);
+        assertEquals(0, mC.lruIndex);
+        assertPositions();
+    }
+
+    @Test
+    public void swapAndReverseKeepPositions() {
+        Collections.swap(mList, 0, 2);
+        assertPositions();
+        Collections.reverse(mList);
+        assertPositions();
+        assertEquals(Arrays.asList(mA, mB, mC), mList);
+    }
+}
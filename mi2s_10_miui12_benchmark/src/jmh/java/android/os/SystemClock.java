@@ -0,0 +1,113 @@
+package android.os;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Host stand-in for the framework SystemClock, whose clocks are native methods. build.gradle
+ * leaves the framework class out of the android-all on the benchmark classpath, so this is the
+ * only one. Uptime and elapsed realtime both count from JVM start, since a host JVM never sleeps
+ * in deep suspend.
+ */
+public final class SystemClock {
+    private static final long START_NANOS = System.nanoTime();
+
+    private SystemClock() {
+    }
+
+    public static void sleep(long ms) {
+        long end = uptimeMillis() + ms;
+        boolean interrupted = false;
+        while (true) {
+            long remaining = end - uptimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(remaining);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static boolean setCurrentTimeMillis(long millis) {
+        return false;
+    }
+
+    public static long uptimeMillis() {
+        return (System.nanoTime() - START_NANOS) / 1000000;
+    }
+
+    public static Clock uptimeMillisClock() {
+        return new MillisClock() {
+            public long millis() {
+                return SystemClock.uptimeMillis();
+            }
+        };
+    }
+
+    public static Clock uptimeClock() {
+        return uptimeMillisClock();
+    }
+
+    public static long elapsedRealtime() {
+        return uptimeMillis();
+    }
+
+    public static Clock elapsedRealtimeClock() {
+        return new MillisClock() {
+            public long millis() {
+                return SystemClock.elapsedRealtime();
+            }
+        };
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime() - START_NANOS;
+    }
+
+    public static long currentThreadTimeMillis() {
+        return currentThreadTimeMicro() / 1000;
+    }
+
+    public static long currentThreadTimeMicro() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime() / 1000;
+    }
+
+    public static long currentTimeMicro() {
+        return System.currentTimeMillis() * 1000;
+    }
+
+    public static long currentNetworkTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public static Clock currentNetworkTimeClock() {
+        return Clock.systemUTC();
+    }
+
+    public static Clock currentGnssTimeClock() {
+        return Clock.systemUTC();
+    }
+
+    private static abstract class MillisClock extends Clock {
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package android.util;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.UnknownHostException;
+
+/**
+ * Host stand-in for the framework Log, whose logd writer is native. Like the SystemClock next to
+ * it, it shadows the android-all class. Messages at or above the level given by the
+ * {@code benchmark.log.level} system property (default ERROR) go to stderr; the rest are dropped,
+ * so the logging left in measured paths costs about what a filtered logcat call costs on device.
+ */
+public final class Log {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+    public static final int ASSERT = 7;
+    public static final int LOG_ID_MAIN = 0;
+    public static final int LOG_ID_RADIO = 1;
+    public static final int LOG_ID_EVENTS = 2;
+    public static final int LOG_ID_SYSTEM = 3;
+    public static final int LOG_ID_CRASH = 4;
+    private static final String LEVELS = "??VDIWEA";
+    private static final int MIN_LEVEL = Math.max(VERBOSE, Math.min(ASSERT, LEVELS.indexOf(System.getProperty("benchmark.log.level", "E").charAt(0))));
+    private static TerribleFailureHandler sWtfHandler = new TerribleFailureHandler() {
+        public void onTerribleFailure(String tag, TerribleFailure what, boolean system) {
+        }
+    };
+
+    public interface TerribleFailureHandler {
+        void onTerribleFailure(String str, TerribleFailure terribleFailure, boolean z);
+    }
+
+    public static class TerribleFailure extends Exception {
+        TerribleFailure(String msg, Throwable cause) {
+            super(msg, cause);
+        }
+    }
+
+    private Log() {
+    }
+
+    public static int v(String tag, String msg) {
+        return println_native(LOG_ID_MAIN, VERBOSE, tag, msg);
+    }
+
+    public static int v(String tag, String msg, Throwable tr) {
+        return printlns(LOG_ID_MAIN, VERBOSE, tag, msg, tr);
+    }
+
+    public static int d(String tag, String msg) {
+        return println_native(LOG_ID_MAIN, DEBUG, tag, msg);
+    }
+
+    public static int d(String tag, String msg, Throwable tr) {
+        return printlns(LOG_ID_MAIN, DEBUG, tag, msg, tr);
+    }
+
+    public static int i(String tag, String msg) {
+        return println_native(LOG_ID_MAIN, INFO, tag, msg);
+    }
+
+    public static int i(String tag, String msg, Throwable tr) {
+        return printlns(LOG_ID_MAIN, INFO, tag, msg, tr);
+    }
+
+    public static int w(String tag, String msg) {
+        return println_native(LOG_ID_MAIN, WARN, tag, msg);
+    }
+
+    public static int w(String tag, String msg, Throwable tr) {
+        return printlns(LOG_ID_MAIN, WARN, tag, msg, tr);
+    }
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= MIN_LEVEL;
+    }
+
+    public static int w(String tag, Throwable tr) {
+        return printlns(LOG_ID_MAIN, WARN, tag, "", tr);
+    }
+
+    public static int e(String tag, String msg) {
+        return println_native(LOG_ID_MAIN, ERROR, tag, msg);
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return printlns(LOG_ID_MAIN, ERROR, tag, msg, tr);
+    }
+
+    public static int wtf(String tag, String msg) {
+        return wtf(LOG_ID_MAIN, tag, msg, null, false, false);
+    }
+
+    public static int wtfStack(String tag, String msg) {
+        return wtf(LOG_ID_MAIN, tag, msg, null, true, false);
+    }
+
+    public static int wtf(String tag, Throwable tr) {
+        return wtf(LOG_ID_MAIN, tag, tr.getMessage(), tr, false, false);
+    }
+
+    public static int wtf(String tag, String msg, Throwable tr) {
+        return wtf(LOG_ID_MAIN, tag, msg, tr, false, false);
+    }
+
+    static int wtf(int logId, String tag, String msg, Throwable tr, boolean localStack, boolean system) {
+        TerribleFailure what = new TerribleFailure(msg, tr);
+        int bytes = printlns(logId, ASSERT, tag, msg, localStack ? what : tr);
+        sWtfHandler.onTerribleFailure(tag, what, system);
+        return bytes;
+    }
+
+    static void wtfQuiet(int logId, String tag, String msg, boolean system) {
+        sWtfHandler.onTerribleFailure(tag, new TerribleFailure(msg, null), system);
+    }
+
+    public static TerribleFailureHandler setWtfHandler(TerribleFailureHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException("handler == null");
+        }
+        TerribleFailureHandler oldHandler = sWtfHandler;
+        sWtfHandler = handler;
+        return oldHandler;
+    }
+
+    public static String getStackTraceString(Throwable tr) {
+        if (tr == null) {
+            return "";
+        }
+        for (Throwable t = tr; t != null; t = t.getCause()) {
+            if (t instanceof UnknownHostException) {
+                return "";
+            }
+        }
+        StringWriter sw = new StringWriter();
+        PrintWriter pw = new PrintWriter(sw);
+        tr.printStackTrace(pw);
+        pw.flush();
+        return sw.toString();
+    }
+
+    public static int println(int priority, String tag, String msg) {
+        return println_native(LOG_ID_MAIN, priority, tag, msg);
+    }
+
+    public static int println_native(int bufID, int priority, String tag, String msg) {
+        if (priority < MIN_LEVEL) {
+            return 0;
+        }
+        String line = LEVELS.charAt(priority) + "/" + tag + ": " + msg;
+        System.err.println(line);
+        return line.length();
+    }
+
+    public static int printlns(int bufID, int priority, String tag, String msg, Throwable tr) {
+        if (priority < MIN_LEVEL) {
+            return 0;
+        }
+        String trace = getStackTraceString(tr);
+        return println_native(bufID, priority, tag, trace.isEmpty() ? msg : msg + '\n' + trace);
+    }
+}
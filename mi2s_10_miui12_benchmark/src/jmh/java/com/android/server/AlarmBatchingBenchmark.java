@@ -0,0 +1,90 @@
+package com.android.server;
+
+import com.android.server.benchmark.Datasets;
+import com.android.server.benchmark.FakeContext;
+import com.android.server.benchmark.Instances;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Replays alarm_trace.tsv through the batching step of AlarmManagerService.setImplLocked: the
+ * coalescing search, Batch.add and addBatchLocked. The AlarmManagerService of this tree does not
+ * compile, so this runs the AOSP class from android-all, whose batching MIUI keeps and only adds
+ * alignment hooks to. The service is allocated without running its constructor, which would
+ * publish a Binder, and gets only the batch list and the injector those methods read.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AlarmBatchingBenchmark {
+    private final ArrayList<AlarmManagerService.Alarm> mAlarms = new ArrayList<>();
+    private final ArrayList<AlarmManagerService.Batch> mBatches = new ArrayList<>();
+    private AlarmManagerService mService;
+
+    @Setup
+    public void setup() {
+        mService = Instances.allocate(AlarmManagerService.class);
+        Instances.set(mService, "mInjector", new AlarmManagerService.Injector(new FakeContext()));
+        Instances.set(mService, "mAlarmBatches", new ArrayList<AlarmManagerService.Batch>());
+        for (String[] record : Datasets.records("alarm_trace.tsv")) {
+            long now = Long.parseLong(record[0]);
+            int type = Integer.parseInt(record[1]);
+            long whenElapsed = now + Long.parseLong(record[2]);
+            long window = Long.parseLong(record[3]);
+            long interval = Long.parseLong(record[4]);
+            long maxElapsed;
+            if (window == 0) {
+                maxElapsed = whenElapsed;
+            } else if (window < 0) {
+                maxElapsed = AlarmManagerService.maxTriggerTime(now, whenElapsed, interval);
+            } else {
+                maxElapsed = whenElapsed + window;
+            }
+            mAlarms.add(new AlarmManagerService.Alarm(type, whenElapsed, whenElapsed, window, maxElapsed, interval, null, null, record[8], null, Integer.parseInt(record[5]), null, Integer.parseInt(record[6]), record[7]));
+        }
+    }
+
+    /** Inserts every alarm of the trace into an empty batch list. */
+    @Benchmark
+    public List<AlarmManagerService.Batch> insertTrace() {
+        ArrayList<AlarmManagerService.Batch> batches = mService.mAlarmBatches;
+        batches.clear();
+        int N = mAlarms.size();
+        for (int i = 0; i < N; i++) {
+            insert(mAlarms.get(i));
+        }
+        return batches;
+    }
+
+    /** The sorted insert alone, one single-alarm batch at a time. */
+    @Benchmark
+    public List<AlarmManagerService.Batch> addBatchLocked() {
+        ArrayList<AlarmManagerService.Batch> batches = mBatches;
+        batches.clear();
+        int N = mAlarms.size();
+        for (int i = 0; i < N; i++) {
+            AlarmManagerService.addBatchLocked(batches, mService.new Batch(mAlarms.get(i)));
+        }
+        return batches;
+    }
+
+    /** insertAndBatchAlarmLocked, which is private. */
+    private void insert(AlarmManagerService.Alarm alarm) {
+        AlarmManagerService service = mService;
+        int whichBatch = (alarm.flags & 1) != 0 ? -1 : service.attemptCoalesceLocked(alarm.whenElapsed, alarm.maxWhenElapsed);
+        if (whichBatch < 0) {
+            AlarmManagerService.addBatchLocked(service.mAlarmBatches, service.new Batch(alarm));
+            return;
+        }
+        AlarmManagerService.Batch batch = service.mAlarmBatches.get(whichBatch);
+        if (batch.add(alarm)) {
+            service.mAlarmBatches.remove(whichBatch);
+            AlarmManagerService.addBatchLocked(service.mAlarmBatches, batch);
+        }
+    }
+}
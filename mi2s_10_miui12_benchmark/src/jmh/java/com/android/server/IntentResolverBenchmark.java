@@ -0,0 +1,126 @@
+package com.android.server;
+
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.Uri;
+import com.android.server.benchmark.Datasets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Intent resolution over intent_filters.tsv. The IntentResolver of this tree is a partial
+ * decompile that does not compile, so this runs the AOSP class from android-all, which the MIUI
+ * one is built from and differs from only in logging. queryIntent picks the candidate filters by
+ * mime type, scheme and action and matches them in buildResolveList.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IntentResolverBenchmark {
+    private final ArrayList<IntentFilter> mFilters = new ArrayList<>();
+    private final ArrayList<Intent> mIntents = new ArrayList<>();
+    private int mNext;
+    private FilterResolver mResolver;
+    private final ArrayList<String> mTypes = new ArrayList<>();
+
+    static final class PackageFilter extends IntentFilter {
+        final String packageName;
+
+        PackageFilter(String packageName) {
+            this.packageName = packageName;
+        }
+    }
+
+    static final class FilterResolver extends IntentResolver<IntentFilter, IntentFilter> {
+        FilterResolver() {
+        }
+
+        /* access modifiers changed from: protected */
+        public boolean isPackageForFilter(String packageName, IntentFilter filter) {
+            return packageName.equals(((PackageFilter) filter).packageName);
+        }
+
+        /* access modifiers changed from: protected */
+        public IntentFilter[] newArray(int size) {
+            return new IntentFilter[size];
+        }
+
+        /* access modifiers changed from: protected */
+        public IntentFilter newResult(IntentFilter filter, int match, int userId) {
+            return filter;
+        }
+    }
+
+    @Setup
+    public void setup() throws IntentFilter.MalformedMimeTypeException {
+        for (String[] record : Datasets.records("intent_filters.tsv")) {
+            PackageFilter filter = new PackageFilter(record[0]);
+            filter.setPriority(Integer.parseInt(record[1]));
+            for (String action : Datasets.list(record[2])) {
+                filter.addAction(action);
+            }
+            for (String category : Datasets.list(record[3])) {
+                filter.addCategory(category);
+            }
+            for (String scheme : Datasets.list(record[4])) {
+                filter.addDataScheme(scheme);
+            }
+            for (String host : Datasets.list(record[5])) {
+                filter.addDataAuthority(host, null);
+            }
+            for (String type : Datasets.list(record[6])) {
+                filter.addDataType(type);
+            }
+            mFilters.add(filter);
+        }
+        mResolver = buildResolver();
+
+        for (String[] record : Datasets.records("intent_queries.tsv")) {
+            Intent intent = new Intent(record[0]);
+            for (String category : Datasets.list(record[1])) {
+                intent.addCategory(category);
+            }
+            String type = record[3];
+            if (record[2] != null && type != null) {
+                intent.setDataAndType(Uri.parse(record[2]), type);
+            } else if (record[2] != null) {
+                intent.setData(Uri.parse(record[2]));
+            } else if (type != null) {
+                intent.setType(type);
+            }
+            if (record[4] != null) {
+                intent.setPackage(record[4]);
+            }
+            mIntents.add(intent);
+            mTypes.add(type);
+        }
+    }
+
+    private FilterResolver buildResolver() {
+        FilterResolver resolver = new FilterResolver();
+        for (int i = 0; i < mFilters.size(); i++) {
+            resolver.addFilter(mFilters.get(i));
+        }
+        return resolver;
+    }
+
+    /** One intent of the weighted query mix per call. */
+    @Benchmark
+    public List<IntentFilter> queryIntent() {
+        int i = mNext;
+        mNext = i + 1 < mIntents.size() ? i + 1 : 0;
+        return mResolver.queryIntent(mIntents.get(i), mTypes.get(i), false, 0);
+    }
+
+    /** Registering every filter of the dataset into an empty resolver, as at boot. */
+    @Benchmark
+    public void addFilters(Blackhole bh) {
+        bh.consume(buildResolver());
+    }
+}
@@ -0,0 +1,139 @@
+package com.android.server;
+
+import android.graphics.Rect;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One event per call of a synthetic second of input at 1 kHz in handy mode: touch gestures of
+ * 20 to 80 samples, a tenth of them starting on an outside clickable rect, and a key press every
+ * 97 events. The filter itself needs DisplayThread and a device, so the benchmark runs the lookups
+ * MiuiInputFilter makes per event: the outside clickable rect on ACTION_DOWN, whether the touch
+ * is still on it after, and for keys whether they can start a combination. The reference scans
+ * the rect list and the int[][] key sequences, and takes the filter lock for every key, as
+ * onKeyEvent did before the index and the key table.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MiuiInputFilterBenchmark {
+    private static final int EVENTS = 1000;
+    private static final int[] KEYS = {24, 25, 26, 3, 4, 82};
+    private static final int[][] LISTEN_COMBINATION_KEYS = {new int[]{3, 4}, new int[]{3, 82}, new int[]{4, 3}, new int[]{82, 3}};
+    private final int[] mActions = new int[EVENTS];
+    private Object mClicking;
+    private ClickableRectIndex mIndex;
+    private final int[] mKeyCodes = new int[EVENTS];
+    private int mNext;
+    private volatile int mPendingKeyCount;
+    private final ArrayList<Object[]> mRectList = new ArrayList<>();
+    private final CombinationKeyTable mTable = new CombinationKeyTable(LISTEN_COMBINATION_KEYS);
+    private final int[] mX = new int[EVENTS];
+    private final int[] mY = new int[EVENTS];
+    @Param({"1", "16"})
+    public int rects;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(48);
+        // The handy mode setting icon, then shortcut targets along the bottom of the freed space.
+        Rect[] rectArray = new Rect[rects];
+        Object[] targets = new Object[rects];
+        rectArray[0] = new Rect(846, 2196, 1026, 2376);
+        for (int i = 1; i < rects; i++) {
+            int left = 20 + ((i - 1) % 8) * 100;
+            int top = 1700 + ((i - 1) / 8) * 120;
+            rectArray[i] = new Rect(left, top, left + 90, top + 110);
+        }
+        for (int i = 0; i < rects; i++) {
+            targets[i] = rectArray[i];
+            mRectList.add(new Object[]{rectArray[i], targets[i]});
+        }
+        mIndex = new ClickableRectIndex(rectArray, targets);
+        int i = 0;
+        while (i < EVENTS) {
+            int x;
+            int y;
+            if (random.nextInt(10) == 0) {
+                Rect rect = rectArray[random.nextInt(rects)];
+                x = rect.centerX();
+                y = rect.centerY();
+            } else {
+                x = random.nextInt(1080);
+                y = random.nextInt(2400);
+            }
+            int samples = 20 + random.nextInt(61);
+            for (int s = 0; s < samples && i < EVENTS; s++, i++) {
+                if (i % 97 == 96) {
+                    mKeyCodes[i] = KEYS[random.nextInt(KEYS.length)];
+                    continue;
+                }
+                mActions[i] = s == 0 ? 0 : s == samples - 1 ? 1 : 2;
+                mX[i] = x;
+                mY[i] = y;
+                x += random.nextInt(9) - 4;
+                y += random.nextInt(9) - 4;
+            }
+        }
+    }
+
+    private int next() {
+        int i = mNext;
+        mNext = (i + 1) % EVENTS;
+        return i;
+    }
+
+    @Benchmark
+    public Object indexedEvent() {
+        int i = next();
+        int keyCode = mKeyCodes[i];
+        if (keyCode != 0) {
+            if (mPendingKeyCount == 0 && !mTable.isFirstKey(keyCode)) {
+                return null;
+            }
+            synchronized (this) {
+                return mTable.isFirstKey(keyCode) ? this : null;
+            }
+        }
+        if (mActions[i] == 0) {
+            mClicking = mIndex.find(mX[i], mY[i]);
+        } else if (mClicking != null && !((Rect) mClicking).contains(mX[i], mY[i])) {
+            mClicking = null;
+        }
+        return mClicking;
+    }
+
+    @Benchmark
+    public Object scanningEvent() {
+        int i = next();
+        int keyCode = mKeyCodes[i];
+        if (keyCode != 0) {
+            synchronized (this) {
+                for (int[] sequence : LISTEN_COMBINATION_KEYS) {
+                    if (sequence[0] == keyCode) {
+                        return this;
+                    }
+                }
+                return null;
+            }
+        }
+        if (mActions[i] == 0) {
+            mClicking = null;
+            for (Object[] c : mRectList) {
+                if (((Rect) c[0]).contains(mX[i], mY[i])) {
+                    mClicking = c[1];
+                    break;
+                }
+            }
+        } else if (mClicking != null && !((Rect) mClicking).contains(mX[i], mY[i])) {
+            mClicking = null;
+        }
+        return mClicking;
+    }
+}
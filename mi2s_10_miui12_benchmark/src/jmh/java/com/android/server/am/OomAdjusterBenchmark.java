@@ -0,0 +1,246 @@
+package com.android.server.am;
+
+import android.app.IApplicationThread;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.os.IBinder;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.SparseArray;
+import com.android.server.benchmark.HostOs;
+import com.android.server.benchmark.Instances;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One full oom adj pass over a seeded population of 70 processes: the top app, persistent
+ * processes, foreground service holders, started and bound services with connections from other
+ * processes, content providers with clients, and cached apps. The OomAdjuster of this tree does
+ * not compile, so this runs the AOSP class from android-all, whose computeOomAdjLocked MIUI keeps.
+ * Each pass is the core of updateOomAdjLocked: reset the raw state, compute every process from
+ * the most recent one down, then re-evaluate the processes of binding cycles. Applying the result
+ * to the processes is not included.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OomAdjusterBenchmark {
+    private static final int BOUND_SERVICES = 14;
+    private static final int CACHED_APPS = 30;
+    private static final int[] CONNECTION_FLAGS = {Context.BIND_AUTO_CREATE, Context.BIND_AUTO_CREATE | Context.BIND_IMPORTANT, Context.BIND_AUTO_CREATE | Context.BIND_ABOVE_CLIENT, Context.BIND_AUTO_CREATE | Context.BIND_NOT_FOREGROUND, Context.BIND_AUTO_CREATE | Context.BIND_WAIVE_PRIORITY, Context.BIND_AUTO_CREATE | Context.BIND_ALLOW_OOM_MANAGEMENT, Context.BIND_AUTO_CREATE | Context.BIND_FOREGROUND_SERVICE};
+    private static final int FOREGROUND_SERVICE_APPS = 6;
+    private static final int MAX_CYCLE_RETRIES = 10;
+    private static final int PERSISTENT_APPS = 4;
+    private static final int PROVIDERS = 8;
+    private static final int STARTED_SERVICES = 7;
+    private MethodHandle mComputeOomAdjLocked;
+    private final ArrayList<ProcessRecord> mLruProcesses = new ArrayList<>();
+    private OomAdjuster mOomAdjuster;
+    private ActivityManagerService mService;
+    private ProcessRecord mTopApp;
+
+    @Setup
+    public void setup() throws Throwable {
+        HostOs.install();
+        mService = newService();
+        mOomAdjuster = newOomAdjuster(mService);
+        Method compute = OomAdjuster.class.getDeclaredMethod("computeOomAdjLocked", ProcessRecord.class, int.class, ProcessRecord.class, boolean.class, long.class, boolean.class);
+        compute.setAccessible(true);
+        mComputeOomAdjLocked = MethodHandles.lookup().unreflect(compute);
+
+        Random random = new Random(42);
+        long now = SystemClock.uptimeMillis();
+        IApplicationThread thread = (IApplicationThread) Instances.allocate(Class.forName("android.app.IApplicationThread$Stub$Proxy"));
+        int uid = 10000;
+        for (int i = 0; i < CACHED_APPS; i++) {
+            mLruProcesses.add(newProcess("com.example.cached" + i, uid++, thread));
+        }
+        ArrayList<ProcessRecord> hosts = new ArrayList<>();
+        for (int i = 0; i < STARTED_SERVICES + BOUND_SERVICES; i++) {
+            ProcessRecord app = newProcess("com.example.service" + i, uid++, thread);
+            ServiceRecord service = newService(app, "com.example.service" + i, "Service");
+            if (i < STARTED_SERVICES) {
+                service.startRequested = true;
+                service.lastActivity = now - (random.nextInt(60) * 60 * 1000L);
+            }
+            hosts.add(app);
+            mLruProcesses.add(app);
+        }
+        for (int i = 0; i < PROVIDERS; i++) {
+            ProcessRecord app = newProcess("com.example.provider" + i, uid++, thread);
+            newProvider(app, "com.example.provider" + i);
+            hosts.add(app);
+            mLruProcesses.add(app);
+        }
+        for (int i = 0; i < FOREGROUND_SERVICE_APPS; i++) {
+            ProcessRecord app = newProcess("com.example.fgs" + i, uid++, thread);
+            app.setHasForegroundServices(true, 0);
+            mLruProcesses.add(app);
+        }
+        for (int i = 0; i < PERSISTENT_APPS; i++) {
+            ProcessRecord app = newProcess("com.android.persistent" + i, 1000 + i, thread);
+            app.setPersistent(true);
+            app.maxAdj = ProcessList.PERSISTENT_PROC_ADJ;
+            mLruProcesses.add(app);
+        }
+        mTopApp = newProcess("com.example.top", uid++, thread);
+        mLruProcesses.add(mTopApp);
+
+        // Two or three clients per host, picked from the whole list, so some bindings form cycles.
+        for (int i = 0; i < hosts.size(); i++) {
+            ProcessRecord host = hosts.get(i);
+            int clients = 2 + random.nextInt(2);
+            for (int j = 0; j < clients; j++) {
+                ProcessRecord client = mLruProcesses.get(random.nextInt(mLruProcesses.size()));
+                if (client == host) {
+                    continue;
+                }
+                if (host.services.isEmpty()) {
+                    bindProvider(host.pubProviders.valueAt(0), client);
+                } else {
+                    bindService(host.services.valueAt(0), client, CONNECTION_FLAGS[random.nextInt(CONNECTION_FLAGS.length)]);
+                }
+            }
+        }
+    }
+
+    private static ActivityManagerService newService() throws ReflectiveOperationException {
+        ActivityManagerService service = Instances.allocate(ActivityManagerService.class);
+        Object atm = Instances.allocate(Class.forName("com.android.server.wm.ActivityTaskManagerService"));
+        Object root = Instances.allocate(Class.forName("com.android.server.wm.RootActivityContainer"));
+        Instances.set(root, "mFullConfiguration", new Configuration());
+        Instances.set(atm, "mRootActivityContainer", root);
+        Object lock = Instances.allocate(Class.forName("com.android.server.wm.WindowManagerGlobalLock"));
+        Instances.set(atm, "mGlobalLock", lock);
+        Instances.set(atm, "mGlobalLockWithoutBoost", lock);
+        Instances.set(atm, "mTopProcessState", 2);
+        Object local = Instances.allocate(Class.forName("com.android.server.wm.ActivityTaskManagerService$LocalService"));
+        Instances.set(local, "this$0", atm);
+        Instances.set(service, "mActivityTaskManager", atm);
+        Instances.set(service, "mAtmInternal", local);
+        Instances.set(service, "mBroadcastQueues", new BroadcastQueue[0]);
+        Instances.set(service, "mBackupTargets", new SparseArray<Object>(0));
+        Instances.set(service, "mProcessList", Instances.allocate(ProcessList.class));
+        Instances.set(service, "mWakefulness", 1);
+        Instances.set(service, "mCurOomAdjUid", -1);
+        return service;
+    }
+
+    private static OomAdjuster newOomAdjuster(ActivityManagerService service) throws ReflectiveOperationException {
+        OomAdjuster adjuster = Instances.allocate(OomAdjuster.class);
+        ActivityManagerConstants constants = Instances.allocate(ActivityManagerConstants.class);
+        Instances.set(constants, "MAX_SERVICE_INACTIVITY", 30 * 60 * 1000L);
+        Instances.set(constants, "TOP_TO_FGS_GRACE_DURATION", 15 * 1000L);
+        Instances.set(constants, "CONTENT_PROVIDER_RETAIN_TIME", 20 * 1000L);
+        Instances.set(adjuster, "mService", service);
+        Instances.set(adjuster, "mConstants", constants);
+        Instances.set(adjuster, "mTmpLong", new long[3]);
+        Instances.set(adjuster, "mTmpBroadcastQueue", new ArraySet<BroadcastQueue>());
+        Constructor<?> callback = Class.forName("com.android.server.am.OomAdjuster$ComputeOomAdjWindowCallback").getDeclaredConstructor(OomAdjuster.class);
+        callback.setAccessible(true);
+        Instances.set(adjuster, "mTmpComputeOomAdjWindowCallback", callback.newInstance(adjuster));
+        return adjuster;
+    }
+
+    private ProcessRecord newProcess(String name, int uid, IApplicationThread thread) {
+        ApplicationInfo info = new ApplicationInfo();
+        info.packageName = name;
+        info.processName = name;
+        info.uid = uid;
+        ProcessRecord app = new ProcessRecord(mService, info, name, uid);
+        app.thread = thread;
+        return app;
+    }
+
+    private static ServiceRecord newService(ProcessRecord app, String packageName, String className) {
+        ServiceRecord service = Instances.allocate(ServiceRecord.class);
+        ComponentName name = new ComponentName(packageName, packageName + "." + className);
+        Instances.set(service, "name", name);
+        Instances.set(service, "instanceName", name);
+        Instances.set(service, "connections", new ArrayMap<IBinder, ArrayList<ConnectionRecord>>());
+        service.app = app;
+        app.services.add(service);
+        return service;
+    }
+
+    private static void newProvider(ProcessRecord app, String authority) {
+        ContentProviderRecord provider = Instances.allocate(ContentProviderRecord.class);
+        Instances.set(provider, "name", new ComponentName(authority, authority + ".Provider"));
+        Instances.set(provider, "connections", new ArrayList<ContentProviderConnection>());
+        provider.proc = app;
+        app.pubProviders.put(authority, provider);
+    }
+
+    private static void bindService(ServiceRecord service, ProcessRecord client, int flags) {
+        IntentBindRecord intent = new IntentBindRecord(service, new Intent.FilterComparison(new Intent().setComponent(service.name)));
+        AppBindRecord binding = new AppBindRecord(service, intent, client);
+        ConnectionRecord connection = new ConnectionRecord(binding, null, null, flags, 0, null, client.uid, client.processName, client.info.packageName);
+        ArrayList<ConnectionRecord> list = new ArrayList<>(1);
+        list.add(connection);
+        service.getConnections().put(Instances.allocate(android.os.Binder.class), list);
+        client.connections.add(connection);
+    }
+
+    private static void bindProvider(ContentProviderRecord provider, ProcessRecord client) {
+        ContentProviderConnection connection = Instances.allocate(ContentProviderConnection.class);
+        Instances.set(connection, "provider", provider);
+        Instances.set(connection, "client", client);
+        Instances.set(connection, "clientPackage", client.info.packageName);
+        provider.connections.add(connection);
+        client.conProviders.add(connection);
+    }
+
+    /** One full pass over the process list. */
+    @Benchmark
+    public int updateOomAdj() throws Throwable {
+        ArrayList<ProcessRecord> lru = mLruProcesses;
+        int N = lru.size();
+        long now = SystemClock.uptimeMillis();
+        OomAdjuster adjuster = mOomAdjuster;
+        adjuster.mAdjSeq++;
+        for (int i = N - 1; i >= 0; i--) {
+            ProcessRecord app = lru.get(i);
+            app.containsCycle = false;
+            app.setCurRawProcState(20);
+            app.setCurRawAdj(ProcessList.UNKNOWN_ADJ);
+        }
+        boolean retryCycles = false;
+        for (int i = N - 1; i >= 0; i--) {
+            ProcessRecord app = lru.get(i);
+            boolean unused = (boolean) mComputeOomAdjLocked.invokeExact(adjuster, app, ProcessList.UNKNOWN_ADJ, mTopApp, true, now, false);
+            retryCycles |= app.containsCycle;
+        }
+        int cycleCount = 0;
+        while (retryCycles && cycleCount < MAX_CYCLE_RETRIES) {
+            cycleCount++;
+            retryCycles = false;
+            for (int i = 0; i < N; i++) {
+                ProcessRecord app = lru.get(i);
+                if (app.containsCycle) {
+                    app.adjSeq--;
+                    app.completedAdjSeq--;
+                }
+            }
+            for (int i = 0; i < N; i++) {
+                ProcessRecord app = lru.get(i);
+                if (app.containsCycle && (boolean) mComputeOomAdjLocked.invokeExact(adjuster, app, app.getCurRawAdj(), mTopApp, true, now, true)) {
+                    retryCycles = true;
+                }
+            }
+        }
+        return mTopApp.curAdj + cycleCount;
+    }
+}
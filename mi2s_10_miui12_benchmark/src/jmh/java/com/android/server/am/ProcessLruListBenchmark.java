@@ -0,0 +1,135 @@
+package com.android.server.am;
+
+import com.android.server.benchmark.IsolatedClasses;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * App switch churn on the process LRU list: each call brings the next process of a skewed switch
+ * sequence to the front the way updateLruProcessLocked does, by looking up its position and moving
+ * it to the end. The same sequence runs on a plain ArrayList as the reference.
+ *
+ * The ProcessRecord of this tree does not compile on its own, and OomAdjusterBenchmark needs the
+ * AOSP one under the same name, so build.gradle compiles ProcessLruList against a stand-in that
+ * only has lruIndex, the one field the list touches, and this loads the pair in its own class
+ * loader. The list is driven through List and the package-private parts through method handles.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessLruListBenchmark {
+    private static final int SWITCHES = 4096;
+    private final ArrayList<Object> mArrayList = new ArrayList<>();
+    private Predicate<Object> mEveryThird;
+    private MethodHandle mFiltered;
+    private MethodHandle mLruIndex;
+    private List<Object> mLruList;
+    private int mNext;
+    @Param({"150"})
+    public int processes;
+    private Object[] mSwitches;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        ClassLoader loader = IsolatedClasses.loader("processLruList", "com.android.server.am.ProcessLruList");
+        Class<?> listClass = Class.forName("com.android.server.am.ProcessLruList", true, loader);
+        Class<?> recordClass = Class.forName("com.android.server.am.ProcessRecord", true, loader);
+        Constructor<?> listCtor = listClass.getDeclaredConstructor();
+        listCtor.setAccessible(true);
+        Constructor<?> recordCtor = recordClass.getDeclaredConstructor();
+        recordCtor.setAccessible(true);
+        Field lruIndex = recordClass.getDeclaredField("lruIndex");
+        lruIndex.setAccessible(true);
+        Method filtered = listClass.getDeclaredMethod("filtered", boolean.class, Predicate.class);
+        filtered.setAccessible(true);
+        mLruIndex = MethodHandles.lookup().unreflectGetter(lruIndex).asType(MethodType.methodType(int.class, Object.class));
+        mFiltered = MethodHandles.lookup().unreflect(filtered).asType(MethodType.methodType(Iterable.class, Object.class, boolean.class, Predicate.class));
+        final MethodHandle getter = mLruIndex;
+        mEveryThird = new Predicate<Object>() {
+            public boolean test(Object app) {
+                try {
+                    return ((int) getter.invokeExact(app)) % 3 == 0;
+                } catch (Throwable e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        mLruList = (List<Object>) listCtor.newInstance();
+        Object[] apps = new Object[processes];
+        for (int i = 0; i < processes; i++) {
+            apps[i] = recordCtor.newInstance();
+            mLruList.add(apps[i]);
+            mArrayList.add(apps[i]);
+        }
+        // Most switches go between a handful of apps, the rest reach ones far down the list.
+        Random random = new Random(150);
+        mSwitches = new Object[SWITCHES];
+        for (int i = 0; i < SWITCHES; i++) {
+            mSwitches[i] = apps[(int) (processes * Math.pow(random.nextDouble(), 3.0d))];
+        }
+    }
+
+    private Object nextSwitch() {
+        Object app = mSwitches[mNext];
+        mNext = (mNext + 1) & (SWITCHES - 1);
+        return app;
+    }
+
+    @Benchmark
+    public int moveToFront() throws Throwable {
+        Object app = nextSwitch();
+        List<Object> list = mLruList;
+        list.remove(list.lastIndexOf(app));
+        list.add(app);
+        return (int) mLruIndex.invokeExact(app);
+    }
+
+    @Benchmark
+    public int moveToFrontArrayList() {
+        Object app = nextSwitch();
+        ArrayList<Object> list = mArrayList;
+        list.remove(list.lastIndexOf(app));
+        list.add(app);
+        return list.size();
+    }
+
+    /** Walks a third of the list newest first without copying it. */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int filteredWalk() throws Throwable {
+        int count = 0;
+        for (Object app : (Iterable<Object>) mFiltered.invokeExact((Object) mLruList, true, (Predicate) mEveryThird)) {
+            count++;
+        }
+        return count;
+    }
+
+    /** The same walk over a snapshot, as the callers of getLruProcessesLocked did. */
+    @Benchmark
+    public int copiedWalk() {
+        ArrayList<Object> copy = new ArrayList<>(mLruList);
+        int count = 0;
+        for (int i = copy.size() - 1; i >= 0; i--) {
+            if (mEveryThird.test(copy.get(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
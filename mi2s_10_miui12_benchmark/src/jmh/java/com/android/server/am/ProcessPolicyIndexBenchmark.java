@@ -0,0 +1,86 @@
+package com.android.server.am;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The white list check of a kill decision, isPackageInList with the static, cloud and user
+ * defined lists, for one running package per call. ProcessPolicy itself cannot load on a host
+ * JVM, so the index is built here from lists of the usual sizes, and the reference merges and
+ * scans them the way getWhiteList and isPackageInList used to.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProcessPolicyIndexBenchmark {
+    private static final int KILL_FLAGS = 13;
+    private static final int RUNNING = 256;
+    private final ArrayList<String> mCloud = new ArrayList<>();
+    private ProcessPolicyIndex mIndex;
+    private int mNext;
+    private String[] mRunning;
+    private final ArrayList<String> mStatic = new ArrayList<>();
+    private final ArrayList<String> mUserDefined = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < 60; i++) {
+            mStatic.add("com.android.system" + i);
+        }
+        for (int i = 0; i < 40; i++) {
+            mCloud.add("com.vendor.cloud" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            mUserDefined.add("com.user.locked" + i);
+        }
+        ProcessPolicyIndex.Builder builder = new ProcessPolicyIndex.Builder();
+        builder.setList(1, mStatic);
+        builder.setList(4, mCloud);
+        builder.setList(8, mUserDefined);
+        builder.setList(16, mStatic.subList(0, 20));
+        mIndex = builder.build();
+        // About one running package in five is white listed, like a phone after a day of use.
+        Random random = new Random(13);
+        mRunning = new String[RUNNING];
+        for (int i = 0; i < RUNNING; i++) {
+            int pick = random.nextInt(5);
+            if (pick == 0) {
+                // A copy, as the name comes from the ProcessRecord rather than the list.
+                mRunning[i] = new String(random.nextBoolean() ? mStatic.get(random.nextInt(60)) : mCloud.get(random.nextInt(40)));
+            } else {
+                mRunning[i] = "com.thirdparty.app" + random.nextInt(400);
+            }
+        }
+    }
+
+    private String next() {
+        String packageName = mRunning[mNext];
+        mNext = (mNext + 1) & (RUNNING - 1);
+        return packageName;
+    }
+
+    @Benchmark
+    public boolean indexLookup() {
+        return mIndex.contains(next(), KILL_FLAGS);
+    }
+
+    @Benchmark
+    public boolean mergedScan() {
+        String packageName = next();
+        ArrayList<String> whiteList = new ArrayList<>();
+        whiteList.addAll(mStatic);
+        whiteList.addAll(mCloud);
+        whiteList.addAll(mUserDefined);
+        for (String item : whiteList) {
+            if (packageName.equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
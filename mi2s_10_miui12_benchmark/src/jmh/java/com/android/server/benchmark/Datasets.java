@@ -0,0 +1,61 @@
+package com.android.server.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the datasets under src/jmh/resources/datasets. Every file is plain text, one record per
+ * line, fields separated by tabs; blank lines and lines starting with '#' are skipped, and a
+ * field of "-" stands for no value. The header comment of each file describes its columns.
+ *
+ * The datasets are synthetic, written to the shape of the real lists and sensor traces rather than
+ * recorded on a device. They compare two versions of the code on the same input; they say nothing
+ * about the cost on a phone.
+ */
+public final class Datasets {
+
+    private Datasets() {
+    }
+
+    public static List<String[]> records(String name) {
+        InputStream in = Datasets.class.getResourceAsStream("/datasets/" + name);
+        if (in == null) {
+            throw new IllegalArgumentException("no dataset " + name);
+        }
+        ArrayList<String[]> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            while (true) {
+                String line = reader.readLine();
+                if (line == null) {
+                    break;
+                }
+                if (!line.isEmpty() && line.charAt(0) != '#') {
+                    String[] fields = line.split("\t", -1);
+                    for (int i = 0; i < fields.length; i++) {
+                        if ("-".equals(fields[i])) {
+                            fields[i] = null;
+                        }
+                    }
+                    records.add(fields);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return records;
+    }
+
+    /** Splits a comma separated field; null and "-" give an empty array. */
+    public static String[] list(String field) {
+        if (field == null || field.isEmpty()) {
+            return new String[0];
+        }
+        return field.split(",");
+    }
+}
@@ -0,0 +1,107 @@
+package com.android.server.benchmark;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+
+/**
+ * Context for benchmarks on a host JVM. It has no base context: system services are whatever
+ * {@link #addService} registered, the package manager is a {@link FakePackageManager}, and
+ * broadcast receivers are remembered but never called.
+ */
+public class FakeContext extends ContextWrapper {
+    private final Looper mMainLooper = Instances.allocate(Looper.class);
+    private final FakePackageManager mPackageManager = new FakePackageManager();
+    private final ArrayMap<BroadcastReceiver, IntentFilter> mReceivers = new ArrayMap<>();
+    private final ArrayMap<String, Object> mServices = new ArrayMap<>();
+
+    public FakeContext() {
+        super(null);
+    }
+
+    public FakeContext addService(String name, Object service) {
+        mServices.put(name, service);
+        return this;
+    }
+
+    public FakePackageManager getFakePackageManager() {
+        return mPackageManager;
+    }
+
+    public int getReceiverCount() {
+        return mReceivers.size();
+    }
+
+    public PackageManager getPackageManager() {
+        return mPackageManager;
+    }
+
+    public Object getSystemService(String name) {
+        return mServices.get(name);
+    }
+
+    public String getPackageName() {
+        return "android";
+    }
+
+    public String getBasePackageName() {
+        return "android";
+    }
+
+    public String getOpPackageName() {
+        return "android";
+    }
+
+    public ApplicationInfo getApplicationInfo() {
+        return mPackageManager.getSystemApplicationInfo();
+    }
+
+    public ClassLoader getClassLoader() {
+        return FakeContext.class.getClassLoader();
+    }
+
+    public Looper getMainLooper() {
+        return mMainLooper;
+    }
+
+    public int getUserId() {
+        return UserHandle.USER_SYSTEM;
+    }
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter) {
+        return registerReceiver(receiver, filter, null, null, 0);
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, int flags) {
+        return registerReceiver(receiver, filter, null, null, flags);
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission, Handler scheduler) {
+        return registerReceiver(receiver, filter, broadcastPermission, scheduler, 0);
+    }
+
+    public Intent registerReceiver(BroadcastReceiver receiver, IntentFilter filter, String broadcastPermission, Handler scheduler, int flags) {
+        mReceivers.put(receiver, filter);
+        return null;
+    }
+
+    public Intent registerReceiverAsUser(BroadcastReceiver receiver, UserHandle user, IntentFilter filter, String broadcastPermission, Handler scheduler) {
+        return registerReceiver(receiver, filter, broadcastPermission, scheduler, 0);
+    }
+
+    public void unregisterReceiver(BroadcastReceiver receiver) {
+        mReceivers.remove(receiver);
+    }
+}
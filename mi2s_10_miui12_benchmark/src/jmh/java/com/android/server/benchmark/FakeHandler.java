@@ -0,0 +1,52 @@
+package com.android.server.benchmark;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import java.util.ArrayList;
+
+/**
+ * Handler that queues messages in a plain list instead of a MessageQueue, which needs native code
+ * a host JVM does not have. Nothing runs until {@link #drain} is called, so a benchmark decides
+ * whether deferred work is part of what it measures. Calls that go to the queue directly, such as
+ * removeMessages or sendMessageAtFrontOfQueue, are not supported.
+ */
+public class FakeHandler extends Handler {
+    private final ArrayList<Message> mPending = new ArrayList<>();
+
+    public FakeHandler() {
+        this(null);
+    }
+
+    public FakeHandler(Handler.Callback callback) {
+        // The Looper is never looped; it only has to exist for the Handler constructor.
+        super(Instances.allocate(Looper.class), callback);
+    }
+
+    public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
+        msg.setTarget(this);
+        msg.when = uptimeMillis;
+        mPending.add(msg);
+        return true;
+    }
+
+    /** Dispatches the queued messages in posting order, including ones posted while draining. */
+    public int drain() {
+        int count = 0;
+        while (!mPending.isEmpty()) {
+            Message msg = mPending.remove(0);
+            dispatchMessage(msg);
+            msg.recycle();
+            count++;
+        }
+        return count;
+    }
+
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    public void clear() {
+        mPending.clear();
+    }
+}
@@ -0,0 +1,834 @@
+package com.android.server.benchmark;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.IntentSender;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.FeatureInfo;
+import android.content.pm.IPackageDataObserver;
+import android.content.pm.IPackageDeleteObserver;
+import android.content.pm.IPackageStatsObserver;
+import android.content.pm.InstantAppInfo;
+import android.content.pm.InstrumentationInfo;
+import android.content.pm.IntentFilterVerificationInfo;
+import android.content.pm.KeySet;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageInstaller;
+import android.content.pm.PackageItemInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.PermissionGroupInfo;
+import android.content.pm.PermissionInfo;
+import android.content.pm.ProviderInfo;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.content.pm.SharedLibraryInfo;
+import android.content.pm.VerifierDeviceIdentity;
+import android.content.pm.VersionedPackage;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Process;
+import android.os.UserHandle;
+import android.os.storage.VolumeInfo;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * PackageManager backed by the packages added with {@link #addPackage}. Package, application, uid
+ * and feature queries are answered from that table; everything else throws, so a benchmark that
+ * strays into an unfaked call fails loudly instead of measuring a stub.
+ */
+public class FakePackageManager extends PackageManager {
+    private final ArraySet<String> mFeatures = new ArraySet<>();
+    private final ArrayMap<String, PackageInfo> mPackages = new ArrayMap<>();
+    private final ApplicationInfo mSystemApplicationInfo = newApplicationInfo("android", Process.SYSTEM_UID, true);
+
+    public FakePackageManager() {
+    }
+
+    public PackageInfo addPackage(String packageName, int uid, boolean system) {
+        PackageInfo info = new PackageInfo();
+        info.packageName = packageName;
+        info.applicationInfo = newApplicationInfo(packageName, uid, system);
+        mPackages.put(packageName, info);
+        return info;
+    }
+
+    public void addSystemFeature(String name) {
+        mFeatures.add(name);
+    }
+
+    /* access modifiers changed from: package-private */
+    public ApplicationInfo getSystemApplicationInfo() {
+        return mSystemApplicationInfo;
+    }
+
+    private static ApplicationInfo newApplicationInfo(String packageName, int uid, boolean system) {
+        ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.processName = packageName;
+        info.uid = uid;
+        info.flags = system ? ApplicationInfo.FLAG_SYSTEM : 0;
+        info.targetSdkVersion = 29;
+        return info;
+    }
+
+    private PackageInfo getPackageInfoOrThrow(String packageName, int userId) throws PackageManager.NameNotFoundException {
+        PackageInfo info = mPackages.get(packageName);
+        if (info == null) {
+            throw new PackageManager.NameNotFoundException(packageName);
+        }
+        if (userId == UserHandle.USER_SYSTEM) {
+            return info;
+        }
+        PackageInfo copy = new PackageInfo();
+        copy.packageName = packageName;
+        copy.applicationInfo = new ApplicationInfo(info.applicationInfo);
+        copy.applicationInfo.uid = UserHandle.getUid(userId, UserHandle.getAppId(info.applicationInfo.uid));
+        return copy;
+    }
+
+    public PackageInfo getPackageInfo(String packageName, int flags) throws PackageManager.NameNotFoundException {
+        return getPackageInfoOrThrow(packageName, UserHandle.USER_SYSTEM);
+    }
+
+    public PackageInfo getPackageInfoAsUser(String packageName, int flags, int userId) throws PackageManager.NameNotFoundException {
+        return getPackageInfoOrThrow(packageName, userId);
+    }
+
+    public int getPackageUid(String packageName, int flags) throws PackageManager.NameNotFoundException {
+        return getPackageInfoOrThrow(packageName, UserHandle.USER_SYSTEM).applicationInfo.uid;
+    }
+
+    public ApplicationInfo getApplicationInfo(String packageName, int flags) throws PackageManager.NameNotFoundException {
+        return getPackageInfoOrThrow(packageName, UserHandle.USER_SYSTEM).applicationInfo;
+    }
+
+    public ApplicationInfo getApplicationInfoAsUser(String packageName, int flags, int userId) throws PackageManager.NameNotFoundException {
+        return getPackageInfoOrThrow(packageName, userId).applicationInfo;
+    }
+
+    public List<PackageInfo> getInstalledPackages(int flags) {
+        return new ArrayList<>(mPackages.values());
+    }
+
+    public List<ApplicationInfo> getInstalledApplications(int flags) {
+        ArrayList<ApplicationInfo> result = new ArrayList<>(mPackages.size());
+        for (int i = 0; i < mPackages.size(); i++) {
+            result.add(mPackages.valueAt(i).applicationInfo);
+        }
+        return result;
+    }
+
+    public String[] getPackagesForUid(int uid) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int i = 0; i < mPackages.size(); i++) {
+            if (UserHandle.getAppId(mPackages.valueAt(i).applicationInfo.uid) == UserHandle.getAppId(uid)) {
+                result.add(mPackages.keyAt(i));
+            }
+        }
+        if (result.isEmpty()) {
+            return null;
+        }
+        return (String[]) result.toArray(new String[result.size()]);
+    }
+
+    public String getNameForUid(int uid) {
+        String[] packages = getPackagesForUid(uid);
+        if (packages != null) {
+            return packages[0];
+        }
+        return null;
+    }
+
+    public boolean hasSystemFeature(String name) {
+        return mFeatures.contains(name);
+    }
+
+    public boolean hasSystemFeature(String name, int version) {
+        return mFeatures.contains(name);
+    }
+
+    public PackageInfo getPackageInfo(VersionedPackage arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public String[] currentToCanonicalPackageNames(String[] arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String[] canonicalToCurrentPackageNames(String[] arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Intent getLaunchIntentForPackage(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Intent getLeanbackLaunchIntentForPackage(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Intent getCarLaunchIntentForPackage(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int[] getPackageGids(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public int[] getPackageGids(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getPackageUidAsUser(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getPackageUidAsUser(String arg0, int arg1, int arg2) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public PermissionInfo getPermissionInfo(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<PermissionInfo> queryPermissionsByGroup(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean arePermissionsIndividuallyControlled() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isWirelessConsentModeEnabled() {
+        throw new UnsupportedOperationException();
+    }
+
+    public PermissionGroupInfo getPermissionGroupInfo(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<PermissionGroupInfo> getAllPermissionGroups(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ActivityInfo getActivityInfo(ComponentName arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public ActivityInfo getReceiverInfo(ComponentName arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public ServiceInfo getServiceInfo(ComponentName arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public ProviderInfo getProviderInfo(ComponentName arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<PackageInfo> getPackagesHoldingPermissions(String[] arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<PackageInfo> getInstalledPackagesAsUser(int arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int checkPermission(String arg0, String arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isPermissionRevokedByPolicy(String arg0, String arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getPermissionControllerPackageName() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean addPermission(PermissionInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean addPermissionAsync(PermissionInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void removePermission(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void grantRuntimePermission(String arg0, String arg1, UserHandle arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void revokeRuntimePermission(String arg0, String arg1, UserHandle arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getPermissionFlags(String arg0, String arg1, UserHandle arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void updatePermissionFlags(String arg0, String arg1, int arg2, int arg3, UserHandle arg4) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean shouldShowRequestPermissionRationale(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int checkSignatures(String arg0, String arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int checkSignatures(int arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String[] getNamesForUids(int[] arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getUidForSharedUser(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ApplicationInfo> getInstalledApplicationsAsUser(int arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<InstantAppInfo> getInstantApps() {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getInstantAppIcon(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isInstantApp() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isInstantApp(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getInstantAppCookieMaxBytes() {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getInstantAppCookieMaxSize() {
+        throw new UnsupportedOperationException();
+    }
+
+    public byte[] getInstantAppCookie() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void clearInstantAppCookie() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void updateInstantAppCookie(byte[] arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean setInstantAppCookie(byte[] arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String[] getSystemSharedLibraryNames() {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<SharedLibraryInfo> getSharedLibraries(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<SharedLibraryInfo> getSharedLibrariesAsUser(int arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getServicesSystemSharedLibraryPackageName() {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getSharedSystemSharedLibraryPackageName() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ChangedPackages getChangedPackages(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public FeatureInfo[] getSystemAvailableFeatures() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ResolveInfo resolveActivity(Intent arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ResolveInfo resolveActivityAsUser(Intent arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentActivities(Intent arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentActivitiesAsUser(Intent arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentActivityOptions(ComponentName arg0, Intent[] arg1, Intent arg2, int arg3) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryBroadcastReceivers(Intent arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryBroadcastReceiversAsUser(Intent arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ResolveInfo resolveService(Intent arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ResolveInfo resolveServiceAsUser(Intent arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentServices(Intent arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentServicesAsUser(Intent arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentContentProvidersAsUser(Intent arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ResolveInfo> queryIntentContentProviders(Intent arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ProviderInfo resolveContentProvider(String arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ProviderInfo resolveContentProviderAsUser(String arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<ProviderInfo> queryContentProviders(String arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public InstrumentationInfo getInstrumentationInfo(ComponentName arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<InstrumentationInfo> queryInstrumentation(String arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getDrawable(String arg0, int arg1, ApplicationInfo arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getActivityIcon(ComponentName arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getActivityIcon(Intent arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getActivityBanner(ComponentName arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getActivityBanner(Intent arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getDefaultActivityIcon() {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getApplicationIcon(ApplicationInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getApplicationIcon(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getApplicationBanner(ApplicationInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getApplicationBanner(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getActivityLogo(ComponentName arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getActivityLogo(Intent arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getApplicationLogo(ApplicationInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getApplicationLogo(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getUserBadgedIcon(Drawable arg0, UserHandle arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getUserBadgedDrawableForDensity(Drawable arg0, UserHandle arg1, Rect arg2, int arg3) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getUserBadgeForDensity(UserHandle arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable getUserBadgeForDensityNoBackground(UserHandle arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public CharSequence getUserBadgedLabel(CharSequence arg0, UserHandle arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public CharSequence getText(String arg0, int arg1, ApplicationInfo arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public XmlResourceParser getXml(String arg0, int arg1, ApplicationInfo arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public CharSequence getApplicationLabel(ApplicationInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Resources getResourcesForActivity(ComponentName arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Resources getResourcesForApplication(ApplicationInfo arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Resources getResourcesForApplication(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public Resources getResourcesForApplicationAsUser(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public int installExistingPackage(String arg0) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public int installExistingPackage(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public int installExistingPackageAsUser(String arg0, int arg1) throws PackageManager.NameNotFoundException {
+        throw new UnsupportedOperationException();
+    }
+
+    public void verifyPendingInstall(int arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void extendVerificationTimeout(int arg0, int arg1, long arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void verifyIntentFilter(int arg0, int arg1, List<String> arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getIntentVerificationStatusAsUser(String arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean updateIntentVerificationStatusAsUser(String arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<IntentFilterVerificationInfo> getIntentFilterVerifications(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<IntentFilter> getAllIntentFilters(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getDefaultBrowserPackageNameAsUser(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean setDefaultBrowserPackageNameAsUser(String arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setInstallerPackageName(String arg0, String arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setUpdateAvailable(String arg0, boolean arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void deletePackage(String arg0, IPackageDeleteObserver arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void deletePackageAsUser(String arg0, IPackageDeleteObserver arg1, int arg2, int arg3) {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getInstallerPackageName(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void clearApplicationUserData(String arg0, IPackageDataObserver arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void deleteApplicationCacheFiles(String arg0, IPackageDataObserver arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void deleteApplicationCacheFilesAsUser(String arg0, int arg1, IPackageDataObserver arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void freeStorageAndNotify(String arg0, long arg1, IPackageDataObserver arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void freeStorage(String arg0, long arg1, IntentSender arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void getPackageSizeInfoAsUser(String arg0, int arg1, IPackageStatsObserver arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void addPackageToPreferred(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void removePackageFromPreferred(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<PackageInfo> getPreferredPackages(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void addPreferredActivity(IntentFilter arg0, int arg1, ComponentName[] arg2, ComponentName arg3) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void replacePreferredActivity(IntentFilter arg0, int arg1, ComponentName[] arg2, ComponentName arg3) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void clearPackagePreferredActivities(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getPreferredActivities(List<IntentFilter> arg0, List<ComponentName> arg1, String arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public ComponentName getHomeActivities(List<ResolveInfo> arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setComponentEnabledSetting(ComponentName arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getComponentEnabledSetting(ComponentName arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setApplicationEnabledSetting(String arg0, int arg1, int arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getApplicationEnabledSetting(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void flushPackageRestrictionsAsUser(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean setApplicationHiddenSettingAsUser(String arg0, boolean arg1, UserHandle arg2) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean getApplicationHiddenSettingAsUser(String arg0, UserHandle arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isSafeMode() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void addOnPermissionsChangeListener(PackageManager.OnPermissionsChangedListener arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void removeOnPermissionsChangeListener(PackageManager.OnPermissionsChangedListener arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public KeySet getKeySetByAlias(String arg0, String arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public KeySet getSigningKeySet(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isSignedBy(String arg0, KeySet arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isSignedByExactly(String arg0, KeySet arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isPackageSuspendedForUser(String arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void setApplicationCategoryHint(String arg0, int arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getMoveStatus(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void registerMoveCallback(PackageManager.MoveCallback arg0, Handler arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void unregisterMoveCallback(PackageManager.MoveCallback arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int movePackage(String arg0, VolumeInfo arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public VolumeInfo getPackageCurrentVolume(ApplicationInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<VolumeInfo> getPackageCandidateVolumes(ApplicationInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int movePrimaryStorage(VolumeInfo arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public VolumeInfo getPrimaryStorageCurrentVolume() {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<VolumeInfo> getPrimaryStorageCandidateVolumes() {
+        throw new UnsupportedOperationException();
+    }
+
+    public VerifierDeviceIdentity getVerifierDeviceIdentity() {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isUpgrade() {
+        throw new UnsupportedOperationException();
+    }
+
+    public PackageInstaller getPackageInstaller() {
+        throw new UnsupportedOperationException();
+    }
+
+    public void addCrossProfileIntentFilter(IntentFilter arg0, int arg1, int arg2, int arg3) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void clearCrossProfileIntentFilters(int arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable loadItemIcon(PackageItemInfo arg0, ApplicationInfo arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public Drawable loadUnbadgedItemIcon(PackageItemInfo arg0, ApplicationInfo arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean isPackageAvailable(String arg0) {
+        throw new UnsupportedOperationException();
+    }
+
+    public int getInstallReason(String arg0, UserHandle arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public boolean canRequestPackageInstalls() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ComponentName getInstantAppResolverSettingsComponent() {
+        throw new UnsupportedOperationException();
+    }
+
+    public ComponentName getInstantAppInstallerComponent() {
+        throw new UnsupportedOperationException();
+    }
+
+    public String getInstantAppAndroidId(String arg0, UserHandle arg1) {
+        throw new UnsupportedOperationException();
+    }
+
+    public void registerDexModule(String arg0, PackageManager.DexModuleRegisterCallback arg1) {
+        throw new UnsupportedOperationException();
+    }
+}
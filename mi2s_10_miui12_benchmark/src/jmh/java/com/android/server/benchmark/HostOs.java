@@ -0,0 +1,40 @@
+package com.android.server.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import libcore.io.Libcore;
+import libcore.io.Os;
+
+/**
+ * Answers the few libcore Os calls that system_server classes make while they load, such as the
+ * Process.myPid() in the static initializer of ActivityManagerService, from the host JVM. The
+ * framework Os is a JNI binding that a host JVM cannot link. Any other Os call throws, so a
+ * benchmark that reaches one fails instead of measuring a stand-in.
+ */
+public final class HostOs {
+    private static final int SYSTEM_UID = 1000;
+
+    private HostOs() {
+    }
+
+    /** Installs the host Os; call it in setup before touching the classes that need it. */
+    public static synchronized void install() {
+        if (Proxy.isProxyClass(Libcore.os.getClass())) {
+            return;
+        }
+        final int pid = Integer.parseInt(java.lang.management.ManagementFactory.getRuntimeMXBean().getName().split("@")[0]);
+        Libcore.os = (Os) Proxy.newProxyInstance(HostOs.class.getClassLoader(), new Class<?>[]{Os.class}, new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if ("getpid".equals(name) || "gettid".equals(name)) {
+                    return pid;
+                }
+                if ("getuid".equals(name) || "geteuid".equals(name) || "getgid".equals(name) || "getegid".equals(name)) {
+                    return SYSTEM_UID;
+                }
+                throw new UnsupportedOperationException("Os." + name + " is not available on the host");
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.android.server.benchmark;
+
+import java.lang.reflect.Field;
+import sun.misc.Unsafe;
+
+/**
+ * Builds system_server objects whose constructors cannot run on a host JVM, because they bind a
+ * Binder stub, open a MessageQueue or ask ServiceManager for a service. The object is allocated
+ * without running any constructor or field initializer, and the benchmark then sets only the
+ * fields the measured path reads.
+ */
+public final class Instances {
+    private static final Unsafe UNSAFE;
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Instances() {
+    }
+
+    public static <T> T allocate(Class<T> cls) {
+        try {
+            return cls.cast(UNSAFE.allocateInstance(cls));
+        } catch (InstantiationException e) {
+            throw new IllegalStateException("cannot allocate " + cls.getName(), e);
+        }
+    }
+
+    /** Sets the field {@code name} declared on {@code obj}'s class or one of its superclasses. */
+    public static void set(Object obj, String name, Object value) {
+        for (Class<?> cls = obj.getClass(); cls != null; cls = cls.getSuperclass()) {
+            try {
+                Field field = cls.getDeclaredField(name);
+                field.setAccessible(true);
+                field.set(obj, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                // Declared further up.
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("cannot set " + name, e);
+            }
+        }
+        throw new IllegalArgumentException("no field " + name + " on " + obj.getClass().getName());
+    }
+}
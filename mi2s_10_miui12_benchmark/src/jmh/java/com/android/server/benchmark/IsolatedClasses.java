@@ -0,0 +1,58 @@
+package com.android.server.benchmark;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+/**
+ * Loads classes that build.gradle packs under isolated/ in the benchmark resources, child first,
+ * so that their own copy of a class wins over the one of the same name in android-all. This is
+ * for code of this tree whose dependencies clash with the AOSP classes other benchmarks need.
+ */
+public final class IsolatedClasses {
+    private IsolatedClasses() {
+    }
+
+    /**
+     * Returns a loader for isolated/{@code name}, which must contain {@code probeClass}. Classes
+     * that are not there come from the benchmark class path as usual.
+     */
+    public static ClassLoader loader(String name, String probeClass) {
+        String base = "isolated/" + name + "/";
+        String probe = probeClass.replace('.', '/') + ".class";
+        URL url = IsolatedClasses.class.getClassLoader().getResource(base + probe);
+        if (url == null) {
+            throw new IllegalStateException("no " + base + probe + " in the benchmark resources");
+        }
+        String spec = url.toString();
+        try {
+            return new ChildFirstLoader(new URL(spec.substring(0, spec.length() - probe.length())), IsolatedClasses.class.getClassLoader());
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(spec, e);
+        }
+    }
+
+    private static final class ChildFirstLoader extends URLClassLoader {
+        ChildFirstLoader(URL url, ClassLoader parent) {
+            super(new URL[]{url}, parent);
+        }
+
+        /* access modifiers changed from: protected */
+        public Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    try {
+                        cls = findClass(name);
+                    } catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(cls);
+                }
+                return cls;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.android.server.display;
+
+import com.android.server.benchmark.Datasets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One light sensor event from ambient_lux.tsv per call, handled the way
+ * AutomaticBrightnessController handles it: push the sample, prune to the horizon, and compute
+ * the short and long term ambient lux.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AmbientLightRingBufferBenchmark {
+    private static final long LONG_TERM_HORIZON = 4000;
+    private static final long SENSOR_RATE = 200;
+    private static final long SHORT_TERM_HORIZON = 2000;
+    private AmbientLightRingBuffer mBuffer;
+    @Param({"10000"})
+    public int horizon;
+    private float[] mLux;
+    private int mNext;
+    private long mOffset;
+    private long[] mTime;
+
+    @Setup
+    public void setup() {
+        List<String[]> records = Datasets.records("ambient_lux.tsv");
+        mTime = new long[records.size()];
+        mLux = new float[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            mTime[i] = Long.parseLong(records.get(i)[0]);
+            mLux[i] = Float.parseFloat(records.get(i)[1]);
+        }
+        mBuffer = new AmbientLightRingBuffer(SENSOR_RATE, horizon);
+    }
+
+    @Benchmark
+    public float onSensorEvent() {
+        int i = mNext;
+        long time = mOffset + mTime[i];
+        if (i + 1 < mTime.length) {
+            mNext = i + 1;
+        } else {
+            // Replay the trace again, continuing the clock.
+            mNext = 0;
+            mOffset = time;
+        }
+        AmbientLightRingBuffer buffer = mBuffer;
+        buffer.push(time, mLux[i]);
+        buffer.prune(time - horizon);
+        return buffer.calculateAmbientLux(time, SHORT_TERM_HORIZON) + buffer.calculateAmbientLux(time, LONG_TERM_HORIZON);
+    }
+}
@@ -0,0 +1,199 @@
+package com.android.server.notification;
+
+import android.app.Notification;
+import android.os.UserHandle;
+import android.service.notification.StatusBarNotification;
+import android.util.ArrayMap;
+import com.android.internal.util.NotificationMessagingUtil;
+import com.android.server.benchmark.Datasets;
+import com.android.server.benchmark.FakeContext;
+import com.android.server.benchmark.Instances;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * RankingHelper.sort over a stream of notification posts and updates. The first part of the
+ * stream builds the shade, capped at the stream's active limit with the oldest dropped first as a
+ * user clearing them would; the benchmarks then apply the rest of the stream one post or update
+ * at a time, as NotificationManagerService does before every sort, and start over from the built
+ * shade when the stream runs out.
+ *
+ * "day" is notification_stream.tsv, a day of use with at most 50 notifications shown. "imBurst"
+ * is a group chat storm: 120 conversations from three messengers are posted, then 2000 messages
+ * land on them, most on a handful of busy groups, every one updating its conversation's
+ * notification and moving it to the top, with a new conversation now and then.
+ *
+ * NotificationRecord's constructor asks LocalServices and ActivityManager for services, so the
+ * records are allocated directly and given the fields the comparators read. The messaging util,
+ * which would register a settings observer, gets its default SMS app up front.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RankingHelperBenchmark {
+    private static final int BURST_CONVERSATIONS = 120;
+    private static final int BURST_MESSAGES = 2000;
+    private static final String[] MESSENGERS = {"com.tencent.mm", "com.tencent.mobileqq", "com.whatsapp"};
+    private final ArrayList<NotificationRecord> mEvents = new ArrayList<>();
+    private RankingHelper mHelper;
+    private final ArrayList<NotificationRecord> mInitial = new ArrayList<>();
+    private final ArrayList<NotificationRecord> mList = new ArrayList<>();
+    private int mMaxActive;
+    private int mNext;
+    private int mStart;
+    @Param({"day", "imBurst"})
+    public String stream;
+
+    @Setup
+    public void setup() {
+        FakeContext context = new FakeContext();
+        NotificationMessagingUtil messagingUtil = Instances.allocate(NotificationMessagingUtil.class);
+        ArrayMap<Integer, String> defaultSmsApp = new ArrayMap<>();
+        defaultSmsApp.put(UserHandle.USER_SYSTEM, "com.android.mms");
+        Instances.set(messagingUtil, "mDefaultSmsApp", defaultSmsApp);
+        NotificationComparator comparator = new NotificationComparator(context, messagingUtil);
+        comparator.mDefaultPhoneApp = "com.android.incallui";
+        mHelper = new RankingHelper(context, null, comparator, null, null, null, new String[0]);
+
+        if ("imBurst".equals(stream)) {
+            for (String[] record : imBurst()) {
+                mEvents.add(newRecord(record));
+            }
+            mStart = BURST_CONVERSATIONS;
+            mMaxActive = Integer.MAX_VALUE;
+        } else {
+            for (String[] record : Datasets.records("notification_stream.tsv")) {
+                mEvents.add(newRecord(record));
+            }
+            mStart = mEvents.size() / 2;
+            mMaxActive = 50;
+        }
+        for (int i = 0; i < mStart; i++) {
+            apply(mInitial, mEvents.get(i));
+        }
+        reset();
+    }
+
+    /** The imBurst stream, in the columns of notification_stream.tsv. */
+    private static List<String[]> imBurst() {
+        Random random = new Random(27);
+        ArrayList<String[]> records = new ArrayList<>();
+        long postTime = 0;
+        int conversations = BURST_CONVERSATIONS;
+        for (int i = 0; i < BURST_CONVERSATIONS; i++) {
+            postTime += 1 + random.nextInt(500);
+            records.add(imMessage(i, postTime, random));
+        }
+        for (int m = 0; m < BURST_MESSAGES; m++) {
+            postTime += 1 + random.nextInt(40);
+            int conversation;
+            if (random.nextInt(50) == 0) {
+                conversation = conversations++;
+            } else if (random.nextInt(4) != 0) {
+                conversation = random.nextInt(6);
+            } else {
+                conversation = random.nextInt(conversations);
+            }
+            records.add(imMessage(conversation, postTime, random));
+        }
+        return records;
+    }
+
+    private static String[] imMessage(int conversation, long postTime, Random random) {
+        // The first conversations of each messenger are pinned chats the user often talks in.
+        String affinity = conversation < 12 ? "0.9" : random.nextInt(5) == 0 ? "0.4" : "0";
+        return new String[]{Long.toString(postTime), MESSENGERS[conversation % MESSENGERS.length], Integer.toString(conversation), "msg", "4", "1", affinity, null, null};
+    }
+
+    private static NotificationRecord newRecord(String[] record) {
+        long postTime = Long.parseLong(record[0]);
+        String packageName = record[1];
+        Notification n = new Notification();
+        n.when = postTime;
+        n.category = record[3];
+        n.priority = Integer.parseInt(record[5]);
+        for (String flag : Datasets.list(record[7])) {
+            if ("ongoing".equals(flag)) {
+                n.flags |= Notification.FLAG_FOREGROUND_SERVICE | Notification.FLAG_ONGOING_EVENT;
+            } else if ("colorized".equals(flag)) {
+                n.extras.putBoolean(Notification.EXTRA_COLORIZED, true);
+            } else if ("summary".equals(flag)) {
+                n.flags |= Notification.FLAG_GROUP_SUMMARY;
+            }
+        }
+        if (record[8] != null) {
+            Instances.set(n, "mGroupKey", record[8]);
+        }
+        StatusBarNotification sbn = new StatusBarNotification(packageName, packageName, Integer.parseInt(record[2]), null, 10000 + (packageName.hashCode() & 4095), 0, n, UserHandle.SYSTEM, null, postTime);
+        NotificationRecord r = Instances.allocate(NotificationRecord.class);
+        Instances.set(r, "sbn", sbn);
+        Instances.set(r, "mSortKey", new NotificationSortKey());
+        Instances.set(r, "mImportance", Integer.valueOf(Integer.parseInt(record[4])));
+        Instances.set(r, "mRankingTimeMs", Long.valueOf(postTime));
+        r.setContactAffinity(Float.parseFloat(record[6]));
+        r.setCriticality(2);
+        return r;
+    }
+
+    /** Posts {@code r}, replacing the notification with the same key, as enqueueNotification does. */
+    private void apply(ArrayList<NotificationRecord> list, NotificationRecord r) {
+        String key = r.getKey();
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).getKey().equals(key)) {
+                list.set(i, r);
+                return;
+            }
+        }
+        if (list.size() >= mMaxActive) {
+            int oldest = 0;
+            for (int i = 1; i < list.size(); i++) {
+                if (list.get(i).getRankingTimeMs() < list.get(oldest).getRankingTimeMs()) {
+                    oldest = i;
+                }
+            }
+            list.remove(oldest);
+        }
+        list.add(r);
+    }
+
+    private void reset() {
+        mList.clear();
+        mList.addAll(mInitial);
+        mNext = mStart;
+        mHelper.invalidateSortOrder();
+        mHelper.sort(mList);
+    }
+
+    /** One post or update from the stream, then the sort that follows it. */
+    @Benchmark
+    public List<NotificationRecord> postAndSort() {
+        if (mNext == mEvents.size()) {
+            reset();
+        }
+        apply(mList, mEvents.get(mNext++));
+        mHelper.sort(mList);
+        return mList;
+    }
+
+    /** A sort with nothing changed, as after a ranking update that moved nothing. */
+    @Benchmark
+    public List<NotificationRecord> resort() {
+        mHelper.sort(mList);
+        return mList;
+    }
+
+    /** A sort after the order was invalidated, which recomputes every key. */
+    @Benchmark
+    public List<NotificationRecord> fullSort() {
+        mHelper.invalidateSortOrder();
+        mHelper.sort(mList);
+        return mList;
+    }
+}
@@ -0,0 +1,219 @@
+package com.android.server.wifi;
+
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiConfiguration;
+import android.net.wifi.WifiSsid;
+import com.android.server.benchmark.Datasets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The scan detail side of one selectNetwork call for one scan of wifi_scans.tsv per call: the
+ * filter pass, then the saved, passpoint and scored evaluators each asking for the saved network
+ * of every filtered scan detail. WifiConfigManager needs the whole service around it, so the
+ * benchmark looks networks up in a map keyed like the one of ConfigurationMap. The reference
+ * formats a scan id for every result, copies the filtered list for every evaluator and derives
+ * the match key of every scan detail on every lookup, as selectNetwork did before the
+ * ScanDetailIndex.
+ *
+ * ScanResultMatchInfo and the ScanDetail of this tree need WifiConfiguration fields and telephony
+ * classes of the MIUI framework that android-all does not have. ScanDetailIndex is built against
+ * the stand-in ScanDetail of src/scanDetailIndex, and MatchKey derives the key the way
+ * ScanResultMatchInfo.fromScanResult does: the quoted SSID and the security type read from the
+ * capabilities in the same order, compared as it compares them.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WifiNetworkSelectorBenchmark {
+    private static final int EVALUATORS = 3;
+    private static final String[] SAVED = {"MI-Office", "MI-Voice", "CMCC-JA7H"};
+    private final HashSet<String> mBlacklist = new HashSet<>();
+    private final ArrayList<ScanDetail> mEvaluatorScanDetails = new ArrayList<>();
+    private final ArrayList<ScanDetail> mFilteredNetworks = new ArrayList<>();
+    private final ScanDetailIndex mIndex = new ScanDetailIndex();
+    private int mNext;
+    private final HashMap<MatchKey, WifiConfiguration> mSavedNetworks = new HashMap<>();
+    private final ArrayList<List<ScanDetail>> mScans = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        HashSet<String> saved = new HashSet<>();
+        for (String ssid : SAVED) {
+            saved.add(ssid);
+        }
+        for (String[] record : Datasets.records("wifi_scans.tsv")) {
+            int scan = Integer.parseInt(record[0]);
+            while (mScans.size() <= scan) {
+                mScans.add(new ArrayList<>());
+            }
+            WifiSsid wifiSsid = WifiSsid.createFromAsciiEncoded(record[1] != null ? record[1] : "");
+            ScanDetail detail = new ScanDetail(wifiSsid, record[2], record[3], Integer.parseInt(record[4]), Integer.parseInt(record[5]), 0, 0);
+            mScans.get(scan).add(detail);
+            if (record[1] != null && saved.contains(record[1])) {
+                MatchKey key = MatchKey.fromScanResult(detail.getScanResult());
+                if (!mSavedNetworks.containsKey(key)) {
+                    WifiConfiguration config = new WifiConfiguration();
+                    config.networkId = mSavedNetworks.size();
+                    config.SSID = key.networkSsid;
+                    mSavedNetworks.put(key, config);
+                }
+            }
+        }
+        // One of the office access points failed an association earlier.
+        mBlacklist.add("8c:be:be:10:00:00");
+    }
+
+    private static final class MatchKey {
+        String networkSsid;
+        int networkType;
+        boolean oweInTransitionMode;
+        boolean pskSaeInTransitionMode;
+
+        static MatchKey fromScanResult(ScanResult scanResult) {
+            String caps = scanResult.capabilities;
+            MatchKey key = new MatchKey();
+            key.networkSsid = "\"" + scanResult.SSID + "\"";
+            if (caps.contains("SAE")) {
+                key.networkType = 4;
+                key.pskSaeInTransitionMode = caps.contains("PSK");
+            } else if (caps.contains("PSK")) {
+                key.networkType = 2;
+            } else if (caps.contains("SUITE-B-192")) {
+                key.networkType = 5;
+            } else if (caps.contains("EAP")) {
+                key.networkType = 3;
+            } else if (caps.contains("WEP")) {
+                key.networkType = 1;
+            } else if (caps.contains("OWE")) {
+                key.networkType = 6;
+                key.oweInTransitionMode = caps.contains("OWE_TRANSITION");
+            } else if (caps.contains("FILS-SHA256")) {
+                key.networkType = 7;
+            } else if (caps.contains("FILS-SHA384")) {
+                key.networkType = 8;
+            } else if (!caps.contains("WAPI-KEY") && !caps.contains("WAPI-CERT")) {
+                key.networkType = 0;
+            } else {
+                key.networkType = caps.contains("WAPI-KEY") ? 12 : 13;
+            }
+            return key;
+        }
+
+        public boolean equals(Object otherObj) {
+            if (this == otherObj) {
+                return true;
+            }
+            if (!(otherObj instanceof MatchKey)) {
+                return false;
+            }
+            MatchKey other = (MatchKey) otherObj;
+            if (!Objects.equals(this.networkSsid, other.networkSsid)) {
+                return false;
+            }
+            if ((other.pskSaeInTransitionMode && this.networkType == 2) || (this.pskSaeInTransitionMode && other.networkType == 2)) {
+                return true;
+            }
+            if ((this.networkType != 0 || !other.oweInTransitionMode) && ((!this.oweInTransitionMode || other.networkType != 0) && this.networkType != other.networkType)) {
+                return false;
+            }
+            return true;
+        }
+
+        public int hashCode() {
+            return Objects.hash(new Object[]{this.networkSsid});
+        }
+    }
+
+    private List<ScanDetail> next() {
+        List<ScanDetail> scan = mScans.get(mNext);
+        mNext = (mNext + 1) % mScans.size();
+        return scan;
+    }
+
+    private static boolean isSignalTooWeak(ScanResult scanResult) {
+        return scanResult.level < (scanResult.is24GHz() ? -80 : -77);
+    }
+
+    @Benchmark
+    public int indexedSelection() {
+        List<ScanDetail> scanDetails = next();
+        ArrayList<ScanDetail> filtered = mFilteredNetworks;
+        filtered.clear();
+        ScanDetailIndex index = mIndex;
+        index.reset(scanDetails.size());
+        StringBuilder skipped = new StringBuilder();
+        for (int i = 0; i < scanDetails.size(); i++) {
+            ScanDetail detail = scanDetails.get(i);
+            ScanResult scanResult = detail.getScanResult();
+            if (scanResult.SSID.isEmpty()) {
+                continue;
+            }
+            if (mBlacklist.contains(scanResult.BSSID) || isSignalTooWeak(scanResult)) {
+                skipped.append(scanResult.SSID + ":" + scanResult.BSSID).append(" / ");
+            } else {
+                filtered.add(detail);
+                index.add(detail);
+            }
+        }
+        int matched = skipped.length();
+        for (int e = 0; e < EVALUATORS; e++) {
+            ArrayList<ScanDetail> list = mEvaluatorScanDetails;
+            list.clear();
+            for (int i = 0; i < filtered.size(); i++) {
+                list.add(filtered.get(i));
+            }
+            for (int i = 0; i < list.size(); i++) {
+                ScanDetail detail = list.get(i);
+                int slot = index.indexOf(detail);
+                WifiConfiguration network;
+                if (!index.isResolved(slot, 1)) {
+                    network = mSavedNetworks.get(MatchKey.fromScanResult(detail.getScanResult()));
+                    index.setNetwork(slot, network, 1);
+                } else {
+                    network = index.getNetwork(slot);
+                }
+                if (network != null) {
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int copyingSelection() {
+        List<ScanDetail> scanDetails = next();
+        List<ScanDetail> filtered = new ArrayList<>();
+        StringBuffer skipped = new StringBuffer();
+        for (ScanDetail detail : scanDetails) {
+            ScanResult scanResult = detail.getScanResult();
+            if (scanResult.SSID.isEmpty()) {
+                continue;
+            }
+            String scanId = String.format("%s:%s", scanResult.SSID, scanResult.BSSID);
+            if (mBlacklist.contains(scanResult.BSSID) || isSignalTooWeak(scanResult)) {
+                skipped.append(scanId).append(" / ");
+            } else {
+                filtered.add(detail);
+            }
+        }
+        int matched = skipped.length();
+        for (int e = 0; e < EVALUATORS; e++) {
+            for (ScanDetail detail : new ArrayList<>(filtered)) {
+                if (mSavedNetworks.get(MatchKey.fromScanResult(detail.getScanResult())) != null) {
+                    matched++;
+                }
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,69 @@
+package com.google.protobuf;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encoding the strings of a WifiScoreCard network list, for one list per call, with and without
+ * the ASCII pass that writeStringNoTag now takes first. "scorecard" is the size WifiScoreCard
+ * keeps, a few SSIDs; "usagestats" is the same list grown to the size of a usage stats dump,
+ * keyed by package and class names.
+ *
+ * The whole message references, writeTo(OutputStream) against toByteArray() written to a file,
+ * are not here: CodedOutputStream and the generated WifiScoreCardProto of this tree need most of
+ * com.google.protobuf, which does not compile on its own, and android-all only has the AOSP
+ * runtime without the ASCII pass. Utf8 is where the two paths differ, so it is measured directly.
+ * On a JDK 9 or later that does not open java.nio, Utf8 cannot read buffer addresses and the
+ * general path runs on its SafeProcessor rather than the Unsafe one the device uses.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CodedOutputStreamBenchmark {
+    private byte[] mScratch;
+    @Param({"scorecard", "usagestats"})
+    public String mSize;
+    private String[] mStrings;
+
+    @Setup
+    public void setup() {
+        boolean large = "usagestats".equals(mSize);
+        int networks = large ? 1500 : 8;
+        Random random = new Random(47);
+        mStrings = new String[networks];
+        int capacity = 0;
+        for (int n = 0; n < networks; n++) {
+            // Usage stats entries are keyed by package and class names; score card ones by SSID.
+            String name = large ? "com.vendor.app" + n + "/com.vendor.app" + n + ".ui.MainActivity$Fragment" + random.nextInt(50) : "\"office-" + n + "\"";
+            mStrings[n] = name;
+            capacity += (name.length() * 3) + 2;
+        }
+        mScratch = new byte[capacity];
+    }
+
+    @Benchmark
+    public int utf8Ascii() {
+        int position = 0;
+        for (String value : mStrings) {
+            position += value.length() > 127 ? 2 : 1;
+            int end = Utf8.encodeAscii(value, mScratch, position, mScratch.length);
+            position = end >= 0 ? end : Utf8.encode(value, mScratch, position, mScratch.length - position);
+        }
+        return position;
+    }
+
+    @Benchmark
+    public int utf8General() {
+        int position = 0;
+        for (String value : mStrings) {
+            position += Utf8.encodedLength(value) > 127 ? 2 : 1;
+            position = Utf8.encode(value, mScratch, position, mScratch.length - position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,122 @@
+package com.miui.antispam.policy.a;
+
+import com.android.server.benchmark.Datasets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The SecurityCenter antispam blacklist checks: one message of antispam_messages.tsv per call
+ * against the keyword list and the phone list, and the cost of compiling both after a list edit.
+ *
+ * "dataset" runs on the lists as they are in the dataset files. "10k" fills both lists up to
+ * 10000 entries with generated ones in the same mix: keywords of two to four Chinese characters
+ * or a latin word, and mobile numbers of which about one in twenty is a {@code <prefix>*} entry
+ * and one in a hundred has {@code #} wildcards.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AntispamMatchBenchmark {
+    private static final int LARGE_LIST = 10000;
+    private String[] mBodies;
+    private final ArrayList<String> mKeywords = new ArrayList<>();
+    private KeywordMatcher mMatcher;
+    private int mNext;
+    private final HashMap<String, Integer> mNumbers = new HashMap<>();
+    private CompiledPhoneList mPhoneList;
+    private String[] mSenders;
+    private int[] mStates;
+    @Param({"dataset", "10k"})
+    public String lists;
+
+    @Setup
+    public void setup() {
+        for (String[] record : Datasets.records("antispam_keywords.tsv")) {
+            mKeywords.add(record[0]);
+        }
+        for (String[] record : Datasets.records("antispam_numbers.tsv")) {
+            mNumbers.put(record[0], Integer.valueOf(record[1]));
+        }
+        if ("10k".equals(lists)) {
+            fill(new Random(34));
+        }
+        List<String[]> messages = Datasets.records("antispam_messages.tsv");
+        mSenders = new String[messages.size()];
+        mStates = new int[messages.size()];
+        mBodies = new String[messages.size()];
+        for (int i = 0; i < messages.size(); i++) {
+            mSenders[i] = messages.get(i)[0];
+            mStates[i] = Integer.parseInt(messages.get(i)[1]);
+            mBodies[i] = messages.get(i)[2];
+        }
+        mMatcher = KeywordMatcher.compile(mKeywords);
+        mPhoneList = CompiledPhoneList.compile(mNumbers);
+    }
+
+    private void fill(Random random) {
+        StringBuilder sb = new StringBuilder();
+        while (mKeywords.size() < LARGE_LIST) {
+            sb.setLength(0);
+            if (random.nextInt(4) == 0) {
+                for (int i = 3 + random.nextInt(6); i > 0; i--) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                }
+            } else {
+                for (int i = 2 + random.nextInt(3); i > 0; i--) {
+                    sb.append((char) (0x4e00 + random.nextInt(0x51a5)));
+                }
+            }
+            mKeywords.add(sb.toString());
+        }
+        while (mNumbers.size() < LARGE_LIST) {
+            sb.setLength(0);
+            sb.append('1').append((char) ('3' + random.nextInt(7)));
+            for (int i = 0; i < 9; i++) {
+                sb.append((char) ('0' + random.nextInt(10)));
+            }
+            int kind = random.nextInt(100);
+            if (kind < 5) {
+                sb.setLength(4 + random.nextInt(4));
+                sb.append('*');
+            } else if (kind < 6) {
+                for (int i = sb.length() - 1 - random.nextInt(4); i < sb.length(); i++) {
+                    sb.setCharAt(i, '#');
+                }
+            }
+            mNumbers.put(sb.toString(), Integer.valueOf(random.nextInt(3)));
+        }
+    }
+
+    private int next() {
+        int i = mNext;
+        mNext = i + 1 < mBodies.length ? i + 1 : 0;
+        return i;
+    }
+
+    @Benchmark
+    public String matchKeyword() {
+        return mMatcher.findFirst(mBodies[next()]);
+    }
+
+    /** Prefix walk first, then the exact and wildcard entries, as the number check does. */
+    @Benchmark
+    public boolean matchNumber() {
+        int i = next();
+        return mPhoneList.matchesPrefix(mSenders[i], mStates[i]) || mPhoneList.matchesNumber(mSenders[i], mStates[i]);
+    }
+
+    @Benchmark
+    public void compileLists(Blackhole bh) {
+        bh.consume(KeywordMatcher.compile(mKeywords));
+        bh.consume(CompiledPhoneList.compile(mNumbers));
+    }
+}
@@ -0,0 +1,123 @@
+package com.miui.server;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.util.ArrayMap;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The app lock check SecurityManagerService makes for every activity start, filterIntentLocked
+ * on the skip list, for one intent of a mixed start sequence per call. AccessController needs
+ * MiuiSettings and other MIUI framework classes that android-all does not have, so the benchmark
+ * takes filterIntentLocked's steps over an InterceptTable of its own. The reference keeps the
+ * per-package intent lists and scans them under a lock, as filterIntentLocked did before the
+ * lists were compiled into intercept tables.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AccessControllerBenchmark {
+    private static final int STARTS = 1024;
+    private static final String[][] SKIPPED = {
+        {"com.tencent.mm", "com.tencent.mm.plugin.voip.ui.VideoActivity"},
+        {"com.tencent.mm", "com.tencent.mm.plugin.base.stub.WXPayEntryActivity"},
+        {"com.tencent.mobileqq", "com.tencent.av.ui.VideoInviteFull"},
+        {"com.eg.android.AlipayGphone", "com.alipay.android.app.TransProcessPayActivity"},
+        {"com.android.mms", "com.android.mms.ui.ComposeMessageRouterActivity"}
+    };
+    private static final String[][] STARTED = {
+        {"com.tencent.mm", "com.tencent.mm.ui.LauncherUI"},
+        {"com.tencent.mm", ".ui.chatting.ChattingUI"},
+        {"com.tencent.mobileqq", "com.tencent.mobileqq.activity.SplashActivity"},
+        {"com.eg.android.AlipayGphone", "com.eg.android.AlipayGphone.AlipayLogin"},
+        {"com.android.mms", "com.android.mms.ui.MmsTabActivity"},
+        {"com.taobao.taobao", "com.taobao.tao.welcome.Welcome"},
+        {"com.ss.android.ugc.aweme", "com.ss.android.ugc.aweme.splash.SplashActivity"},
+        {"com.android.settings", "com.android.settings.MainSettings"}
+    };
+    private int mNext;
+    private String[] mPackages;
+    private final ArrayMap<String, ArrayList<Intent>> mSkipList = new ArrayMap<>();
+    private Intent[] mStarts;
+    private final InterceptTable mTable = new InterceptTable();
+
+    @Setup
+    public void setup() {
+        for (String[] skipped : SKIPPED) {
+            mTable.addClassName(skipped[0], skipped[1]);
+            ArrayList<Intent> intents = mSkipList.get(skipped[0]);
+            if (intents == null) {
+                intents = new ArrayList<>(1);
+                mSkipList.put(skipped[0], intents);
+            }
+            intents.add(new Intent().setComponent(new ComponentName(skipped[0], skipped[1])));
+        }
+        // One start in eight is a call or payment screen the lock lets through.
+        Random random = new Random(1970);
+        mStarts = new Intent[STARTS];
+        mPackages = new String[STARTS];
+        for (int i = 0; i < STARTS; i++) {
+            String[] target = random.nextInt(8) == 0 ? SKIPPED[random.nextInt(SKIPPED.length)] : STARTED[random.nextInt(STARTED.length)];
+            mStarts[i] = new Intent(random.nextInt(4) == 0 ? Intent.ACTION_VIEW : null).setComponent(new ComponentName(target[0], target[1]));
+            mPackages[i] = target[0];
+        }
+    }
+
+    @Benchmark
+    public boolean filterIntent() {
+        int i = mNext;
+        mNext = (i + 1) & (STARTS - 1);
+        String packageName = mPackages[i];
+        Intent intent = mStarts[i];
+        String action = intent.getAction();
+        if (action != null && mTable.containsAction(packageName, action)) {
+            return true;
+        }
+        ComponentName component = intent.getComponent();
+        if (component == null) {
+            return false;
+        }
+        return mTable.containsClassName(packageName, component.getPackageName(), component.getClassName());
+    }
+
+    @Benchmark
+    public boolean filterIntentLinearScan() {
+        int i = mNext;
+        mNext = (i + 1) & (STARTS - 1);
+        return scanLocked(mPackages[i], mStarts[i]);
+    }
+
+    private synchronized boolean scanLocked(String packageName, Intent intent) {
+        ArrayList<Intent> intents = mSkipList.get(packageName);
+        if (intents == null) {
+            return false;
+        }
+        String action = intent.getAction();
+        if (action != null) {
+            for (Intent item : intents) {
+                if (action.equals(item.getAction())) {
+                    return true;
+                }
+            }
+        }
+        ComponentName component = intent.getComponent();
+        if (component == null) {
+            return false;
+        }
+        String className = component.getClassName();
+        String fullName = className.charAt(0) == '.' ? component.getPackageName() + className : className;
+        for (Intent item : intents) {
+            ComponentName itemComponent = item.getComponent();
+            if (itemComponent != null && fullName.equals(itemComponent.getClassName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,169 @@
+package com.miui.server;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * The compat mode queries of one activity launch, getAspectRatio, getNotchConfig and
+ * getCutoutMode, for one package of a mixed launch sequence per call, alone and from four
+ * threads at once. MiuiCompatModePackages needs MiuiSettings and other MIUI framework classes
+ * that android-all does not have, so the benchmark takes the steps of those queries over a
+ * CompatModeTable and resolved default caches of its own. The reference keeps the four mode maps
+ * and the two default caches in HashMaps and looks each up under one lock, as the queries did
+ * before the table.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MiuiCompatModePackagesBenchmark {
+    private static final int INSTALLED = 400;
+    private static final int LAUNCHES = 1024;
+    private final HashMap<String, Integer> mCloudCutoutModes = new HashMap<>();
+    private final HashMap<String, Integer> mDefaultTypes = new HashMap<>();
+    private final ConcurrentHashMap<String, Integer> mDefaultTypeCache = new ConcurrentHashMap<>();
+    private String[] mLaunches;
+    private final Object mLock = new Object();
+    private final HashMap<String, Integer> mNotchConfigs = new HashMap<>();
+    private final ConcurrentHashMap<String, Integer> mNotchConfigCache = new ConcurrentHashMap<>();
+    private final HashMap<String, Integer> mPackages = new HashMap<>();
+    private final HashMap<String, Integer> mSpecialModes = new HashMap<>();
+    private CompatModeTable mTable;
+    private final HashMap<String, Integer> mUserCutoutModes = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        Random random = new Random(49);
+        String[] installed = new String[INSTALLED];
+        for (int i = 0; i < INSTALLED; i++) {
+            installed[i] = "com.vendor" + (i % 37) + ".app" + i;
+            // Most apps declare no max aspect and end up restricted by default.
+            Integer type = Integer.valueOf(random.nextInt(4) == 0 ? 1 : 5);
+            Integer notch = Integer.valueOf(random.nextInt(8) == 0 ? 1792 : 0);
+            mDefaultTypes.put(installed[i], type);
+            mDefaultTypeCache.put(installed[i], type);
+            mNotchConfigs.put(installed[i], notch);
+            mNotchConfigCache.put(installed[i], notch);
+            if (random.nextInt(6) == 0) {
+                mPackages.put(installed[i], Integer.valueOf(random.nextInt(2)));
+            }
+            if (random.nextInt(12) == 0) {
+                mSpecialModes.put(installed[i], Integer.valueOf(1));
+            }
+            if (random.nextInt(20) == 0) {
+                mUserCutoutModes.put(installed[i], Integer.valueOf(random.nextInt(3)));
+            }
+            if (random.nextInt(5) == 0) {
+                mCloudCutoutModes.put(installed[i], Integer.valueOf(random.nextInt(3)));
+            }
+        }
+        mTable = CompatModeTable.build(mPackages, mSpecialModes, mUserCutoutModes, mCloudCutoutModes);
+        mLaunches = new String[LAUNCHES];
+        for (int i = 0; i < LAUNCHES; i++) {
+            // A few apps account for most launches.
+            mLaunches[i] = installed[random.nextInt(4) == 0 ? random.nextInt(INSTALLED) : random.nextInt(12)];
+        }
+    }
+
+    /** The launch sequence position of one benchmark thread. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int mNext;
+    }
+
+    private String next(Cursor cursor) {
+        int i = cursor.mNext;
+        cursor.mNext = (i + 1) % LAUNCHES;
+        return mLaunches[i];
+    }
+
+    private int launchFromTable(String pkg) {
+        CompatModeTable.Entry entry = mTable.get(pkg);
+        int packageMode = entry != null ? entry.packageMode : CompatModeTable.UNSET;
+        if (packageMode == CompatModeTable.UNSET) {
+            int type = mDefaultTypeCache.get(pkg).intValue();
+            packageMode = (type == 4 || type == 5) ? 1 : 0;
+        }
+        int specialMode = entry != null ? entry.specialMode : CompatModeTable.UNSET;
+        int notchConfig = mNotchConfigCache.get(pkg).intValue();
+        int config = ((specialMode == CompatModeTable.UNSET || specialMode == 0) ? 0 : 128) | notchConfig;
+        int cutoutMode;
+        if (entry != null && entry.userCutoutMode != CompatModeTable.UNSET) {
+            cutoutMode = entry.userCutoutMode;
+        } else if (entry == null || entry.cloudCutoutMode == CompatModeTable.UNSET) {
+            cutoutMode = (mNotchConfigCache.get(pkg).intValue() & 1792) == 1792 ? 1 : 0;
+        } else {
+            cutoutMode = entry.cloudCutoutMode;
+        }
+        return packageMode + config + cutoutMode;
+    }
+
+    private int launchLocked(String pkg) {
+        Integer mode;
+        synchronized (mLock) {
+            mode = mPackages.get(pkg);
+        }
+        int packageMode;
+        if (mode != null) {
+            packageMode = mode.intValue();
+        } else {
+            int type;
+            synchronized (mLock) {
+                type = mDefaultTypes.get(pkg).intValue();
+            }
+            packageMode = (type == 4 || type == 5) ? 1 : 0;
+        }
+        int config = 0;
+        synchronized (mLock) {
+            if (mSpecialModes.containsKey(pkg) && (mode = mSpecialModes.get(pkg)) != null) {
+                config = mode.intValue() != 0 ? 128 : 0;
+            }
+        }
+        synchronized (mLock) {
+            config |= mNotchConfigs.get(pkg).intValue();
+        }
+        int cutoutMode;
+        synchronized (mLock) {
+            if (mUserCutoutModes.containsKey(pkg)) {
+                return packageMode + config + mUserCutoutModes.get(pkg).intValue();
+            }
+        }
+        synchronized (mLock) {
+            if (mCloudCutoutModes.containsKey(pkg)) {
+                return packageMode + config + mCloudCutoutModes.get(pkg).intValue();
+            }
+        }
+        synchronized (mLock) {
+            cutoutMode = (mNotchConfigs.get(pkg).intValue() & 1792) == 1792 ? 1 : 0;
+        }
+        return packageMode + config + cutoutMode;
+    }
+
+    @Benchmark
+    public int tableLaunch(Cursor cursor) {
+        return launchFromTable(next(cursor));
+    }
+
+    @Benchmark
+    public int lockedLaunch(Cursor cursor) {
+        return launchLocked(next(cursor));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int tableLaunchContended(Cursor cursor) {
+        return launchFromTable(next(cursor));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int lockedLaunchContended(Cursor cursor) {
+        return launchLocked(next(cursor));
+    }
+}
@@ -0,0 +1,60 @@
+package dalvik.system;
+
+import java.lang.reflect.Array;
+
+/**
+ * Host stand-in for the ART VMRuntime, whose array allocators are native methods. Framework
+ * collections such as SparseIntArray allocate through newUnpaddedArray, so without it the static
+ * initializers of Notification and AudioAttributes fail on a host JVM. Like SystemClock and Log it
+ * replaces the android-all class. Only the allocation, target SDK and native allocation accounting
+ * calls are here; a benchmark that reaches any other VMRuntime method fails with
+ * NoSuchMethodError instead of measuring a stand-in.
+ */
+public final class VMRuntime {
+    public static final int SDK_VERSION_CUR_DEVELOPMENT = 10000;
+    private static final VMRuntime THE_ONE = new VMRuntime();
+    private int mTargetSdkVersion = SDK_VERSION_CUR_DEVELOPMENT;
+
+    private VMRuntime() {
+    }
+
+    public static VMRuntime getRuntime() {
+        return THE_ONE;
+    }
+
+    public synchronized void setTargetSdkVersion(int targetSdkVersion) {
+        this.mTargetSdkVersion = targetSdkVersion;
+    }
+
+    public synchronized int getTargetSdkVersion() {
+        return this.mTargetSdkVersion;
+    }
+
+    public boolean is64Bit() {
+        return true;
+    }
+
+    /** A host array is never padded, so this is an exact-length array. */
+    public Object newUnpaddedArray(Class<?> componentType, int length) {
+        return Array.newInstance(componentType, length);
+    }
+
+    public Object newNonMovableArray(Class<?> componentType, int length) {
+        return Array.newInstance(componentType, length);
+    }
+
+    public void registerNativeAllocation(long bytes) {
+    }
+
+    public void registerNativeAllocation(int bytes) {
+    }
+
+    public void registerNativeFree(long bytes) {
+    }
+
+    public void registerNativeFree(int bytes) {
+    }
+
+    public void notifyNativeAllocation() {
+    }
+}
@@ -0,0 +1,84 @@
+package miui.security;
+
+import com.android.server.benchmark.Datasets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The rule scan of WakePathChecker.matchWakePathRule over wake_path_rules.tsv, for one call of
+ * wake_path_queries.tsv per invocation. matchWakePathRule itself is a bytecode dump in this tree
+ * and WakePathChecker does not compile, so the rules are kept in per wake type lists the way
+ * pushWakePathRuleInfos stores them, and each call is matched the way matchWakePathRuleInfos
+ * does it: WakePathRuleInfo.equals on every rule of the list until one matches. The white list
+ * checks in front of the scan are not included.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WakePathCheckerBenchmark {
+    private String[][] mQueries;
+    private final List<String[]> mRecords = new ArrayList<>();
+    private final ArrayList<List<WakePathRuleInfo>> mRuleInfosList = new ArrayList<>(8);
+    private int mNext;
+    private int[] mWakeTypes;
+
+    @Setup
+    public void setup() throws Exception {
+        mRecords.addAll(Datasets.records("wake_path_rules.tsv"));
+        for (int i = 0; i < 8; i++) {
+            mRuleInfosList.add(new ArrayList<WakePathRuleInfo>());
+        }
+        for (WakePathRuleInfo info : buildRules()) {
+            mRuleInfosList.get(listIndex(info.mWakeType)).add(info);
+        }
+        List<String[]> queries = Datasets.records("wake_path_queries.tsv");
+        mQueries = (String[][]) queries.toArray(new String[queries.size()][]);
+        mWakeTypes = new int[mQueries.length];
+        for (int i = 0; i < mQueries.length; i++) {
+            mWakeTypes[i] = Integer.parseInt(mQueries[i][4]);
+        }
+    }
+
+    /** The list index of wakeTypeToRuleInfosListIndex, for the single-bit wake types. */
+    private static int listIndex(int wakeType) {
+        int index = Integer.numberOfTrailingZeros(wakeType);
+        return index < 4 ? index : index - 1;
+    }
+
+    private List<WakePathRuleInfo> buildRules() throws Exception {
+        ArrayList<WakePathRuleInfo> rules = new ArrayList<>(mRecords.size());
+        for (String[] record : mRecords) {
+            rules.add(new WakePathRuleInfo(record[0], record[1], record[2], record[3], Integer.parseInt(record[4]), 0));
+        }
+        return rules;
+    }
+
+    /** One call of the query mix per invocation. */
+    @Benchmark
+    public boolean matchWakePathRule() {
+        int i = mNext;
+        mNext = i + 1 < mQueries.length ? i + 1 : 0;
+        String[] query = mQueries[i];
+        int wakeType = mWakeTypes[i];
+        List<WakePathRuleInfo> infos = mRuleInfosList.get(listIndex(wakeType));
+        int N = infos.size();
+        for (int j = 0; j < N; j++) {
+            if (infos.get(j).equals(query[0], query[1], query[2], query[3], wakeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Parsing a pushed rule list into WakePathRuleInfo objects. */
+    @Benchmark
+    public void pushRules(Blackhole bh) throws Exception {
+        bh.consume(buildRules());
+    }
+}
@@ -0,0 +1,104 @@
+package miui.upnp.manager;
+
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import miui.upnp.manager.ctrlpoint.AbstractDevice;
+import miui.upnp.manager.ctrlpoint.UnknownDevice;
+import miui.upnp.typedef.device.Device;
+import miui.upnp.typedef.device.DiscoveryType;
+import miui.upnp.typedef.deviceclass.DeviceClass;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * One scan listener callback per call from a simulated home of renderers. Every device announces
+ * itself over and over, some over LAN and BLE both; now and then one restarts on another port
+ * and comes back with a new description URL, or says goodbye and is found again. Each callback
+ * carries a freshly unparcelled Device, as the binder calls from the upnp service do.
+ * UpnpControlPoint only starts a scan on the bound upnp service, so the benchmark takes the steps
+ * of onDeviceFound and onDeviceLost over a DeviceDescriptionCache of its own, and creates the
+ * wrappers the way DeviceFactory does. The reference wraps every device again, looking up its
+ * class and the reflective create method, as the listener did before the cache.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UpnpDiscoveryBenchmark {
+    private static final int CALLBACKS = 4096;
+    private final DeviceDescriptionCache mCache = new DeviceDescriptionCache();
+    private final UpnpClassProvider mClassProvider = new UpnpClassProvider();
+    private Method mCreateMethod;
+    private Device[] mDevices;
+    private boolean[] mLost;
+    private int mNext;
+    @Param({"8", "64"})
+    public int population;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        mClassProvider.addDeviceClass(new DeviceClass(UnknownDevice.DEVICE_TYPE, (Class<?>) UnknownDevice.class));
+        mCreateMethod = UnknownDevice.class.getMethod("create", new Class[]{Device.class});
+        Random random = new Random(50);
+        int[] ports = new int[population];
+        boolean[] gone = new boolean[population];
+        for (int i = 0; i < population; i++) {
+            ports[i] = 49152 + random.nextInt(1000);
+        }
+        mDevices = new Device[CALLBACKS];
+        mLost = new boolean[CALLBACKS];
+        for (int c = 0; c < CALLBACKS; c++) {
+            int i = random.nextInt(population);
+            int event = random.nextInt(100);
+            if (event < 2) {
+                ports[i]++;
+            }
+            mLost[c] = !gone[i] && event >= 2 && event < 4;
+            gone[i] = mLost[c];
+            Device device = new Device(UnknownDevice.DEVICE_TYPE);
+            device.setDeviceId("uuid:5a1ec0de-0000-1000-8000-" + String.format("%012x", i));
+            device.setLocation("http://192.168.31." + (100 + i) + ":" + ports[i] + "/description.xml");
+            device.setFriendlyName("Living room " + i);
+            device.addDiscoveryType((i & 1) == 0 || random.nextBoolean() ? DiscoveryType.LAN : DiscoveryType.BLE);
+            mDevices[c] = device;
+        }
+    }
+
+    private int next() {
+        int c = mNext;
+        mNext = (c + 1) % CALLBACKS;
+        return c;
+    }
+
+    private AbstractDevice create(Device device, Method method) throws ReflectiveOperationException {
+        DeviceClass deviceClazz = mClassProvider.getDeviceClass(device.getDeviceType());
+        if (method == null) {
+            method = deviceClazz.getClazz().getMethod("create", new Class[]{Device.class});
+        }
+        return (AbstractDevice) method.invoke((Object) null, new Object[]{device});
+    }
+
+    @Benchmark
+    public AbstractDevice cachedCallback() throws ReflectiveOperationException {
+        int c = next();
+        Device device = mDevices[c];
+        if (mLost[c]) {
+            AbstractDevice d = mCache.remove(device);
+            return d != null ? d : create(device, mCreateMethod);
+        }
+        AbstractDevice d2 = mCache.get(device);
+        if (d2 == null) {
+            d2 = create(device, mCreateMethod);
+            mCache.put(device, d2);
+        }
+        return d2;
+    }
+
+    @Benchmark
+    public AbstractDevice wrappingCallback() throws ReflectiveOperationException {
+        return create(mDevices[next()], null);
+    }
+}
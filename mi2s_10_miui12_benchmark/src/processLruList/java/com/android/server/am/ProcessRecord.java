@@ -0,0 +1,11 @@
+package com.android.server.am;
+
+/**
+ * Stand-in for the ProcessRecord of this tree, which cannot be compiled on its own, for building
+ * ProcessLruList. The list only reads and writes lruIndex, so that is all there is. It is loaded
+ * in its own class loader by ProcessLruListBenchmark and never meets the AOSP ProcessRecord that
+ * the other benchmarks run.
+ */
+final class ProcessRecord {
+    int lruIndex = -1;
+}
@@ -0,0 +1,23 @@
+package com.android.server.wifi;
+
+import android.net.wifi.ScanResult;
+import android.net.wifi.WifiSsid;
+
+/**
+ * Stand-in for the ScanDetail of this tree, which needs the hotspot2 and MIUI telephony classes
+ * and cannot be compiled on its own, for building ScanDetailIndex. The index only keys on the
+ * identity of a scan detail, and the selection steps only read its ScanResult, so this is the
+ * constructor the scanner uses for a result without information elements and nothing else.
+ */
+public class ScanDetail {
+    private final ScanResult mScanResult;
+
+    public ScanDetail(WifiSsid wifiSsid, String bssid, String caps, int level, int frequency, long tsf, long seen) {
+        this.mScanResult = new ScanResult(wifiSsid, bssid, 0, -1, (byte[]) null, caps, level, frequency, tsf);
+        this.mScanResult.seen = seen;
+    }
+
+    public ScanResult getScanResult() {
+        return this.mScanResult;
+    }
+}
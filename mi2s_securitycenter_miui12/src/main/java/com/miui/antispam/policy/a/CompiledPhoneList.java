@@ -0,0 +1,164 @@
+package com.miui.antispam.policy.a;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Read-only snapshot of one phone list (one type on one SIM) compiled for lookups: entries of the
+ * form {@code <prefix>*} go into a character trie so that every prefix of a number is checked in
+ * one walk, wildcard entries are compiled to patterns once, and plain numbers stay in a hash map.
+ */
+final class CompiledPhoneList {
+    private static final int NO_STATE = -1;
+    private final char[] mEdgeChars;
+    private final int[] mEdgeStart;
+    private final int[] mEdgeTargets;
+    private final HashMap<String, Integer> mExact;
+    private final int[] mPatternStates;
+    private final Pattern[] mPatterns;
+    private final int[] mPrefixStates;
+
+    private CompiledPhoneList(HashMap<String, Integer> exact, Pattern[] patterns, int[] patternStates, char[] edgeChars, int[] edgeTargets, int[] edgeStart, int[] prefixStates) {
+        this.mExact = exact;
+        this.mPatterns = patterns;
+        this.mPatternStates = patternStates;
+        this.mEdgeChars = edgeChars;
+        this.mEdgeTargets = edgeTargets;
+        this.mEdgeStart = edgeStart;
+        this.mPrefixStates = prefixStates;
+    }
+
+    static CompiledPhoneList compile(Map<String, Integer> numbers) {
+        HashMap<String, Integer> entries = new HashMap<>();
+        if (numbers != null) {
+            synchronized (numbers) {
+                entries.putAll(numbers);
+            }
+        }
+        HashMap<String, Integer> exact = new HashMap<>();
+        ArrayList<Pattern> patterns = new ArrayList<>();
+        ArrayList<Integer> patternStates = new ArrayList<>();
+        ArrayList<TreeMap<Character, Integer>> children = new ArrayList<>();
+        ArrayList<Integer> prefixStates = new ArrayList<>();
+        children.add(new TreeMap());
+        prefixStates.add(Integer.valueOf(NO_STATE));
+        for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+            String key = entry.getKey();
+            int state = entry.getValue().intValue();
+            if (key != null) {
+                if (isPlain(key)) {
+                    exact.put(key, Integer.valueOf(state));
+                } else {
+                    patterns.add(Pattern.compile(toRegex(key)));
+                    patternStates.add(Integer.valueOf(state));
+                }
+                if (key.length() > 1 && key.charAt(key.length() - 1) == '*') {
+                    int node = 0;
+                    for (int i = 0; i < key.length() - 1; i++) {
+                        Character valueOf = Character.valueOf(key.charAt(i));
+                        Integer next = children.get(node).get(valueOf);
+                        if (next == null) {
+                            next = Integer.valueOf(children.size());
+                            children.get(node).put(valueOf, next);
+                            children.add(new TreeMap());
+                            prefixStates.add(Integer.valueOf(NO_STATE));
+                        }
+                        node = next.intValue();
+                    }
+                    prefixStates.set(node, Integer.valueOf(state));
+                }
+            }
+        }
+        int size = children.size();
+        char[] edgeChars = new char[(size - 1)];
+        int[] edgeTargets = new int[(size - 1)];
+        int[] edgeStart = new int[(size + 1)];
+        int[] states = new int[size];
+        int edge = 0;
+        for (int i2 = 0; i2 < size; i2++) {
+            edgeStart[i2] = edge;
+            states[i2] = prefixStates.get(i2).intValue();
+            for (Map.Entry<Character, Integer> entry2 : children.get(i2).entrySet()) {
+                edgeChars[edge] = entry2.getKey().charValue();
+                edgeTargets[edge] = entry2.getValue().intValue();
+                edge++;
+            }
+        }
+        edgeStart[size] = edge;
+        int[] patternStateArray = new int[patternStates.size()];
+        for (int i3 = 0; i3 < patternStateArray.length; i3++) {
+            patternStateArray[i3] = patternStates.get(i3).intValue();
+        }
+        return new CompiledPhoneList(exact, (Pattern[]) patterns.toArray(new Pattern[patterns.size()]), patternStateArray, edgeChars, edgeTargets, edgeStart, states);
+    }
+
+    private static boolean isPlain(String number) {
+        for (int i = 0; i < number.length(); i++) {
+            if ("\\^$.|?*+()[]{}#".indexOf(number.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String toRegex(String number) {
+        return number.replace("*", "[\\s\\S]*").replace("#", "[\\s\\S]").replace("+", "\\+");
+    }
+
+    private static boolean stateMatches(int entryState, int state) {
+        return entryState == 0 || entryState == state;
+    }
+
+    private int find(int node, char c) {
+        int lo = this.mEdgeStart[node];
+        int hi = this.mEdgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char ch = this.mEdgeChars[mid];
+            if (ch < c) {
+                lo = mid + 1;
+            } else if (ch <= c) {
+                return this.mEdgeTargets[mid];
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether {@code <p>*} is on the list with a matching state for some non-empty prefix p of the
+     * number.
+     */
+    public boolean matchesPrefix(String number, int state) {
+        int node = 0;
+        for (int i = 0; i < number.length(); i++) {
+            node = find(node, number.charAt(i));
+            if (node < 0) {
+                return false;
+            }
+            int entryState = this.mPrefixStates[node];
+            if (entryState != NO_STATE && stateMatches(entryState, state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether any entry, read as a wildcard pattern, matches the whole number with a matching state. */
+    public boolean matchesNumber(String number, int state) {
+        Integer entryState = this.mExact.get(number);
+        if (entryState != null && stateMatches(entryState.intValue(), state)) {
+            return true;
+        }
+        for (int i = 0; i < this.mPatterns.length; i++) {
+            if (stateMatches(this.mPatternStates[i], state) && this.mPatterns[i].matcher(number).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
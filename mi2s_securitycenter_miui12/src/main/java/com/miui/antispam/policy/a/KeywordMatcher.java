@@ -0,0 +1,155 @@
+package com.miui.antispam.policy.a;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aho-Corasick automaton over a keyword list. A single pass over the lower-cased message finds the
+ * keyword with the lowest list index that occurs in it, which is the keyword the linear
+ * {@code contains} scan used to report.
+ */
+final class KeywordMatcher {
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+    private final char[] mEdgeChars;
+    private final int[] mEdgeStart;
+    private final int[] mEdgeTargets;
+    private final int[] mFail;
+    private final String[] mKeywords;
+    private final int[] mOutput;
+
+    private KeywordMatcher(String[] keywords, char[] edgeChars, int[] edgeTargets, int[] edgeStart, int[] fail, int[] output) {
+        this.mKeywords = keywords;
+        this.mEdgeChars = edgeChars;
+        this.mEdgeTargets = edgeTargets;
+        this.mEdgeStart = edgeStart;
+        this.mFail = fail;
+        this.mOutput = output;
+    }
+
+    static KeywordMatcher compile(List<String> keywordList) {
+        String[] keywords;
+        synchronized (keywordList) {
+            keywords = (String[]) keywordList.toArray(new String[keywordList.size()]);
+        }
+        ArrayList<TreeMap<Character, Integer>> children = new ArrayList<>();
+        ArrayList<Integer> own = new ArrayList<>();
+        children.add(new TreeMap());
+        own.add(Integer.valueOf(NO_MATCH));
+        for (int i = 0; i < keywords.length; i++) {
+            if (keywords[i] != null) {
+                String lowerCase = keywords[i].toLowerCase();
+                int node = 0;
+                for (int i2 = 0; i2 < lowerCase.length(); i2++) {
+                    Character valueOf = Character.valueOf(lowerCase.charAt(i2));
+                    Integer next = children.get(node).get(valueOf);
+                    if (next == null) {
+                        next = Integer.valueOf(children.size());
+                        children.get(node).put(valueOf, next);
+                        children.add(new TreeMap());
+                        own.add(Integer.valueOf(NO_MATCH));
+                    }
+                    node = next.intValue();
+                }
+                if (i < own.get(node).intValue()) {
+                    own.set(node, Integer.valueOf(i));
+                }
+            }
+        }
+        int size = children.size();
+        int[] order = new int[size];
+        int[] rename = new int[size];
+        order[0] = 0;
+        int tail = 1;
+        for (int head = 0; head < tail; head++) {
+            for (Integer intValue : children.get(order[head]).values()) {
+                int child = intValue.intValue();
+                rename[child] = tail;
+                order[tail] = child;
+                tail++;
+            }
+        }
+        char[] edgeChars = new char[(size - 1)];
+        int[] edgeTargets = new int[(size - 1)];
+        int[] edgeStart = new int[(size + 1)];
+        int edge = 0;
+        for (int i3 = 0; i3 < size; i3++) {
+            edgeStart[i3] = edge;
+            for (Map.Entry<Character, Integer> entry : children.get(order[i3]).entrySet()) {
+                edgeChars[edge] = entry.getKey().charValue();
+                edgeTargets[edge] = rename[entry.getValue().intValue()];
+                edge++;
+            }
+        }
+        edgeStart[size] = edge;
+        int[] fail = new int[size];
+        int[] output = new int[size];
+        output[0] = own.get(0).intValue();
+        KeywordMatcher matcher = new KeywordMatcher(keywords, edgeChars, edgeTargets, edgeStart, fail, output);
+        for (int node2 = 0; node2 < size; node2++) {
+            for (int i4 = edgeStart[node2]; i4 < edgeStart[node2 + 1]; i4++) {
+                int child2 = edgeTargets[i4];
+                int f = 0;
+                if (node2 != 0) {
+                    f = matcher.step(fail[node2], edgeChars[i4]);
+                }
+                fail[child2] = f;
+                output[child2] = Math.min(own.get(order[child2]).intValue(), output[f]);
+            }
+        }
+        return matcher;
+    }
+
+    private int find(int node, char c) {
+        int lo = this.mEdgeStart[node];
+        int hi = this.mEdgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char ch = this.mEdgeChars[mid];
+            if (ch < c) {
+                lo = mid + 1;
+            } else if (ch <= c) {
+                return this.mEdgeTargets[mid];
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return -1;
+    }
+
+    private int step(int node, char c) {
+        while (true) {
+            int next = find(node, c);
+            if (next >= 0) {
+                return next;
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = this.mFail[node];
+        }
+    }
+
+    /** Returns the keyword with the lowest list index that occurs in {@code message}, or null. */
+    /* access modifiers changed from: package-private */
+    public String findFirst(String message) {
+        if (this.mKeywords.length == 0 || message == null) {
+            return null;
+        }
+        String lowerCase = message.toLowerCase();
+        int best = this.mOutput[0];
+        int node = 0;
+        for (int i = 0; i < lowerCase.length() && best != 0; i++) {
+            node = step(node, lowerCase.charAt(i));
+            int keyword = this.mOutput[node];
+            if (keyword < best) {
+                best = keyword;
+            }
+        }
+        if (best == NO_MATCH) {
+            return null;
+        }
+        return this.mKeywords[best];
+    }
+}
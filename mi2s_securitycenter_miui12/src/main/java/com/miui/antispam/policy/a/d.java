@@ -40,6 +40,8 @@ public class d {
     public AtomicBoolean f2367d = new AtomicBoolean(false);
     /* access modifiers changed from: private */
     public AtomicBoolean e = new AtomicBoolean(false);
+    private final SparseArray<KeywordMatcher> mKeywordMatchers = new SparseArray<>();
+    private final SparseArray<CompiledPhoneList> mPhoneLists = new SparseArray<>();
 
     public d(Context context) {
         this.f2366c = context;
@@ -57,10 +59,6 @@ public class d {
         return false;
     }
 
-    private static String c(String str) {
-        return str.replace("*", "[\\s\\S]*").replace("#", "[\\s\\S]").replace("+", "\\+");
-    }
-
     /* access modifiers changed from: private */
     public void c() {
         this.f2365b = new SparseArray<>();
@@ -92,16 +90,56 @@ public class d {
             throw th;
         }
         IOUtils.closeQuietly(cursor);
+        synchronized (this.mKeywordMatchers) {
+            this.mKeywordMatchers.clear();
+        }
         Log.i("Judge", "Loading AntiSpam KeywordList");
     }
 
     private String d(String str, int i, int i2) {
-        for (String str2 : (List) this.f2365b.get(i).get(i2)) {
-            if (str.toLowerCase().contains(str2.toLowerCase())) {
-                return str2;
+        return keywordMatcher(i, i2).findFirst(str);
+    }
+
+    private static int listKey(int type, int simId) {
+        return (type << 8) | simId;
+    }
+
+    private KeywordMatcher keywordMatcher(int type, int simId) {
+        KeywordMatcher matcher;
+        int key = listKey(type, simId);
+        synchronized (this.mKeywordMatchers) {
+            matcher = this.mKeywordMatchers.get(key);
+            if (matcher == null) {
+                matcher = KeywordMatcher.compile((List) this.f2365b.get(type).get(simId));
+                this.mKeywordMatchers.put(key, matcher);
             }
         }
-        return null;
+        return matcher;
+    }
+
+    private CompiledPhoneList phoneList(int type, int simId) {
+        CompiledPhoneList list;
+        int key = listKey(type, simId);
+        synchronized (this.mPhoneLists) {
+            list = this.mPhoneLists.get(key);
+            if (list == null) {
+                list = CompiledPhoneList.compile((Map) this.f2364a.get(type).get(simId));
+                this.mPhoneLists.put(key, list);
+            }
+        }
+        return list;
+    }
+
+    private void invalidateKeywordMatcher(int type, int simId) {
+        synchronized (this.mKeywordMatchers) {
+            this.mKeywordMatchers.delete(listKey(type, simId));
+        }
+    }
+
+    private void invalidatePhoneList(int type, int simId) {
+        synchronized (this.mPhoneLists) {
+            this.mPhoneLists.delete(listKey(type, simId));
+        }
     }
 
     /* access modifiers changed from: private */
@@ -146,17 +184,14 @@ public class d {
             throw th;
         }
         IOUtils.closeQuietly(cursor);
+        synchronized (this.mPhoneLists) {
+            this.mPhoneLists.clear();
+        }
         Log.i("Judge", "Loading AntiSpam PhoneList");
     }
 
     private boolean e(String str, int i, int i2, int i3) {
-        for (Map.Entry entry : ((Map) this.f2364a.get(i2).get(i3)).entrySet()) {
-            int intValue = ((Integer) entry.getValue()).intValue();
-            if ((intValue == 0 || intValue == i) && str.matches(c((String) entry.getKey()))) {
-                return true;
-            }
-        }
-        return false;
+        return phoneList(i2, i3).matchesNumber(str, i);
     }
 
     public String a(String str) {
@@ -174,6 +209,7 @@ public class d {
     public void a(String str, int i, int i2) {
         if (this.f2367d.get()) {
             ((List) this.f2365b.get(i).get(i2)).remove(str);
+            invalidateKeywordMatcher(i, i2);
             if (a.f1308a) {
                 Log.i("Judge", "delete keyword : data = " + str);
             }
@@ -213,6 +249,7 @@ public class d {
             if (!list.contains(str)) {
                 list.add(str);
             }
+            invalidateKeywordMatcher(i, i2);
             if (a.f1308a) {
                 Log.i("Judge", "insert keyword : data = " + str);
             }
@@ -242,6 +279,7 @@ public class d {
                 str = str.substring(1);
             }
             ((Map) this.f2364a.get(i).get(i2)).remove(str);
+            invalidatePhoneList(i, i2);
             if (a.f1308a) {
                 Log.i("Judge", "delete phone list : number = " + str);
             }
@@ -253,14 +291,7 @@ public class d {
     }
 
     public boolean c(String str, int i, int i2, int i3) {
-        String str2 = "";
-        for (int i4 = 0; i4 < str.length(); i4++) {
-            str2 = str2 + str.charAt(i4);
-            if (b(str2 + "*", i, i2, i3)) {
-                return true;
-            }
-        }
-        return false;
+        return phoneList(i2, i3).matchesPrefix(str, i);
     }
 
     public void d(String str, int i, int i2, int i3) {
@@ -269,6 +300,7 @@ public class d {
                 str = str.substring(1);
             }
             ((Map) this.f2364a.get(i2).get(i3)).put(str, Integer.valueOf(i));
+            invalidatePhoneList(i2, i3);
             if (a.f1308a) {
                 Log.i("Judge", "insert phone list : number = " + str);
             }
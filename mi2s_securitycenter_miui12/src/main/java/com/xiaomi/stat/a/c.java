@@ -1,8 +1,9 @@
 package com.xiaomi.stat.a;
 
-import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.os.Build;
 import android.text.TextUtils;
 import com.xiaomi.stat.MiStatParams;
@@ -15,8 +16,27 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.FutureTask;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 
+/**
+ * Event store. Tracked events are held in a bounded in-memory ring and written to the events
+ * table in one transaction per flush, either FLUSH_INTERVAL_MILLIS after the first pending event
+ * or as soon as FLUSH_THRESHOLD events are pending. Every read or delete of the table is queued
+ * behind a flush, so callers still see their own events, and the last activity of the app going
+ * to the background flushes too, since the process may be killed at any time after that.
+ *
+ * The flushes, the events they wrote and the events dropped, by a full ring or by a failed insert,
+ * are counted and logged with every flush; ring overflows are logged as they happen, at the 1st,
+ * 2nd, 4th, 8th... drop.
+ */
 public class c {
+    private static final long FLUSH_INTERVAL_MILLIS = 2000;
+    private static final int FLUSH_THRESHOLD = 32;
+    private static final String INSERT_SQL = "INSERT INTO events (e,eg,tp,ts,ps,sub,is_am,priority) VALUES (?,?,?,?,?,?,?,?)";
+    private static final int PENDING_CAPACITY = 512;
+    private static final String[] UPLOAD_COLUMNS = {"_id", "e", "eg", "tp", "ts", "ps", "sub", "is_am"};
 
     /* renamed from: a  reason: collision with root package name */
     private static final String f8367a = "EventManager";
@@ -39,6 +59,15 @@ public class c {
     /* access modifiers changed from: private */
     public a l;
     private File m;
+    private long mDroppedEvents;
+    private boolean mFlushScheduled;
+    private final d mFlushRunnable = new d(this);
+    private long mFlushedEvents;
+    private long mFlushes;
+    private final l[] mPending = new l[PENDING_CAPACITY];
+    private int mPendingCount;
+    private final Object mPendingLock = new Object();
+    private int mPendingStart;
 
     private c() {
         Context a2 = ak.a();
@@ -78,261 +107,114 @@ public class c {
         return false;
     }
 
-    /* access modifiers changed from: private */
-    /* JADX WARNING: Can't wrap try/catch for region: R(5:30|(4:31|32|33|(14:34|35|36|37|38|39|40|41|42|43|44|45|46|47))|58|59|(2:90|61)(3:62|93|63)) */
-    /* JADX WARNING: Missing exception handler attribute for start block: B:58:0x013c */
-    /* JADX WARNING: Removed duplicated region for block: B:62:0x014a A[Catch:{ Exception -> 0x0185, all -> 0x0183 }] */
-    /* JADX WARNING: Removed duplicated region for block: B:84:0x0198  */
-    /* JADX WARNING: Removed duplicated region for block: B:88:0x01a1  */
-    /* JADX WARNING: Removed duplicated region for block: B:90:0x0144 A[SYNTHETIC] */
-    /* JADX WARNING: Removed duplicated region for block: B:98:? A[RETURN, SYNTHETIC] */
-    /* Code decompiled incorrectly, please refer to instructions dump. */
-    public com.xiaomi.stat.a.k b(com.xiaomi.stat.a.b[] r35) {
-        /*
-            r34 = this;
-            r1 = r34
-            r0 = r35
-            java.lang.String r2 = "ps"
-            java.lang.String r3 = "ts"
-            java.lang.String r4 = "tp"
-            java.lang.String r5 = "eg"
-            java.lang.String r6 = "e"
-            int r8 = r0.length     // Catch:{ Exception -> 0x018b, all -> 0x0188 }
-            r9 = 0
-            r10 = 1
-            if (r8 != r10) goto L_0x001c
-            r8 = r0[r9]     // Catch:{ Exception -> 0x018b, all -> 0x0188 }
-            java.lang.String r8 = r8.a()     // Catch:{ Exception -> 0x018b, all -> 0x0188 }
-            r14 = r8
-            r8 = r9
-            goto L_0x001e
-        L_0x001c:
-            r8 = r10
-            r14 = 0
-        L_0x001e:
-            com.xiaomi.stat.a.a r11 = r1.l     // Catch:{ Exception -> 0x018b, all -> 0x0188 }
-            android.database.sqlite.SQLiteDatabase r11 = r11.getReadableDatabase()     // Catch:{ Exception -> 0x018b, all -> 0x0188 }
-            java.lang.String r12 = "events"
-            r13 = 0
-            r15 = 0
-            r16 = 0
-            r17 = 0
-            java.lang.String r18 = "priority DESC, _id ASC"
-            android.database.Cursor r11 = r11.query(r12, r13, r14, r15, r16, r17, r18)     // Catch:{ Exception -> 0x018b, all -> 0x0188 }
-            java.lang.String r12 = "_id"
-            int r12 = r11.getColumnIndex(r12)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r13 = r11.getColumnIndex(r6)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r14 = r11.getColumnIndex(r5)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r15 = r11.getColumnIndex(r4)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r9 = r11.getColumnIndex(r3)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r7 = r11.getColumnIndex(r2)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            java.lang.String r10 = "sub"
-            int r10 = r11.getColumnIndex(r10)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r19 = r2
-            java.lang.String r2 = "is_am"
-            int r2 = r11.getColumnIndex(r2)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r20 = r3
-            org.json.JSONArray r3 = new org.json.JSONArray     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r3.<init>()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r21 = r3
-            java.util.ArrayList r3 = new java.util.ArrayList     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r3.<init>()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r22 = 0
-        L_0x006a:
-            boolean r23 = r11.moveToNext()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            if (r23 == 0) goto L_0x0168
-            r24 = r3
-            r23 = r4
-            long r3 = r11.getLong(r12)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r25 = r12
-            java.lang.String r12 = r11.getString(r13)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r26 = r13
-            java.lang.String r13 = r11.getString(r14)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r27 = r14
-            java.lang.String r14 = r11.getString(r15)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r28 = r3
-            long r3 = r11.getLong(r9)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r30 = r9
-            java.lang.String r9 = r11.getString(r7)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r31 = r7
-            java.lang.String r7 = r11.getString(r10)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r32 = r10
-            int r10 = r11.getInt(r2)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r33 = r2
-            r2 = 1
-            if (r10 != r2) goto L_0x00a9
-            r10 = r2
-            goto L_0x00aa
-        L_0x00a9:
-            r10 = 0
-        L_0x00aa:
-            if (r8 == 0) goto L_0x00bf
-            boolean r7 = r1.a(r0, r7, r13, r10)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            if (r7 == 0) goto L_0x00b3
-            goto L_0x00bf
-        L_0x00b3:
-            r4 = r19
-            r13 = r20
-            r3 = r21
-            r12 = r23
-            r1 = r24
-            goto L_0x014c
-        L_0x00bf:
-            int r7 = r9.length()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r7 = r7 * 2
-            int r7 = r7 + 55
-            int r22 = r22 + r7
-            boolean r7 = android.text.TextUtils.isEmpty(r12)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            if (r7 != 0) goto L_0x00d7
-            int r7 = r12.length()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r7 = r7 * 2
-            int r22 = r22 + r7
-        L_0x00d7:
-            boolean r7 = android.text.TextUtils.isEmpty(r13)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            if (r7 != 0) goto L_0x00e5
-            int r7 = r13.length()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            int r7 = r7 * 2
-            int r22 = r22 + r7
-        L_0x00e5:
-            r7 = r22
-            r10 = 122880(0x1e000, float:1.72192E-40)
-            if (r7 <= r10) goto L_0x00f3
-            r3 = r21
-            r1 = r24
-            r2 = 0
-            goto L_0x016c
-        L_0x00f3:
-            org.json.JSONObject r10 = new org.json.JSONObject     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r10.<init>()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r10.put(r6, r12)     // Catch:{ JSONException -> 0x0132 }
-            r10.put(r5, r13)     // Catch:{ JSONException -> 0x0132 }
-            r12 = r23
-            r10.put(r12, r14)     // Catch:{ JSONException -> 0x012b }
-            r13 = r20
-            r10.put(r13, r3)     // Catch:{ JSONException -> 0x0128 }
-            java.lang.String r3 = "eid"
-            r0 = r28
-            r10.put(r3, r0)     // Catch:{ JSONException -> 0x0128 }
-            org.json.JSONObject r3 = new org.json.JSONObject     // Catch:{ JSONException -> 0x0128 }
-            r3.<init>(r9)     // Catch:{ JSONException -> 0x0128 }
-            r4 = r19
-            r10.put(r4, r3)     // Catch:{ JSONException -> 0x012f }
-            r3 = r21
-            r3.put(r10)     // Catch:{ JSONException -> 0x013a }
-            java.lang.Long r0 = java.lang.Long.valueOf(r0)     // Catch:{ JSONException -> 0x013a }
-            r1 = r24
-            r1.add(r0)     // Catch:{ JSONException -> 0x013c }
-            goto L_0x013c
-        L_0x0128:
-            r4 = r19
-            goto L_0x012f
-        L_0x012b:
-            r4 = r19
-            r13 = r20
-        L_0x012f:
-            r3 = r21
-            goto L_0x013a
-        L_0x0132:
-            r4 = r19
-            r13 = r20
-            r3 = r21
-            r12 = r23
-        L_0x013a:
-            r1 = r24
-        L_0x013c:
-            int r0 = r1.size()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r9 = 300(0x12c, float:4.2E-43)
-            if (r0 < r9) goto L_0x014a
-            boolean r9 = r11.isLast()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r2 = r9
-            goto L_0x016c
-        L_0x014a:
-            r22 = r7
-        L_0x014c:
-            r0 = r35
-            r21 = r3
-            r19 = r4
-            r4 = r12
-            r20 = r13
-            r12 = r25
-            r13 = r26
-            r14 = r27
-            r9 = r30
-            r7 = r31
-            r10 = r32
-            r2 = r33
-            r3 = r1
-            r1 = r34
-            goto L_0x006a
-        L_0x0168:
-            r1 = r3
-            r3 = r21
-            r2 = 1
-        L_0x016c:
-            int r0 = r1.size()     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            if (r0 <= 0) goto L_0x017d
-            com.xiaomi.stat.a.k r0 = new com.xiaomi.stat.a.k     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            r0.<init>(r3, r1, r2)     // Catch:{ Exception -> 0x0185, all -> 0x0183 }
-            if (r11 == 0) goto L_0x017c
-            r11.close()
-        L_0x017c:
-            return r0
-        L_0x017d:
-            if (r11 == 0) goto L_0x019b
-            r11.close()
-            goto L_0x019b
-        L_0x0183:
-            r0 = move-exception
-            goto L_0x019f
-        L_0x0185:
-            r0 = move-exception
-            r7 = r11
-            goto L_0x018d
-        L_0x0188:
-            r0 = move-exception
-            r11 = 0
-            goto L_0x019f
-        L_0x018b:
-            r0 = move-exception
-            r7 = 0
-        L_0x018d:
-            java.lang.String r1 = "EventManager"
-            java.lang.String r0 = r0.toString()     // Catch:{ all -> 0x019d }
-            com.xiaomi.stat.d.k.b(r1, r0)     // Catch:{ all -> 0x019d }
-            if (r7 == 0) goto L_0x019b
-            r7.close()
-        L_0x019b:
-            r1 = 0
-            return r1
-        L_0x019d:
-            r0 = move-exception
-            r11 = r7
-        L_0x019f:
-            if (r11 == 0) goto L_0x01a4
-            r11.close()
-        L_0x01a4:
-            throw r0
-        */
-        throw new UnsupportedOperationException("Method not decompiled: com.xiaomi.stat.a.c.b(com.xiaomi.stat.a.b[]):com.xiaomi.stat.a.k");
+    /**
+     * Reads the next upload batch: at most f8370d events and about e bytes of them, in priority
+     * order. The query names the columns it reads and, when the filter is a single selection, is
+     * limited to one batch, so the cursor window holds exactly the batch instead of being refilled
+     * from the whole table row by row. One row more than a batch is read to tell if it is the last.
+     */
+    public com.xiaomi.stat.a.k b(b[] bVarArr) {
+        String str;
+        boolean z;
+        Cursor cursor = null;
+        try {
+            if (bVarArr.length == 1) {
+                str = bVarArr[0].a();
+                z = false;
+            } else {
+                str = null;
+                z = true;
+            }
+            cursor = this.l.getReadableDatabase().query(j.f8382b, UPLOAD_COLUMNS, str, (String[]) null, (String) null, (String) null, h, z ? null : Integer.toString(f8370d + 1));
+            int columnIndex = cursor.getColumnIndex("_id");
+            int columnIndex2 = cursor.getColumnIndex("e");
+            int columnIndex3 = cursor.getColumnIndex("eg");
+            int columnIndex4 = cursor.getColumnIndex("tp");
+            int columnIndex5 = cursor.getColumnIndex("ts");
+            int columnIndex6 = cursor.getColumnIndex("ps");
+            int columnIndex7 = cursor.getColumnIndex("sub");
+            int columnIndex8 = cursor.getColumnIndex("is_am");
+            JSONArray jSONArray = new JSONArray();
+            ArrayList arrayList = new ArrayList();
+            boolean z2 = true;
+            int i2 = 0;
+            while (true) {
+                if (!cursor.moveToNext()) {
+                    break;
+                }
+                long j2 = cursor.getLong(columnIndex);
+                String string = cursor.getString(columnIndex2);
+                String string2 = cursor.getString(columnIndex3);
+                String string3 = cursor.getString(columnIndex4);
+                long j3 = cursor.getLong(columnIndex5);
+                String string4 = cursor.getString(columnIndex6);
+                String string5 = cursor.getString(columnIndex7);
+                boolean z3 = cursor.getInt(columnIndex8) == 1;
+                if (!z || a(bVarArr, string5, string2, z3)) {
+                    i2 += (string4.length() * 2) + f;
+                    if (!TextUtils.isEmpty(string)) {
+                        i2 += string.length() * 2;
+                    }
+                    if (!TextUtils.isEmpty(string2)) {
+                        i2 += string2.length() * 2;
+                    }
+                    if (i2 > e) {
+                        z2 = false;
+                        break;
+                    }
+                    JSONObject jSONObject = new JSONObject();
+                    try {
+                        jSONObject.put("e", string);
+                        jSONObject.put("eg", string2);
+                        jSONObject.put("tp", string3);
+                        jSONObject.put("ts", j3);
+                        jSONObject.put("eid", j2);
+                        jSONObject.put("ps", new JSONObject(string4));
+                        jSONArray.put(jSONObject);
+                        arrayList.add(Long.valueOf(j2));
+                    } catch (JSONException unused) {
+                    }
+                    if (arrayList.size() >= f8370d) {
+                        z2 = cursor.isLast();
+                        break;
+                    }
+                }
+            }
+            if (arrayList.size() > 0) {
+                return new com.xiaomi.stat.a.k(jSONArray, arrayList, z2);
+            }
+        } catch (Exception e2) {
+            k.b(f8367a, e2.toString());
+        } finally {
+            if (cursor != null) {
+                cursor.close();
+            }
+        }
+        return null;
     }
 
-    /* access modifiers changed from: private */
-    public void b(l lVar) {
-        d();
-        SQLiteDatabase writableDatabase = this.l.getWritableDatabase();
-        ContentValues contentValues = new ContentValues();
-        contentValues.put("e", lVar.f8388a);
-        contentValues.put("eg", lVar.f8389b);
-        contentValues.put("tp", lVar.f8390c);
-        contentValues.put("ts", Long.valueOf(lVar.e));
+    private void insertEvent(SQLiteStatement sQLiteStatement, l lVar) {
         if (c(lVar)) {
             a((MiStatParams) lVar.f8391d);
         }
-        contentValues.put("ps", lVar.f8391d.toJsonString());
-        contentValues.put(j.i, lVar.f);
-        contentValues.put(j.j, Integer.valueOf(lVar.g ? 1 : 0));
-        contentValues.put(j.k, Integer.valueOf(TextUtils.equals(lVar.f8389b, l.a.h) ? 10 : 0));
-        writableDatabase.insert(j.f8382b, (String) null, contentValues);
+        sQLiteStatement.clearBindings();
+        bindString(sQLiteStatement, 1, lVar.f8388a);
+        bindString(sQLiteStatement, 2, lVar.f8389b);
+        bindString(sQLiteStatement, 3, lVar.f8390c);
+        sQLiteStatement.bindLong(4, lVar.e);
+        bindString(sQLiteStatement, 5, lVar.f8391d.toJsonString());
+        bindString(sQLiteStatement, 6, lVar.f);
+        sQLiteStatement.bindLong(7, lVar.g ? 1 : 0);
+        sQLiteStatement.bindLong(8, TextUtils.equals(lVar.f8389b, l.a.h) ? 10 : 0);
+        sQLiteStatement.executeInsert();
+    }
+
+    private static void bindString(SQLiteStatement sQLiteStatement, int i2, String str) {
+        if (str == null) {
+            sQLiteStatement.bindNull(i2);
+        } else {
+            sQLiteStatement.bindString(i2, str);
+        }
     }
 
     /* access modifiers changed from: private */
@@ -368,7 +250,95 @@ public class c {
         }
     }
 
+    /**
+     * Writes the pending events in one transaction. If the transaction fails, the events are
+     * inserted one at a time, so only the events that fail themselves are lost.
+     */
+    /* access modifiers changed from: package-private */
+    public void flushPendingEvents() {
+        l[] lVarArr;
+        synchronized (this.mPendingLock) {
+            this.mFlushScheduled = false;
+            if (this.mPendingCount != 0) {
+                lVarArr = new l[this.mPendingCount];
+                for (int i2 = 0; i2 < lVarArr.length; i2++) {
+                    int i3 = (this.mPendingStart + i2) % PENDING_CAPACITY;
+                    lVarArr[i2] = this.mPending[i3];
+                    this.mPending[i3] = null;
+                }
+                this.mPendingStart = 0;
+                this.mPendingCount = 0;
+            } else {
+                return;
+            }
+        }
+        try {
+            d();
+            SQLiteDatabase writableDatabase = this.l.getWritableDatabase();
+            SQLiteStatement compileStatement = writableDatabase.compileStatement(INSERT_SQL);
+            try {
+                writableDatabase.beginTransaction();
+                try {
+                    for (l insertEvent : lVarArr) {
+                        insertEvent(compileStatement, insertEvent);
+                    }
+                    writableDatabase.setTransactionSuccessful();
+                } finally {
+                    writableDatabase.endTransaction();
+                }
+                countFlush(lVarArr.length, 0);
+            } catch (Exception e2) {
+                k.e(f8367a, "flush events failed, inserting one by one: " + e2.toString());
+                insertEachEvent(compileStatement, lVarArr);
+            } finally {
+                compileStatement.close();
+            }
+        } catch (Exception e3) {
+            k.e(f8367a, "flush events failed: " + e3.toString());
+            countFlush(0, lVarArr.length);
+        }
+    }
+
+    private void insertEachEvent(SQLiteStatement sQLiteStatement, l[] lVarArr) {
+        int i2 = 0;
+        for (l lVar : lVarArr) {
+            try {
+                insertEvent(sQLiteStatement, lVar);
+                i2++;
+            } catch (Exception e2) {
+                k.e(f8367a, "insert event failed: name=" + lVar.f8388a + ", " + e2.toString());
+            }
+        }
+        countFlush(i2, lVarArr.length - i2);
+    }
+
+    private void countFlush(int i2, int i3) {
+        long j2;
+        long j3;
+        long j4;
+        synchronized (this.mPendingLock) {
+            this.mFlushes++;
+            this.mFlushedEvents += (long) i2;
+            this.mDroppedEvents += (long) i3;
+            j2 = this.mFlushes;
+            j3 = this.mFlushedEvents;
+            j4 = this.mDroppedEvents;
+        }
+        k.c(f8367a, "flushed events number " + i2 + ", dropped " + i3 + " (flushes=" + j2 + ", flushed=" + j3 + ", dropped=" + j4 + ")");
+    }
+
+    /** Queues a flush of the pending events on the DB executor, if there are any. */
+    public void postFlushIfPending() {
+        synchronized (this.mPendingLock) {
+            if (this.mPendingCount == 0) {
+                return;
+            }
+        }
+        com.xiaomi.stat.c.a((Runnable) this.mFlushRunnable);
+    }
+
     public k a(b[] bVarArr) {
+        postFlushIfPending();
         FutureTask futureTask = new FutureTask(new e(this, bVarArr));
         com.xiaomi.stat.c.a(futureTask);
         try {
@@ -379,11 +349,40 @@ public class c {
     }
 
     public void a(l lVar) {
-        com.xiaomi.stat.c.a(new d(this, lVar));
+        boolean z;
+        boolean z2;
+        l lVar2 = null;
+        long j2 = 0;
+        synchronized (this.mPendingLock) {
+            if (this.mPendingCount == PENDING_CAPACITY) {
+                lVar2 = this.mPending[this.mPendingStart];
+                this.mPending[this.mPendingStart] = null;
+                this.mPendingStart = (this.mPendingStart + 1) % PENDING_CAPACITY;
+                this.mPendingCount--;
+                this.mDroppedEvents++;
+                j2 = this.mDroppedEvents;
+            }
+            this.mPending[(this.mPendingStart + this.mPendingCount) % PENDING_CAPACITY] = lVar;
+            this.mPendingCount++;
+            z = this.mPendingCount >= FLUSH_THRESHOLD;
+            z2 = !z && !this.mFlushScheduled;
+            if (z2) {
+                this.mFlushScheduled = true;
+            }
+        }
+        if (z) {
+            com.xiaomi.stat.c.a((Runnable) this.mFlushRunnable);
+        } else if (z2) {
+            com.xiaomi.stat.c.a(this.mFlushRunnable, FLUSH_INTERVAL_MILLIS);
+        }
+        if (lVar2 != null && (j2 & (j2 - 1)) == 0) {
+            k.e(f8367a, "event buffer full, dropped event: name=" + lVar2.f8388a + " (dropped=" + j2 + ")");
+        }
         k.c(f8367a, "add event: name=" + lVar.f8388a);
     }
 
     public void a(String str) {
+        postFlushIfPending();
         com.xiaomi.stat.c.a(new h(this, str));
     }
 
@@ -397,10 +396,12 @@ public class c {
     }
 
     public void b() {
+        postFlushIfPending();
         com.xiaomi.stat.c.a(new g(this));
     }
 
     public long c() {
+        postFlushIfPending();
         FutureTask futureTask = new FutureTask(new i(this));
         com.xiaomi.stat.c.a(futureTask);
         try {
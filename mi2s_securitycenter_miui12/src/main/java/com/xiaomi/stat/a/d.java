@@ -5,21 +5,17 @@ import com.xiaomi.stat.d.k;
 class d implements Runnable {
 
     /* renamed from: a  reason: collision with root package name */
-    final /* synthetic */ l f8371a;
+    final /* synthetic */ c f8372a;
 
-    /* renamed from: b  reason: collision with root package name */
-    final /* synthetic */ c f8372b;
-
-    d(c cVar, l lVar) {
-        this.f8372b = cVar;
-        this.f8371a = lVar;
+    d(c cVar) {
+        this.f8372a = cVar;
     }
 
     public void run() {
         try {
-            this.f8372b.b(this.f8371a);
+            this.f8372a.flushPendingEvents();
         } catch (Exception e) {
-            k.e("EventManager", "addEvent exception: " + e.toString());
+            k.e("EventManager", "flushEvents exception: " + e.toString());
         }
     }
 }
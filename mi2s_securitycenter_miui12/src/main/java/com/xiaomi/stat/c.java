@@ -50,6 +50,11 @@ public class c {
         e.post(new a(runnable));
     }
 
+    public static void a(Runnable runnable, long j) {
+        c();
+        e.postDelayed(new a(runnable), j);
+    }
+
     private static void c() {
         if (e == null) {
             synchronized (c.class) {
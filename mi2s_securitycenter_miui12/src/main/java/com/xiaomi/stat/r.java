@@ -61,6 +61,7 @@ class r implements Application.ActivityLifecycleCallbacks {
             e eVar = this.f8600a;
             eVar.a(eVar.j, this.f8600a.k, b2 - elapsedRealtime, b2);
             this.f8600a.e.execute(new t(this));
+            com.xiaomi.stat.a.c.a().postFlushIfPending();
         }
     }
 }